@@ -0,0 +1,34 @@
+#!/bin/bash
+
+#
+# run-benchmarks.sh
+#
+
+# Script to build and run the JMH microbenchmarks of the core modules.
+# Results are written in machine-readable form to benchmarks.json (or the
+# file given by the RESULTS environment variable) in the current directory.
+
+# Usage: bin/run-benchmarks.sh [JMH options] [benchmark regexp]
+#
+# Examples:
+#   bin/run-benchmarks.sh
+#   bin/run-benchmarks.sh -p size=512x512,2048x2048 DatasetBenchmarks
+#   bin/run-benchmarks.sh -l
+#   RESULTS=results.csv FORMAT=csv bin/run-benchmarks.sh
+
+set -e
+
+ROOT=`cd "$(dirname $0)/.." ; pwd`
+RESULTS="${RESULTS:-benchmarks.json}"
+FORMAT="${FORMAT:-json}"
+JAR="$ROOT/core/benchmarks/target/benchmarks.jar"
+
+# build the benchmarks module along with the modules it depends on
+(cd "$ROOT/core" && mvn -B -P benchmarks -pl benchmarks -am -DskipTests package)
+
+# NB: The largest datasets (8192x8192 float32, plus working copies) need a
+# generous heap; override with JAVA_OPTS if needed.
+JAVA_OPTS="${JAVA_OPTS:--Xmx4g}"
+
+java $JAVA_OPTS -jar "$JAR" -jvmArgs "$JAVA_OPTS" \
+  -rf "$FORMAT" -rff "$RESULTS" "$@"
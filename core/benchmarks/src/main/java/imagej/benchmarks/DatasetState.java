@@ -0,0 +1,184 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import net.imglib2.Cursor;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmark state holding a freshly created and filled {@link Dataset}.
+ * <p>
+ * The {@code size} parameter is an extent list such as {@code 2048x2048} or
+ * {@code 512x512x64}; the first two extents are X and Y, and a third extent
+ * (if any) is Z. The {@code type} parameter is one of {@code uint8},
+ * {@code uint16} or {@code float32}. Subclasses may override the defaults of
+ * either parameter with their own {@link Param} annotations.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class DatasetState {
+
+	@Param({ "512x512", "2048x2048", "8192x8192", "512x512x64",
+		"2048x2048x16" })
+	public String size;
+
+	@Param({ "uint8", "uint16", "float32" })
+	public String type;
+
+	public ImageJ context;
+	public Dataset dataset;
+
+	/** Number of XY planes of {@link #dataset}. */
+	public int planeCount;
+
+	@Setup(Level.Trial)
+	public void setUpDataset() {
+		context = ImageJ.createContext(DatasetService.class);
+		dataset = createDataset(context, size, type, isPlanar());
+		fill(dataset);
+		final long[] dims = parseDims(size);
+		long planes = 1;
+		for (int i = 2; i < dims.length; i++) {
+			planes *= dims[i];
+		}
+		planeCount = (int) planes;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDownDataset() {
+		dataset = null;
+		context = null;
+	}
+
+	/**
+	 * Gets whether the dataset is backed by a planar image. Subclasses may
+	 * override this to benchmark other storage.
+	 */
+	public boolean isPlanar() {
+		return true;
+	}
+
+	// -- Utility methods --
+
+	/** Parses an extent list of the form {@code 512x512x64}. */
+	public static long[] parseDims(final String size) {
+		final String[] tokens = size.split("x");
+		final long[] dims = new long[tokens.length];
+		for (int i = 0; i < dims.length; i++) {
+			dims[i] = Long.parseLong(tokens[i].trim());
+		}
+		return dims;
+	}
+
+	/** Creates a planar {@link Dataset} of the given extents and type label. */
+	public static Dataset createDataset(final ImageJ context,
+		final String size, final String type)
+	{
+		return createDataset(context, size, type, true);
+	}
+
+	/**
+	 * Creates a {@link Dataset} of the given extents and type label, backed by
+	 * either a planar or a single array image.
+	 */
+	public static Dataset createDataset(final ImageJ context,
+		final String size, final String type, final boolean planar)
+	{
+		if (type.equals("uint8")) {
+			return createDataset(context, size, type, planar,
+				new UnsignedByteType());
+		}
+		if (type.equals("uint16")) {
+			return createDataset(context, size, type, planar,
+				new UnsignedShortType());
+		}
+		if (type.equals("float32")) {
+			return createDataset(context, size, type, planar, new FloatType());
+		}
+		throw new IllegalArgumentException("Unknown type: " + type);
+	}
+
+	/** Fills the dataset with a repeating ramp that fits every tested type. */
+	public static void fill(final Dataset dataset) {
+		final Cursor<? extends RealType<?>> cursor =
+			dataset.getImgPlus().cursor();
+		long i = 0;
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			cursor.get().setReal(i++ % 251);
+		}
+	}
+
+	// -- Helper methods --
+
+	private static <T extends RealType<T> & NativeType<T>> Dataset
+		createDataset(final ImageJ context, final String size,
+			final String type, final boolean planar, final T t)
+	{
+		final long[] dims = parseDims(size);
+		final AxisType[] order = { Axes.X, Axes.Y, Axes.Z, Axes.TIME };
+		if (dims.length < 2 || dims.length > order.length) {
+			throw new IllegalArgumentException("Unsupported size: " + size);
+		}
+		final AxisType[] axes = new AxisType[dims.length];
+		System.arraycopy(order, 0, axes, 0, axes.length);
+		final ImgFactory<T> factory =
+			planar ? new PlanarImgFactory<T>() : new ArrayImgFactory<T>();
+		final DatasetService datasetService =
+			context.getService(DatasetService.class);
+		return datasetService.create(factory, t, dims, type + "-" + size, axes);
+	}
+
+}
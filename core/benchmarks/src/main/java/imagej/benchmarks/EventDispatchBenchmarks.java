@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.ImageJ;
+import imagej.event.DefaultEventService;
+import imagej.event.EventHandler;
+import imagej.event.EventService;
+import imagej.event.ImageJEvent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks synchronous event delivery through the generated event invokers
+ * of {@link DefaultEventService}, against calling the handler reflectively (as
+ * formerly done for every delivered event), and the cost of subscribing an
+ * object whose class has already been scanned for handlers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EventDispatchBenchmarks {
+
+	/** An event service with one subscribed {@link Counter}. */
+	@State(Scope.Benchmark)
+	public static class EventState {
+
+		public EventService eventService;
+		public Counter counter;
+		public Method method;
+		public final Ping event = new Ping();
+
+		@Setup(Level.Trial)
+		public void setUp() throws NoSuchMethodException {
+			eventService = new DefaultEventService(new ImageJ(), null);
+			counter = new Counter();
+			eventService.subscribe(counter);
+			method = Counter.class.getDeclaredMethod("onEvent", Ping.class);
+			method.setAccessible(true);
+		}
+
+	}
+
+	/** Delivers an event through the subscriber's generated invoker. */
+	@Benchmark
+	public void publishNow(final EventState state) {
+		state.eventService.publishNow(state.event);
+	}
+
+	/** Calls the handler method reflectively. */
+	@Benchmark
+	public Object invokeReflectively(final EventState state) throws Exception {
+		return state.method.invoke(state.counter, state.event);
+	}
+
+	/** Subscribes and unsubscribes an object of an already scanned class. */
+	@Benchmark
+	public void subscribe(final EventState state) {
+		state.eventService.unsubscribe(state.eventService
+			.subscribe(new Counter()));
+	}
+
+	// -- Helper classes --
+
+	public static class Ping extends ImageJEvent {
+		// simple event
+	}
+
+	public static class Counter {
+
+		public long count;
+
+		@EventHandler
+		protected void onEvent(@SuppressWarnings("unused") final Ping event) {
+			count++;
+		}
+
+	}
+
+}
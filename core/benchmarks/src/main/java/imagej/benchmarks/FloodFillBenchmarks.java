@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.data.ChannelCollection;
+import imagej.data.DrawingTool;
+import imagej.data.FloodFiller;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.Cursor;
+import net.imglib2.type.numeric.RealType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link FloodFiller} filling a whole uniform dataset. Each
+ * invocation fills with a different value than the last one, so every fill
+ * visits every pixel (of the current plane for 2D fills, of the volume for 3D
+ * fills).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class FloodFillBenchmarks {
+
+	/** A uniform dataset with a drawing tool to fill it. */
+	public static class FloodFillState extends DatasetState {
+
+		public DrawingTool tool;
+		public long[] position;
+		private final ChannelCollection values = new ChannelCollection();
+		private final double[] value = new double[1];
+
+		@Setup(Level.Trial)
+		public void setUpTool() {
+			final Cursor<? extends RealType<?>> cursor =
+				dataset.getImgPlus().cursor();
+			while (cursor.hasNext()) {
+				cursor.fwd();
+				cursor.get().setZero();
+			}
+			tool = new DrawingTool(dataset);
+			tool.setUAxis(0);
+			tool.setVAxis(1);
+			tool.setChannels(values);
+			position = new long[dataset.numDimensions()];
+			tool.setPosition(position);
+		}
+
+		/** Switches between two fill values and returns a new filler. */
+		public FloodFiller nextFiller() {
+			value[0] = value[0] == 1 ? 2 : 1;
+			values.setChannelValues(value);
+			return new FloodFiller(tool);
+		}
+
+	}
+
+	@Benchmark
+	public boolean fill4(final FloodFillState state) {
+		return state.nextFiller().fill4(0, 0, state.position);
+	}
+
+	@Benchmark
+	public boolean fill8(final FloodFillState state) {
+		return state.nextFiller().fill8(0, 0, state.position);
+	}
+
+	@Benchmark
+	public boolean fill6(final FloodFillState state) {
+		return state.nextFiller().fill6(0, 0, state.position);
+	}
+
+	@Benchmark
+	public boolean fill26(final FloodFillState state) {
+		return state.nextFiller().fill26(0, 0, state.position);
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.ImgCopier;
+import imagej.thread.ThreadService;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.RealType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks whole-image copies by {@link ImgCopier}, on one thread and on
+ * all compute threads, against the per-sample cursor loop it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ImgCopierBenchmarks {
+
+	/**
+	 * A filled source dataset plus a destination of the same extents, whose
+	 * type is either the source's ({@code same}) or the given type label.
+	 */
+	@State(Scope.Benchmark)
+	public static class CopyState {
+
+		@Param({ "2048x2048", "512x512x64" })
+		public String size;
+
+		@Param({ "uint8", "uint16", "float32" })
+		public String type;
+
+		@Param({ "same", "float32" })
+		public String target;
+
+		public ImageJ context;
+		public Img<? extends RealType<?>> src;
+		public Img<? extends RealType<?>> dst;
+		public ImgCopier serialCopier;
+		public ImgCopier parallelCopier;
+
+		@Setup(Level.Trial)
+		@SuppressWarnings("unchecked")
+		public void setUp() {
+			context =
+				ImageJ.createContext(DatasetService.class, ThreadService.class);
+			final Dataset source = DatasetState.createDataset(context, size, type);
+			DatasetState.fill(source);
+			src = source.getImgPlus();
+			final String dstType = target.equals("same") ? type : target;
+			dst = DatasetState.createDataset(context, size, dstType).getImgPlus();
+			serialCopier = new ImgCopier();
+			parallelCopier = new ImgCopier(context.getService(ThreadService.class));
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			src = null;
+			dst = null;
+			context = null;
+		}
+
+	}
+
+	/** The per-sample loop formerly used by DefaultDataset and friends. */
+	@Benchmark
+	public void perSample(final CopyState state) {
+		final Img<? extends RealType<?>> output = state.dst;
+		final long[] position = new long[output.numDimensions()];
+		final Cursor<? extends RealType<?>> outputCursor =
+			output.localizingCursor();
+		final RandomAccess<? extends RealType<?>> inputAccessor =
+			state.src.randomAccess();
+		while (outputCursor.hasNext()) {
+			outputCursor.next();
+			outputCursor.localize(position);
+			inputAccessor.setPosition(position);
+			outputCursor.get().setReal(inputAccessor.get().getRealDouble());
+		}
+	}
+
+	@Benchmark
+	public void copierSerial(final CopyState state) {
+		state.serialCopier.copy(state.src, state.dst);
+	}
+
+	@Benchmark
+	public void copierParallel(final CopyState state) {
+		state.parallelCopier.copy(state.src, state.dst);
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.core.plugins.assign.InplaceUnaryTransform;
+import imagej.data.Extents;
+import imagej.data.Position;
+import imagej.data.overlay.PolygonOverlay;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.RealPoint;
+import net.imglib2.ops.operation.unary.real.RealMultiplyConstant;
+import net.imglib2.roi.PolygonRegionOfInterest;
+import net.imglib2.type.numeric.real.DoubleType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link InplaceUnaryTransform} over a whole dataset and over its
+ * first plane, and over a diamond-shaped polygon on every plane. The operation
+ * multiplies by one, so the data are unchanged between invocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class InplaceUnaryTransformBenchmarks {
+
+	@Benchmark
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void allPlanes(final DatasetState state) {
+		new InplaceUnaryTransform(createOperation(), new DoubleType(),
+			state.dataset, null).run();
+	}
+
+	@Benchmark
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void singlePlane(final DatasetState state) {
+		final long[] dims = state.dataset.getDims();
+		final long[] planeDims = new long[dims.length - 2];
+		System.arraycopy(dims, 2, planeDims, 0, planeDims.length);
+		final Position planePos = new Extents(planeDims).createPosition();
+		planePos.first();
+		new InplaceUnaryTransform(createOperation(), new DoubleType(),
+			state.dataset, null, planePos).run();
+	}
+
+	@Benchmark
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void allPlanesInPolygon(final DatasetState state) {
+		new InplaceUnaryTransform(createOperation(), new DoubleType(),
+			state.dataset, createDiamond(state)).run();
+	}
+
+	// -- Helper methods --
+
+	/** Creates a fresh polygon, so every invocation rasterizes it once. */
+	private PolygonOverlay createDiamond(final DatasetState state) {
+		final double w = state.dataset.dimension(0) - 1;
+		final double h = state.dataset.dimension(1) - 1;
+		final PolygonOverlay overlay = new PolygonOverlay(state.context);
+		final PolygonRegionOfInterest roi = overlay.getRegionOfInterest();
+		roi.addVertex(0, new RealPoint(new double[] { w / 2, 0 }));
+		roi.addVertex(1, new RealPoint(new double[] { w, h / 2 }));
+		roi.addVertex(2, new RealPoint(new double[] { w / 2, h }));
+		roi.addVertex(3, new RealPoint(new double[] { 0, h / 2 }));
+		return overlay;
+	}
+
+	private RealMultiplyConstant<DoubleType, DoubleType> createOperation() {
+		return new RealMultiplyConstant<DoubleType, DoubleType>(1);
+	}
+
+}
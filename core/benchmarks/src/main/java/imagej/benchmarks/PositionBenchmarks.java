@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.ImageJ;
+import imagej.data.Extents;
+import imagej.data.ExtentsIterator;
+import imagej.data.Position;
+import imagej.thread.LoopBody;
+import imagej.thread.ThreadService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks full traversals of an {@link Extents} with a {@link Position},
+ * against an {@link ExtentsIterator}, serial and split across threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PositionBenchmarks {
+
+	@State(Scope.Thread)
+	public static class PositionState {
+
+		@Param({ "512x512", "2048x2048", "8192x8192", "512x512x64",
+			"2048x2048x16" })
+		public String size;
+
+		public Position position;
+		public ExtentsIterator iterator;
+		public long[] coords;
+		public ThreadService threadService;
+
+		@Setup(Level.Trial)
+		public void setUpPosition() {
+			final Extents extents = new Extents(DatasetState.parseDims(size));
+			position = extents.createPosition();
+			iterator = extents.createIterator();
+			coords = new long[extents.numDimensions()];
+			threadService =
+				ImageJ.createContext(ThreadService.class).getService(
+					ThreadService.class);
+		}
+
+	}
+
+	/** Steps through every position. */
+	@Benchmark
+	public long fwd(final PositionState state) {
+		final Position position = state.position;
+		position.reset();
+		long steps = 0;
+		while (position.hasNext()) {
+			position.fwd();
+			steps++;
+		}
+		return steps;
+	}
+
+	/** Steps through every position, computing each one's index. */
+	@Benchmark
+	public long fwdGetIndex(final PositionState state) {
+		final Position position = state.position;
+		position.reset();
+		long sum = 0;
+		while (position.hasNext()) {
+			position.fwd();
+			sum += position.getIndex();
+		}
+		return sum;
+	}
+
+	/** Steps through every position with an {@link ExtentsIterator}. */
+	@Benchmark
+	public long iteratorFwd(final PositionState state) {
+		final ExtentsIterator iterator = state.iterator;
+		iterator.reset();
+		long steps = 0;
+		while (iterator.hasNext()) {
+			iterator.fwd();
+			steps++;
+		}
+		return steps;
+	}
+
+	/**
+	 * Steps through every position with an {@link ExtentsIterator}, reading
+	 * each one's index.
+	 */
+	@Benchmark
+	public long iteratorFwdGetIndex(final PositionState state) {
+		final ExtentsIterator iterator = state.iterator;
+		iterator.reset();
+		long sum = 0;
+		while (iterator.hasNext()) {
+			iterator.fwd();
+			sum += iterator.getIndex();
+		}
+		return sum;
+	}
+
+	/** Converts every index into coordinates. */
+	@Benchmark
+	public long setIndex(final PositionState state) {
+		final Position position = state.position;
+		final long[] coords = state.coords;
+		final long count = position.getExtents().numElements();
+		long sum = 0;
+		for (long index = 0; index < count; index++) {
+			position.setIndex(index);
+			position.localize(coords);
+			sum += coords[coords.length - 1];
+		}
+		return sum;
+	}
+
+	/** Converts every index into coordinates with an {@link ExtentsIterator}. */
+	@Benchmark
+	public long iteratorPositionOf(final PositionState state) {
+		final ExtentsIterator iterator = state.iterator;
+		final long[] coords = state.coords;
+		final long count = iterator.getExtents().numElements();
+		long sum = 0;
+		for (long index = 0; index < count; index++) {
+			iterator.positionOf(index, coords);
+			sum += coords[coords.length - 1];
+		}
+		return sum;
+	}
+
+	/**
+	 * Steps through every position with {@link ExtentsIterator}s split across
+	 * the compute threads.
+	 */
+	@Benchmark
+	public long iteratorSplitFwd(final PositionState state) {
+		final int chunkCount = Runtime.getRuntime().availableProcessors();
+		final ExtentsIterator[] chunks = new ExtentsIterator[chunkCount];
+		chunks[0] = state.iterator.getExtents().createIterator();
+		int count = 1;
+		while (count < chunkCount) {
+			// split the largest chunks first, to keep them even
+			final int splits = count;
+			for (int c = 0; c < splits && count < chunkCount; c++) {
+				final ExtentsIterator half = chunks[c].split();
+				if (half == null) continue;
+				chunks[count++] = half;
+			}
+			if (splits == count) break;
+		}
+		final AtomicLong sum = new AtomicLong();
+		state.threadService.parallelFor(0, count, new LoopBody() {
+
+			@Override
+			public void run(final long start, final long end) {
+				for (long c = start; c < end; c++) {
+					final ExtentsIterator iterator = chunks[(int) c];
+					long local = 0;
+					while (iterator.hasNext()) {
+						iterator.fwd();
+						local += iterator.getLongPosition(0);
+					}
+					sum.addAndGet(local);
+				}
+			}
+		});
+		return sum.get();
+	}
+
+}
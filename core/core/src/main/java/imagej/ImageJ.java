@@ -39,6 +39,7 @@
 import imagej.service.IService;
 import imagej.service.ServiceHelper;
 import imagej.service.ServiceIndex;
+import imagej.service.StartupProfile;
 import imagej.util.DefaultUncaughtExceptionHandler;
 
 import java.util.ArrayList;
@@ -107,12 +108,31 @@ public static ImageJ createContext(
 	 */
 	public static ImageJ createContext(
 		final Collection<Class<? extends IService>> serviceClasses)
+	{
+		return createContext(serviceClasses, false);
+	}
+
+	/**
+	 * Creates a new ImageJ application context with the specified services (and
+	 * any required service dependencies). In lazy mode, all other available
+	 * services are constructed only if and when they are first used, which
+	 * keeps the cost of a headless context down to what the job actually needs.
+	 * 
+	 * @param serviceClasses The services to construct up front, or null for all
+	 *          services which cannot be constructed lazily.
+	 * @param lazy Whether to construct the remaining services on demand.
+	 * @see imagej.service.Service#lazy()
+	 */
+	public static ImageJ createContext(
+		final Collection<Class<? extends IService>> serviceClasses,
+		final boolean lazy)
 	{
 		final ImageJ context = new ImageJ();
 		staticContext = context; // TEMP
 		final ServiceHelper serviceHelper =
-			new ServiceHelper(context, serviceClasses);
+			new ServiceHelper(context, serviceClasses, lazy);
 		serviceHelper.loadServices();
+		context.startupProfile = serviceHelper.getStartupProfile();
 		return context;
 	}
 
@@ -157,6 +177,9 @@ public static <S extends IService> S get(final Class<S> serviceClass) {
 
 	private final ServiceIndex serviceIndex;
 
+	/** Timing report of the context's service startup. */
+	private StartupProfile startupProfile;
+
 	/** Creates a new ImageJ context. */
 	public ImageJ() {
 		serviceIndex = new ServiceIndex();
@@ -173,4 +196,12 @@ public <S extends IService> S getService(final Class<S> c) {
 		return serviceIndex.getService(c);
 	}
 
+	/**
+	 * Gets a report of how long each service took to start up, or null if the
+	 * services were not loaded by {@link #createContext}.
+	 */
+	public StartupProfile getStartupProfile() {
+		return startupProfile;
+	}
+
 }
@@ -36,33 +36,43 @@
 package imagej.event;
 
 import imagej.ImageJ;
+import imagej.metrics.MetricsService;
 import imagej.service.AbstractService;
 import imagej.service.Service;
-import imagej.util.Log;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-
-import org.bushe.swing.event.SwingEventService;
-import org.bushe.swing.event.annotation.AbstractProxySubscriber;
-import org.bushe.swing.event.annotation.BaseProxySubscriber;
-import org.bushe.swing.event.annotation.ReferenceStrength;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Default service for publishing and subscribing to ImageJ events.
+ * <p>
+ * Events are delivered by an {@link EventDispatcher} with its own pool of
+ * dispatch threads. Subscribers are invoked on those threads unless their
+ * handler methods request the AWT Event Dispatch Thread via
+ * {@link EventHandler#edt()}, so headless contexts never need an AWT thread.
+ * </p>
+ * <p>
+ * Event handler methods are scanned once per class, and called through
+ * generated {@link EventInvoker}s rather than via reflection.
+ * </p>
  * 
  * @author Curtis Rueden
  * @author Grant Harris
  */
 @Service
-public class DefaultEventService extends AbstractService
-	implements EventService
+public class DefaultEventService extends AbstractService implements
+	EventService, ThreadFactory
 {
 
-	protected org.bushe.swing.event.EventService eventBus;
+	protected EventDispatcher dispatcher;
+
+	/** Cache of event handler methods, keyed on subscribing class. */
+	private final EventHandlerIndex handlerIndex = new EventHandlerIndex();
+
+	private final AtomicInteger nextThread = new AtomicInteger();
 
 	// -- Constructors --
 
@@ -72,15 +82,17 @@ public DefaultEventService() {
 		throw new UnsupportedOperationException();
 	}
 
-	public DefaultEventService(final ImageJ context) {
+	public DefaultEventService(final ImageJ context,
+		final MetricsService metricsService)
+	{
 		super(context);
 
-		// TODO - Use ThreadSafeEventService instead of SwingEventService.
-		// Unfortunately, without further care elsewhere in the code (subject to
-		// further investigation), using it results in a race condition where
-		// JHotDraw partially repaints images before they are done being processed.
-		// See ticket #719: http://trac.imagej.net/ticket/719
-		eventBus = new SwingEventService();
+		// NB: Events used to be delivered via EventBus's SwingEventService, on
+		// the EDT. Now only subscribers that ask for the EDT are invoked there,
+		// and events of the same source are delivered in order, which avoids the
+		// JHotDraw partial repaint race. See ticket #719:
+		// http://trac.imagej.net/ticket/719
+		dispatcher = new EventDispatcher(this, metricsService);
 	}
 
 	// -- EventService methods --
@@ -88,21 +100,31 @@ public DefaultEventService(final ImageJ context) {
 	@Override
 	public <E extends ImageJEvent> void publish(final E e) {
 		e.setContext(getContext());
-		eventBus.publish(e);
+		dispatcher.publish(e);
+	}
+
+	@Override
+	public <E extends ImageJEvent> void publishNow(final E e) {
+		e.setContext(getContext());
+		dispatcher.publishNow(e);
 	}
 
 	@Override
 	public List<EventSubscriber<?>> subscribe(final Object o) {
 		final List<EventSubscriber<?>> subscribers =
 			new ArrayList<EventSubscriber<?>>();
-		subscribeRecursively(subscribers, o.getClass(), o);
+		for (final EventHandlerIndex.Handler handler : handlerIndex.getHandlers(o
+			.getClass()))
+		{
+			subscribers.add(subscribe(handler.getEventClass(), o, handler));
+		}
 		return subscribers;
 	}
 
 	@Override
 	public void unsubscribe(final Collection<EventSubscriber<?>> subscribers) {
 		for (final EventSubscriber<?> subscriber : subscribers) {
-			unsubscribe(subscriber);
+			dispatcher.unsubscribe(subscriber);
 		}
 	}
 
@@ -110,139 +132,45 @@ public void unsubscribe(final Collection<EventSubscriber<?>> subscribers) {
 	public <E extends ImageJEvent> List<EventSubscriber<E>> getSubscribers(
 		final Class<E> c)
 	{
-		// HACK - It appears that EventBus API is incorrect, in that
-		// EventBus#getSubscribers(Class<T>) returns a List<T> when it should
-		// actually be a List<EventSubscriber<T>>. This method works around the
-		// problem with casts.
-		@SuppressWarnings("rawtypes")
-		final List list = eventBus.getSubscribers(c);
-		@SuppressWarnings("unchecked")
-		final List<EventSubscriber<E>> typedList = list;
-		return typedList;
-	}
-
-	// -- Helper methods --
-
-	/**
-	 * Recursively scans for @{@link EventHandler} annotated methods, and
-	 * subscribes them to the event service.
-	 */
-	private void subscribeRecursively(
-		final List<EventSubscriber<?>> subscribers, final Class<?> type,
-		final Object o)
-	{
-		if (type == null || type == Object.class) return;
-		for (final Method m : type.getDeclaredMethods()) {
-			final EventHandler ann = m.getAnnotation(EventHandler.class);
-			if (ann == null) continue; // not an event handler method
-
-			final Class<? extends ImageJEvent> eventClass = getEventClass(m);
-			if (eventClass == null) {
-				Log.warn("Invalid EventHandler method: " + m);
-				continue;
-			}
-
-			subscribers.add(subscribe(eventClass, o, m));
+		final List<EventSubscriber<E>> list = new ArrayList<EventSubscriber<E>>();
+		for (final ProxySubscriber<?> subscriber : dispatcher.getSubscribers(c)) {
+			// NB: Subscribers to a superclass of E also receive E events.
+			@SuppressWarnings("unchecked")
+			final EventSubscriber<E> typedSubscriber =
+				(EventSubscriber<E>) subscriber;
+			list.add(typedSubscriber);
 		}
-		subscribeRecursively(subscribers, type.getSuperclass(), o);
+		return list;
 	}
 
-	private <E extends ImageJEvent> void subscribe(final Class<E> c,
-		final EventSubscriber<E> subscriber)
-	{
-		eventBus.subscribe(c, subscriber);
+	@Override
+	public int getPendingEventCount() {
+		return dispatcher.getPendingCount();
 	}
 
-	private <E extends ImageJEvent> void unsubscribe(
-		final EventSubscriber<E> subscriber)
-	{
-		unsubscribe(subscriber.getEventClass(), subscriber);
-	}
+	// -- ThreadFactory methods --
 
-	private <E extends ImageJEvent> void unsubscribe(final Class<E> c,
-		final EventSubscriber<E> subscriber)
-	{
-		eventBus.unsubscribe(c, subscriber);
+	@Override
+	public Thread newThread(final Runnable r) {
+		final String contextHash = Integer.toHexString(getContext().hashCode());
+		final String threadName =
+			"ImageJ-" + contextHash + "-EventDispatch-" +
+			nextThread.getAndIncrement();
+		final Thread thread = new Thread(r, threadName);
+		thread.setDaemon(true);
+		return thread;
 	}
 
+	// -- Helper methods --
+
 	private <E extends ImageJEvent> EventSubscriber<E> subscribe(
-		final Class<E> c, final Object o, final Method m)
+		final Class<E> c, final Object o, final EventHandlerIndex.Handler handler)
 	{
-		final ProxySubscriber<E> subscriber = new ProxySubscriber<E>(c, o, m);
-		subscribe(c, subscriber);
+		final ProxySubscriber<E> subscriber =
+			new ProxySubscriber<E>(c, o, handler.getMethod(), handler
+				.getInvoker(), handler.isEDT());
+		dispatcher.subscribe(subscriber);
 		return subscriber;
 	}
 
-	/** Gets the event class parameter of the given method. */
-	private Class<? extends ImageJEvent> getEventClass(final Method m) {
-		final Class<?>[] c = m.getParameterTypes();
-		if (c == null || c.length != 1) return null; // wrong number of args
-		if (!ImageJEvent.class.isAssignableFrom(c[0])) return null; // wrong class
-
-		@SuppressWarnings("unchecked")
-		final Class<? extends ImageJEvent> eventClass =
-			(Class<? extends ImageJEvent>) c[0];
-		return eventClass;
-	}
-
-	// -- Helper classes --
-
-	/**
-	 * Helper class used by {@link #subscribe(Object)}.
-	 * <p>
-	 * Recapitulates some logic from {@link BaseProxySubscriber}, because that
-	 * class implements {@link org.bushe.swing.event.EventSubscriber} as a raw
-	 * type, which is incompatible with this class implementing ImageJ's
-	 * {@link EventSubscriber} as a typed interface; it becomes impossible to
-	 * implement both <code>onEvent(Object)</code> and <code>onEvent(E)</code>.
-	 * </p>
-	 */
-	private class ProxySubscriber<E extends ImageJEvent> extends
-		AbstractProxySubscriber implements EventSubscriber<E>
-	{
-
-		private final Class<E> c;
-
-		public ProxySubscriber(final Class<E> c, final Object o, final Method m) {
-			super(o, m, ReferenceStrength.WEAK, eventBus, false);
-			this.c = c;
-
-			// allow calling of non-public methods
-			m.setAccessible(true);
-		}
-
-		/**
-		 * Handles the event publication by pushing it to the real subscriber's
-		 * subscription method.
-		 * 
-		 * @param event The event to publish.
-		 */
-		@Override
-		public void onEvent(final E event) {
-			try {
-				final Object obj = getProxiedSubscriber();
-				if (obj == null) return; // has been garbage collected
-				getSubscriptionMethod().invoke(obj, event);
-			}
-			catch (final IllegalAccessException exc) {
-				Log.error("Exception during event handling:\n\t[Event] " +
-					event.getClass().getName() + ":" + event + "\n\t[Subscriber] " +
-					getProxiedSubscriber() + "\n\t[Method] " + getSubscriptionMethod(),
-					exc);
-			}
-			catch (final InvocationTargetException exc) {
-				Log.error("Exception during event handling:\n\t[Event] " +
-					event.getClass().getName() + event + "\n\t[Subscriber] " +
-					getProxiedSubscriber() + "\n\t[Method] " + getSubscriptionMethod(),
-					exc.getCause());
-			}
-		}
-
-		@Override
-		public Class<E> getEventClass() {
-			return c;
-		}
-
-	}
-
 }
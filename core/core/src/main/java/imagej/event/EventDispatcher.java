@@ -0,0 +1,311 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.event;
+
+import imagej.metrics.Counter;
+import imagej.metrics.MetricsService;
+import imagej.util.Log;
+
+import java.awt.EventQueue;
+import java.awt.GraphicsEnvironment;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded event delivery engine backing the {@link DefaultEventService}.
+ * <p>
+ * Events are delivered on a dedicated pool of dispatch threads, rather than on
+ * the AWT Event Dispatch Thread. Only subscribers flagged with
+ * {@link EventHandler#edt()} are invoked on the EDT. Each event is queued in a
+ * "lane" according to its {@link ImageJEvent#getSource() source}; the events
+ * of a lane are delivered one at a time, in publication order, while distinct
+ * lanes are processed concurrently. A {@link CoalescableEvent} may be merged
+ * into the last pending event of its lane, if that has the same class; it is
+ * never merged past other pending events, so delivery order is preserved.
+ * </p>
+ */
+final class EventDispatcher {
+
+	/** Name of the per-class timers of event dispatch latency. */
+	static final String DISPATCH_TIMER = "event.dispatch";
+
+	/** Name of the counter of coalesced events. */
+	static final String COALESCED_COUNTER = "event.coalesced";
+
+	/** Lane key for events without a source. */
+	private static final Object NO_SOURCE = new Object();
+
+	/**
+	 * Subscribers, keyed on the event class to which they subscribed. The
+	 * proxies are held strongly; each references its target object weakly, and
+	 * is dropped once the target has been collected.
+	 */
+	private final Map<Class<?>, List<ProxySubscriber<?>>> subscribers =
+		new ConcurrentHashMap<Class<?>, List<ProxySubscriber<?>>>();
+
+	/** Lanes with pending events, keyed on event source. */
+	private final Map<Object, Lane> lanes = new IdentityHashMap<Object, Lane>();
+
+	/** Number of queued events which have not yet been fully delivered. */
+	private final AtomicInteger pending = new AtomicInteger();
+
+	/** Thread pool which delivers queued events. */
+	private final ThreadPoolExecutor executor;
+
+	/** Whether EDT-flagged subscribers should actually be invoked on the EDT. */
+	private final boolean useEDT;
+
+	/** Service recording dispatch latencies, or null if none. */
+	private final MetricsService metricsService;
+
+	/** Number of events dropped because an equivalent one was pending. */
+	private final Counter coalesced;
+
+	public EventDispatcher(final ThreadFactory threadFactory,
+		final MetricsService metricsService)
+	{
+		final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		executor =
+			new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), threadFactory);
+		executor.allowCoreThreadTimeOut(true);
+		useEDT = !GraphicsEnvironment.isHeadless();
+		this.metricsService = metricsService;
+		coalesced =
+			metricsService == null ? null : metricsService
+				.getCounter(COALESCED_COUNTER);
+	}
+
+	// -- EventDispatcher methods --
+
+	/** Registers the given subscriber for events of its event class. */
+	public void subscribe(final ProxySubscriber<?> subscriber) {
+		final Class<?> c = subscriber.getEventClass();
+		synchronized (subscribers) {
+			List<ProxySubscriber<?>> list = subscribers.get(c);
+			if (list == null) {
+				list = new CopyOnWriteArrayList<ProxySubscriber<?>>();
+				subscribers.put(c, list);
+			}
+			list.add(subscriber);
+		}
+	}
+
+	/** Deregisters the given subscriber. */
+	public void unsubscribe(final EventSubscriber<?> subscriber) {
+		final List<ProxySubscriber<?>> list =
+			subscribers.get(subscriber.getEventClass());
+		if (list == null) return;
+		for (final ProxySubscriber<?> s : list) {
+			if (s == subscriber || s.isStale()) list.remove(s);
+		}
+	}
+
+	/**
+	 * Gets the live subscribers which receive events of the given class,
+	 * including those subscribed to one of its superclasses.
+	 */
+	public List<ProxySubscriber<?>> getSubscribers(final Class<?> eventClass) {
+		final List<ProxySubscriber<?>> result = new ArrayList<ProxySubscriber<?>>();
+		for (Class<?> c = eventClass; c != null; c = c.getSuperclass()) {
+			final List<ProxySubscriber<?>> list = subscribers.get(c);
+			if (list == null) continue;
+			for (final ProxySubscriber<?> s : list) {
+				if (s.isStale()) list.remove(s);
+				else result.add(s);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Delivers the given event to all subscribers, returning only once every
+	 * subscriber has handled it.
+	 */
+	public void publishNow(final ImageJEvent event) {
+		event.setPublishTime(System.nanoTime());
+		final boolean onEDT = EventQueue.isDispatchThread();
+		for (final ProxySubscriber<?> s : getSubscribers(event.getClass())) {
+			if (onEDT || !useEDT || !s.isEDT()) s.dispatch(event);
+			else invokeAndWait(s, event);
+		}
+		recordLatency(event);
+	}
+
+	/**
+	 * Queues the given event for delivery on the dispatch threads, in order with
+	 * other events from the same source.
+	 */
+	public void publish(final ImageJEvent event) {
+		event.setPublishTime(System.nanoTime());
+		final Object source = event.getSource();
+		final Object key = source == null ? NO_SOURCE : source;
+		synchronized (lanes) {
+			Lane lane = lanes.get(key);
+			if (lane == null) {
+				lane = new Lane(key);
+				lanes.put(key, lane);
+			}
+			if (event instanceof CoalescableEvent) {
+				final ImageJEvent tail = lane.queue.peekLast();
+				if (tail != null && tail.getClass() == event.getClass() &&
+					((CoalescableEvent) tail).coalesce((CoalescableEvent) event))
+				{
+					// an equivalent event is already awaiting delivery
+					if (coalesced != null) coalesced.increment();
+					return;
+				}
+			}
+			lane.queue.add(event);
+			pending.incrementAndGet();
+			if (!lane.scheduled) {
+				lane.scheduled = true;
+				executor.execute(lane);
+			}
+		}
+	}
+
+	/** Gets the number of events awaiting or undergoing delivery. */
+	public int getPendingCount() {
+		return pending.get();
+	}
+
+	// -- Helper methods --
+
+	/** Delivers a queued event, deferring EDT-flagged subscribers to the EDT. */
+	private void deliver(final ImageJEvent event) {
+		for (final ProxySubscriber<?> s : getSubscribers(event.getClass())) {
+			if (!useEDT || !s.isEDT()) s.dispatch(event);
+			else {
+				// NB: The EDT processes its queue in order, so events of the same
+				// source still reach EDT-flagged subscribers in publication order.
+				EventQueue.invokeLater(new Runnable() {
+
+					@Override
+					public void run() {
+						s.dispatch(event);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Records the time from publication of the given event until its delivery
+	 * to the subscribers which are not deferred to the EDT.
+	 */
+	private void recordLatency(final ImageJEvent event) {
+		if (metricsService == null) return;
+		metricsService.getTimer(DISPATCH_TIMER, event.getClass()).stop(
+			event.getPublishTime());
+	}
+
+	private void invokeAndWait(final ProxySubscriber<?> s,
+		final ImageJEvent event)
+	{
+		try {
+			EventQueue.invokeAndWait(new Runnable() {
+
+				@Override
+				public void run() {
+					s.dispatch(event);
+				}
+			});
+		}
+		catch (final InterruptedException exc) {
+			Log.error("Interrupted while delivering event: " + event, exc);
+		}
+		catch (final InvocationTargetException exc) {
+			Log.error("Exception during event handling: " + event, exc.getCause());
+		}
+	}
+
+	// -- Helper classes --
+
+	/** Queue of events from a single source, delivered in order. */
+	private class Lane implements Runnable {
+
+		private final Object key;
+
+		/** Events awaiting delivery. Guarded by {@link EventDispatcher#lanes}. */
+		private final LinkedList<ImageJEvent> queue = new LinkedList<ImageJEvent>();
+
+		/** Whether the lane is queued or running on the executor. */
+		private boolean scheduled;
+
+		public Lane(final Object key) {
+			this.key = key;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				final ImageJEvent event;
+				synchronized (lanes) {
+					event = queue.poll();
+					if (event == null) {
+						scheduled = false;
+						lanes.remove(key);
+						return;
+					}
+				}
+				try {
+					deliver(event);
+				}
+				catch (final RuntimeException exc) {
+					Log.error("Exception during event delivery: " + event, exc);
+				}
+				finally {
+					recordLatency(event);
+					pending.decrementAndGet();
+				}
+			}
+		}
+
+	}
+
+}
@@ -56,6 +56,11 @@
  * utilize inheritance, we have to recapitulate the functionality rather than
  * extend it (as we are able to do with {@link EventSubscriber}).
  * </p>
+ * <p>
+ * Event handlers are invoked on one of the event service's dispatch threads.
+ * Handlers which manipulate Swing or AWT components should set {@link #edt()}
+ * so that they are invoked on the AWT Event Dispatch Thread instead.
+ * </p>
  * 
  * @author Curtis Rueden
  * @see EventService
@@ -63,5 +68,11 @@
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface EventHandler {
-	// no attributes
+
+	/**
+	 * Whether the handler must be invoked on the AWT Event Dispatch Thread. This
+	 * flag is ignored when running headless.
+	 */
+	boolean edt() default false;
+
 }
@@ -0,0 +1,153 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.event;
+
+import imagej.util.Log;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-class cache of @{@link EventHandler} annotated methods.
+ * <p>
+ * The first time an object of a given class subscribes to events, its class
+ * hierarchy is scanned for event handler methods, and an {@link EventInvoker}
+ * is created for each one. Subsequent subscriptions of objects of the same
+ * class reuse the cached table.
+ * </p>
+ */
+final class EventHandlerIndex {
+
+	/** Event handlers, keyed on subscribing class. */
+	private final Map<Class<?>, List<Handler>> handlers =
+		new ConcurrentHashMap<Class<?>, List<Handler>>();
+
+	// -- EventHandlerIndex methods --
+
+	/**
+	 * Gets the event handlers of the given class, including those declared by
+	 * its superclasses.
+	 */
+	public List<Handler> getHandlers(final Class<?> type) {
+		List<Handler> list = handlers.get(type);
+		if (list == null) {
+			// NB: Two threads may scan the same class concurrently; either result
+			// is equally valid, so there is no need to lock.
+			list = Collections.unmodifiableList(scan(type));
+			handlers.put(type, list);
+		}
+		return list;
+	}
+
+	// -- Helper methods --
+
+	/** Recursively scans for @{@link EventHandler} annotated methods. */
+	private List<Handler> scan(final Class<?> type) {
+		final List<Handler> list = new ArrayList<Handler>();
+		for (Class<?> c = type; c != null && c != Object.class; c =
+			c.getSuperclass())
+		{
+			for (final Method m : c.getDeclaredMethods()) {
+				final EventHandler ann = m.getAnnotation(EventHandler.class);
+				if (ann == null) continue; // not an event handler method
+
+				final Class<? extends ImageJEvent> eventClass = getEventClass(m);
+				if (eventClass == null) {
+					Log.warn("Invalid EventHandler method: " + m);
+					continue;
+				}
+
+				final EventInvoker invoker = InvokerGenerator.createInvoker(m);
+				list.add(new Handler(eventClass, m, invoker, ann.edt()));
+			}
+		}
+		return list;
+	}
+
+	/** Gets the event class parameter of the given method. */
+	private Class<? extends ImageJEvent> getEventClass(final Method m) {
+		final Class<?>[] c = m.getParameterTypes();
+		if (c == null || c.length != 1) return null; // wrong number of args
+		if (!ImageJEvent.class.isAssignableFrom(c[0])) return null; // wrong class
+
+		@SuppressWarnings("unchecked")
+		final Class<? extends ImageJEvent> eventClass =
+			(Class<? extends ImageJEvent>) c[0];
+		return eventClass;
+	}
+
+	// -- Helper classes --
+
+	/** An event handler method, together with its compiled invoker. */
+	public static class Handler {
+
+		private final Class<? extends ImageJEvent> eventClass;
+		private final Method method;
+		private final EventInvoker invoker;
+		private final boolean edt;
+
+		public Handler(final Class<? extends ImageJEvent> eventClass,
+			final Method method, final EventInvoker invoker, final boolean edt)
+		{
+			this.eventClass = eventClass;
+			this.method = method;
+			this.invoker = invoker;
+			this.edt = edt;
+		}
+
+		public Class<? extends ImageJEvent> getEventClass() {
+			return eventClass;
+		}
+
+		public Method getMethod() {
+			return method;
+		}
+
+		public EventInvoker getInvoker() {
+			return invoker;
+		}
+
+		public boolean isEDT() {
+			return edt;
+		}
+
+	}
+
+}
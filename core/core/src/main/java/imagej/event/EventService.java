@@ -48,19 +48,33 @@
  */
 public interface EventService extends IService {
 
-	/** TODO */
+	/**
+	 * Queues the given event for delivery to all subscribers, and returns
+	 * immediately. Events with the same {@link ImageJEvent#getSource() source}
+	 * are delivered in the order they were published, and pending duplicates of
+	 * a {@link CoalescableEvent} are merged into one.
+	 */
 	<E extends ImageJEvent> void publish(final E e);
 
+	/**
+	 * Delivers the given event to all subscribers on the calling thread (or on
+	 * the AWT Event Dispatch Thread, for subscribers which require it), and
+	 * returns once they have all handled it. This is useful when the caller
+	 * needs the outcome of the handling, such as whether the event was
+	 * {@link ImageJEvent#isConsumed() consumed}.
+	 */
+	<E extends ImageJEvent> void publishNow(final E e);
+
 	/**
 	 * Subscribes all of the given object's @{@link EventHandler} annotated
 	 * methods. This allows a single class to subscribe to multiple types of
 	 * events by implementing multiple event handling methods and annotating each
 	 * one with @{@link EventHandler}.
 	 * 
-	 * @return The list of newly created {@link EventSubscriber}s, weakly
-	 *         subscribed to the event service. These objects must not be allowed
-	 *         to fall out of scope or they will be garbage collected (in which
-	 *         case events will not be delivered to them!).
+	 * @return The list of newly created {@link EventSubscriber}s, which may be
+	 *         passed to {@link #unsubscribe}. The given object itself is
+	 *         referenced weakly: once it is garbage collected, its subscribers
+	 *         are dropped.
 	 */
 	List<EventSubscriber<?>> subscribe(final Object o);
 
@@ -71,4 +85,7 @@ public interface EventService extends IService {
 	<E extends ImageJEvent> List<EventSubscriber<E>> getSubscribers(
 		final Class<E> c);
 
+	/** Gets the number of published events still awaiting delivery. */
+	int getPendingEventCount();
+
 }
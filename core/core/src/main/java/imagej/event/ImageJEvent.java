@@ -47,6 +47,9 @@ public abstract class ImageJEvent {
 	private ImageJ context;
 	private boolean consumed;
 
+	/** Time at which the event was queued, for dispatch latency metrics. */
+	private long publishTime;
+
 	// -- ImageJEvent methods --
 
 	public ImageJ getContext() {
@@ -69,6 +72,27 @@ public void consume() {
 		setConsumed(true);
 	}
 
+	/**
+	 * Gets the object to which this event pertains, if any. Events sharing the
+	 * same source are delivered to subscribers in the order they were published.
+	 * 
+	 * @return The event's source object, or null if the event is not tied to a
+	 *         particular object.
+	 */
+	public Object getSource() {
+		return null;
+	}
+
+	// -- Internal methods --
+
+	long getPublishTime() {
+		return publishTime;
+	}
+
+	void setPublishTime(final long publishTime) {
+		this.publishTime = publishTime;
+	}
+
 	// Object methods --
 
 	@Override
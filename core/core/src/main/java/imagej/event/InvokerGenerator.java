@@ -0,0 +1,162 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.event;
+
+import imagej.util.Log;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+/**
+ * Uses <a href="http://www.javassist.org/">Javassist</a> to generate
+ * {@link EventInvoker}s which call an event handler method directly.
+ * <p>
+ * Each generated class is defined in the package (and class loader) of the
+ * class declaring the handler method, so that it may call protected and
+ * package-private handlers. Private handlers cannot be called this way; for
+ * those, and whenever generation fails, a {@link ReflectionInvoker} is used.
+ * </p>
+ * <p>
+ * Invoker classes are named after their handler method, so the class loader
+ * itself serves as the cache: a handler already compiled into a loader, e.g.
+ * for another ImageJ context, reuses the existing class.
+ * </p>
+ */
+final class InvokerGenerator {
+
+	private InvokerGenerator() {
+		// prevent instantiation of utility class
+	}
+
+	/** Creates the fastest available invoker for the given handler method. */
+	public static EventInvoker createInvoker(final Method m) {
+		if (canGenerate(m)) {
+			try {
+				return generate(m);
+			}
+			catch (final Exception exc) {
+				// NB: Includes SecurityException, when defining classes is forbidden.
+				Log.debug("Cannot generate invoker for " + m, exc);
+			}
+			catch (final LinkageError exc) {
+				Log.debug("Cannot generate invoker for " + m, exc);
+			}
+		}
+		return new ReflectionInvoker(m);
+	}
+
+	// -- Helper methods --
+
+	private static boolean canGenerate(final Method m) {
+		if (Modifier.isPrivate(m.getModifiers())) return false;
+		final Class<?> declaringClass = m.getDeclaringClass();
+		if (declaringClass.getClassLoader() == null) return false;
+		// NB: Invokers are generated as top-level classes, which cannot see
+		// private nested classes, nor handler methods declared within them.
+		for (Class<?> c = declaringClass; c != null; c = c.getEnclosingClass()) {
+			if (Modifier.isPrivate(c.getModifiers())) return false;
+		}
+		final Class<?> eventClass = m.getParameterTypes()[0];
+		return isAccessible(eventClass, declaringClass.getPackage());
+	}
+
+	/** Checks whether the given class is visible from the given package. */
+	private static boolean isAccessible(final Class<?> c, final Package pkg) {
+		final boolean samePackage = c.getPackage() == pkg;
+		for (Class<?> t = c; t != null; t = t.getEnclosingClass()) {
+			final int mods = t.getModifiers();
+			if (Modifier.isPrivate(mods)) return false;
+			if (!Modifier.isPublic(mods) && !samePackage) return false;
+		}
+		return true;
+	}
+
+	private static synchronized EventInvoker generate(final Method m)
+		throws CannotCompileException, NotFoundException, InstantiationException,
+		IllegalAccessException
+	{
+		final Class<?> declaringClass = m.getDeclaringClass();
+		final ClassLoader loader = declaringClass.getClassLoader();
+		final String invokerName = getInvokerName(m);
+		try {
+			// reuse the invoker class if already generated into this loader
+			return (EventInvoker) Class.forName(invokerName, false, loader)
+				.newInstance();
+		}
+		catch (final ClassNotFoundException exc) {
+			// not yet generated
+		}
+
+		final ClassPool pool = new ClassPool(true);
+		pool.appendClassPath(new LoaderClassPath(loader));
+
+		final CtClass invokerClass = pool.makeClass(invokerName);
+		invokerClass.addInterface(pool.get(EventInvoker.class.getName()));
+		invokerClass.addConstructor(CtNewConstructor
+			.defaultConstructor(invokerClass));
+
+		final String eventType = m.getParameterTypes()[0].getName();
+		final String body =
+			"public void invoke(Object target, " + ImageJEvent.class.getName() +
+				" event) { ((" + declaringClass.getName() + ") $1)." + m.getName() +
+				"((" + eventType + ") $2); }";
+		invokerClass.addMethod(CtNewMethod.make(body, invokerClass));
+
+		final Class<?> c =
+			invokerClass.toClass(loader, declaringClass.getProtectionDomain());
+		invokerClass.detach();
+		return (EventInvoker) c.newInstance();
+	}
+
+	/**
+	 * Gets the name of the invoker class of the given handler method, which is
+	 * unique to the method among those of its class.
+	 */
+	private static String getInvokerName(final Method m) {
+		final String eventType = m.getParameterTypes()[0].getName();
+		return m.getDeclaringClass().getName() + "$$EventInvoker$" + m.getName() +
+			"$" + eventType.replace('.', '$');
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.event;
+
+import imagej.util.Log;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+
+/**
+ * An {@link EventSubscriber} which forwards events to an @{@link EventHandler}
+ * annotated method of some other object, via the method's
+ * {@link EventInvoker}. The object is referenced weakly, so that subscribing
+ * it does not prevent it from being garbage collected.
+ * 
+ * @param <E> Type of event for which to listen
+ */
+class ProxySubscriber<E extends ImageJEvent> implements EventSubscriber<E> {
+
+	private final Class<E> c;
+	private final WeakReference<Object> ref;
+	private final Method m;
+	private final EventInvoker invoker;
+	private final boolean edt;
+
+	public ProxySubscriber(final Class<E> c, final Object o, final Method m,
+		final EventInvoker invoker, final boolean edt)
+	{
+		this.c = c;
+		ref = new WeakReference<Object>(o);
+		this.m = m;
+		this.invoker = invoker;
+		this.edt = edt;
+	}
+
+	// -- ProxySubscriber methods --
+
+	/** Gets the object whose method handles the events. */
+	public Object getProxiedSubscriber() {
+		return ref.get();
+	}
+
+	/** Gets the method which handles the events. */
+	public Method getSubscriptionMethod() {
+		return m;
+	}
+
+	/** Gets whether events must be delivered on the AWT Event Dispatch Thread. */
+	public boolean isEDT() {
+		return edt;
+	}
+
+	/** Gets whether the proxied object has been garbage collected. */
+	public boolean isStale() {
+		return ref.get() == null;
+	}
+
+	/** Delivers the given event, which must be an instance of the event class. */
+	public void dispatch(final ImageJEvent event) {
+		onEvent(c.cast(event));
+	}
+
+	// -- EventSubscriber methods --
+
+	/**
+	 * Handles the event publication by pushing it to the real subscriber's
+	 * subscription method.
+	 * 
+	 * @param event The event to publish.
+	 */
+	@Override
+	public void onEvent(final E event) {
+		final Object obj = getProxiedSubscriber();
+		if (obj == null) return; // has been garbage collected
+		try {
+			invoker.invoke(obj, event);
+		}
+		catch (final Throwable t) {
+			Log.error("Exception during event handling:\n\t[Event] " +
+				event.getClass().getName() + ":" + event + "\n\t[Subscriber] " +
+				obj + "\n\t[Method] " + m, t);
+		}
+	}
+
+	@Override
+	public Class<E> getEventClass() {
+		return c;
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.metrics;
+
+import imagej.ImageJ;
+import imagej.service.AbstractService;
+import imagej.service.Service;
+import imagej.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+
+/**
+ * Default service for tracking performance {@link Metric}s. The metrics are
+ * also published via JMX, as an <code>imagej:type=Metrics</code> MBean for
+ * each context.
+ */
+@Service
+public final class DefaultMetricsService extends AbstractService implements
+	MetricsService
+{
+
+	/** Metrics, keyed on name. */
+	private final ConcurrentMap<String, Metric> metrics =
+		new ConcurrentHashMap<String, Metric>();
+
+	/** Per-class timers, keyed on name and then on class. */
+	private final ConcurrentMap<String, ConcurrentMap<Class<?>, Timer>> classTimers =
+		new ConcurrentHashMap<String, ConcurrentMap<Class<?>, Timer>>();
+
+	// -- Constructors --
+
+	public DefaultMetricsService() {
+		// NB: Required by SezPoz.
+		super(null);
+		throw new UnsupportedOperationException();
+	}
+
+	public DefaultMetricsService(final ImageJ context) {
+		super(context);
+		registerMBean();
+	}
+
+	// -- MetricsService methods --
+
+	@Override
+	public Counter getCounter(final String name) {
+		final Metric metric = metrics.get(name);
+		if (metric != null) return cast(metric, Counter.class);
+		return add(new Counter(name), Counter.class);
+	}
+
+	@Override
+	public Histogram getHistogram(final String name) {
+		final Metric metric = metrics.get(name);
+		if (metric != null) return cast(metric, Histogram.class);
+		return add(new Histogram(name), Histogram.class);
+	}
+
+	@Override
+	public Timer getTimer(final String name) {
+		final Metric metric = metrics.get(name);
+		if (metric != null) return cast(metric, Timer.class);
+		return add(new Timer(name), Timer.class);
+	}
+
+	@Override
+	public Timer getTimer(final String name, final Class<?> type) {
+		ConcurrentMap<Class<?>, Timer> timers = classTimers.get(name);
+		if (timers == null) {
+			final ConcurrentMap<Class<?>, Timer> newTimers =
+				new ConcurrentHashMap<Class<?>, Timer>();
+			timers = classTimers.putIfAbsent(name, newTimers);
+			if (timers == null) timers = newTimers;
+		}
+		Timer timer = timers.get(type);
+		if (timer == null) {
+			final Timer newTimer = getTimer(name + ":" + type.getName());
+			timer = timers.putIfAbsent(type, newTimer);
+			if (timer == null) timer = newTimer;
+		}
+		return timer;
+	}
+
+	@Override
+	public List<Metric> getMetrics() {
+		final List<Metric> list = new ArrayList<Metric>(metrics.values());
+		Collections.sort(list, new Comparator<Metric>() {
+
+			@Override
+			public int compare(final Metric m1, final Metric m2) {
+				return m1.getName().compareTo(m2.getName());
+			}
+
+		});
+		return list;
+	}
+
+	@Override
+	public void reset() {
+		for (final Metric metric : metrics.values()) {
+			metric.reset();
+		}
+	}
+
+	// -- Helper methods --
+
+	private <M extends Metric> M add(final M metric, final Class<M> type) {
+		final Metric existing = metrics.putIfAbsent(metric.getName(), metric);
+		return existing == null ? metric : cast(existing, type);
+	}
+
+	private <M extends Metric> M cast(final Metric metric, final Class<M> type) {
+		if (metric.getClass() != type) {
+			throw new IllegalArgumentException("Metric " + metric.getName() +
+				" is a " + metric.getClass().getSimpleName() + ", not a " +
+				type.getSimpleName());
+		}
+		return type.cast(metric);
+	}
+
+	private void registerMBean() {
+		try {
+			MetricsMBean.register(this);
+		}
+		catch (final JMException e) {
+			Log.warn("Cannot publish metrics via JMX", e);
+		}
+		catch (final SecurityException e) {
+			Log.warn("Cannot publish metrics via JMX", e);
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link Metric} which records the distribution of a non-negative quantity.
+ * <p>
+ * Values are tallied in buckets whose bounds are successive powers of two, so
+ * percentiles are approximate: they are reported as the upper bound of the
+ * bucket which contains them, which is at most twice the true value.
+ * </p>
+ */
+public class Histogram extends Metric {
+
+	/** One bucket per bit of a long value, plus one for zero. */
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public Histogram(final String name) {
+		super(name);
+	}
+
+	// -- Histogram methods --
+
+	/** Records the given value. Negative values are recorded as zero. */
+	public void record(final long value) {
+		final long v = value < 0 ? 0 : value;
+		buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(v));
+		count.incrementAndGet();
+		sum.addAndGet(v);
+		long m = max.get();
+		while (v > m && !max.compareAndSet(m, v)) {
+			m = max.get();
+		}
+	}
+
+	/** Gets the number of recorded values. */
+	public long getCount() {
+		return count.get();
+	}
+
+	/** Gets the sum of the recorded values. */
+	public long getSum() {
+		return sum.get();
+	}
+
+	/** Gets the largest recorded value. */
+	public long getMax() {
+		return max.get();
+	}
+
+	/** Gets the mean of the recorded values. */
+	public double getMean() {
+		final long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+
+	/**
+	 * Gets an upper bound on the given percentile of the recorded values.
+	 * 
+	 * @param percentile The percentile to compute, between 0 and 100.
+	 */
+	public long getPercentile(final double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += buckets.get(i);
+		}
+		if (total == 0) return 0;
+		final long rank = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank && seen > 0) {
+				final long bound = i == 0 ? 0 : (1L << i) - 1;
+				return Math.min(bound, getMax());
+			}
+		}
+		return getMax();
+	}
+
+	// -- Metric methods --
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return getName() + ": count=" + getCount() + ", mean=" +
+			String.format("%.1f", getMean()) + ", p50=" + getPercentile(50) +
+			", p99=" + getPercentile(99) + ", max=" + getMax();
+	}
+
+}
@@ -0,0 +1,274 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Publishes the metrics of a {@link MetricsService} via JMX. Each counter
+ * appears as an attribute named after it; each histogram and timer appears as
+ * a group of attributes (<code>name.count</code>, <code>name.mean</code>,
+ * <code>name.p50</code>, <code>name.p99</code> and <code>name.max</code>),
+ * with times given in milliseconds.
+ * <p>
+ * The platform MBean server outlives any ImageJ context, so the MBean holds
+ * its service only weakly, and unregisters itself once the service is gone.
+ * </p>
+ */
+class MetricsMBean implements DynamicMBean {
+
+	private static final String[] STATISTICS = { "count", "mean", "p50", "p99",
+		"max" };
+
+	/** Number of MBeans registered so far, used to name each one uniquely. */
+	private static final AtomicInteger registered = new AtomicInteger();
+
+	/** MBeans which are currently registered. */
+	private static final List<MetricsMBean> mbeans =
+		new ArrayList<MetricsMBean>();
+
+	private final WeakReference<MetricsService> metricsService;
+	private final ObjectName name;
+
+	private MetricsMBean(final MetricsService metricsService,
+		final ObjectName name)
+	{
+		this.metricsService = new WeakReference<MetricsService>(metricsService);
+		this.name = name;
+	}
+
+	// -- MetricsMBean methods --
+
+	/**
+	 * Publishes the metrics of the given service with the platform MBean server,
+	 * first unregistering the MBeans of services which no longer exist.
+	 * 
+	 * @return the name of the new MBean
+	 */
+	public static ObjectName register(final MetricsService metricsService)
+		throws JMException
+	{
+		synchronized (mbeans) {
+			final Iterator<MetricsMBean> iter = mbeans.iterator();
+			while (iter.hasNext()) {
+				final MetricsMBean mbean = iter.next();
+				if (mbean.metricsService.get() != null) continue;
+				mbean.unregister();
+				iter.remove();
+			}
+		}
+		final ObjectName name =
+			new ObjectName("imagej:type=Metrics,context=" +
+				registered.incrementAndGet());
+		final MetricsMBean mbean = new MetricsMBean(metricsService, name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+		synchronized (mbeans) {
+			mbeans.add(mbean);
+		}
+		return name;
+	}
+
+	// -- DynamicMBean methods --
+
+	@Override
+	public Object getAttribute(final String attribute)
+		throws AttributeNotFoundException
+	{
+		for (final Metric metric : getMetrics()) {
+			final String name = metric.getName();
+			if (metric instanceof Counter) {
+				if (attribute.equals(name)) return ((Counter) metric).getCount();
+				continue;
+			}
+			if (!attribute.startsWith(name + ".")) continue;
+			final String statistic = attribute.substring(name.length() + 1);
+			final Object value = getStatistic((Histogram) metric, statistic);
+			if (value != null) return value;
+		}
+		throw new AttributeNotFoundException(attribute);
+	}
+
+	@Override
+	public AttributeList getAttributes(final String[] attributes) {
+		final AttributeList list = new AttributeList();
+		for (final String attribute : attributes) {
+			try {
+				list.add(new Attribute(attribute, getAttribute(attribute)));
+			}
+			catch (final AttributeNotFoundException e) {
+				// NB: Omit unknown attributes, as per the DynamicMBean contract.
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public void setAttribute(final Attribute attribute)
+		throws AttributeNotFoundException
+	{
+		throw new AttributeNotFoundException("Metrics are read-only");
+	}
+
+	@Override
+	public AttributeList setAttributes(final AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(final String actionName, final Object[] params,
+		final String[] signature) throws MBeanException, ReflectionException
+	{
+		if (actionName.equals("reset")) {
+			final MetricsService service = getMetricsService();
+			if (service != null) service.reset();
+			return null;
+		}
+		if (actionName.equals("dump")) {
+			final StringBuilder sb = new StringBuilder();
+			for (final Metric metric : getMetrics()) {
+				sb.append(metric).append("\n");
+			}
+			return sb.toString();
+		}
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		final List<MBeanAttributeInfo> attributes =
+			new ArrayList<MBeanAttributeInfo>();
+		for (final Metric metric : getMetrics()) {
+			final String name = metric.getName();
+			if (metric instanceof Counter) {
+				attributes.add(attribute(name, Long.class));
+				continue;
+			}
+			final boolean timer = metric instanceof Timer;
+			for (final String statistic : STATISTICS) {
+				final Class<?> type =
+					timer || statistic.equals("mean") ? Double.class : Long.class;
+				attributes.add(attribute(name + "." + statistic,
+					statistic.equals("count") ? Long.class : type));
+			}
+		}
+		final MBeanOperationInfo[] operations =
+			{
+				new MBeanOperationInfo("reset", "Discards all measurements",
+					new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION),
+				new MBeanOperationInfo("dump", "Lists all metrics as text",
+					new MBeanParameterInfo[0], String.class.getName(),
+					MBeanOperationInfo.INFO) };
+		return new MBeanInfo(getClass().getName(), "ImageJ performance metrics",
+			attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+			operations, null);
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Gets the service whose metrics are published, unregistering this MBean if
+	 * the service no longer exists.
+	 */
+	private MetricsService getMetricsService() {
+		final MetricsService service = metricsService.get();
+		if (service == null) {
+			synchronized (mbeans) {
+				if (mbeans.remove(this)) unregister();
+			}
+		}
+		return service;
+	}
+
+	private List<Metric> getMetrics() {
+		final MetricsService service = getMetricsService();
+		if (service == null) return Collections.emptyList();
+		return service.getMetrics();
+	}
+
+	private void unregister() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+		catch (final JMException e) {
+			// NB: Already unregistered.
+		}
+	}
+
+	private MBeanAttributeInfo attribute(final String name, final Class<?> type)
+	{
+		return new MBeanAttributeInfo(name, type.getName(), name, true, false,
+			false);
+	}
+
+	private Object getStatistic(final Histogram histogram,
+		final String statistic)
+	{
+		if (statistic.equals("count")) return histogram.getCount();
+		if (histogram instanceof Timer) {
+			final Timer timer = (Timer) histogram;
+			if (statistic.equals("mean")) return timer.getMeanMillis();
+			if (statistic.equals("p50")) return timer.getPercentileMillis(50);
+			if (statistic.equals("p99")) return timer.getPercentileMillis(99);
+			if (statistic.equals("max")) return timer.getMaxMillis();
+			return null;
+		}
+		if (statistic.equals("mean")) return histogram.getMean();
+		if (statistic.equals("p50")) return histogram.getPercentile(50);
+		if (statistic.equals("p99")) return histogram.getPercentile(99);
+		if (statistic.equals("max")) return histogram.getMax();
+		return null;
+	}
+
+}
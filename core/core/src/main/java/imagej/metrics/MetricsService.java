@@ -0,0 +1,76 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.metrics;
+
+import imagej.service.IService;
+
+import java.util.List;
+
+/**
+ * Interface for the service which tracks performance {@link Metric}s, such as
+ * how often modules run and how long events take to be delivered.
+ * <p>
+ * Metrics are created on first request, and the same instance is returned for
+ * each later request with the same name. Callers on performance-critical code
+ * paths should keep a reference to the metric (or use the variants keyed on
+ * {@link Class}), to avoid building a name string each time.
+ * </p>
+ */
+public interface MetricsService extends IService {
+
+	/** Gets the counter with the given name, creating it if needed. */
+	Counter getCounter(String name);
+
+	/** Gets the histogram with the given name, creating it if needed. */
+	Histogram getHistogram(String name);
+
+	/** Gets the timer with the given name, creating it if needed. */
+	Timer getTimer(String name);
+
+	/**
+	 * Gets the timer with the given name for the given class (e.g., the event
+	 * class being dispatched), creating it if needed. The timer is named
+	 * <code>name:className</code>.
+	 */
+	Timer getTimer(String name, Class<?> type);
+
+	/** Gets all metrics, sorted by name. */
+	List<Metric> getMetrics();
+
+	/** Discards the measurements of all metrics. */
+	void reset();
+
+}
@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.metrics;
+
+/**
+ * A {@link Histogram} of elapsed times, in nanoseconds.
+ * <p>
+ * Typical usage:
+ * </p>
+ * 
+ * <pre>
+ * final long start = timer.start();
+ * try {
+ *   // do the work
+ * }
+ * finally {
+ *   timer.stop(start);
+ * }
+ * </pre>
+ */
+public class Timer extends Histogram {
+
+	public Timer(final String name) {
+		super(name);
+	}
+
+	// -- Timer methods --
+
+	/** Gets a start time to pass to {@link #stop(long)}. */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records the time elapsed since the given start time.
+	 * 
+	 * @return the elapsed time, in nanoseconds
+	 */
+	public long stop(final long startTime) {
+		final long elapsed = System.nanoTime() - startTime;
+		record(elapsed);
+		return elapsed;
+	}
+
+	/** Gets the mean elapsed time, in milliseconds. */
+	public double getMeanMillis() {
+		return getMean() / 1e6;
+	}
+
+	/** Gets the longest elapsed time, in milliseconds. */
+	public double getMaxMillis() {
+		return getMax() / 1e6;
+	}
+
+	/** Gets an upper bound on the given percentile, in milliseconds. */
+	public double getPercentileMillis(final double percentile) {
+		return getPercentile(percentile) / 1e6;
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return String.format("%s: count=%d, mean=%.3f ms, p50=%.3f ms, " +
+			"p99=%.3f ms, max=%.3f ms", getName(), getCount(), getMeanMillis(),
+			getPercentileMillis(50), getPercentileMillis(99), getMaxMillis());
+	}
+
+}
@@ -39,23 +39,40 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Data structure for managing lists of registered objects.
+ * <p>
+ * Each object is filed under every type in its type hierarchy. Objects are
+ * compared by identity, with constant-time insertion, membership and removal.
+ * Readers receive immutable snapshots, which are only rebuilt after the index
+ * has changed, so reading never blocks and never observes a list in the middle
+ * of an update.
+ * </p>
  * 
  * @author Curtis Rueden
  */
 public class ObjectIndex<E> implements Collection<E> {
 
+	/** Cached type hierarchies, keyed on class. */
+	private static final Map<Class<?>, Class<?>[]> closures =
+		new ConcurrentHashMap<Class<?>, Class<?>[]>();
+
 	/**
 	 * "Them as counts counts moren them as dont count." &mdash;Russell Hoban,
 	 * <em>Riddley Walker</em>
 	 */
-	protected final Map<Class<?>, List<E>> hoard =
-		new ConcurrentHashMap<Class<?>, List<E>>();
+	private final Map<Class<?>, TypeList> hoard =
+		new ConcurrentHashMap<Class<?>, TypeList>();
+
+	/** Lock guarding all modifications to the index. */
+	private final Object lock = new Object();
 
 	private final Class<E> baseClass;
 
@@ -83,12 +100,14 @@ public List<E> getAll() {
 	/**
 	 * Gets a list of registered objects compatible with the given type.
 	 * 
-	 * @return Read-only list of registered objects of the given type, or an empty
-	 *         list if no such objects exist (this method never returns null).
+	 * @return Read-only snapshot of registered objects of the given type, or an
+	 *         empty list if no such objects exist (this method never returns
+	 *         null). The snapshot is not affected by later changes to the index.
 	 */
 	public List<E> get(final Class<?> type) {
-		final List<E> list = getList(type);
-		return Collections.unmodifiableList(list);
+		final TypeList typeList = hoard.get(type);
+		if (typeList == null) return Collections.emptyList();
+		return typeList.snapshot();
 	}
 
 	// -- Collection methods --
@@ -105,7 +124,11 @@ public boolean isEmpty() {
 
 	@Override
 	public boolean contains(final Object o) {
-		return getAll().contains(o);
+		final TypeList typeList = hoard.get(Object.class);
+		if (typeList == null) return false;
+		synchronized (lock) {
+			return typeList.items.containsKey(new IdentityKey(o));
+		}
 	}
 
 	@Override
@@ -135,7 +158,10 @@ public boolean remove(final Object o) {
 
 	@Override
 	public boolean containsAll(final Collection<?> c) {
-		return getAll().containsAll(c);
+		for (final Object o : c) {
+			if (!contains(o)) return false;
+		}
+		return true;
 	}
 
 	@Override
@@ -165,7 +191,9 @@ public boolean retainAll(final Collection<?> c) {
 
 	@Override
 	public void clear() {
-		hoard.clear();
+		synchronized (lock) {
+			hoard.clear();
+		}
 	}
 
 	// -- Internal methods --
@@ -179,84 +207,144 @@ protected boolean remove(final Object o, final boolean batch) {
 	}
 
 	/** Adds an object to type lists beneath the given type hierarchy. */
-	protected boolean add(final E o, final Class<?> type, final boolean batch) {
-		final boolean result = register(o, type, batch);
-		if (extendsObject(o.getClass())) register(o, Object.class, batch);
+	protected boolean add(final E o, final Class<?> type,
+		@SuppressWarnings("unused") final boolean batch)
+	{
+		final IdentityKey key = new IdentityKey(o);
+		boolean result = false;
+		synchronized (lock) {
+			for (final Class<?> c : getTypeClosure(type)) {
+				final boolean added = getList(c).add(key, o);
+				if (c == type) result = added;
+			}
+		}
 		return result;
 	}
 
 	/** Removes an object from type lists beneath the given type hierarchy. */
 	protected boolean remove(final Object o, final Class<?> type,
-		final boolean batch)
+		@SuppressWarnings("unused") final boolean batch)
 	{
-		final boolean result = deregister(o, type, batch);
-		if (!extendsObject(o.getClass())) deregister(o, Object.class, batch);
+		final IdentityKey key = new IdentityKey(o);
+		boolean result = false;
+		synchronized (lock) {
+			for (final Class<?> c : getTypeClosure(type)) {
+				final TypeList typeList = hoard.get(c);
+				if (typeList == null) continue;
+				final boolean removed = typeList.remove(key);
+				if (c == type) result = removed;
+			}
+		}
 		return result;
 	}
 
-	protected boolean addToList(final E obj, final List<E> list,
-		@SuppressWarnings("unused") final boolean batch)
-	{
-		if (list.contains(obj)) return false; // object already on the list
-		list.add(obj);
-		return true;
+	/**
+	 * Arranges a newly built snapshot of a type list, before it is handed out to
+	 * readers. By default, objects are kept in the order they were added.
+	 */
+	protected void arrange(@SuppressWarnings("unused") final List<E> list) {
+		// NB: No action needed.
 	}
 
-	protected boolean removeFromList(final Object obj, final List<E> list,
-		@SuppressWarnings("unused") final boolean batch)
-	{
-		return list.remove(obj);
+	// -- Helper methods --
+
+	/** Gets the type list for the given type, creating it if needed. */
+	private TypeList getList(final Class<?> type) {
+		TypeList typeList = hoard.get(type);
+		if (typeList == null) {
+			typeList = new TypeList();
+			hoard.put(type, typeList);
+		}
+		return typeList;
 	}
 
-	// -- Helper methods --
+	/**
+	 * Gets the given type, all of its supertypes and interfaces, and
+	 * {@link Object}, computing the list only once per type.
+	 */
+	private static Class<?>[] getTypeClosure(final Class<?> type) {
+		Class<?>[] closure = closures.get(type);
+		if (closure == null) {
+			final Set<Class<?>> types = new LinkedHashSet<Class<?>>();
+			addTypes(type, types);
+			types.add(Object.class);
+			closure = types.toArray(new Class<?>[types.size()]);
+			closures.put(type, closure);
+		}
+		return closure;
+	}
 
-	/** Recursively adds the given object to type lists. */
-	private boolean
-		register(final E o, final Class<?> type, final boolean batch)
+	private static void addTypes(final Class<?> type, final Set<Class<?>> types)
 	{
-		if (type == null) return false; // invalid class
+		if (type == null || !types.add(type)) return;
+		addTypes(type.getSuperclass(), types);
+		for (final Class<?> iface : type.getInterfaces()) {
+			addTypes(iface, types);
+		}
+	}
 
-		final boolean result = addToList(o, getList(type), batch);
+	// -- Helper classes --
 
-		// recursively add to supertypes
-		register(o, type.getSuperclass(), batch);
-		for (final Class<?> iface : type.getInterfaces()) {
-			register(o, iface, batch);
+	/**
+	 * Wrapper which compares objects by identity, so that objects with a custom
+	 * {@link Object#equals} method are still tracked individually.
+	 */
+	private static class IdentityKey {
+
+		private final Object o;
+
+		public IdentityKey(final Object o) {
+			this.o = o;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof IdentityKey && ((IdentityKey) obj).o == o;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(o);
 		}
 
-		return result;
 	}
 
-	/** Recursively removes the given object from type lists. */
-	private boolean deregister(final Object obj, final Class<?> type,
-		final boolean batch)
-	{
-		if (type == null) return false;
+	/** Insertion-ordered set of the objects registered under one type. */
+	private class TypeList {
 
-		final boolean result = removeFromList(obj, getList(type), batch);
+		/** Registered objects. Guarded by {@link ObjectIndex#lock}. */
+		private final Map<IdentityKey, E> items =
+			new LinkedHashMap<IdentityKey, E>();
 
-		// recursively remove from supertypes
-		deregister(obj, type.getSuperclass(), batch);
-		for (final Class<?> iface : type.getInterfaces()) {
-			deregister(obj, iface, batch);
+		/** Read-only copy of the items, or null if it must be rebuilt. */
+		private volatile List<E> snapshot;
+
+		public boolean add(final IdentityKey key, final E o) {
+			if (items.containsKey(key)) return false; // object already on the list
+			items.put(key, o);
+			snapshot = null;
+			return true;
 		}
 
-		return result;
-	}
+		public boolean remove(final IdentityKey key) {
+			if (items.remove(key) == null) return false;
+			snapshot = null;
+			return true;
+		}
 
-	private List<E> getList(final Class<?> type) {
-		List<E> list = hoard.get(type);
-		if (list == null) {
-			list = new ArrayList<E>();
-			hoard.put(type, list);
+		public List<E> snapshot() {
+			final List<E> list = snapshot;
+			if (list != null) return list;
+			synchronized (lock) {
+				if (snapshot == null) {
+					final List<E> copy = new ArrayList<E>(items.values());
+					arrange(copy);
+					snapshot = Collections.unmodifiableList(copy);
+				}
+				return snapshot;
+			}
 		}
-		return list;
-	}
 
-	private boolean extendsObject(final Class<?> c) {
-		if (c == null) return false;
-		if (c == Object.class) return true;
-		return extendsObject(c.getSuperclass());
 	}
 
 }
@@ -35,12 +35,15 @@
 
 package imagej.object;
 
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 /**
  * Data structure for managing sorted lists of registered objects.
+ * <p>
+ * Objects are kept in their natural order. Sorting is deferred until a list is
+ * next read, so registering many objects costs only a single sort.
+ * </p>
  * 
  * @author Curtis Rueden
  */
@@ -52,68 +55,11 @@ public SortedObjectIndex(final Class<E> baseClass) {
 		super(baseClass);
 	}
 
-	// -- Collection methods --
-
-	@Override
-	public boolean contains(final Object o) {
-		final int index = findInList(o, getAll());
-		return index < 0;
-	}
-
-	@Override
-	public boolean containsAll(final Collection<?> c) {
-		for (final Object o : c) {
-			if (!contains(o)) return false;
-		}
-		return true;
-	}
-
-	@Override
-	public boolean addAll(final Collection<? extends E> c) {
-		if (c.size() == 1) {
-			// add single item normally, to avoid resorting the lists
-			return add(c.iterator().next());
-		}
-		final boolean changed = super.addAll(c);
-		if (changed) sort();
-		return changed;
-	}
-
 	// -- Internal methods --
 
 	@Override
-	protected boolean addToList(final E obj, final List<E> list,
-		final boolean batch)
-	{
-		if (batch) {
-			// adding multiple values; append to end of list, and sort afterward
-			return super.addToList(obj, list, batch);
-		}
-
-		// search for the correct location to insert the object
-		final int index = Collections.binarySearch(list, obj);
-		if (index >= 0) return false; // object already on the list
-		// insert object at the appropriate location
-		list.add(-index - 1, obj);
-		return true;
-	}
-
-	// -- Helper methods --
-
-	private void sort() {
-		for (final List<E> list : hoard.values()) {
-			Collections.sort(list);
-		}
-	}
-
-	private int findInList(final Object o, final List<E> list) {
-		if (!getBaseClass().isAssignableFrom(o.getClass())) {
-			// wrong type
-			return list.size();
-		}
-		@SuppressWarnings("unchecked")
-		final E typedObj = (E) o;
-		return Collections.binarySearch(list, typedObj);
+	protected void arrange(final List<E> list) {
+		Collections.sort(list);
 	}
 
 }
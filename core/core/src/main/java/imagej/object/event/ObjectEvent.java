@@ -54,6 +54,13 @@ public Object getObject() {
 		return object;
 	}
 
+	// -- ImageJEvent methods --
+
+	@Override
+	public Object getSource() {
+		return getObject();
+	}
+
 	// -- Object methods --
 
 	@Override
@@ -53,5 +53,16 @@
 @Target(ElementType.TYPE)
 @Indexable(type = IService.class)
 public @interface Service {
-	// marker interface for discovery via SezPoz
+
+	/**
+	 * Whether the service may be constructed lazily, upon first use, when the
+	 * context is created in lazy mode (see
+	 * {@link imagej.ImageJ#createContext(java.util.Collection, boolean)}).
+	 * Services which must be running from the start, e.g. because their
+	 * constructor configures the application, should set this to false.
+	 * Services with {@link imagej.event.EventHandler} methods are always
+	 * constructed eagerly, so that they do not miss any events.
+	 */
+	boolean lazy() default true;
+
 }
@@ -36,23 +36,43 @@
 package imagej.service;
 
 import imagej.ImageJ;
+import imagej.event.EventHandler;
 import imagej.util.Log;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.java.sezpoz.Index;
 import net.java.sezpoz.IndexItem;
 
 /**
  * Helper class for discovering and instantiating available services.
+ * <p>
+ * Services are instantiated concurrently: the dependency graph implied by the
+ * services' constructor signatures is computed up front, and each service is
+ * constructed as soon as all of the services it depends on are available. How
+ * long each service took to construct is recorded in a {@link StartupProfile}.
+ * </p>
+ * <p>
+ * In lazy mode, only services which cannot be constructed lazily (see
+ * {@link Service#lazy()}) are constructed up front; the others are registered
+ * by placeholder, and constructed when first needed.
+ * </p>
  * 
  * @author Curtis Rueden
  */
@@ -64,9 +84,18 @@ public class ServiceHelper {
 	/** Classes to scan when searching for dependencies. */
 	private final Set<Class<? extends IService>> classPool;
 
+	/** Classes which must not be instantiated lazily. */
+	private final Set<Class<? extends IService>> eagerClasses;
+
 	/** Classes to instantiate as services. */
 	private final List<Class<? extends IService>> serviceClasses;
 
+	/** Whether services should be instantiated only when first needed. */
+	private final boolean lazy;
+
+	/** Timing report of the last call to {@link #loadServices()}. */
+	private StartupProfile startupProfile;
+
 	/**
 	 * Creates a new service helper for discovering and instantiating services.
 	 * 
@@ -85,13 +114,33 @@ public ServiceHelper(final ImageJ context) {
 	 */
 	public ServiceHelper(final ImageJ context,
 		final Collection<Class<? extends IService>> serviceClasses)
+	{
+		this(context, serviceClasses, false);
+	}
+
+	/**
+	 * Creates a new service helper for discovering and instantiating services.
+	 * 
+	 * @param context The application context to which services should be added.
+	 * @param serviceClasses The service classes to instantiate.
+	 * @param lazy Whether to defer the instantiation of services until they are
+	 *          first needed. Only the given services (or if none are given, those
+	 *          which cannot be instantiated lazily) are instantiated up front.
+	 */
+	public ServiceHelper(final ImageJ context,
+		final Collection<Class<? extends IService>> serviceClasses,
+		final boolean lazy)
 	{
 		this.context = context;
-		classPool = findServiceClasses();
+		this.lazy = lazy;
+		eagerClasses = new HashSet<Class<? extends IService>>();
+		classPool = findServiceClasses(eagerClasses);
 		this.serviceClasses = new ArrayList<Class<? extends IService>>();
 		if (serviceClasses == null) {
 			// load all discovered services
-			this.serviceClasses.addAll(classPool);
+			for (final Class<? extends IService> c : classPool) {
+				if (!lazy || !isLazy(c)) this.serviceClasses.add(c);
+			}
 		}
 		else {
 			// load only the services that were explicitly specified
@@ -103,12 +152,82 @@ public ServiceHelper(final ImageJ context,
 
 	/**
 	 * Ensures all candidate service classes are registered in the index, locating
-	 * and instantiating compatible services as needed.
+	 * and instantiating compatible services as needed. Independent services are
+	 * instantiated concurrently; this method returns once all of them are
+	 * available. In lazy mode, the remaining services are registered by
+	 * placeholder.
 	 */
 	public void loadServices() {
+		final long startTime = System.nanoTime();
+
+		if (lazy) {
+			for (final Class<? extends IService> c : classPool) {
+				if (serviceClasses.contains(c) || !isLazy(c)) continue;
+				context.getServiceIndex().addPlaceholder(
+					new ServicePlaceholder(this, context, c));
+			}
+		}
+
+		// compute the dependency graph of the needed services
+		final Map<Class<?>, ServiceNode> nodes =
+			new LinkedHashMap<Class<?>, ServiceNode>();
+		final Set<Class<?>> path = new HashSet<Class<?>>();
 		for (final Class<? extends IService> serviceClass : serviceClasses) {
-			loadService(serviceClass);
+			resolve(serviceClass, nodes, path);
+		}
+
+		if (!nodes.isEmpty()) {
+			final int threads =
+				Math.min(nodes.size(), Runtime.getRuntime().availableProcessors());
+			final ExecutorService executor =
+				Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+					private int nextThread = 0;
+
+					@Override
+					public synchronized Thread newThread(final Runnable r) {
+						final String contextHash =
+							Integer.toHexString(context.hashCode());
+						final Thread thread =
+							new Thread(r, "ImageJ-" + contextHash + "-Startup-" +
+								nextThread++);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			try {
+				final CountDownLatch done = new CountDownLatch(nodes.size());
+				for (final ServiceNode node : nodes.values()) {
+					node.start(executor, done, startTime);
+				}
+				done.await();
+			}
+			catch (final InterruptedException e) {
+				Log.error("Interrupted while loading services", e);
+				Thread.currentThread().interrupt();
+			}
+			finally {
+				executor.shutdown();
+			}
 		}
+
+		final List<StartupProfile.Entry> entries =
+			new ArrayList<StartupProfile.Entry>();
+		for (final ServiceNode node : nodes.values()) {
+			if (node.entry != null) entries.add(node.entry);
+		}
+		startupProfile =
+			new StartupProfile(entries, (System.nanoTime() - startTime) / 1e6);
+		Log.info("Loaded {} services in {} ms", entries.size(),
+			Math.round(startupProfile.getTotalTime()));
+	}
+
+	/**
+	 * Gets the timing report of service startup, or null if
+	 * {@link #loadServices()} has not been called.
+	 */
+	public StartupProfile getStartupProfile() {
+		return startupProfile;
 	}
 
 	/**
@@ -125,16 +244,10 @@ public <S extends IService> S loadService(final Class<S> c) {
 		if (service != null) return service;
 
 		// scan the class pool for a suitable match
-		for (final Class<? extends IService> serviceClass : classPool) {
-			if (c.isAssignableFrom(serviceClass)) {
-				// found a match; now instantiate it
-				@SuppressWarnings("unchecked")
-				final S result = (S) createExactService(serviceClass);
-				return result;
-			}
-		}
-
-		return createExactService(c);
+		@SuppressWarnings("unchecked")
+		final Class<? extends S> serviceClass =
+			(Class<? extends S>) findServiceClass(c);
+		return createExactService(serviceClass);
 	}
 
 	/**
@@ -144,12 +257,12 @@ public <S extends IService> S loadService(final Class<S> c) {
 	 *         instantiated
 	 */
 	public <S extends IService> S createExactService(final Class<S> c) {
-		Log.debug("Creating service: " + c.getName());
+		Log.debug("Creating service: {}", c.getName());
 		try {
 			final Constructor<S> ctor = getConstructor(c);
-			final S service = createService(ctor);
+			final S service = createService(ctor, true);
 			context.getServiceIndex().add(service);
-			Log.info("Created service: " + c.getName());
+			Log.info("Created service: {}", c.getName());
 			return service;
 		}
 		catch (final Exception e) {
@@ -160,9 +273,94 @@ public <S extends IService> S createExactService(final Class<S> c) {
 
 	// -- Helper methods --
 
-	/** Instantiates a service using the given constructor. */
-	private <S extends IService> S createService(final Constructor<S> ctor)
-		throws InstantiationException, IllegalAccessException,
+	/**
+	 * Adds the service class compatible with the given class, along with the
+	 * services it depends upon, to the dependency graph.
+	 * 
+	 * @return the graph node of the service to construct, or null if a
+	 *         compatible service already exists or the service cannot be
+	 *         constructed
+	 */
+	private ServiceNode resolve(final Class<? extends IService> c,
+		final Map<Class<?>, ServiceNode> nodes, final Set<Class<?>> path)
+	{
+		// NB: Do not use getService, which would construct placeholders.
+		if (!context.getServiceIndex().get(c).isEmpty()) return null;
+		final Class<? extends IService> serviceClass = findServiceClass(c);
+
+		final ServiceNode existing = nodes.get(serviceClass);
+		if (existing != null) return existing;
+		if (path.contains(serviceClass)) {
+			Log.error("Circular service dependency: " + serviceClass.getName());
+			return null;
+		}
+
+		final Constructor<? extends IService> ctor;
+		try {
+			ctor = getConstructor(serviceClass);
+		}
+		catch (final IllegalArgumentException e) {
+			Log.error("Invalid service: " + serviceClass.getName(), e);
+			return null;
+		}
+
+		// NB: Dependencies are added to the graph before their dependents.
+		path.add(serviceClass);
+		final ServiceNode node = new ServiceNode(serviceClass, ctor);
+		for (final Class<?> type : ctor.getParameterTypes()) {
+			if (!IService.class.isAssignableFrom(type)) continue;
+			@SuppressWarnings("unchecked")
+			final Class<? extends IService> depClass =
+				(Class<? extends IService>) type;
+			final ServiceNode dep = resolve(depClass, nodes, path);
+			if (dep != null) node.dependOn(dep);
+		}
+		path.remove(serviceClass);
+		nodes.put(serviceClass, node);
+		return node;
+	}
+
+	/**
+	 * Gets whether the given service class may be instantiated lazily: it must
+	 * not be flagged otherwise, nor have any event handler methods.
+	 */
+	private boolean isLazy(final Class<? extends IService> c) {
+		if (eagerClasses.contains(c)) return false;
+		try {
+			for (Class<?> type = c; type != null; type = type.getSuperclass()) {
+				for (final Method m : type.getDeclaredMethods()) {
+					if (m.isAnnotationPresent(EventHandler.class)) return false;
+				}
+			}
+		}
+		catch (final LinkageError e) {
+			// NB: Instantiate the service eagerly, so that the problem is reported.
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Scans the class pool for a service class compatible with the given class,
+	 * returning the given class itself if none is found.
+	 */
+	private Class<? extends IService> findServiceClass(
+		final Class<? extends IService> c)
+	{
+		for (final Class<? extends IService> serviceClass : classPool) {
+			if (c.isAssignableFrom(serviceClass)) return serviceClass;
+		}
+		return c;
+	}
+
+	/**
+	 * Instantiates a service using the given constructor.
+	 * 
+	 * @param loadMissing whether to instantiate needed services which are not
+	 *          yet registered, rather than passing null for them
+	 */
+	private <S extends IService> S createService(final Constructor<S> ctor,
+		final boolean loadMissing) throws InstantiationException, IllegalAccessException,
 		InvocationTargetException
 	{
 		final Class<?>[] types = ctor.getParameterTypes();
@@ -173,7 +371,7 @@ private <S extends IService> S createService(final Constructor<S> ctor)
 				@SuppressWarnings("unchecked")
 				final Class<IService> c = (Class<IService>) type;
 				args[i] = context.getServiceIndex().getService(c);
-				if (args[i] == null) {
+				if (args[i] == null && loadMissing) {
 					// recursively obtain needed services
 					args[i] = loadService(c);
 				}
@@ -237,8 +435,13 @@ public int compare(final Constructor<?> c1, final Constructor<?> c2) {
 	/**
 	 * Discovers service implementations that are present on the classpath and
 	 * marked with the @{@link Service} annotation.
+	 * 
+	 * @param eager Set to which services which must not be instantiated lazily
+	 *          are added.
 	 */
-	private HashSet<Class<? extends IService>> findServiceClasses() {
+	private HashSet<Class<? extends IService>> findServiceClasses(
+		final Set<Class<? extends IService>> eager)
+	{
 		final HashSet<Class<? extends IService>> serviceSet =
 			new HashSet<Class<? extends IService>>();
 
@@ -251,6 +454,7 @@ private HashSet<Class<? extends IService>> findServiceClasses() {
 				final Class<? extends IService> c =
 					(Class<? extends IService>) item.element();
 				serviceSet.add(c);
+				if (!item.annotation().lazy()) eager.add(c);
 			}
 			catch (final InstantiationException e) {
 				Log.error("Invalid service: " + item, e);
@@ -260,4 +464,93 @@ private HashSet<Class<? extends IService>> findServiceClasses() {
 		return serviceSet;
 	}
 
+	// -- Helper classes --
+
+	/**
+	 * A service to construct, which is scheduled once all the services it
+	 * depends upon have been constructed.
+	 */
+	private class ServiceNode implements Runnable {
+
+		private final Class<? extends IService> serviceClass;
+		private final Constructor<? extends IService> ctor;
+
+		private final List<ServiceNode> dependencies = new ArrayList<ServiceNode>();
+		private final List<ServiceNode> dependents = new ArrayList<ServiceNode>();
+
+		/** Number of unconstructed dependencies, plus one until started. */
+		private final AtomicInteger remaining = new AtomicInteger(1);
+
+		private ExecutorService executor;
+		private CountDownLatch done;
+		private long startTime;
+
+		private StartupProfile.Entry entry;
+
+		public ServiceNode(final Class<? extends IService> serviceClass,
+			final Constructor<? extends IService> ctor)
+		{
+			this.serviceClass = serviceClass;
+			this.ctor = ctor;
+		}
+
+		public void dependOn(final ServiceNode node) {
+			if (dependencies.contains(node)) return;
+			dependencies.add(node);
+			node.dependents.add(this);
+			remaining.incrementAndGet();
+		}
+
+		public void start(final ExecutorService executorService,
+			final CountDownLatch latch, final long time)
+		{
+			executor = executorService;
+			done = latch;
+			startTime = time;
+			ready();
+		}
+
+		// -- Runnable methods --
+
+		@Override
+		public void run() {
+			final long constructStart = System.nanoTime();
+			IService service = null;
+			try {
+				Log.debug("Creating service: {}", serviceClass.getName());
+				service = createService(ctor, false);
+				context.getServiceIndex().add(service);
+				Log.info("Created service: {}", serviceClass.getName());
+			}
+			catch (final Throwable t) {
+				Log.error("Invalid service: " + serviceClass.getName(), t);
+			}
+			finally {
+				final long constructEnd = System.nanoTime();
+				final List<Class<? extends IService>> depClasses =
+					new ArrayList<Class<? extends IService>>();
+				for (final ServiceNode dep : dependencies) {
+					depClasses.add(dep.serviceClass);
+				}
+				entry =
+					new StartupProfile.Entry(serviceClass, depClasses,
+						(constructStart - startTime) / 1e6,
+						(constructEnd - constructStart) / 1e6, Thread.currentThread()
+							.getName(), service != null);
+				for (final ServiceNode dependent : dependents) {
+					dependent.ready();
+				}
+				done.countDown();
+			}
+		}
+
+		// -- Helper methods --
+
+		/** Schedules construction once nothing else remains to wait for. */
+		private void ready() {
+			if (remaining.decrementAndGet() == 0) executor.execute(this);
+		}
+
+	}
+
 }
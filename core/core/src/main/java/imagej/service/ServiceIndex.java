@@ -37,28 +37,101 @@
 
 import imagej.object.ObjectIndex;
 
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data structure for tracking registered services.
+ * <p>
+ * In lazy mode, services may also be registered by placeholder, in which case
+ * they are constructed the first time they are requested.
+ * </p>
  * 
  * @author Curtis Rueden
  */
 public class ServiceIndex extends ObjectIndex<IService> {
 
+	/** Services not yet constructed, keyed on service class. */
+	private final Map<Class<?>, ServicePlaceholder> placeholders =
+		new LinkedHashMap<Class<?>, ServicePlaceholder>();
+
 	public ServiceIndex() {
 		super(IService.class);
 	}
 
 	// -- ServiceIndex methods --
 
-	/** Gets the first available service compatible with the given class. */
+	/**
+	 * Gets the first available service compatible with the given class. If
+	 * there is none, but a compatible service is registered by placeholder, it
+	 * is constructed now.
+	 */
 	public <S extends IService> S getService(final Class<S> c) {
 		final List<IService> list = get(c);
-		if (list.isEmpty()) return null;
+		if (list.isEmpty()) {
+			final ServicePlaceholder placeholder = getPlaceholder(c);
+			if (placeholder == null) return null;
+			@SuppressWarnings("unchecked")
+			final S service = (S) placeholder.getService();
+			return service;
+		}
 		@SuppressWarnings("unchecked")
 		final S service = (S) list.get(0);
 		return service;
 	}
 
+	/** Gets whether a service of the given class is still to be constructed. */
+	public boolean isPending(final Class<? extends IService> c) {
+		synchronized (placeholders) {
+			return placeholders.containsKey(c);
+		}
+	}
+
+	// -- Internal methods --
+
+	/**
+	 * Registers a service to be constructed on demand. Its proxy, if any, is
+	 * added to the index in the meantime.
+	 */
+	void addPlaceholder(final ServicePlaceholder placeholder) {
+		synchronized (placeholders) {
+			placeholders.put(placeholder.getServiceClass(), placeholder);
+		}
+		final IService proxy = placeholder.getProxy();
+		if (proxy != null) add(proxy);
+	}
+
+	@Override
+	protected boolean add(final IService o, final Class<?> type,
+		final boolean batch)
+	{
+		final boolean result = super.add(o, type, batch);
+		if (Proxy.isProxyClass(o.getClass())) return result;
+
+		// the real service now replaces its placeholder
+		final ServicePlaceholder placeholder;
+		synchronized (placeholders) {
+			placeholder = placeholders.remove(o.getClass());
+		}
+		if (placeholder != null && placeholder.getProxy() != null) {
+			remove(placeholder.getProxy());
+		}
+		return result;
+	}
+
+	// -- Helper methods --
+
+	private ServicePlaceholder getPlaceholder(final Class<?> c) {
+		synchronized (placeholders) {
+			for (final ServicePlaceholder placeholder : placeholders.values()) {
+				if (c.isAssignableFrom(placeholder.getServiceClass())) {
+					return placeholder;
+				}
+			}
+		}
+		return null;
+	}
+
 }
@@ -0,0 +1,156 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.service;
+
+import imagej.ImageJ;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for a service which has not been constructed yet. The service is
+ * constructed the first time it is needed: either when it is requested from
+ * the {@link ServiceIndex} by class, or when a method is called on its
+ * placeholder proxy, which implements all of the service's interfaces.
+ */
+class ServicePlaceholder implements InvocationHandler {
+
+	private final ServiceHelper serviceHelper;
+	private final ImageJ context;
+	private final Class<? extends IService> serviceClass;
+
+	/** Proxy standing in for the service, or null if it has no interfaces. */
+	private final IService proxy;
+
+	private IService service;
+	private boolean created;
+
+	public ServicePlaceholder(final ServiceHelper serviceHelper,
+		final ImageJ context, final Class<? extends IService> serviceClass)
+	{
+		this.serviceHelper = serviceHelper;
+		this.context = context;
+		this.serviceClass = serviceClass;
+		proxy = createProxy();
+	}
+
+	// -- ServicePlaceholder methods --
+
+	/** Gets the class of the service. */
+	public Class<? extends IService> getServiceClass() {
+		return serviceClass;
+	}
+
+	/** Gets the proxy standing in for the service, or null if none. */
+	public IService getProxy() {
+		return proxy;
+	}
+
+	/**
+	 * Gets the service, constructing it first if needed.
+	 * 
+	 * @return the service, or null if it cannot be instantiated
+	 */
+	public synchronized IService getService() {
+		if (!created) {
+			created = true;
+			service = serviceHelper.createExactService(serviceClass);
+		}
+		return service;
+	}
+
+	// -- InvocationHandler methods --
+
+	@Override
+	public Object invoke(final Object p, final Method method,
+		final Object[] args) throws Throwable
+	{
+		final String name = method.getName();
+		if (method.getDeclaringClass() == Object.class) {
+			if (name.equals("equals")) return p == args[0];
+			if (name.equals("hashCode")) return System.identityHashCode(p);
+			if (name.equals("toString")) {
+				return "Placeholder for " + serviceClass.getName();
+			}
+		}
+		// NB: Avoid constructing the service merely to report its context.
+		if (name.equals("getContext") && method.getParameterTypes().length == 0) {
+			return context;
+		}
+
+		final IService s = getService();
+		if (s == null) {
+			throw new IllegalStateException("Invalid service: " +
+				serviceClass.getName());
+		}
+		try {
+			return method.invoke(s, args);
+		}
+		catch (final InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	// -- Helper methods --
+
+	private IService createProxy() {
+		final List<Class<?>> interfaces = new ArrayList<Class<?>>();
+		boolean serviceInterface = false;
+		for (Class<?> c = serviceClass; c != null; c = c.getSuperclass()) {
+			for (final Class<?> iface : c.getInterfaces()) {
+				if (!Modifier.isPublic(iface.getModifiers())) continue;
+				if (interfaces.contains(iface)) continue;
+				interfaces.add(iface);
+				if (iface != IService.class &&
+					IService.class.isAssignableFrom(iface))
+				{
+					serviceInterface = true;
+				}
+			}
+		}
+		// NB: A service without an interface of its own can only be requested by
+		// its class, so there is nothing for a proxy to stand in for.
+		if (!serviceInterface) return null;
+		return (IService) Proxy.newProxyInstance(serviceClass.getClassLoader(),
+			interfaces.toArray(new Class<?>[interfaces.size()]), this);
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.service;
+
+import imagej.ImageJ;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Timing report describing how long each service took to construct when an
+ * {@link ImageJ} context was created.
+ * 
+ * @see ImageJ#getStartupProfile()
+ */
+public class StartupProfile {
+
+	private final List<Entry> entries;
+
+	private final double totalTime;
+
+	public StartupProfile(final List<Entry> entries, final double totalTime) {
+		final List<Entry> sorted = new ArrayList<Entry>(entries);
+		Collections.sort(sorted, new Comparator<Entry>() {
+
+			@Override
+			public int compare(final Entry e1, final Entry e2) {
+				return Double.compare(e1.getStartTime(), e2.getStartTime());
+			}
+
+		});
+		this.entries = Collections.unmodifiableList(sorted);
+		this.totalTime = totalTime;
+	}
+
+	// -- StartupProfile methods --
+
+	/** Gets the timing entry of each constructed service, in order of start. */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/** Gets the elapsed (wall clock) time of service startup, in milliseconds. */
+	public double getTotalTime() {
+		return totalTime;
+	}
+
+	/**
+	 * Gets the sum of all services' construction times, in milliseconds. When
+	 * services are constructed concurrently, this exceeds the total time.
+	 */
+	public double getCumulativeTime() {
+		double sum = 0;
+		for (final Entry entry : entries) {
+			sum += entry.getDuration();
+		}
+		return sum;
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		final String nl = System.getProperty("line.separator");
+		final StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Started %d services in %.1f ms " +
+			"(%.1f ms cumulative)", entries.size(), totalTime, getCumulativeTime()));
+		sb.append(nl);
+
+		// list the slowest services first
+		final List<Entry> slowest = new ArrayList<Entry>(entries);
+		Collections.sort(slowest, new Comparator<Entry>() {
+
+			@Override
+			public int compare(final Entry e1, final Entry e2) {
+				return Double.compare(e2.getDuration(), e1.getDuration());
+			}
+
+		});
+		for (final Entry entry : slowest) {
+			sb.append(String.format("%10.1f ms  (at %8.1f ms)  %s%s", entry
+				.getDuration(), entry.getStartTime(), entry.getServiceClass()
+				.getName(), entry.isCreated() ? "" : " [FAILED]"));
+			sb.append(nl);
+		}
+		return sb.toString();
+	}
+
+	// -- Helper classes --
+
+	/** Construction timing of a single service. */
+	public static class Entry {
+
+		private final Class<? extends IService> serviceClass;
+		private final List<Class<? extends IService>> dependencies;
+		private final double startTime;
+		private final double duration;
+		private final String threadName;
+		private final boolean created;
+
+		public Entry(final Class<? extends IService> serviceClass,
+			final List<Class<? extends IService>> dependencies,
+			final double startTime, final double duration, final String threadName,
+			final boolean created)
+		{
+			this.serviceClass = serviceClass;
+			this.dependencies = Collections.unmodifiableList(dependencies);
+			this.startTime = startTime;
+			this.duration = duration;
+			this.threadName = threadName;
+			this.created = created;
+		}
+
+		/** Gets the class of the service. */
+		public Class<? extends IService> getServiceClass() {
+			return serviceClass;
+		}
+
+		/** Gets the services which had to be constructed before this one. */
+		public List<Class<? extends IService>> getDependencies() {
+			return dependencies;
+		}
+
+		/**
+		 * Gets the time at which construction began, in milliseconds since
+		 * service startup began.
+		 */
+		public double getStartTime() {
+			return startTime;
+		}
+
+		/** Gets how long the service took to construct, in milliseconds. */
+		public double getDuration() {
+			return duration;
+		}
+
+		/** Gets the name of the thread which constructed the service. */
+		public String getThreadName() {
+			return threadName;
+		}
+
+		/** Gets whether the service was constructed successfully. */
+		public boolean isCreated() {
+			return created;
+		}
+
+	}
+
+}
@@ -39,10 +39,24 @@
 import imagej.service.AbstractService;
 import imagej.service.Service;
 
+import java.awt.EventQueue;
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Default service for managing active ImageJ threads.
@@ -54,9 +68,27 @@ public final class DefaultThreadService extends AbstractService implements
 	ThreadService
 {
 
-	private ExecutorService executor;
+	/** Number of threads in the {@link Pool#IO} pool. */
+	private static final int IO_THREADS = 4;
 
-	private int nextThread = 0;
+	/** Number of chunks per compute thread used by {@link #parallelFor}. */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/** How long idle pool threads are kept alive, in seconds. */
+	private static final long KEEP_ALIVE = 60;
+
+	private final Map<Pool, PoolState> pools =
+		new EnumMap<Pool, PoolState>(Pool.class);
+
+	private final ThreadPoolExecutor computeExecutor;
+
+	/** The task running on each thread, if any. */
+	private final ThreadLocal<Task<?>> currentTask = new ThreadLocal<Task<?>>();
+
+	/** Sequence number of the next task, for FIFO order within a priority. */
+	private final AtomicLong nextTask = new AtomicLong();
+
+	private final AtomicInteger nextThread = new AtomicInteger();
 
 	// -- Constructors --
 
@@ -69,24 +101,340 @@ public DefaultThreadService() {
 	public DefaultThreadService(final ImageJ context) {
 		super(context);
 
-		executor = Executors.newCachedThreadPool(this);
+		pools.put(Pool.GENERAL, new PoolState(Pool.GENERAL, Executors
+			.newCachedThreadPool(this)));
+
+		final int cores = Runtime.getRuntime().availableProcessors();
+		computeExecutor = createBoundedExecutor("Compute", cores);
+		pools.put(Pool.COMPUTE, new PoolState(Pool.COMPUTE, computeExecutor));
+
+		pools.put(Pool.IO, new PoolState(Pool.IO, createBoundedExecutor("IO",
+			IO_THREADS)));
+
+		pools.put(Pool.UI, new PoolState(Pool.UI, createUIExecutor()));
 	}
 
 	// -- ThreadService methods --
 
 	@Override
 	public <V> Future<V> run(final Callable<V> code) {
-		return executor.submit(code);
+		return run(code, Pool.GENERAL);
+	}
+
+	@Override
+	public <V> Future<V> run(final Callable<V> code, final Pool pool) {
+		return run(code, pool, Priority.NORMAL);
+	}
+
+	@Override
+	public <V> Future<V> run(final Callable<V> code, final Pool pool,
+		final Priority priority)
+	{
+		final PoolState state = pools.get(pool);
+		final Task<V> task = new Task<V>(code, priority, state);
+		state.execute(task);
+		return task;
+	}
+
+	@Override
+	public void parallelFor(final long start, final long end,
+		final LoopBody body)
+	{
+		final long size = end - start;
+		if (size <= 0) return;
+
+		final int threads = getComputeThreads();
+		final long chunkCount = Math.min(size, (long) threads * CHUNKS_PER_THREAD);
+		final long chunkSize = (size + chunkCount - 1) / chunkCount;
+		final ChunkLoop loop = new ChunkLoop(start, end, chunkSize, body);
+
+		// enlist idle compute threads to help with the loop
+		final Task<?> current = currentTask.get();
+		final Priority priority =
+			current == null ? Priority.NORMAL : current.priority;
+		final int helperCount = (int) Math.min(threads - 1, chunkCount - 1);
+		final List<Future<Object>> helpers = new ArrayList<Future<Object>>();
+		for (int i = 0; i < helperCount; i++) {
+			helpers.add(run(loop, Pool.COMPUTE, priority));
+		}
+
+		// process chunks on this thread too, so that progress is guaranteed
+		// even when all compute threads are busy
+		loop.call();
+
+		boolean interrupted = false;
+		for (final Future<Object> helper : helpers) {
+			// NB: A helper which has not started yet has nothing left to do.
+			if (helper.cancel(false)) continue;
+			while (true) {
+				try {
+					helper.get();
+					break;
+				}
+				catch (final InterruptedException exc) {
+					// stop handing out chunks, but let running ones finish
+					loop.stop();
+					interrupted = true;
+				}
+				catch (final ExecutionException exc) {
+					loop.fail(exc.getCause());
+					break;
+				}
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+		loop.rethrow();
+	}
+
+	@Override
+	public boolean isCancelled() {
+		final Task<?> task = currentTask.get();
+		return task != null && task.isCancelled();
+	}
+
+	@Override
+	public PoolMetrics getMetrics(final Pool pool) {
+		return pools.get(pool).getMetrics();
+	}
+
+	@Override
+	public int getComputeThreads() {
+		return computeExecutor.getMaximumPoolSize();
+	}
+
+	@Override
+	public synchronized void setComputeThreads(final int threads) {
+		final int count =
+			threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		// NB: The core size may never exceed the maximum size.
+		if (count > computeExecutor.getMaximumPoolSize()) {
+			computeExecutor.setMaximumPoolSize(count);
+			computeExecutor.setCorePoolSize(count);
+		}
+		else {
+			computeExecutor.setCorePoolSize(count);
+			computeExecutor.setMaximumPoolSize(count);
+		}
 	}
 
 	// -- ThreadFactory methods --
 
 	@Override
 	public Thread newThread(final Runnable r) {
+		return new Thread(r, getThreadName("Thread"));
+	}
+
+	// -- Helper methods --
+
+	private String getThreadName(final String poolName) {
 		final String contextHash = Integer.toHexString(getContext().hashCode());
-		final String threadName =
-			"ImageJ-" + contextHash + "-Thread-" + nextThread++;
-		return new Thread(r, threadName);
+		return "ImageJ-" + contextHash + "-" + poolName + "-" +
+			nextThread.getAndIncrement();
+	}
+
+	/**
+	 * Creates a fixed-size pool whose queued tasks are started in order of
+	 * priority.
+	 */
+	private ThreadPoolExecutor createBoundedExecutor(final String poolName,
+		final int threads)
+	{
+		final ThreadPoolExecutor executor =
+			new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.SECONDS,
+				new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+
+					@Override
+					public Thread newThread(final Runnable r) {
+						return new Thread(r, getThreadName(poolName));
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/** Creates an executor for the user interface thread. */
+	private Executor createUIExecutor() {
+		if (GraphicsEnvironment.isHeadless()) {
+			return Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(final Runnable r) {
+					final Thread thread = new Thread(r, getThreadName("UI"));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return new Executor() {
+
+			@Override
+			public void execute(final Runnable command) {
+				EventQueue.invokeLater(command);
+			}
+		};
+	}
+
+	// -- Helper classes --
+
+	/** A thread pool, together with its load and timing statistics. */
+	private class PoolState {
+
+		private final Pool pool;
+		private final Executor executor;
+
+		private final AtomicInteger queued = new AtomicInteger();
+		private final AtomicInteger active = new AtomicInteger();
+		private final AtomicLong completed = new AtomicLong();
+		private final AtomicLong totalLatency = new AtomicLong();
+		private final AtomicLong maxLatency = new AtomicLong();
+		private final AtomicLong totalRunTime = new AtomicLong();
+
+		public PoolState(final Pool pool, final Executor executor) {
+			this.pool = pool;
+			this.executor = executor;
+		}
+
+		public void execute(final Task<?> task) {
+			queued.incrementAndGet();
+			executor.execute(task);
+		}
+
+		public void started(final long latency) {
+			queued.decrementAndGet();
+			active.incrementAndGet();
+			totalLatency.addAndGet(latency);
+			long max = maxLatency.get();
+			while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+				max = maxLatency.get();
+			}
+		}
+
+		public void finished(final long runTime) {
+			active.decrementAndGet();
+			completed.incrementAndGet();
+			totalRunTime.addAndGet(runTime);
+		}
+
+		public PoolMetrics getMetrics() {
+			final long count = completed.get();
+			final int running = active.get();
+			final long started = count + running;
+			final double meanLatency =
+				started == 0 ? 0 : totalLatency.get() / 1e6 / started;
+			final double meanRunTime =
+				count == 0 ? 0 : totalRunTime.get() / 1e6 / count;
+			return new PoolMetrics(pool, queued.get(), running, count, meanLatency,
+				maxLatency.get() / 1e6, meanRunTime);
+		}
+
+	}
+
+	/**
+	 * A prioritized task, which records its timing and makes itself available
+	 * to {@link #isCancelled()} while running.
+	 */
+	private class Task<V> extends FutureTask<V> implements Comparable<Task<?>> {
+
+		private final Priority priority;
+		private final long sequence;
+		private final PoolState state;
+		private final long submitTime;
+
+		public Task(final Callable<V> code, final Priority priority,
+			final PoolState state)
+		{
+			super(code);
+			this.priority = priority;
+			this.state = state;
+			sequence = nextTask.getAndIncrement();
+			submitTime = System.nanoTime();
+		}
+
+		@Override
+		public void run() {
+			final long startTime = System.nanoTime();
+			state.started(startTime - submitTime);
+			final Task<?> previous = currentTask.get();
+			currentTask.set(this);
+			try {
+				super.run();
+			}
+			finally {
+				currentTask.set(previous);
+				state.finished(System.nanoTime() - startTime);
+			}
+		}
+
+		@Override
+		public int compareTo(final Task<?> task) {
+			if (priority != task.priority) {
+				return priority.compareTo(task.priority);
+			}
+			return sequence < task.sequence ? -1 : sequence > task.sequence ? 1 : 0;
+		}
+
+	}
+
+	/** Hands out chunks of a {@link #parallelFor} range to worker threads. */
+	private class ChunkLoop implements Callable<Object> {
+
+		private final long end;
+		private final long chunkSize;
+		private final LoopBody body;
+		private final AtomicLong next;
+
+		private volatile boolean stopped;
+		private volatile Throwable failure;
+
+		public ChunkLoop(final long start, final long end, final long chunkSize,
+			final LoopBody body)
+		{
+			this.end = end;
+			this.chunkSize = chunkSize;
+			this.body = body;
+			next = new AtomicLong(start);
+		}
+
+		@Override
+		public Object call() {
+			while (!stopped) {
+				if (DefaultThreadService.this.isCancelled()) {
+					stop();
+					break;
+				}
+				final long from = next.getAndAdd(chunkSize);
+				if (from >= end) break;
+				final long to = Math.min(from + chunkSize, end);
+				try {
+					body.run(from, to);
+				}
+				catch (final RuntimeException exc) {
+					fail(exc);
+				}
+				catch (final Error err) {
+					fail(err);
+				}
+			}
+			return null;
+		}
+
+		public void stop() {
+			stopped = true;
+		}
+
+		public synchronized void fail(final Throwable t) {
+			if (failure == null) failure = t;
+			stop();
+		}
+
+		public void rethrow() {
+			final Throwable t = failure;
+			if (t == null) return;
+			if (t instanceof RuntimeException) throw (RuntimeException) t;
+			if (t instanceof Error) throw (Error) t;
+			throw new RuntimeException(t);
+		}
+
 	}
 
 }
@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.thread;
+
+/**
+ * Snapshot of the load and task statistics of one {@link ThreadService} pool.
+ */
+public class PoolMetrics {
+
+	private final ThreadService.Pool pool;
+	private final int queueDepth;
+	private final int activeTasks;
+	private final long completedTasks;
+	private final double meanLatency;
+	private final double maxLatency;
+	private final double meanRunTime;
+
+	public PoolMetrics(final ThreadService.Pool pool, final int queueDepth,
+		final int activeTasks, final long completedTasks,
+		final double meanLatency, final double maxLatency,
+		final double meanRunTime)
+	{
+		this.pool = pool;
+		this.queueDepth = queueDepth;
+		this.activeTasks = activeTasks;
+		this.completedTasks = completedTasks;
+		this.meanLatency = meanLatency;
+		this.maxLatency = maxLatency;
+		this.meanRunTime = meanRunTime;
+	}
+
+	// -- PoolMetrics methods --
+
+	/** Gets the pool described by these metrics. */
+	public ThreadService.Pool getPool() {
+		return pool;
+	}
+
+	/** Gets the number of tasks waiting to be started. */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/** Gets the number of tasks currently running. */
+	public int getActiveTasks() {
+		return activeTasks;
+	}
+
+	/** Gets the number of tasks which have finished running. */
+	public long getCompletedTasks() {
+		return completedTasks;
+	}
+
+	/** Gets the mean time, in milliseconds, tasks waited before starting. */
+	public double getMeanLatency() {
+		return meanLatency;
+	}
+
+	/** Gets the longest time, in milliseconds, a task waited before starting. */
+	public double getMaxLatency() {
+		return maxLatency;
+	}
+
+	/** Gets the mean time, in milliseconds, tasks took to run. */
+	public double getMeanRunTime() {
+		return meanRunTime;
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return pool + ": queued=" + queueDepth + ", active=" + activeTasks +
+			", completed=" + completedTasks + ", meanLatency=" + meanLatency +
+			"ms, maxLatency=" + maxLatency + "ms, meanRunTime=" + meanRunTime + "ms";
+	}
+
+}
@@ -43,11 +43,84 @@
 
 /**
  * Interface for the thread handling service.
+ * <p>
+ * Tasks are run on one of several named thread {@link Pool}s, so that
+ * CPU-bound work is limited to one thread per core and blocking I/O cannot
+ * starve the user interface. Within the bounded pools, queued tasks are
+ * started in order of {@link Priority}.
+ * </p>
  * 
  * @author Curtis Rueden
  */
 public interface ThreadService extends IService, ThreadFactory {
 
+	/** The thread pools on which tasks can be run. */
+	enum Pool {
+		/**
+		 * Unbounded pool for long-lived or blocking tasks, such as modules which
+		 * wait for user input. This is the default.
+		 */
+		GENERAL,
+
+		/**
+		 * Pool for CPU-bound work, with one thread per processor core, or as many
+		 * as specified by {@link ThreadService#setComputeThreads(int)}.
+		 */
+		COMPUTE,
+
+		/** Bounded pool for blocking file and network I/O. */
+		IO,
+
+		/**
+		 * Runs tasks one at a time on the user interface thread; i.e., the AWT
+		 * Event Dispatch Thread, or a dedicated thread when running headless.
+		 */
+		UI
+	}
+
+	/** Priorities governing the order in which queued tasks are started. */
+	enum Priority {
+		HIGH, NORMAL, LOW
+	}
+
+	/** Runs the given code on the {@link Pool#GENERAL} pool. */
 	<V> Future<V> run(final Callable<V> code);
 
+	/** Runs the given code on the specified pool, with normal priority. */
+	<V> Future<V> run(final Callable<V> code, final Pool pool);
+
+	/** Runs the given code on the specified pool, with the given priority. */
+	<V> Future<V> run(final Callable<V> code, final Pool pool,
+		final Priority priority);
+
+	/**
+	 * Executes the given loop body over the index range [start, end) on the
+	 * {@link Pool#COMPUTE} pool, returning once the entire range has been
+	 * processed. The range is split into chunks, which idle compute threads claim
+	 * one at a time; the calling thread also processes chunks, so it is safe to
+	 * call this method from within a compute task.
+	 * 
+	 * @throws RuntimeException if the loop body throws one.
+	 */
+	void parallelFor(final long start, final long end, final LoopBody body);
+
+	/**
+	 * Checks whether the task running on the current thread has been cancelled
+	 * (via {@link Future#cancel(boolean)}). Long-running tasks should poll this
+	 * method periodically, and stop early when it returns true.
+	 */
+	boolean isCancelled();
+
+	/** Gets a snapshot of the given pool's current load and statistics. */
+	PoolMetrics getMetrics(final Pool pool);
+
+	/** Gets the number of threads in the {@link Pool#COMPUTE} pool. */
+	int getComputeThreads();
+
+	/**
+	 * Sets the number of threads in the {@link Pool#COMPUTE} pool. A value of
+	 * zero or less means one thread per available processor core.
+	 */
+	void setComputeThreads(final int threads);
+
 }
@@ -46,17 +46,50 @@
  * debug. It provides methods for logging messages, exception stack traces
  * and combinations of the two.
  * </p>
+ * <p>
+ * Messages may be parameterized, SLF4J style: each <code>{}</code> in the
+ * format is replaced by the next argument, and a trailing {@link Throwable}
+ * argument is logged as an exception. The message is only built if its level
+ * is enabled, and then on the logging thread rather than the calling one.
+ * </p>
+ * <p>
+ * By default, messages are handed to a {@link LogBuffer} and written by a
+ * background thread, so that logging never blocks the caller. The buffer can
+ * be configured with the system properties <code>ij.log.async</code> (set to
+ * false to log synchronously), <code>ij.log.buffer</code> (number of slots)
+ * and <code>ij.log.overflow</code> (the name of an {@link LogBuffer.Overflow}
+ * policy).
+ * </p>
  * 
  * @author Curtis Rueden
  */
 public final class Log {
 
+	public static final int TRACE = 0;
+	public static final int DEBUG = 1;
+	public static final int INFO = 2;
+	public static final int WARN = 3;
+	public static final int ERROR = 4;
+
 	private Log() {
 		// prevent instantiation of utility class
 	}
 
 	private static Logger logger = LoggerFactory.getLogger(Log.class);
 
+	private static volatile LogBuffer buffer = createBuffer();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("ImageJ-Log-Flush") {
+
+			@Override
+			public void run() {
+				final LogBuffer b = buffer;
+				if (b != null) b.flush(1000);
+			}
+		});
+	}
+
 	public static Logger getLogger() {
 		return logger;
 	}
@@ -65,8 +98,23 @@ public static void setLogger(final Logger logger) {
 		Log.logger = logger;
 	}
 
+	/** Gets the buffer of asynchronous logging, or null if synchronous. */
+	public static LogBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Sets the buffer of asynchronous logging; null to log synchronously. The
+	 * previous buffer, if any, is drained and shut down.
+	 */
+	public static void setBuffer(final LogBuffer buffer) {
+		final LogBuffer oldBuffer = Log.buffer;
+		Log.buffer = buffer;
+		if (oldBuffer != null && oldBuffer != buffer) oldBuffer.shutdown();
+	}
+
 	public static void debug(final Object msg) {
-		logger.debug(s(msg));
+		if (isDebug()) log(DEBUG, s(msg), null, null);
 	}
 
 	public static void debug(final Throwable t) {
@@ -74,11 +122,15 @@ public static void debug(final Throwable t) {
 	}
 
 	public static void debug(final Object msg, final Throwable t) {
-		logger.debug(s(msg), t);
+		if (isDebug()) log(DEBUG, s(msg), null, t);
+	}
+
+	public static void debug(final String format, final Object... args) {
+		if (isDebug()) log(DEBUG, format, args, null);
 	}
 
 	public static void error(final Object msg) {
-		logger.error(s(msg));
+		if (isError()) log(ERROR, s(msg), null, null);
 	}
 
 	public static void error(final Throwable t) {
@@ -86,11 +138,15 @@ public static void error(final Throwable t) {
 	}
 
 	public static void error(final Object msg, final Throwable t) {
-		logger.error(s(msg), t);
+		if (isError()) log(ERROR, s(msg), null, t);
+	}
+
+	public static void error(final String format, final Object... args) {
+		if (isError()) log(ERROR, format, args, null);
 	}
 
 	public static void info(final Object msg) {
-		logger.info(s(msg));
+		if (isInfo()) log(INFO, s(msg), null, null);
 	}
 
 	public static void info(final Throwable t) {
@@ -98,11 +154,15 @@ public static void info(final Throwable t) {
 	}
 
 	public static void info(final Object msg, final Throwable t) {
-		logger.info(s(msg), t);
+		if (isInfo()) log(INFO, s(msg), null, t);
+	}
+
+	public static void info(final String format, final Object... args) {
+		if (isInfo()) log(INFO, format, args, null);
 	}
 
 	public static void trace(final Object msg) {
-		logger.trace(s(msg));
+		if (isTrace()) log(TRACE, s(msg), null, null);
 	}
 
 	public static void trace(final Throwable t) {
@@ -110,11 +170,15 @@ public static void trace(final Throwable t) {
 	}
 
 	public static void trace(final Object msg, final Throwable t) {
-		logger.trace(s(msg), t);
+		if (isTrace()) log(TRACE, s(msg), null, t);
+	}
+
+	public static void trace(final String format, final Object... args) {
+		if (isTrace()) log(TRACE, format, args, null);
 	}
 
 	public static void warn(final Object msg) {
-		logger.warn(s(msg));
+		if (isWarn()) log(WARN, s(msg), null, null);
 	}
 
 	public static void warn(final Throwable t) {
@@ -122,7 +186,11 @@ public static void warn(final Throwable t) {
 	}
 
 	public static void warn(final Object msg, final Throwable t) {
-		logger.warn(s(msg), t);
+		if (isWarn()) log(WARN, s(msg), null, t);
+	}
+
+	public static void warn(final String format, final Object... args) {
+		if (isWarn()) log(WARN, format, args, null);
 	}
 
 	public static boolean isDebug() {
@@ -145,8 +213,106 @@ public static boolean isWarn() {
 		return logger.isWarnEnabled();
 	}
 
+	/**
+	 * Replaces each <code>{}</code> in the given format with the next argument.
+	 * Surplus arguments are ignored, and a <code>{}</code> without an argument
+	 * is kept as is.
+	 */
+	public static String format(final String format, final Object[] args) {
+		if (format == null || args == null || args.length == 0) return format;
+		final StringBuilder sb = new StringBuilder(format.length() + 16 *
+			args.length);
+		int start = 0, a = 0;
+		while (a < args.length) {
+			final int index = format.indexOf("{}", start);
+			if (index < 0) break;
+			sb.append(format, start, index);
+			sb.append(args[a++]);
+			start = index + 2;
+		}
+		sb.append(format, start, format.length());
+		return sb.toString();
+	}
+
+	// -- Internal methods --
+
+	/** Writes a message synchronously to the current logger. */
+	static void write(final int level, final String msg, final Object[] args,
+		Throwable t)
+	{
+		String message = msg;
+		if (args != null && args.length > 0) {
+			if (t == null && args[args.length - 1] instanceof Throwable &&
+				count(msg) < args.length)
+			{
+				t = (Throwable) args[args.length - 1];
+			}
+			message = format(msg, args);
+		}
+		switch (level) {
+			case TRACE:
+				if (t == null) logger.trace(message);
+				else logger.trace(message, t);
+				break;
+			case DEBUG:
+				if (t == null) logger.debug(message);
+				else logger.debug(message, t);
+				break;
+			case INFO:
+				if (t == null) logger.info(message);
+				else logger.info(message, t);
+				break;
+			case WARN:
+				if (t == null) logger.warn(message);
+				else logger.warn(message, t);
+				break;
+			default:
+				if (t == null) logger.error(message);
+				else logger.error(message, t);
+		}
+	}
+
 	// -- Helper methods --
 
+	private static void log(final int level, final String msg,
+		final Object[] args, final Throwable t)
+	{
+		final LogBuffer b = buffer;
+		if (b == null) write(level, msg, args, t);
+		else b.offer(level, msg, args, t);
+	}
+
+	private static LogBuffer createBuffer() {
+		if ("false".equals(System.getProperty("ij.log.async"))) return null;
+		int capacity = LogBuffer.DEFAULT_CAPACITY;
+		LogBuffer.Overflow overflow = LogBuffer.Overflow.DROP;
+		try {
+			final String size = System.getProperty("ij.log.buffer");
+			if (size != null) capacity = Integer.parseInt(size);
+			final String policy = System.getProperty("ij.log.overflow");
+			if (policy != null) overflow = LogBuffer.Overflow.valueOf(policy);
+		}
+		catch (final IllegalArgumentException e) {
+			// NB: Fall back to the defaults for any bad value.
+			capacity = LogBuffer.DEFAULT_CAPACITY;
+			overflow = LogBuffer.Overflow.DROP;
+		}
+		if (capacity < 1) capacity = LogBuffer.DEFAULT_CAPACITY;
+		return new LogBuffer(capacity, overflow);
+	}
+
+	/** Counts the placeholders of the given format. */
+	private static int count(final String format) {
+		if (format == null) return 0;
+		int count = 0;
+		int index = format.indexOf("{}");
+		while (index >= 0) {
+			count++;
+			index = format.indexOf("{}", index + 2);
+		}
+		return count;
+	}
+
 	private static String s(final Object o) {
 		return o == null ? null : o.toString();
 	}
@@ -0,0 +1,300 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated ring buffer that hands log messages from the calling threads to
+ * a single background thread, which writes them to the current SLF4J logger of
+ * {@link Log}.
+ * <p>
+ * Enqueuing a message never takes a lock and never waits for the background
+ * thread: producers claim a slot with a compare-and-set, fill it in place and
+ * publish it. What happens when every slot is taken is decided by the
+ * buffer's {@link Overflow} policy.
+ * </p>
+ * <p>
+ * Message arguments are rendered on the background thread, so they should not
+ * be mutated after being logged.
+ * </p>
+ * 
+ * @see Log#setBuffer(LogBuffer)
+ */
+public final class LogBuffer {
+
+	/** What to do with a message when the buffer is full. */
+	public enum Overflow {
+		/**
+		 * Discards the message and counts it; the count is reported once space is
+		 * available again. Warnings and errors are never discarded, but written on
+		 * the calling thread instead.
+		 */
+		DROP,
+
+		/**
+		 * Writes the message on the calling thread, which slows producers down to
+		 * the speed of the underlying logger without ever waiting on the buffer.
+		 */
+		WRITE_THROUGH
+	}
+
+	/** Default number of slots. */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	/** How long the background thread sleeps when it finds nothing to do. */
+	private static final long IDLE_NANOS = 100 * 1000 * 1000;
+
+	private final Slot[] slots;
+	private final int mask;
+	private final Overflow overflow;
+
+	/** Sequence number of the next slot to claim. */
+	private final AtomicLong tail = new AtomicLong();
+
+	/** Sequence number of the next slot to drain. */
+	private volatile long head;
+
+	/** Number of messages discarded because the buffer was full. */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/** Number of discarded messages already reported in the log. */
+	private long droppedReported;
+
+	private final Thread thread;
+	private volatile boolean idle;
+	private volatile boolean running = true;
+
+	/** Creates a buffer of {@link #DEFAULT_CAPACITY} slots which drops. */
+	public LogBuffer() {
+		this(DEFAULT_CAPACITY, Overflow.DROP);
+	}
+
+	/**
+	 * Creates a buffer and starts its background thread.
+	 * 
+	 * @param capacity Number of slots, rounded up to a power of two.
+	 * @param overflow What to do with messages when every slot is taken.
+	 */
+	public LogBuffer(final int capacity, final Overflow overflow) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		slots = new Slot[size];
+		for (int i = 0; i < size; i++) {
+			slots[i] = new Slot();
+		}
+		mask = size - 1;
+		this.overflow = overflow;
+
+		thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "ImageJ-Log");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// -- LogBuffer methods --
+
+	/** Gets the number of slots. */
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	/** Gets the overflow policy. */
+	public Overflow getOverflow() {
+		return overflow;
+	}
+
+	/** Gets the number of messages waiting to be written. */
+	public int getPendingCount() {
+		return (int) (tail.get() - head);
+	}
+
+	/** Gets the number of messages discarded because the buffer was full. */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Enqueues a message, or handles it according to the overflow policy if the
+	 * buffer is full.
+	 * 
+	 * @param level One of the level constants of {@link Log}.
+	 * @param msg The message, or the format if there are arguments.
+	 * @param args Arguments of the format, or null.
+	 * @param t Exception to log along with the message, or null.
+	 * @return True if the message was enqueued.
+	 */
+	public boolean offer(final int level, final String msg,
+		final Object[] args, final Throwable t)
+	{
+		if (!running) {
+			Log.write(level, msg, args, t);
+			return false;
+		}
+		while (true) {
+			final long seq = tail.get();
+			if (seq - head >= slots.length) {
+				overflow(level, msg, args, t);
+				return false;
+			}
+			if (tail.compareAndSet(seq, seq + 1)) {
+				final Slot slot = slots[(int) seq & mask];
+				slot.level = level;
+				slot.msg = msg;
+				slot.args = args;
+				slot.t = t;
+				slot.seq = seq; // publish
+				if (idle) LockSupport.unpark(thread);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Waits until every message enqueued before this call has been written.
+	 * 
+	 * @param timeout Maximum time to wait, in milliseconds.
+	 * @return True if the buffer was flushed within the timeout.
+	 */
+	public boolean flush(final long timeout) {
+		final long target = tail.get();
+		final long deadline = System.nanoTime() + timeout * 1000 * 1000;
+		while (head < target) {
+			if (Thread.currentThread() == thread) return false;
+			if (System.nanoTime() >= deadline) return false;
+			LockSupport.unpark(thread);
+			LockSupport.parkNanos(1000 * 1000);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the background thread after writing every pending message. Messages
+	 * offered afterwards are written on the calling thread.
+	 */
+	public void shutdown() {
+		running = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// -- Helper methods --
+
+	private void overflow(final int level, final String msg,
+		final Object[] args, final Throwable t)
+	{
+		if (overflow == Overflow.DROP && level < Log.WARN) {
+			dropped.incrementAndGet();
+		}
+		else Log.write(level, msg, args, t);
+	}
+
+	/** Body of the background thread. */
+	private void drain() {
+		while (true) {
+			final long seq = head;
+			final Slot slot = slots[(int) seq & mask];
+			if (slot.seq == seq) {
+				final int level = slot.level;
+				final String msg = slot.msg;
+				final Object[] args = slot.args;
+				final Throwable t = slot.t;
+				slot.msg = null;
+				slot.args = null;
+				slot.t = null;
+				head = seq + 1; // release the slot
+				write(level, msg, args, t);
+				continue;
+			}
+			if (!running && seq == tail.get()) break;
+			reportDropped();
+			idle = true;
+			if (slot.seq != seq && running) LockSupport.parkNanos(IDLE_NANOS);
+			idle = false;
+		}
+		reportDropped();
+	}
+
+	private void write(final int level, final String msg, final Object[] args,
+		final Throwable t)
+	{
+		try {
+			Log.write(level, msg, args, t);
+		}
+		catch (final RuntimeException e) {
+			// NB: A broken logger must not kill the logging thread.
+			e.printStackTrace();
+		}
+	}
+
+	private void reportDropped() {
+		final long count = dropped.get();
+		if (count == droppedReported) return;
+		write(Log.WARN, "Log buffer full: {} messages dropped",
+			new Object[] { count - droppedReported }, null);
+		droppedReported = count;
+	}
+
+	// -- Helper classes --
+
+	private static class Slot {
+
+		/** Sequence number of the message in this slot; -1 if none yet. */
+		private volatile long seq = -1;
+
+		private int level;
+		private String msg;
+		private Object[] args;
+		private Throwable t;
+	}
+
+}
@@ -0,0 +1,287 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+import imagej.metrics.DefaultMetricsService;
+import imagej.metrics.MetricsService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DefaultEventService}.
+ */
+public class DefaultEventServiceTest {
+
+	private MetricsService metricsService;
+
+	@Test
+	public void testPublishNow() {
+		final EventService eventService = createEventService();
+		final Recorder recorder = new Recorder();
+		final List<EventSubscriber<?>> subscribers =
+			eventService.subscribe(recorder);
+		assertEquals(3, subscribers.size());
+
+		final Object source = new Object();
+		eventService.publishNow(new TestEvent(source, 1));
+		assertEquals(1, recorder.values.size());
+		assertEquals(1, recorder.values.get(0).intValue());
+	}
+
+	@Test
+	public void testOrderPerSource() throws InterruptedException {
+		final EventService eventService = createEventService();
+		final Recorder recorder = new Recorder();
+		eventService.subscribe(recorder);
+
+		final Object source = new Object();
+		final int count = 1000;
+		for (int i = 0; i < count; i++) {
+			eventService.publish(new TestEvent(source, i));
+		}
+		awaitDelivery(eventService);
+
+		assertEquals(count, recorder.values.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(i, recorder.values.get(i).intValue());
+		}
+
+		// dispatch latency is recorded per event class
+		assertEquals(count, metricsService.getTimer(
+			EventDispatcher.DISPATCH_TIMER, TestEvent.class).getCount());
+	}
+
+	@Test
+	public void testCoalescing() throws InterruptedException {
+		final EventService eventService = createEventService();
+		final Recorder recorder = new Recorder();
+		eventService.subscribe(recorder);
+
+		final Object source = new Object();
+		final int count = 1000;
+		for (int i = 0; i < count; i++) {
+			eventService.publish(new TestCoalescableEvent(source));
+		}
+		awaitDelivery(eventService);
+
+		// duplicates pending at the same time are collapsed
+		assertTrue(recorder.coalescable > 0);
+		assertTrue(recorder.coalescable <= count);
+		final long dropped =
+			metricsService.getCounter(EventDispatcher.COALESCED_COUNTER)
+				.getCount();
+		assertEquals(count, recorder.coalescable + dropped);
+	}
+
+	@Test
+	public void testMerging() throws InterruptedException {
+		final EventService eventService = createEventService();
+		final Recorder recorder = new Recorder();
+		eventService.subscribe(recorder);
+
+		final Object source = new Object();
+		final int count = 1000;
+		for (int i = 1; i <= count; i++) {
+			eventService.publish(new TestMergingEvent(source, i));
+		}
+		awaitDelivery(eventService);
+
+		// merged events still account for every published value
+		assertEquals(count * (count + 1) / 2, recorder.merged);
+	}
+
+	@Test
+	public void testCoalescingKeepsOrder() throws InterruptedException {
+		final EventService eventService = createEventService();
+		final Recorder recorder = new Recorder();
+		eventService.subscribe(recorder);
+
+		// a coalescable event is never merged past an event queued after it
+		final Object source = new Object();
+		final int count = 1000;
+		for (int i = 0; i < count; i++) {
+			eventService.publish(new TestMergingEvent(source, 1));
+			eventService.publish(new TestEvent(source, i));
+		}
+		awaitDelivery(eventService);
+
+		assertEquals(2 * count, recorder.sequence.size());
+		for (int i = 0; i < recorder.sequence.size(); i++) {
+			final Class<?> expected =
+				i % 2 == 0 ? TestMergingEvent.class : TestEvent.class;
+			assertEquals(expected, recorder.sequence.get(i).getClass());
+		}
+	}
+
+	@Test
+	public void testSubscribersSurviveCollection() {
+		final EventService eventService = createEventService();
+		final Recorder recorder = new Recorder();
+		// NB: The returned subscribers are deliberately not retained.
+		eventService.subscribe(recorder);
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+
+		eventService.publishNow(new TestEvent(new Object(), 7));
+		assertEquals(1, recorder.values.size());
+		assertEquals(7, recorder.values.get(0).intValue());
+	}
+
+	// -- Helper methods --
+
+	private EventService createEventService() {
+		final ImageJ context = new ImageJ();
+		metricsService = new DefaultMetricsService(context);
+		return new DefaultEventService(context, metricsService);
+	}
+
+	private void awaitDelivery(final EventService eventService)
+		throws InterruptedException
+	{
+		while (eventService.getPendingEventCount() > 0) {
+			Thread.sleep(10);
+		}
+	}
+
+	// -- Helper classes --
+
+	private static class TestEvent extends ImageJEvent {
+
+		private final Object source;
+		private final int value;
+
+		public TestEvent(final Object source, final int value) {
+			this.source = source;
+			this.value = value;
+		}
+
+		@Override
+		public Object getSource() {
+			return source;
+		}
+
+	}
+
+	private static class TestCoalescableEvent extends ImageJEvent implements
+		CoalescableEvent
+	{
+
+		private final Object source;
+
+		public TestCoalescableEvent(final Object source) {
+			this.source = source;
+		}
+
+		@Override
+		public Object getSource() {
+			return source;
+		}
+
+		@Override
+		public boolean coalesce(final CoalescableEvent event) {
+			return true;
+		}
+
+	}
+
+	/** An event whose pending instances accumulate the values of newer ones. */
+	private static class TestMergingEvent extends ImageJEvent implements
+		CoalescableEvent
+	{
+
+		private final Object source;
+		private int value;
+
+		public TestMergingEvent(final Object source, final int value) {
+			this.source = source;
+			this.value = value;
+		}
+
+		@Override
+		public Object getSource() {
+			return source;
+		}
+
+		@Override
+		public boolean coalesce(final CoalescableEvent event) {
+			value += ((TestMergingEvent) event).value;
+			return true;
+		}
+
+	}
+
+	public static class Recorder {
+
+		private final List<Integer> values =
+			Collections.synchronizedList(new ArrayList<Integer>());
+
+		private final List<ImageJEvent> sequence =
+			Collections.synchronizedList(new ArrayList<ImageJEvent>());
+
+		private volatile int coalescable;
+
+		private volatile int merged;
+
+		@EventHandler
+		protected void onEvent(final TestEvent event) {
+			values.add(event.value);
+			sequence.add(event);
+		}
+
+		@EventHandler
+		protected void onEvent(
+			@SuppressWarnings("unused") final TestCoalescableEvent event)
+		{
+			coalescable++;
+		}
+
+		@EventHandler
+		protected void onEvent(final TestMergingEvent event) {
+			merged += event.value;
+			sequence.add(event);
+		}
+
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link InvokerGenerator}.
+ */
+public class InvokerGeneratorTest {
+
+	@Test
+	public void testGeneratedInvoker() throws Throwable {
+		final Method m = Counter.class.getDeclaredMethod("onEvent", Ping.class);
+		final EventInvoker invoker = InvokerGenerator.createInvoker(m);
+		assertFalse(invoker instanceof ReflectionInvoker);
+
+		final Counter counter = new Counter();
+		invoker.invoke(counter, new Ping());
+		invoker.invoke(counter, new Ping());
+		assertEquals(2, counter.pings);
+	}
+
+	@Test
+	public void testInvokerClassReused() throws Throwable {
+		final Method m = Counter.class.getDeclaredMethod("onEvent", Ping.class);
+		final EventInvoker first = InvokerGenerator.createInvoker(m);
+		final EventInvoker second = InvokerGenerator.createInvoker(m);
+		assertNotSame(first, second);
+		assertSame(first.getClass(), second.getClass());
+
+		// overloaded handlers get classes of their own
+		final Method pong =
+			Counter.class.getDeclaredMethod("onEvent", Pong.class);
+		final EventInvoker other = InvokerGenerator.createInvoker(pong);
+		assertTrue(other.getClass() != first.getClass());
+		final Counter counter = new Counter();
+		other.invoke(counter, new Pong());
+		assertEquals(0, counter.pings);
+		assertEquals(1, counter.pongs);
+	}
+
+	@Test
+	public void testPrivateHandler() throws Throwable {
+		final Method m =
+			PrivateCounter.class.getDeclaredMethod("onEvent", Ping.class);
+		final EventInvoker invoker = InvokerGenerator.createInvoker(m);
+		assertTrue(invoker instanceof ReflectionInvoker);
+
+		final PrivateCounter counter = new PrivateCounter();
+		invoker.invoke(counter, new Ping());
+		assertEquals(1, counter.pings);
+	}
+
+	// -- Helper classes --
+
+	public static class Ping extends ImageJEvent {
+		// simple event
+	}
+
+	public static class Pong extends ImageJEvent {
+		// simple event
+	}
+
+	public static class Counter {
+
+		private int pings;
+		private int pongs;
+
+		@EventHandler
+		protected void onEvent(@SuppressWarnings("unused") final Ping event) {
+			pings++;
+		}
+
+		@EventHandler
+		protected void onEvent(@SuppressWarnings("unused") final Pong event) {
+			pongs++;
+		}
+
+	}
+
+	public static class PrivateCounter {
+
+		private int pings;
+
+		@EventHandler
+		private void onEvent(@SuppressWarnings("unused") final Ping event) {
+			pings++;
+		}
+
+	}
+
+}
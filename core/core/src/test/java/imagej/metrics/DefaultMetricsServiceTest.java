@@ -0,0 +1,143 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DefaultMetricsService}.
+ */
+public class DefaultMetricsServiceTest {
+
+	@Test
+	public void testCounter() {
+		final MetricsService metricsService = createMetricsService();
+		final Counter counter = metricsService.getCounter("counter");
+		assertSame(counter, metricsService.getCounter("counter"));
+		counter.increment();
+		counter.add(4);
+		assertEquals(5, counter.getCount());
+		metricsService.reset();
+		assertEquals(0, counter.getCount());
+	}
+
+	@Test
+	public void testHistogram() {
+		final Histogram histogram = createMetricsService().getHistogram("h");
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(5050, histogram.getSum());
+		assertEquals(100, histogram.getMax());
+		assertEquals(50.5, histogram.getMean(), 0);
+
+		// percentiles are bounded by twice the true value
+		final long p50 = histogram.getPercentile(50);
+		assertTrue(p50 >= 50 && p50 <= 100);
+		assertEquals(100, histogram.getPercentile(99));
+	}
+
+	@Test
+	public void testClassTimers() {
+		final MetricsService metricsService = createMetricsService();
+		final Timer timer = metricsService.getTimer("t", String.class);
+		assertSame(timer, metricsService.getTimer("t", String.class));
+		assertSame(timer, metricsService.getTimer("t:java.lang.String"));
+		timer.stop(timer.start());
+		assertEquals(1, timer.getCount());
+
+		final List<Metric> metrics = metricsService.getMetrics();
+		assertEquals(1, metrics.size());
+		assertSame(timer, metrics.get(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTypeMismatch() {
+		final MetricsService metricsService = createMetricsService();
+		metricsService.getCounter("metric");
+		metricsService.getTimer("metric");
+	}
+
+	@Test
+	public void testMBean() throws Exception {
+		MetricsService metricsService = createMetricsService();
+		metricsService.getCounter("counter").add(3);
+		final ObjectName name = MetricsMBean.register(metricsService);
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertEquals(3L, server.getAttribute(name, "counter"));
+
+		// the MBean does not keep its service alive
+		final WeakReference<MetricsService> ref =
+			new WeakReference<MetricsService>(metricsService);
+		metricsService = null;
+		for (int i = 0; i < 100 && ref.get() != null; i++) {
+			System.gc();
+		}
+		assertNull(ref.get());
+
+		// and unregisters itself once the service is gone
+		try {
+			server.getAttribute(name, "counter");
+		}
+		catch (final AttributeNotFoundException e) {
+			// NB: Expected.
+		}
+		assertFalse(server.isRegistered(name));
+	}
+
+	// -- Helper methods --
+
+	private MetricsService createMetricsService() {
+		return new DefaultMetricsService(new ImageJ());
+	}
+
+}
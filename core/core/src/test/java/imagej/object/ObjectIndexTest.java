@@ -202,4 +202,62 @@ public void testClear() {
 		assertTrue(objectIndex.isEmpty());
 	}
 
+	@Test
+	public void testRemoveFromAllTypes() {
+		final ObjectIndex<Object> objectIndex =
+			new ObjectIndex<Object>(Object.class);
+		final Object o1 = new Integer(5);
+		final Object o2 = new Float(2.5f);
+		objectIndex.add(o1);
+		objectIndex.add(o2);
+		assertEquals(2, objectIndex.get(Number.class).size());
+		assertEquals(1, objectIndex.get(Comparable.class).indexOf(o2));
+		objectIndex.remove(o1);
+		assertEquals(1, objectIndex.get(Number.class).size());
+		assertEquals(0, objectIndex.get(Integer.class).size());
+		assertEquals(0, objectIndex.get(Comparable.class).indexOf(o2));
+	}
+
+	@Test
+	public void testIdentity() {
+		final ObjectIndex<Object> objectIndex =
+			new ObjectIndex<Object>(Object.class);
+		final Object o1 = new Integer(5);
+		final Object o2 = new Integer(5);
+		assertTrue(objectIndex.add(o1));
+		assertFalse(objectIndex.add(o1));
+		assertTrue(objectIndex.add(o2));
+		assertEquals(2, objectIndex.size());
+		objectIndex.remove(o1);
+		assertTrue(objectIndex.getAll().get(0) == o2);
+	}
+
+	@Test
+	public void testSnapshot() {
+		final ObjectIndex<Object> objectIndex =
+			new ObjectIndex<Object>(Object.class);
+		objectIndex.add(new Integer(5));
+		final List<Object> snapshot = objectIndex.getAll();
+		objectIndex.add(new Integer(3));
+		assertEquals(1, snapshot.size());
+		assertEquals(2, objectIndex.getAll().size());
+	}
+
+	@Test
+	public void testSorted() {
+		final SortedObjectIndex<Integer> sortedIndex =
+			new SortedObjectIndex<Integer>(Integer.class);
+		final List<Integer> objects = new ArrayList<Integer>();
+		for (int i = 100; i > 0; i--) {
+			objects.add(new Integer(i));
+		}
+		sortedIndex.addAll(objects);
+		sortedIndex.add(new Integer(50));
+		final List<Integer> all = sortedIndex.get(Integer.class);
+		assertEquals(101, all.size());
+		for (int i = 1; i < all.size(); i++) {
+			assertTrue(all.get(i - 1).intValue() <= all.get(i).intValue());
+		}
+	}
+
 }
@@ -0,0 +1,197 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ServiceHelper}.
+ */
+public class ServiceHelperTest {
+
+	@Test
+	public void testDependencies() {
+		final ImageJ context = new ImageJ();
+		final List<Class<? extends IService>> serviceClasses =
+			new ArrayList<Class<? extends IService>>();
+		serviceClasses.add(ServiceC.class);
+		serviceClasses.add(ServiceB.class);
+		final ServiceHelper serviceHelper =
+			new ServiceHelper(context, serviceClasses);
+		serviceHelper.loadServices();
+
+		final ServiceA a = context.getService(ServiceA.class);
+		final ServiceB b = context.getService(ServiceB.class);
+		final ServiceC c = context.getService(ServiceC.class);
+		assertNotNull(a);
+		assertNotNull(b);
+		assertNotNull(c);
+		assertSame(a, b.a);
+		assertSame(a, c.a);
+		assertSame(b, c.b);
+	}
+
+	@Test
+	public void testStartupProfile() {
+		final ImageJ context = new ImageJ();
+		final List<Class<? extends IService>> serviceClasses =
+			new ArrayList<Class<? extends IService>>();
+		serviceClasses.add(ServiceC.class);
+		final ServiceHelper serviceHelper =
+			new ServiceHelper(context, serviceClasses);
+		serviceHelper.loadServices();
+
+		final StartupProfile profile = serviceHelper.getStartupProfile();
+		final List<StartupProfile.Entry> entries = profile.getEntries();
+		assertEquals(3, entries.size());
+
+		final Map<Class<?>, StartupProfile.Entry> entryMap =
+			new HashMap<Class<?>, StartupProfile.Entry>();
+		for (final StartupProfile.Entry entry : entries) {
+			assertTrue(entry.isCreated());
+			entryMap.put(entry.getServiceClass(), entry);
+		}
+		final StartupProfile.Entry entryB = entryMap.get(ServiceB.class);
+		final StartupProfile.Entry entryC = entryMap.get(ServiceC.class);
+		assertEquals(2, entryC.getDependencies().size());
+		assertTrue(entryC.getStartTime() >= entryB.getStartTime() +
+			entryB.getDuration());
+	}
+
+	@Test
+	public void testLazy() {
+		final ImageJ context = new ImageJ();
+		final List<Class<? extends IService>> noClasses = Collections.emptyList();
+		final ServiceHelper serviceHelper =
+			new ServiceHelper(context, noClasses, true);
+		serviceHelper.loadServices();
+		context.getServiceIndex().addPlaceholder(
+			new ServicePlaceholder(serviceHelper, context, ServiceD.class));
+		ServiceD.instances = 0;
+
+		// the placeholder stands in for the service until it is used
+		final CountService proxy = context.getService(CountService.class);
+		assertNotNull(proxy);
+		assertTrue(context.getServiceIndex().isPending(ServiceD.class));
+		assertSame(context, proxy.getContext());
+		assertEquals(0, ServiceD.instances);
+
+		assertEquals(1, proxy.getCount());
+		assertEquals(1, ServiceD.instances);
+		assertFalse(context.getServiceIndex().isPending(ServiceD.class));
+
+		// the real service has replaced the placeholder
+		final CountService service = context.getService(CountService.class);
+		assertTrue(service instanceof ServiceD);
+		assertSame(service, context.getService(ServiceD.class));
+		assertEquals(2, proxy.getCount());
+		assertEquals(1, ServiceD.instances);
+	}
+
+	// -- Helper classes --
+
+	public static class ServiceA extends AbstractService {
+
+		public ServiceA(final ImageJ context) {
+			super(context);
+		}
+
+	}
+
+	public static class ServiceB extends AbstractService {
+
+		private final ServiceA a;
+
+		public ServiceB(final ImageJ context, final ServiceA a) {
+			super(context);
+			this.a = a;
+		}
+
+	}
+
+	public static class ServiceC extends AbstractService {
+
+		private final ServiceA a;
+		private final ServiceB b;
+
+		public ServiceC(final ImageJ context, final ServiceA a, final ServiceB b) {
+			super(context);
+			this.a = a;
+			this.b = b;
+		}
+
+	}
+
+	public static interface CountService extends IService {
+
+		int getCount();
+
+	}
+
+	public static class ServiceD extends AbstractService implements
+		CountService
+	{
+
+		private static int instances;
+
+		private int count;
+
+		public ServiceD(final ImageJ context) {
+			super(context);
+			instances++;
+		}
+
+		@Override
+		public int getCount() {
+			return ++count;
+		}
+
+	}
+
+}
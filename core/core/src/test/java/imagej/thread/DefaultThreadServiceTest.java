@@ -0,0 +1,209 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+import imagej.thread.ThreadService.Pool;
+import imagej.thread.ThreadService.Priority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DefaultThreadService}.
+ */
+public class DefaultThreadServiceTest {
+
+	@Test
+	public void testParallelFor() {
+		final ThreadService threadService = createThreadService();
+		final int size = 10007;
+		final AtomicIntegerArray visits = new AtomicIntegerArray(size);
+		threadService.parallelFor(0, size, new LoopBody() {
+
+			@Override
+			public void run(final long start, final long end) {
+				for (long i = start; i < end; i++) {
+					visits.incrementAndGet((int) i);
+				}
+			}
+		});
+		for (int i = 0; i < size; i++) {
+			assertEquals(1, visits.get(i));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testParallelForFailure() {
+		final ThreadService threadService = createThreadService();
+		threadService.parallelFor(0, 100, new LoopBody() {
+
+			@Override
+			public void run(final long start, final long end) {
+				throw new IllegalStateException();
+			}
+		});
+	}
+
+	@Test
+	public void testPriority() throws InterruptedException, ExecutionException
+	{
+		final ThreadService threadService = createThreadService();
+		threadService.setComputeThreads(1);
+
+		// occupy the only compute thread while the other tasks are queued
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final Future<Object> blocker =
+			threadService.run(new Callable<Object>() {
+
+				@Override
+				public Object call() throws InterruptedException {
+					started.countDown();
+					latch.await();
+					return null;
+				}
+			}, Pool.COMPUTE);
+		started.await();
+
+		final List<String> order =
+			Collections.synchronizedList(new ArrayList<String>());
+		final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		futures.add(threadService.run(new Recorder(order, "low1"), Pool.COMPUTE,
+			Priority.LOW));
+		futures.add(threadService.run(new Recorder(order, "normal"),
+			Pool.COMPUTE));
+		futures.add(threadService.run(new Recorder(order, "low2"), Pool.COMPUTE,
+			Priority.LOW));
+		futures.add(threadService.run(new Recorder(order, "high"), Pool.COMPUTE,
+			Priority.HIGH));
+		assertEquals(4, threadService.getMetrics(Pool.COMPUTE).getQueueDepth());
+
+		latch.countDown();
+		blocker.get();
+		for (final Future<Object> future : futures) {
+			future.get();
+		}
+		assertEquals("[high, normal, low1, low2]", order.toString());
+
+		// NB: A future completes before its task is counted as finished.
+		final PoolMetrics metrics = awaitCompleted(threadService, Pool.COMPUTE, 5);
+		assertEquals(0, metrics.getQueueDepth());
+		assertEquals(5, metrics.getCompletedTasks());
+	}
+
+	@Test
+	public void testCancellation() throws InterruptedException {
+		final ThreadService threadService = createThreadService();
+		assertFalse(threadService.isCancelled());
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch stopped = new CountDownLatch(1);
+		final Future<Object> future = threadService.run(new Callable<Object>() {
+
+			@Override
+			public Object call() {
+				started.countDown();
+				while (!threadService.isCancelled()) {
+					Thread.yield();
+				}
+				stopped.countDown();
+				return null;
+			}
+		}, Pool.COMPUTE);
+
+		started.await();
+		future.cancel(false);
+		stopped.await();
+		assertTrue(future.isCancelled());
+	}
+
+	// -- Helper methods --
+
+	private ThreadService createThreadService() {
+		return new DefaultThreadService(new ImageJ());
+	}
+
+	/**
+	 * Waits up to five seconds for the given pool to count the given number of
+	 * completed tasks, returning its final metrics.
+	 */
+	private PoolMetrics awaitCompleted(final ThreadService threadService,
+		final Pool pool, final long count) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + 5000;
+		PoolMetrics metrics = threadService.getMetrics(pool);
+		while (metrics.getCompletedTasks() < count &&
+			System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+			metrics = threadService.getMetrics(pool);
+		}
+		return metrics;
+	}
+
+	// -- Helper classes --
+
+	private static class Recorder implements Callable<Object> {
+
+		private final List<String> order;
+		private final String name;
+
+		public Recorder(final List<String> order, final String name) {
+			this.order = order;
+			this.name = name;
+		}
+
+		@Override
+		public Object call() {
+			order.add(name);
+			return null;
+		}
+
+	}
+
+}
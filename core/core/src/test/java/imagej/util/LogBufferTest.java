@@ -0,0 +1,172 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+/**
+ * Tests {@link Log} and {@link LogBuffer}.
+ */
+public class LogBufferTest {
+
+	private Logger oldLogger;
+	private LogBuffer oldBuffer;
+	private List<String> messages;
+	private List<Throwable> throwables;
+
+	@Before
+	public void setUp() {
+		oldLogger = Log.getLogger();
+		oldBuffer = Log.getBuffer();
+		messages = Collections.synchronizedList(new ArrayList<String>());
+		throwables = Collections.synchronizedList(new ArrayList<Throwable>());
+		Log.setLogger(createLogger());
+	}
+
+	@After
+	public void tearDown() {
+		Log.setBuffer(oldBuffer);
+		Log.setLogger(oldLogger);
+	}
+
+	@Test
+	public void testFormat() {
+		assertEquals("a 1 b 2", Log.format("a {} b {}", new Object[] { 1, 2 }));
+		assertEquals("a 1 b {}", Log.format("a {} b {}", new Object[] { 1 }));
+		assertEquals("a 1", Log.format("a {}", new Object[] { 1, 2 }));
+		assertEquals("x", Log.format("x", null));
+	}
+
+	@Test
+	public void testSynchronous() {
+		Log.setBuffer(null);
+		final Exception e = new Exception();
+		Log.info("value: {}", 42);
+		Log.warn("failed: {}", "op", e);
+		Log.trace("ignored: {}", 1);
+		assertEquals(2, messages.size());
+		assertEquals("INFO value: 42", messages.get(0));
+		assertEquals("WARN failed: op", messages.get(1));
+		assertSame(e, throwables.get(0));
+	}
+
+	@Test
+	public void testAsynchronous() {
+		final LogBuffer buffer = new LogBuffer(16, LogBuffer.Overflow.DROP);
+		Log.setBuffer(buffer);
+		for (int i = 0; i < 10; i++) {
+			Log.info("message {}", i);
+		}
+		assertTrue(buffer.flush(5000));
+		assertEquals(10, messages.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals("INFO message " + i, messages.get(i));
+		}
+	}
+
+	@Test
+	public void testOverflow() throws InterruptedException {
+		// stall the logging thread, so that the buffer fills up
+		final Object lock = new Object();
+		Log.setLogger(createLogger(lock));
+		final LogBuffer buffer = new LogBuffer(4, LogBuffer.Overflow.DROP);
+		Log.setBuffer(buffer);
+		synchronized (lock) {
+			for (int i = 0; i < 20; i++) {
+				Log.info("message {}", i);
+			}
+			// warnings are written on the calling thread instead of dropped
+			Log.warn("warning");
+			assertTrue(messages.contains("WARN warning"));
+		}
+		assertTrue(buffer.flush(5000));
+		final long dropped = buffer.getDroppedCount();
+		assertTrue(dropped >= 15);
+
+		// the drop count is reported when the logging thread catches up
+		Log.setBuffer(null);
+		assertEquals("WARN Log buffer full: " + dropped + " messages dropped",
+			messages.get(messages.size() - 1));
+	}
+
+	// -- Helper methods --
+
+	private Logger createLogger() {
+		return createLogger(null);
+	}
+
+	/**
+	 * Creates a logger with trace disabled which records its messages. If a
+	 * lock is given, info messages wait for it before being recorded.
+	 */
+	private Logger createLogger(final Object lock) {
+		final InvocationHandler handler = new InvocationHandler() {
+
+			@Override
+			public Object invoke(final Object proxy, final Method method,
+				final Object[] args)
+			{
+				final String name = method.getName();
+				if (name.startsWith("is")) return !name.equals("isTraceEnabled");
+				if (name.equals("info") && lock != null) {
+					synchronized (lock) {
+						// NB: Wait for the lock to be released.
+					}
+				}
+				messages.add(name.toUpperCase() + " " + args[0]);
+				if (args.length > 1) throwables.add((Throwable) args[1]);
+				return null;
+			}
+		};
+		return (Logger) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[] { Logger.class }, handler);
+	}
+
+}
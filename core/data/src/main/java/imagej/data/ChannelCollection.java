@@ -38,13 +38,14 @@
 import imagej.util.ColorRGB;
 
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
- * A ChannelCollection maintains a list of data values. The data is read only.
- * One can request any channel number from a ChannelCollection. If there is no
- * data associated with a channel number the value returned is zero.
+ * A ChannelCollection maintains a list of data values backed by a primitive
+ * array. One can request any channel number from a ChannelCollection. If there
+ * is no data associated with a channel number the value returned is zero.
+ * Values can be changed in place to avoid allocating a new collection for each
+ * use; see {@link ImmutableChannelCollection} for a read only version.
  * 
  * @author Barry DeZonia
  */
@@ -52,7 +53,7 @@ public class ChannelCollection {
 	
 	// -- instance variables --
 	
-	private List<Double> channelInfos;
+	private double[] values;
 	private boolean areInteger;
 	
 	// -- constructors --
@@ -62,22 +63,30 @@ public class ChannelCollection {
 	 * getChannelValue() will return 0 for all channels. 
 	 */
 	public ChannelCollection() {
-		this(new LinkedList<Double>());
+		this(new double[0]);
 	}
 	
 	/**
 	 * Constructs a new channel collection from a list of Double values.
 	 */
 	public ChannelCollection(List<Double> values) {
-		this.channelInfos = new LinkedList<Double>();
-		channelInfos.addAll(values);
-		// NB - make sure its always populated with at least one channel. This
-		// simplifies API elsewhere (by always having a positive channel count)
-		if (channelInfos.size() == 0) channelInfos.add(0.0);
-		areInteger = true;
-		for (Double value : channelInfos) {
-			areInteger &= (value == Math.floor(value));
-		}
+		this(toArray(values));
+	}
+
+	/**
+	 * Constructs a new channel collection from an array of values. The array is
+	 * copied.
+	 */
+	public ChannelCollection(double[] values) {
+		assign(values);
+	}
+
+	/**
+	 * Constructs a new channel collection containing the same values as another
+	 * one.
+	 */
+	public ChannelCollection(ChannelCollection other) {
+		this(other.values);
 	}
 
 	/**
@@ -86,11 +95,7 @@ public ChannelCollection(List<Double> values) {
 	 */
 	public ChannelCollection(ColorRGB color) {
 		this(
-			Arrays.asList(
-				new Double[]{
-					(double) color.getRed(),
-					(double) color.getGreen(),
-					(double) color.getBlue()}));
+			new double[]{color.getRed(), color.getGreen(), color.getBlue()});
 	}
 
 	// -- public interface --
@@ -99,7 +104,7 @@ public ChannelCollection(ColorRGB color) {
 	 * Returns the number of channels in the collection 
 	 */
 	public long getChannelCount() {
-		return channelInfos.size();
+		return values.length;
 	}
 	
 	/**
@@ -108,8 +113,21 @@ public long getChannelCount() {
 	public double getChannelValue(long chan) {
 		if (chan > Integer.MAX_VALUE)
 			throw new IllegalArgumentException("too many channels: "+chan);
-		if (chan >= channelInfos.size()) return 0;
-		return channelInfos.get((int)chan);
+		if (chan >= values.length) return 0;
+		return values[(int) chan];
+	}
+
+	/**
+	 * Copies the channel values into the given array. Entries beyond the end of
+	 * the collection are set to 0. If the given array is null a new one of
+	 * length getChannelCount() is allocated. Returns the filled array.
+	 */
+	public double[] getChannelValues(double[] dest) {
+		final double[] result = dest == null ? new double[values.length] : dest;
+		final int count = Math.min(result.length, values.length);
+		System.arraycopy(values, 0, result, 0, count);
+		Arrays.fill(result, count, result.length, 0);
+		return result;
 	}
 
 	/**
@@ -121,5 +139,59 @@ public boolean areInteger() {
 		return areInteger;
 	}
 
-}
+	/**
+	 * Sets the value of an existing channel in the collection.
+	 */
+	public void setChannelValue(long chan, double value) {
+		if (chan < 0 || chan >= values.length)
+			throw new IllegalArgumentException("channel out of range: "+chan);
+		values[(int) chan] = value;
+		areInteger = isInteger(values);
+	}
 
+	/**
+	 * Replaces all the values of the collection with those of the given array.
+	 * The array is copied. The existing storage is reused when the channel count
+	 * does not change.
+	 */
+	public void setChannelValues(double[] vals) {
+		assign(vals);
+	}
+
+	/**
+	 * Returns a read only version of this collection. If this collection is
+	 * already read only it is returned as is.
+	 */
+	public ImmutableChannelCollection immutable() {
+		return new ImmutableChannelCollection(this);
+	}
+
+	// -- private helpers --
+
+	private void assign(double[] vals) {
+		// NB - make sure its always populated with at least one channel. This
+		// simplifies API elsewhere (by always having a positive channel count)
+		final int count = Math.max(1, vals.length);
+		if (values == null || values.length != count) values = new double[count];
+		System.arraycopy(vals, 0, values, 0, vals.length);
+		if (vals.length == 0) values[0] = 0;
+		areInteger = isInteger(values);
+	}
+
+	private static boolean isInteger(double[] vals) {
+		for (final double value : vals) {
+			if (value != Math.floor(value)) return false;
+		}
+		return true;
+	}
+
+	private static double[] toArray(List<Double> list) {
+		final double[] vals = new double[list.size()];
+		int i = 0;
+		for (final Double value : list) {
+			vals[i++] = value;
+		}
+		return vals;
+	}
+
+}
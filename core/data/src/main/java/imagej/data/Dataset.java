@@ -35,6 +35,11 @@
 
 package imagej.data;
 
+import imagej.data.pyramid.DatasetPyramid;
+import imagej.data.stats.DatasetStatistics;
+
+import java.nio.Buffer;
+
 import net.imglib2.img.ImgPlus;
 import net.imglib2.meta.Metadata;
 import net.imglib2.type.numeric.RealType;
@@ -81,9 +86,59 @@ public interface Dataset extends Data, Metadata {
 	 */
 	Object getPlane(final int planeNumber, boolean copyOK);
 
+	/**
+	 * Gets a plane of data from the Dataset for reading only. Behaves as
+	 * {@link #getPlane(int, boolean)}, but without claiming the plane's storage
+	 * for writing: planes held by a cache are neither kept in memory nor marked
+	 * as modified. The returned array must not be modified.
+	 */
+	Object getPlaneForReading(final int planeNumber, boolean copyOK);
+
 	/** TODO */
 	void setPlane(final int no, final Object newPlane);
 
+	/**
+	 * Gets a plane of data from the Dataset as an NIO buffer, without copying:
+	 * the buffer reads and writes the Dataset's own storage. Heap planes are
+	 * wrapped, and memory-mapped planes are returned as views of the mapping.
+	 * Returns null if the plane is not stored contiguously.
+	 */
+	Buffer getPlaneBuffer(final int planeNumber);
+
+	/**
+	 * Gets the cached per-plane, per-channel and overall statistics of the
+	 * Dataset. They are computed as needed, and recomputed only for planes
+	 * modified since: {@link #setPlane} invalidates the plane it replaces, and
+	 * {@link #update()} invalidates all planes.
+	 */
+	DatasetStatistics getStatistics();
+
+	/**
+	 * Gets the multi-resolution pyramid of the Dataset, used to render it when
+	 * zoomed out. Levels are computed as needed, and updates invalidate only the
+	 * modified region of the planes concerned.
+	 */
+	DatasetPyramid getPyramid();
+
+	/**
+	 * Informs interested parties that part of the Dataset's sample values have
+	 * changed. Only the given region is invalidated, and it is passed along
+	 * with the {@link imagej.data.event.DatasetUpdatedEvent}, so that views
+	 * can refresh just what changed.
+	 * 
+	 * @param region the modified region, or null if the entire Dataset may have
+	 *          changed (equivalent to {@link #update()})
+	 */
+	void update(UpdateRegion region);
+
+	/**
+	 * Gets the modification version of the given plane. The version increases
+	 * whenever the plane is modified through {@link #setPlane},
+	 * {@link #update()} or {@link #update(UpdateRegion)}, and never repeats, so
+	 * consumers can cheaply tell which planes changed since they last looked.
+	 */
+	long getPlaneVersion(int planeNumber);
+
 	/** TODO */
 	RealType<?> getType();
 
@@ -140,4 +195,10 @@ public interface Dataset extends Data, Metadata {
 	void copyDataFrom(final Dataset other);
 
 	double getBytesOfInfo();
+
+	/**
+	 * Gets the number of bytes the pixels currently occupy on the heap. This is
+	 * less than {@link #getBytesOfInfo()} for compressed datasets.
+	 */
+	double getBytesInMemory();
 }
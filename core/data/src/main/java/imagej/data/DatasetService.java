@@ -35,6 +35,8 @@
 
 package imagej.data;
 
+import imagej.data.cell.CellCache;
+import imagej.data.compressed.PlaneCache;
 import imagej.data.display.ImageDisplay;
 import imagej.object.ObjectService;
 import imagej.service.IService;
@@ -121,4 +123,34 @@ <T extends RealType<T> & NativeType<T>> Dataset create(
 	<T extends RealType<T> & NativeType<T>> Dataset create(
 		final ImgPlus<T> imgPlus);
 
+	/** Gets the cache holding the cells of disk-backed datasets. */
+	CellCache getCellCache();
+
+	/**
+	 * Gets the size in bytes above which new datasets are backed by the
+	 * {@link CellCache} rather than held in memory, or 0 if never.
+	 */
+	long getDiskBackedThreshold();
+
+	/**
+	 * Sets the size in bytes above which new datasets are backed by the
+	 * {@link CellCache} rather than held in memory; 0 for never.
+	 */
+	void setDiskBackedThreshold(long bytes);
+
+	/** Gets the cache holding the decompressed planes of compressed datasets. */
+	PlaneCache getPlaneCache();
+
+	/**
+	 * Gets the size in bytes above which new datasets are kept compressed in
+	 * memory, or 0 if never. Disk backing takes precedence.
+	 */
+	long getCompressedThreshold();
+
+	/**
+	 * Sets the size in bytes above which new datasets are kept compressed in
+	 * memory; 0 for never.
+	 */
+	void setCompressedThreshold(long bytes);
+
 }
@@ -36,16 +36,31 @@
 package imagej.data;
 
 import imagej.ImageJ;
+import imagej.data.compressed.CompressedPlanarImg;
 import imagej.data.event.DatasetCreatedEvent;
 import imagej.data.event.DatasetDeletedEvent;
 import imagej.data.event.DatasetRGBChangedEvent;
 import imagej.data.event.DatasetRestructuredEvent;
 import imagej.data.event.DatasetTypeChangedEvent;
 import imagej.data.event.DatasetUpdatedEvent;
+import imagej.data.mapped.BufferAccess;
+import imagej.data.mapped.MappedPlanarImg;
+import imagej.data.pyramid.DatasetPyramid;
+import imagej.data.stats.DatasetStatistics;
+import imagej.thread.ThreadService;
 import imagej.util.Log;
-import net.imglib2.Cursor;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
 import net.imglib2.Positionable;
-import net.imglib2.RandomAccess;
 import net.imglib2.RealPositionable;
 import net.imglib2.display.ColorTable16;
 import net.imglib2.display.ColorTable8;
@@ -80,6 +95,14 @@ public class DefaultDataset extends AbstractData implements Dataset {
 	private ImgPlus<? extends RealType<?>> imgPlus;
 	private boolean rgbMerged;
 	private boolean isDirty;
+	private final DatasetStatistics statistics = new DatasetStatistics(this);
+	private final DatasetPyramid pyramid = new DatasetPyramid(this);
+
+	/** Last version assigned to a modified plane. */
+	private long version;
+
+	/** Current version of each plane, or null if not yet assigned. */
+	private long[] planeVersions;
 
 	public DefaultDataset(final ImageJ context,
 		final ImgPlus<? extends RealType<?>> imgPlus)
@@ -99,6 +122,7 @@ protected void register() {
 
 	@Override
 	protected void delete() {
+		close(imgPlus.getImg());
 		publish(new DatasetDeletedEvent(this));
 	}
 
@@ -141,7 +165,9 @@ public void setImgPlus(final ImgPlus<? extends RealType<?>> imgPlus) {
 			typeChanged = true;
 		}
 
+		final Img<?> oldImg = this.imgPlus.getImg();
 		this.imgPlus = imgPlus;
+		if (oldImg != imgPlus.getImg()) close(oldImg);
 
 		// NB - keeping all the old metadata for now. TODO - revisit this?
 		// NB - keeping isRgbMerged status for now. TODO - revisit this?
@@ -176,13 +202,34 @@ public Object getPlane(final int planeNumber, final boolean copyOK) {
 		if (img instanceof PlanarAccess) {
 			final PlanarAccess<?> planarAccess = (PlanarAccess<?>) img;
 			final Object plane = planarAccess.getPlane(planeNumber);
-			if (plane instanceof ArrayDataAccess) return ((ArrayDataAccess<?>) plane)
-				.getCurrentStorageArray();
+			if (plane instanceof ArrayDataAccess) {
+				final Object storage =
+					((ArrayDataAccess<?>) plane).getCurrentStorageArray();
+				if (storage != null) return storage;
+			}
+			if (copyOK && plane instanceof BufferAccess) {
+				// memory-mapped planes have no array; copy straight from the mapping
+				return copyOfBuffer(((BufferAccess) plane).getBuffer());
+			}
 		}
 		if (copyOK) return copyOfPlane(planeNumber);
 		return null;
 	}
 
+	@Override
+	public Object getPlaneForReading(final int planeNumber,
+		final boolean copyOK)
+	{
+		final Img<? extends RealType<?>> img = imgPlus.getImg();
+		if (img instanceof PlanarAccess) {
+			final Object plane = ((PlanarAccess<?>) img).getPlane(planeNumber);
+			if (plane instanceof ManagedAccess) {
+				return ((ManagedAccess) plane).getArrayForReading();
+			}
+		}
+		return getPlane(planeNumber, copyOK);
+	}
+
 	@Override
 	public void setPlane(final int no, final Object newPlane) {
 		final Img<? extends RealType<?>> img = imgPlus.getImg();
@@ -196,11 +243,70 @@ public void setPlane(final int no, final Object newPlane) {
 		final PlanarAccess planarAccess = (PlanarAccess) img;
 		final ArrayDataAccess<?> arrayAccess =
 			(ArrayDataAccess<?>) planarAccess.getPlane(no);
-		final Object currPlane = arrayAccess.getCurrentStorageArray();
+		// NB: compare without pinning or unsharing the current plane
+		final Object currPlane = StorageUtils.getArrayForReading(arrayAccess);
 		if (newPlane == currPlane) return;
+		if (arrayAccess instanceof BufferAccess) {
+			// write through to the existing storage, e.g. a memory-mapped file
+			final Buffer buffer = ((BufferAccess) arrayAccess).getBuffer();
+			if (!copyIntoBuffer(newPlane, buffer)) {
+				Log.error("Cannot set plane: incompatible plane type");
+				return;
+			}
+			update(UpdateRegion.forPlane(getDims(), no));
+			return;
+		}
 		final ArrayDataAccess<?> array = createArrayDataAccess(newPlane);
 		setPlane(no, planarAccess, array);
-		update();
+		update(UpdateRegion.forPlane(getDims(), no));
+	}
+
+	@Override
+	public Buffer getPlaneBuffer(final int planeNumber) {
+		final Img<? extends RealType<?>> img = imgPlus.getImg();
+		if (!(img instanceof PlanarAccess)) return null;
+		final Object plane = ((PlanarAccess<?>) img).getPlane(planeNumber);
+		if (plane instanceof BufferAccess) {
+			return ((BufferAccess) plane).getBuffer();
+		}
+		if (plane instanceof ArrayDataAccess) {
+			return wrap(((ArrayDataAccess<?>) plane).getCurrentStorageArray());
+		}
+		return null;
+	}
+
+	@Override
+	public DatasetStatistics getStatistics() {
+		return statistics;
+	}
+
+	@Override
+	public DatasetPyramid getPyramid() {
+		return pyramid;
+	}
+
+	@Override
+	public void update(final UpdateRegion region) {
+		if (region == null || !region.isCompatible(getDims())) {
+			update();
+			return;
+		}
+		final int[] planes = region.getPlanes();
+		for (final int p : planes) {
+			statistics.invalidate(p);
+		}
+		pyramid.invalidate(region);
+		bumpVersions(planes);
+		setDirty(true);
+		publish(new DatasetUpdatedEvent(this, region));
+	}
+
+	@Override
+	public synchronized long getPlaneVersion(final int planeNumber) {
+		if (planeVersions == null || planeNumber >= planeVersions.length) {
+			bumpVersions(null);
+		}
+		return planeVersions[planeNumber];
 	}
 
 	@Override
@@ -276,6 +382,8 @@ public boolean isRGBMerged() {
 
 	@Override
 	public void typeChange() {
+		statistics.reset();
+		pyramid.reset();
 		setDirty(true);
 		publish(new DatasetTypeChangedEvent(this));
 	}
@@ -314,12 +422,18 @@ public void copyDataFrom(final Dataset other) {
 
 	@Override
 	public void update() {
+		statistics.invalidateAll();
+		pyramid.invalidateAll();
+		bumpVersions(null);
 		setDirty(true);
 		publish(new DatasetUpdatedEvent(this));
 	}
 
 	@Override
 	public void rebuild() {
+		statistics.reset();
+		pyramid.reset();
+		bumpVersions(null);
 		setDirty(true);
 		publish(new DatasetRestructuredEvent(this));
 	}
@@ -569,8 +683,32 @@ public double getBytesOfInfo() {
 		return totBits / 8;
 	}
 
+	@Override
+	public double getBytesInMemory() {
+		final Img<? extends RealType<?>> img = imgPlus.getImg();
+		if (img instanceof CompressedPlanarImg) {
+			return ((CompressedPlanarImg<?, ?>) img).getBytesInMemory();
+		}
+		return getBytesOfInfo();
+	}
+
 	// -- Helper methods --
 
+	/**
+	 * Closes the file behind the given image, if it is memory-mapped. Its
+	 * mappings stay valid, so views of its planes still work.
+	 */
+	private void close(final Img<?> img) {
+		if (!(img instanceof MappedPlanarImg)) return;
+		final MappedPlanarImg<?, ?> mappedImg = (MappedPlanarImg<?, ?>) img;
+		try {
+			mappedImg.close();
+		}
+		catch (final IOException e) {
+			Log.warn("Cannot close " + mappedImg.getFile(), e);
+		}
+	}
+
 	/**
 	 * Wraps the given primitive array in an {@link ArrayDataAccess} object of the
 	 * proper type.
@@ -597,6 +735,79 @@ else if (newPlane instanceof double[]) {
 		return null;
 	}
 
+	/** Wraps the given primitive array in an NIO buffer of the proper type. */
+	private Buffer wrap(final Object array) {
+		if (array instanceof byte[]) return ByteBuffer.wrap((byte[]) array);
+		if (array instanceof short[]) return ShortBuffer.wrap((short[]) array);
+		if (array instanceof int[]) return IntBuffer.wrap((int[]) array);
+		if (array instanceof float[]) return FloatBuffer.wrap((float[]) array);
+		if (array instanceof long[]) return LongBuffer.wrap((long[]) array);
+		if (array instanceof double[]) return DoubleBuffer.wrap((double[]) array);
+		return null;
+	}
+
+	/** Copies the remaining contents of the given buffer into a new array. */
+	private Object copyOfBuffer(final Buffer buffer) {
+		if (buffer instanceof ByteBuffer) {
+			final byte[] array = new byte[buffer.remaining()];
+			((ByteBuffer) buffer).get(array);
+			return array;
+		}
+		if (buffer instanceof ShortBuffer) {
+			final short[] array = new short[buffer.remaining()];
+			((ShortBuffer) buffer).get(array);
+			return array;
+		}
+		if (buffer instanceof IntBuffer) {
+			final int[] array = new int[buffer.remaining()];
+			((IntBuffer) buffer).get(array);
+			return array;
+		}
+		if (buffer instanceof FloatBuffer) {
+			final float[] array = new float[buffer.remaining()];
+			((FloatBuffer) buffer).get(array);
+			return array;
+		}
+		if (buffer instanceof LongBuffer) {
+			final long[] array = new long[buffer.remaining()];
+			((LongBuffer) buffer).get(array);
+			return array;
+		}
+		if (buffer instanceof DoubleBuffer) {
+			final double[] array = new double[buffer.remaining()];
+			((DoubleBuffer) buffer).get(array);
+			return array;
+		}
+		return null;
+	}
+
+	/**
+	 * Copies the given primitive array into the given buffer of the same type.
+	 * Returns false if their types do not match.
+	 */
+	private boolean copyIntoBuffer(final Object array, final Buffer buffer) {
+		if (array instanceof byte[] && buffer instanceof ByteBuffer) {
+			((ByteBuffer) buffer).put((byte[]) array);
+		}
+		else if (array instanceof short[] && buffer instanceof ShortBuffer) {
+			((ShortBuffer) buffer).put((short[]) array);
+		}
+		else if (array instanceof int[] && buffer instanceof IntBuffer) {
+			((IntBuffer) buffer).put((int[]) array);
+		}
+		else if (array instanceof float[] && buffer instanceof FloatBuffer) {
+			((FloatBuffer) buffer).put((float[]) array);
+		}
+		else if (array instanceof long[] && buffer instanceof LongBuffer) {
+			((LongBuffer) buffer).put((long[]) array);
+		}
+		else if (array instanceof double[] && buffer instanceof DoubleBuffer) {
+			((DoubleBuffer) buffer).put((double[]) array);
+		}
+		else return false;
+		return true;
+	}
+
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private void setPlane(final int no, final PlanarAccess planarAccess,
 		final ArrayDataAccess<?> array)
@@ -608,18 +819,7 @@ private void setPlane(final int no, final PlanarAccess planarAccess,
 	private void copyDataValues(final Img<? extends RealType<?>> input,
 		final Img<? extends RealType<?>> output)
 	{
-		final long[] position = new long[output.numDimensions()];
-		final Cursor<? extends RealType<?>> outputCursor =
-			output.localizingCursor();
-		final RandomAccess<? extends RealType<?>> inputAccessor =
-			input.randomAccess();
-		while (outputCursor.hasNext()) {
-			outputCursor.next();
-			outputCursor.localize(position);
-			inputAccessor.setPosition(position);
-			final double value = inputAccessor.get().getRealDouble();
-			outputCursor.get().setReal(value);
-		}
+		createCopier().copy(input, output);
 	}
 
 	private Object copyOfPlane(final int planeNum) {
@@ -638,49 +838,60 @@ private Object copyOfPlane(final int planeNum) {
 		final ArrayImg<?, ?> container =
 			(ArrayImg<?, ?>) nativeType.createSuitableNativeImg(storageFactory,
 				new long[] { w, h });
-		final RandomAccess<? extends RealType<?>> input = imgPlus.randomAccess();
-		@SuppressWarnings("unchecked")
-		final RandomAccess<? extends RealType<?>> output =
-			(RandomAccess<? extends RealType<?>>) container.randomAccess();
 		final long[] planeIndexSpans = new long[dimensions.length - 2];
 		for (int i = 0; i < planeIndexSpans.length; i++)
 			planeIndexSpans[i] = dimensions[i + 2];
 		final Extents planeExtents = new Extents(planeIndexSpans);
 		final long[] planePos = new long[planeExtents.numDimensions()];
-		final Position pos = planeExtents.createPosition();
-		pos.setIndex(planeNum);
-		pos.localize(planePos);
-		final long[] inputPos = new long[dimensions.length];
-		for (int i = 2; i < dimensions.length; i++)
-			inputPos[i] = planePos[i - 2];
-		final long[] outputPos = new long[2];
-		input.setPosition(inputPos);
-		output.setPosition(outputPos);
-		final RealType<?> inputRef = input.get();
-		final RealType<?> outputRef = output.get();
-		final int maxX = (int) (w - 1);
-		final int maxY = (int) (h - 1);
-		for (int y = 0; y <= maxY; y++) {
-			for (int x = 0; x <= maxX; x++) {
-				final double value = inputRef.getRealDouble();
-				outputRef.setReal(value);
-				if (x != maxX) {
-					input.move(1, 0);
-					output.move(1, 0);
-				}
-			}
-			if (y != maxY) {
-				input.move(-maxX, 0);
-				output.move(-maxX, 0);
-				input.move(1, 1);
-				output.move(1, 1);
-			}
+		planeExtents.createIterator().positionOf(planeNum, planePos);
+		final long[] srcOrigin = new long[dimensions.length];
+		final long[] srcSpan = new long[dimensions.length];
+		srcSpan[0] = w;
+		srcSpan[1] = h;
+		for (int i = 2; i < dimensions.length; i++) {
+			srcOrigin[i] = planePos[i - 2];
+			srcSpan[i] = 1;
 		}
+		@SuppressWarnings("unchecked")
+		final Img<? extends RealType<?>> output =
+			(Img<? extends RealType<?>>) container;
+		createCopier().copy(imgPlus, srcOrigin, srcSpan, output, new long[2],
+			new long[] { w, h });
 		final ArrayDataAccess<?> store =
 			(ArrayDataAccess<?>) container.update(null);
 		return store.getCurrentStorageArray();
 	}
 
+	/**
+	 * Marks the given planes as modified, or all planes if null. If the plane
+	 * count changed since the last call, all planes are marked.
+	 */
+	private synchronized void bumpVersions(final int[] planes) {
+		final long[] dims = getDims();
+		int planeCount = 1;
+		for (int d = 2; d < dims.length; d++) {
+			planeCount *= dims[d];
+		}
+		version++;
+		if (planes == null || planeVersions == null ||
+			planeVersions.length != planeCount)
+		{
+			planeVersions = new long[planeCount];
+			Arrays.fill(planeVersions, version);
+			return;
+		}
+		for (final int p : planes) {
+			if (p >= 0 && p < planeCount) planeVersions[p] = version;
+		}
+	}
+
+	/** Creates a copier which spreads its work across the compute threads. */
+	private ImgCopier createCopier() {
+		final ImageJ context = getContext();
+		if (context == null) return new ImgCopier();
+		return new ImgCopier(context.getService(ThreadService.class));
+	}
+
 	/** Makes an image that has same type, container, and dimensions as refImage. */
 	private static <T extends RealType<T>> ImgPlus<T> createBlankCopy(
 		final ImgPlus<T> img)
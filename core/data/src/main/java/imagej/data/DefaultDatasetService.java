@@ -36,11 +36,16 @@
 package imagej.data;
 
 import imagej.ImageJ;
+import imagej.data.cell.CellCache;
+import imagej.data.cell.DiskCellImgFactory;
+import imagej.data.compressed.CompressedPlanarImgFactory;
+import imagej.data.compressed.PlaneCache;
 import imagej.data.display.DataView;
 import imagej.data.display.ImageDisplay;
 import imagej.object.ObjectService;
 import imagej.service.AbstractService;
 import imagej.service.Service;
+import imagej.thread.ThreadService;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -76,6 +81,12 @@ public final class DefaultDatasetService extends AbstractService implements
 
 	private final ObjectService objectService;
 
+	private final CellCache cellCache = new CellCache();
+	private volatile long diskBackedThreshold;
+
+	private final PlaneCache planeCache;
+	private volatile long compressedThreshold;
+
 	// -- Constructors --
 
 	public DefaultDatasetService() {
@@ -85,10 +96,11 @@ public DefaultDatasetService() {
 	}
 
 	public DefaultDatasetService(final ImageJ context,
-		final ObjectService objectService)
+		final ObjectService objectService, final ThreadService threadService)
 	{
 		super(context);
 		this.objectService = objectService;
+		planeCache = new PlaneCache(PlaneCache.DEFAULT_MAX_BYTES, threadService);
 	}
 
 	// -- DatasetService methods --
@@ -161,7 +173,14 @@ public Dataset create(final long[] dims, final String name,
 	public <T extends RealType<T> & NativeType<T>> Dataset create(
 		final T type, final long[] dims, final String name, final AxisType[] axes)
 	{
-		final PlanarImgFactory<T> imgFactory = new PlanarImgFactory<T>();
+		final ImgFactory<T> imgFactory;
+		if (exceeds(diskBackedThreshold, type, dims)) {
+			imgFactory = new DiskCellImgFactory<T>(cellCache);
+		}
+		else if (exceeds(compressedThreshold, type, dims)) {
+			imgFactory = new CompressedPlanarImgFactory<T>(planeCache);
+		}
+		else imgFactory = new PlanarImgFactory<T>();
 		return create(imgFactory, type, dims, name, axes);
 	}
 
@@ -182,8 +201,49 @@ public <T extends RealType<T> & NativeType<T>> Dataset create(
 		return new DefaultDataset(getContext(), imgPlus);
 	}
 
+	@Override
+	public CellCache getCellCache() {
+		return cellCache;
+	}
+
+	@Override
+	public long getDiskBackedThreshold() {
+		return diskBackedThreshold;
+	}
+
+	@Override
+	public void setDiskBackedThreshold(final long bytes) {
+		diskBackedThreshold = bytes;
+	}
+
+	@Override
+	public PlaneCache getPlaneCache() {
+		return planeCache;
+	}
+
+	@Override
+	public long getCompressedThreshold() {
+		return compressedThreshold;
+	}
+
+	@Override
+	public void setCompressedThreshold(final long bytes) {
+		compressedThreshold = bytes;
+	}
+
 	// -- Helper methods --
 
+	private boolean exceeds(final long threshold, final RealType<?> type,
+		final long[] dims)
+	{
+		if (threshold <= 0) return false;
+		double bytes = type.getBitsPerPixel() / 8.0;
+		for (final long dim : dims) {
+			bytes *= dim;
+		}
+		return bytes > threshold;
+	}
+
 	private void invalidParams(final int bitsPerPixel,
 		final boolean signed, final boolean floating)
 	{
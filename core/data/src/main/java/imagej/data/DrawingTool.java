@@ -186,6 +186,29 @@ public long getLineWidth() {
 		return lineWidth;
 	}
 
+	/**
+	 * Gets the region of the Dataset changed by drawing within the given UV box
+	 * (inclusive) of the current plane, across all channels. Can be passed to
+	 * {@link Dataset#update(UpdateRegion)}.
+	 */
+	public UpdateRegion getUpdateRegion(final long minU, final long minV,
+		final long maxU, final long maxV)
+	{
+		final long[] dims = dataset.getDims();
+		final long[] min = new long[dims.length];
+		getPosition(min);
+		final long[] max = min.clone();
+		min[uAxis] = minU;
+		max[uAxis] = maxU;
+		min[vAxis] = minV;
+		max[vAxis] = maxV;
+		if (channelAxis != -1) {
+			min[channelAxis] = 0;
+			max[channelAxis] = dims[channelAxis] - 1;
+		}
+		return new UpdateRegion(dims, min, max);
+	}
+
 	public void setTextRenderer(final TextRenderer renderer) {
 		this.textRenderer = renderer;
 	}
@@ -74,6 +74,14 @@ public Position createPosition() {
 		return new Position(this);
 	}
 
+	/**
+	 * Returns an {@link ExtentsIterator} that can be used to iterate these
+	 * Extents quickly.
+	 */
+	public ExtentsIterator createIterator() {
+		return new ExtentsIterator(this);
+	}
+
 	/**
 	 * Returns the total number of elements spanned by the parent {@link Extents}.
 	 */
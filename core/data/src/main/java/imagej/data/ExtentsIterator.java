@@ -0,0 +1,274 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import net.imglib2.Iterator;
+import net.imglib2.Localizable;
+
+/**
+ * Iterates the positions of an {@link Extents}, or a range of them, in the same
+ * order as {@link Position}, without allocating.
+ * <p>
+ * Strides are computed up front, so {@link #fwd()} is an odometer-style
+ * increment which keeps the index up to date, and converting between indices
+ * and positions is a single pass over the dimensions. An iterator covers a
+ * range of indices which can be {@link #split()} into independent iterators,
+ * e.g. to process ranges of planes on separate threads.
+ * </p>
+ * <p>
+ * Unlike {@link Position}, moves are not checked: callers must check
+ * {@link #hasNext()} before each {@link #fwd()}.
+ * </p>
+ */
+public class ExtentsIterator implements Localizable, Iterator {
+
+	private final Extents extents;
+	private final long[] min;
+	private final long[] max;
+	private final long[] strides;
+
+	private final long[] position;
+	private final long start;
+	private long end;
+	private long index;
+
+	/** Creates an iterator over all positions of the given extents. */
+	public ExtentsIterator(final Extents extents) {
+		this(extents, 0, extents.numElements());
+	}
+
+	/**
+	 * Creates an iterator over the positions of the given extents whose indices
+	 * are in the given range.
+	 * 
+	 * @param start Index of the first position, inclusive.
+	 * @param end Index of the last position, exclusive.
+	 */
+	public ExtentsIterator(final Extents extents, final long start,
+		final long end)
+	{
+		if (start < 0 || start > end || end > extents.numElements()) {
+			throw new IllegalArgumentException("Invalid range: [" + start + ", " +
+				end + ") of " + extents.numElements() + " elements");
+		}
+		this.extents = extents;
+		final int numDims = extents.numDimensions();
+		min = new long[numDims];
+		max = new long[numDims];
+		strides = new long[numDims];
+		long stride = 1;
+		for (int d = 0; d < numDims; d++) {
+			min[d] = extents.min(d);
+			max[d] = extents.max(d);
+			strides[d] = stride;
+			stride *= extents.dimension(d);
+		}
+		position = new long[numDims];
+		this.start = start;
+		this.end = end;
+		reset();
+	}
+
+	/** Creates an iterator over a subrange, sharing the given one's strides. */
+	private ExtentsIterator(final ExtentsIterator iterator, final long start,
+		final long end)
+	{
+		extents = iterator.extents;
+		min = iterator.min;
+		max = iterator.max;
+		strides = iterator.strides;
+		position = new long[min.length];
+		this.start = start;
+		this.end = end;
+		reset();
+	}
+
+	// -- ExtentsIterator methods --
+
+	/** Gets the iterated {@link Extents}. */
+	public Extents getExtents() {
+		return extents;
+	}
+
+	/** Gets the index of the first position of the range, inclusive. */
+	public long getStart() {
+		return start;
+	}
+
+	/** Gets the index of the last position of the range, exclusive. */
+	public long getEnd() {
+		return end;
+	}
+
+	/** Gets the difference in index between neighbors along dimension d. */
+	public long stride(final int d) {
+		return strides[d];
+	}
+
+	/**
+	 * Gets the index of the current position, from 0 to
+	 * {@link Extents#numElements()} - 1; before the first {@link #fwd()}, one
+	 * less than {@link #getStart()}.
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/** Moves to the position of the given index. */
+	public void setIndex(final long index) {
+		positionOf(index, position);
+		this.index = index;
+	}
+
+	/** Converts the given index into a position, stored in the given array. */
+	public void positionOf(final long index, final long[] pos) {
+		long r = index;
+		for (int d = strides.length - 1; d >= 0; d--) {
+			final long q = r / strides[d];
+			pos[d] = min[d] + q;
+			r -= q * strides[d];
+		}
+	}
+
+	/** Gets the index of the given position. */
+	public long indexOf(final long[] pos) {
+		long result = 0;
+		for (int d = 0; d < strides.length; d++) {
+			result += (pos[d] - min[d]) * strides[d];
+		}
+		return result;
+	}
+
+	/**
+	 * Splits off the second half of the positions not yet visited.
+	 * 
+	 * @return an iterator over the split-off positions, after which this one
+	 *         stops; or null if fewer than two positions remain
+	 */
+	public ExtentsIterator split() {
+		final long next = Math.max(start, index + 1);
+		final long remaining = end - next;
+		if (remaining < 2) return null;
+		final long middle = next + remaining / 2;
+		final ExtentsIterator result = new ExtentsIterator(this, middle, end);
+		end = middle;
+		return result;
+	}
+
+	// -- Iterator methods --
+
+	@Override
+	public boolean hasNext() {
+		return index + 1 < end;
+	}
+
+	@Override
+	public void fwd() {
+		if (index < start) {
+			setIndex(start);
+			return;
+		}
+		index++;
+		for (int d = 0; d < position.length; d++) {
+			if (++position[d] <= max[d]) return;
+			position[d] = min[d];
+		}
+	}
+
+	@Override
+	public void jumpFwd(final long steps) {
+		setIndex(Math.max(index, start - 1) + steps);
+	}
+
+	@Override
+	public void reset() {
+		index = start - 1;
+	}
+
+	// -- Localizable methods --
+
+	@Override
+	public int numDimensions() {
+		return position.length;
+	}
+
+	@Override
+	public void localize(final int[] pos) {
+		for (int d = 0; d < position.length; d++) {
+			pos[d] = (int) position[d];
+		}
+	}
+
+	@Override
+	public void localize(final long[] pos) {
+		System.arraycopy(position, 0, pos, 0, position.length);
+	}
+
+	@Override
+	public void localize(final float[] pos) {
+		for (int d = 0; d < position.length; d++) {
+			pos[d] = position[d];
+		}
+	}
+
+	@Override
+	public void localize(final double[] pos) {
+		for (int d = 0; d < position.length; d++) {
+			pos[d] = position[d];
+		}
+	}
+
+	@Override
+	public int getIntPosition(final int d) {
+		return (int) position[d];
+	}
+
+	@Override
+	public long getLongPosition(final int d) {
+		return position[d];
+	}
+
+	@Override
+	public float getFloatPosition(final int d) {
+		return position[d];
+	}
+
+	@Override
+	public double getDoublePosition(final int d) {
+		return position[d];
+	}
+
+}
@@ -38,8 +38,6 @@
 import imagej.util.RealRect;
 
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
 
 import net.imglib2.RandomAccess;
 import net.imglib2.meta.Axes;
@@ -51,6 +49,11 @@
  * code used by IJ1's macro language and IJ1's particle analyzer. The Wikipedia
  * article at "http://en.wikipedia.org/wiki/Flood_fill" has a good description
  * of the algorithm used here as well as examples in C and Java.
+ * <p>
+ * When the U and V axes are the first two axes of a Dataset backed by
+ * primitive arrays the fill runs directly on the plane arrays. Volumes can be
+ * filled across the Z axis with {@link #fill6} and {@link #fill26}.
+ * </p>
  * 
  * @author Wayne Rasband
  * @author Barry DeZonia
@@ -63,6 +66,11 @@ public class FloodFiller {
 	private int vAxis;
 	private final StackOfLongs uStack;
 	private final StackOfLongs vStack;
+	private int numChannels;
+	private double[] fillValues;
+	private double[] origValues;
+	private UpdateRegion updateRegion;
+	private long fillMinU, fillMaxU, fillMinV, fillMaxV;
 
 	/**
 	 * Constructs a FloodFiller from a given DrawingTool. The FloodFiller uses the
@@ -82,16 +90,22 @@ public FloodFiller(final DrawingTool tool) {
 	 * true if any pixels actually changed and false otherwise.
 	 */
 	public boolean fill4(final long u0, final long v0, final long[] position) {
+		final ScanlineFiller filler = arrayFiller(position, -1, false);
+		if (filler != null) return fill(filler, u0, v0, 0, position, -1);
+		updateRegion = null;
+		fillMinU = fillMinV = Long.MAX_VALUE;
+		fillMaxU = fillMaxV = -1;
 		final Dataset ds = tool.getDataset();
 		final RandomAccess<? extends RealType<?>> accessor =
 			ds.getImgPlus().randomAccess();
 		accessor.setPosition(position);
 		uAxis = tool.getUAxis();
 		vAxis = tool.getVAxis();
-		final ChannelCollection fillValues = tool.getChannels();
+		initChannels();
+		tool.getChannels().getChannelValues(fillValues);
 		// avoid degenerate case
 		if (matches(accessor,u0,v0,fillValues)) return false;
-		final ChannelCollection origValues = getValues(accessor, u0, v0);
+		getValues(accessor, u0, v0, origValues);
 		final long maxU = ds.dimension(uAxis) - 1;
 		final long maxV = ds.dimension(vAxis) - 1;
 		uStack.clear();
@@ -110,7 +124,7 @@ public boolean fill4(final long u0, final long v0, final long[] position) {
 			while (u2<=maxU && matches(accessor,u2,v,origValues)) u2++;                 
 			u2--;
 			// fill scan-line
-			tool.drawLine(u1, v, u2, v);
+			drawLine(u1, v, u2);
 			// find scan-lines above this one
 			boolean inScanLine = false;
 			for (long i=u1; i<=u2; i++) {
@@ -132,6 +146,7 @@ else if (inScanLine && v<maxV &&
 			}
 		}
 		// System.out.println("Stack allocated (but not necessarily used) "+uStack.stack.length);
+		updateRegion = region(position, -1, 0, 0);
 		return true;
 	}
 
@@ -140,16 +155,22 @@ else if (inScanLine && v<maxV &&
 	 * true if any pixels actually changed and false otherwise.
 	 */
 	public boolean fill8(final long u0, final long v0, final long[] position) {
+		final ScanlineFiller filler = arrayFiller(position, -1, true);
+		if (filler != null) return fill(filler, u0, v0, 0, position, -1);
+		updateRegion = null;
+		fillMinU = fillMinV = Long.MAX_VALUE;
+		fillMaxU = fillMaxV = -1;
 		final Dataset ds = tool.getDataset();
 		final RandomAccess<? extends RealType<?>> accessor =
 			ds.getImgPlus().randomAccess();
 		accessor.setPosition(position);
 		uAxis = tool.getUAxis();
 		vAxis = tool.getVAxis();
-		final ChannelCollection fillValues = tool.getChannels();
+		initChannels();
+		tool.getChannels().getChannelValues(fillValues);
 		// avoid degenerate case
 		if (matches(accessor,u0,v0,fillValues)) return false;
-		final ChannelCollection origValues = getValues(accessor, u0, v0);
+		getValues(accessor, u0, v0, origValues);
 		final long maxU = ds.dimension(uAxis) - 1;
 		final long maxV = ds.dimension(vAxis) - 1;
 		uStack.clear();
@@ -167,7 +188,7 @@ public boolean fill8(final long u0, final long v0, final long[] position) {
 			  // find end of scan-line
 				while (u2<=maxU && matches(accessor,u2,v,origValues)) u2++;
 				u2--;
-				tool.drawLine(u1, v, u2, v); // fill scan-line
+				drawLine(u1, v, u2); // fill scan-line
 			}
 			if (v > 0) {
 				if (u1 > 0) {
@@ -214,9 +235,41 @@ else if (inScanLine && v<maxV &&
 			}
 		}
 		// System.out.println("Stack allocated (but not necessarily used) "+uStack.stack.length);
+		updateRegion = region(position, -1, 0, 0);
 		return true;
 	}
 
+	/**
+	 * Does a 6-connected flood fill of a volume using the current fill/draw
+	 * value. The fill spreads across the Z axis of the Dataset from the plane
+	 * given by the position. If the Dataset has no Z axis this is the same as
+	 * {@link #fill4}. Returns true if any pixels actually changed and false
+	 * otherwise.
+	 */
+	public boolean fill6(final long u0, final long v0, final long[] position) {
+		return fill3D(u0, v0, position, false);
+	}
+
+	/**
+	 * Does a 26-connected flood fill of a volume using the current fill/draw
+	 * value. The fill spreads across the Z axis of the Dataset from the plane
+	 * given by the position. If the Dataset has no Z axis this is the same as
+	 * {@link #fill8}. Returns true if any pixels actually changed and false
+	 * otherwise.
+	 */
+	public boolean fill26(final long u0, final long v0, final long[] position) {
+		return fill3D(u0, v0, position, true);
+	}
+
+	/**
+	 * Returns the region of the Dataset changed by the last fill, or null if the
+	 * fill changed nothing. Can be passed to
+	 * {@link Dataset#update(UpdateRegion)}.
+	 */
+	public UpdateRegion getUpdateRegion() {
+		return updateRegion;
+	}
+
 	/**
 	 * In IJ1 this method is used by the particle analyzer to remove interior
 	 *  holes from particle masks.
@@ -226,8 +279,9 @@ public void particleAnalyzerFill(
 		DrawingTool maskTool, RealRect bounds)
 	{
 		final Dataset ds = tool.getDataset();
-		// TODO - is this a bogus limitation
-		if ((channelAxis != -1) || (ds.dimension(channelAxis) != 1)) {
+		final long numChan =
+			channelAxis == -1 ? 1 : ds.dimension(channelAxis);
+		if (numChan != 1) {
 			throw new IllegalArgumentException(
 				"particle analyzer cannot support multiple channels");
 		}
@@ -238,7 +292,6 @@ public void particleAnalyzerFill(
 		vAxis = tool.getVAxis();
 		long maxU = ds.dimension(uAxis) - 1;
 		long maxV = ds.dimension(vAxis) - 1;
-		long numChan = ds.dimension(channelAxis);
 		setValues(maskTool, numChan, 0);
 		// FIXME TODO - fill plane or roi of plane of maskTool?
 		// Decide between fill() or fill(RealRect)
@@ -286,6 +339,97 @@ else if (inScanLine && v<maxV && !inParticle(acc,i,v+1,level1,level2))
 	
 	// -- private helpers --
 
+	/** Fills a volume across the Z axis of the Dataset. */
+	private boolean fill3D(final long u0, final long v0, final long[] position,
+		final boolean diagonal)
+	{
+		final Dataset ds = tool.getDataset();
+		final int zAxis = ds.getAxisIndex(Axes.Z);
+		uAxis = tool.getUAxis();
+		vAxis = tool.getVAxis();
+		if (zAxis == -1 || zAxis == uAxis || zAxis == vAxis) {
+			return diagonal ? fill8(u0, v0, position) : fill4(u0, v0, position);
+		}
+		ScanlineFiller filler = arrayFiller(position, zAxis, diagonal);
+		if (filler == null) {
+			filler =
+				ScanlineFiller.forAccess(ds, position, uAxis, vAxis, zAxis,
+					channelAxis, fillValues(), diagonal);
+		}
+		return fill(filler, u0, v0, position[zAxis], position, zAxis);
+	}
+
+	/**
+	 * Returns a filler working directly on the plane arrays of the Dataset, or
+	 * null if the planes are not array backed or not in UV order.
+	 */
+	private ScanlineFiller arrayFiller(final long[] position, final int zAxis,
+		final boolean diagonal)
+	{
+		uAxis = tool.getUAxis();
+		vAxis = tool.getVAxis();
+		if (uAxis != 0 || vAxis != 1) return null;
+		return ScanlineFiller.forArrays(tool.getDataset(), position, zAxis,
+			channelAxis, fillValues(), diagonal);
+	}
+
+	/** Runs a filler and records the region it changed. */
+	private boolean fill(final ScanlineFiller filler, final long u0,
+		final long v0, final long z0, final long[] position, final int zAxis)
+	{
+		updateRegion = null;
+		if (!filler.fill(u0, v0, z0)) return false;
+		fillMinU = filler.getMinU();
+		fillMaxU = filler.getMaxU();
+		fillMinV = filler.getMinV();
+		fillMaxV = filler.getMaxV();
+		updateRegion =
+			region(position, zAxis, filler.getMinZ(), filler.getMaxZ());
+		return true;
+	}
+
+	/** Fills a scan-line, and grows the bounds of the fill to include it. */
+	private void drawLine(final long u1, final long v, final long u2) {
+		tool.drawLine(u1, v, u2, v);
+		// NB: wide lines spill over the scan-line
+		final long margin = tool.getLineWidth() - 1;
+		fillMinU = Math.min(fillMinU, u1 - margin);
+		fillMaxU = Math.max(fillMaxU, u2 + margin);
+		fillMinV = Math.min(fillMinV, v - margin);
+		fillMaxV = Math.max(fillMaxV, v + margin);
+	}
+
+	/**
+	 * Creates the region spanned by the bounds of the last fill, in the plane of
+	 * the given position or across the given range of the Z axis.
+	 */
+	private UpdateRegion region(final long[] position, final int zAxis,
+		final long minZ, final long maxZ)
+	{
+		final long[] dims = tool.getDataset().getDims();
+		final long[] min = position.clone();
+		final long[] max = position.clone();
+		min[uAxis] = Math.max(0, fillMinU);
+		max[uAxis] = Math.min(dims[uAxis] - 1, fillMaxU);
+		min[vAxis] = Math.max(0, fillMinV);
+		max[vAxis] = Math.min(dims[vAxis] - 1, fillMaxV);
+		if (zAxis != -1) {
+			min[zAxis] = minZ;
+			max[zAxis] = maxZ;
+		}
+		if (channelAxis != -1) {
+			min[channelAxis] = 0;
+			max[channelAxis] = dims[channelAxis] - 1;
+		}
+		return new UpdateRegion(dims, min, max);
+	}
+
+	/** Returns the fill values of the DrawingTool, one per channel. */
+	private double[] fillValues() {
+		initChannels();
+		return tool.getChannels().getChannelValues(fillValues);
+	}
+
 	/**
 	 * Returns true if value of pixel is inside a given range
 	 */
@@ -300,62 +444,78 @@ private boolean inParticle(
 	}
 	
 	private void setValues(DrawingTool tool, long numChan, double value) {
-		final List<Double> values = new LinkedList<Double>();
-		for (long i = 0; i < numChan; i++)
-			values.add(value);
-		final ChannelCollection channels = new ChannelCollection(values);
-		tool.setChannels(channels);
+		final double[] values = new double[(int) numChan];
+		Arrays.fill(values, value);
+		tool.setChannels(new ChannelCollection(values));
+	}
+
+	/**
+	 * Caches the channel count of the Dataset and makes sure the working value
+	 * arrays are big enough to hold a value for every channel. Done once per
+	 * fill so that no allocations happen while testing pixels.
+	 */
+	private void initChannels() {
+		numChannels = 1;
+		if (channelAxis != -1) {
+			final long count = tool.getDataset().dimension(channelAxis);
+			if (count > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("too many channels: "+count);
+			numChannels = (int) count;
+		}
+		if (fillValues == null || fillValues.length != numChannels) {
+			fillValues = new double[numChannels];
+			origValues = new double[numChannels];
+		}
 	}
 	
 	/**
 	 * Returns true if the current pixel located at the given (u,v) coordinates is
-	 * the same as the specified color or gray values.
+	 * the same as the specified color or gray values. All the channels of the
+	 * pixel are visited in one pass, stopping at the first one that differs.
 	 */
 	private boolean	matches(
 		final RandomAccess<? extends RealType<?>> accessor, final long u,
-		final long v, final ChannelCollection channels)
+		final long v, final double[] values)
 	{
 		accessor.setPosition(u, uAxis);
 		accessor.setPosition(v, vAxis);
 
 		// 0 channel image?
 		if (channelAxis == -1) {
-			final double val = accessor.get().getRealDouble();
-			return val == channels.getChannelValue(0);
+			return accessor.get().getRealDouble() == values[0];
 		}
 
 		// else image has 1 or more channels
-		long numChan = tool.getDataset().dimension(channelAxis);
-		for (long c = 0; c < numChan; c++) {
-			accessor.setPosition(c, channelAxis);
-			double value = accessor.get().getRealDouble();
+		accessor.setPosition(0, channelAxis);
+		for (int c = 0; c < numChannels; c++) {
+			if (c > 0) accessor.fwd(channelAxis);
 			// TODO - do we need a "near" rather than "equal" here?
-			if (value != channels.getChannelValue(c)) return false;
+			if (accessor.get().getRealDouble() != values[c]) return false;
 		}
 		
 		return true;
 	}
 
 	/**
-	 * Records the values of all the channels at a given (u,v) coord in a Dataset.
-	 * The non-UV coords must be set on the accessor before calling this method.
+	 * Records the values of all the channels at a given (u,v) coord in a Dataset
+	 * into the given array. The non-UV coords must be set on the accessor before
+	 * calling this method.
 	 */
-	private ChannelCollection getValues(
+	private void getValues(
 		final RandomAccess<? extends RealType<?>> accessor,
-		final long u, final long v)
+		final long u, final long v, final double[] values)
 	{
-		final List<Double> channels = new LinkedList<Double>();
 		accessor.setPosition(u, uAxis);
 		accessor.setPosition(v, vAxis);
-		long numChannels = 1;
-		if (channelAxis != -1)
-			numChannels = tool.getDataset().dimension(channelAxis);
-		for (long c = 0; c < numChannels; c++) {
-			if (channelAxis != -1) accessor.setPosition(c, channelAxis);
-			final double val = accessor.get().getRealDouble();
-			channels.add(val);
+		if (channelAxis == -1) {
+			values[0] = accessor.get().getRealDouble();
+			return;
+		}
+		accessor.setPosition(0, channelAxis);
+		for (int c = 0; c < numChannels; c++) {
+			if (c > 0) accessor.fwd(channelAxis);
+			values[c] = accessor.get().getRealDouble();
 		}
-		return new ChannelCollection(channels);
 	}
 
 	/**
@@ -0,0 +1,568 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import imagej.thread.LoopBody;
+import imagej.thread.ThreadService;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.PlanarAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Copies sample values between {@link Img}s. When both images keep their
+ * samples in primitive arrays (planar or array images of the standard scalar
+ * types) the copy works directly on the arrays: rows of equal type are moved
+ * with {@link System#arraycopy}, and rows of differing type are converted by
+ * loops specialized for each primitive type. The rows are spread across the
+ * compute threads of the given {@link ThreadService}, if any. Arrays of
+ * {@link ManagedAccess} storage are read without claiming them, and pinned
+ * only while written. All other images are copied one sample at a time
+ * through {@link RandomAccess}es.
+ * <p>
+ * Values are converted as {@link RealType#setReal(double)} would convert them:
+ * integer destinations round half away from zero and wrap on overflow.
+ * </p>
+ */
+public class ImgCopier {
+
+	/** Sample counts below which copies are not worth spreading over threads. */
+	private static final long PARALLEL_THRESHOLD = 1 << 16;
+
+	private static final int UBYTE = 0;
+	private static final int BYTE = 1;
+	private static final int USHORT = 2;
+	private static final int SHORT = 3;
+	private static final int UINT = 4;
+	private static final int INT = 5;
+	private static final int LONG = 6;
+	private static final int FLOAT = 7;
+	private static final int DOUBLE = 8;
+
+	private final ThreadService threadService;
+
+	/** Constructs a copier which does all of its work on the calling thread. */
+	public ImgCopier() {
+		this(null);
+	}
+
+	/**
+	 * Constructs a copier which spreads large copies across the compute threads
+	 * of the given {@link ThreadService}. If the service is null all work is done
+	 * on the calling thread.
+	 */
+	public ImgCopier(final ThreadService threadService) {
+		this.threadService = threadService;
+	}
+
+	// -- ImgCopier methods --
+
+	/**
+	 * Copies all values of one image into another. The images must have the same
+	 * dimensions.
+	 */
+	public void copy(final Img<? extends RealType<?>> src,
+		final Img<? extends RealType<?>> dst)
+	{
+		final long[] srcDims = new long[src.numDimensions()];
+		src.dimensions(srcDims);
+		final long[] dstDims = new long[dst.numDimensions()];
+		dst.dimensions(dstDims);
+		copy(src, new long[srcDims.length], srcDims, dst,
+			new long[dstDims.length], dstDims);
+	}
+
+	/**
+	 * Copies a hypervolume from one image into another. Spans may have different
+	 * numbers of dimensions but must be shape compatible with axes in the same
+	 * relative order; i.e., they must match once all dimensions of size 1 are
+	 * dropped.
+	 */
+	public void copy(final Img<? extends RealType<?>> src,
+		final long[] srcOrigin, final long[] srcSpan,
+		final Img<? extends RealType<?>> dst, final long[] dstOrigin,
+		final long[] dstSpan)
+	{
+		final int[] srcAxes = spannedAxes(srcSpan);
+		final int[] dstAxes = spannedAxes(dstSpan);
+		if (srcAxes.length != dstAxes.length) {
+			throw new IllegalArgumentException("incompatible span shapes");
+		}
+		for (int i = 0; i < srcAxes.length; i++) {
+			if (srcSpan[srcAxes[i]] != dstSpan[dstAxes[i]]) {
+				throw new IllegalArgumentException("incompatible span shapes");
+			}
+		}
+		for (int i = 0; i < srcSpan.length; i++) {
+			if (srcSpan[i] == 0) return;
+		}
+
+		// each row runs along the first spanned axis; the rest are iterated
+		final int srcRunAxis = srcAxes.length == 0 ? 0 : srcAxes[0];
+		final int dstRunAxis = dstAxes.length == 0 ? 0 : dstAxes[0];
+		final long runLength = srcSpan[srcRunAxis];
+		final int outer = Math.max(srcAxes.length - 1, 0);
+		final int[] srcOuterAxes = new int[outer];
+		final int[] dstOuterAxes = new int[outer];
+		final long[] outerSpan = new long[outer];
+		long rowCount = 1;
+		for (int i = 0; i < outer; i++) {
+			srcOuterAxes[i] = srcAxes[i + 1];
+			dstOuterAxes[i] = dstAxes[i + 1];
+			outerSpan[i] = srcSpan[srcAxes[i + 1]];
+			rowCount *= outerSpan[i];
+		}
+		final Rows rows =
+			new Rows(srcOrigin, srcOuterAxes, dstOrigin, dstOuterAxes, outerSpan);
+
+		final Storage srcStorage = Storage.of(src);
+		final Storage dstStorage = Storage.of(dst);
+		if (srcStorage == null || dstStorage == null || srcRunAxis != 0 ||
+			dstRunAxis != 0 || runLength > Integer.MAX_VALUE)
+		{
+			copyRows(src, dst, rows, srcRunAxis, dstRunAxis, runLength, 0,
+				rowCount);
+			return;
+		}
+		final int length = (int) runLength;
+		if (threadService == null || rowCount < 2 ||
+			rowCount * runLength < PARALLEL_THRESHOLD)
+		{
+			copyRows(srcStorage, dstStorage, rows, length, 0, rowCount);
+			return;
+		}
+		threadService.parallelFor(0, rowCount, new LoopBody() {
+
+			@Override
+			public void run(final long start, final long end) {
+				copyRows(srcStorage, dstStorage, rows, length, start, end);
+			}
+		});
+	}
+
+	/**
+	 * Creates a new image with the same factory, type and dimensions as the
+	 * given one, and copies its values.
+	 */
+	public <T extends RealType<T>> Img<T> duplicate(final Img<T> img) {
+		final long[] dims = new long[img.numDimensions()];
+		img.dimensions(dims);
+		final Img<T> copy = img.factory().create(dims, img.firstElement());
+		copy(img, copy);
+		return copy;
+	}
+
+	// -- Helper methods --
+
+	/** Gets the indices of the axes whose span is greater than 1. */
+	private static int[] spannedAxes(final long[] span) {
+		int count = 0;
+		for (int i = 0; i < span.length; i++) {
+			if (span[i] > 1) count++;
+		}
+		final int[] axes = new int[count];
+		count = 0;
+		for (int i = 0; i < span.length; i++) {
+			if (span[i] > 1) axes[count++] = i;
+		}
+		return axes;
+	}
+
+	/** Copies the given rows through the images' primitive arrays. */
+	private static void copyRows(final Storage src, final Storage dst,
+		final Rows rows, final int length, final long start, final long end)
+	{
+		final long[] srcPos = rows.srcOrigin.clone();
+		final long[] dstPos = rows.dstOrigin.clone();
+		final long[] counter = new long[rows.outerSpan.length];
+		rows.seek(start, counter, srcPos, dstPos);
+		final boolean sameKind = src.kind == dst.kind;
+		final double[] buffer = sameKind ? null : new double[length];
+		for (long r = start; r < end; r++) {
+			final Object srcArray = src.arrayForReading(srcPos);
+			final int srcOffset = src.offset(srcPos);
+			final Object dstArray = dst.pin(dstPos);
+			final int dstOffset = dst.offset(dstPos);
+			try {
+				if (sameKind) {
+					System.arraycopy(srcArray, srcOffset, dstArray, dstOffset, length);
+				}
+				else {
+					read(src.kind, srcArray, srcOffset, buffer, length);
+					write(dst.kind, buffer, dstArray, dstOffset, length);
+				}
+			}
+			finally {
+				dst.unpin(dstPos);
+			}
+			rows.next(counter, srcPos, dstPos);
+		}
+	}
+
+	/** Copies the given rows one sample at a time. */
+	private static void copyRows(final Img<? extends RealType<?>> src,
+		final Img<? extends RealType<?>> dst, final Rows rows,
+		final int srcRunAxis, final int dstRunAxis, final long length,
+		final long start, final long end)
+	{
+		final RandomAccess<? extends RealType<?>> srcAccess = src.randomAccess();
+		final RandomAccess<? extends RealType<?>> dstAccess = dst.randomAccess();
+		final long[] srcPos = rows.srcOrigin.clone();
+		final long[] dstPos = rows.dstOrigin.clone();
+		final long[] counter = new long[rows.outerSpan.length];
+		rows.seek(start, counter, srcPos, dstPos);
+		for (long r = start; r < end; r++) {
+			srcAccess.setPosition(srcPos);
+			dstAccess.setPosition(dstPos);
+			for (long i = 0; i < length; i++) {
+				if (i > 0) {
+					srcAccess.fwd(srcRunAxis);
+					dstAccess.fwd(dstRunAxis);
+				}
+				dstAccess.get().setReal(srcAccess.get().getRealDouble());
+			}
+			rows.next(counter, srcPos, dstPos);
+		}
+	}
+
+	private static void read(final int kind, final Object array,
+		final int offset, final double[] values, final int length)
+	{
+		switch (kind) {
+			case UBYTE: {
+				final byte[] a = (byte[]) array;
+				for (int i = 0; i < length; i++)
+					values[i] = a[offset + i] & 0xff;
+				break;
+			}
+			case BYTE: {
+				final byte[] a = (byte[]) array;
+				for (int i = 0; i < length; i++)
+					values[i] = a[offset + i];
+				break;
+			}
+			case USHORT: {
+				final short[] a = (short[]) array;
+				for (int i = 0; i < length; i++)
+					values[i] = a[offset + i] & 0xffff;
+				break;
+			}
+			case SHORT: {
+				final short[] a = (short[]) array;
+				for (int i = 0; i < length; i++)
+					values[i] = a[offset + i];
+				break;
+			}
+			case UINT: {
+				final int[] a = (int[]) array;
+				for (int i = 0; i < length; i++)
+					values[i] = a[offset + i] & 0xffffffffL;
+				break;
+			}
+			case INT: {
+				final int[] a = (int[]) array;
+				for (int i = 0; i < length; i++)
+					values[i] = a[offset + i];
+				break;
+			}
+			case LONG: {
+				final long[] a = (long[]) array;
+				for (int i = 0; i < length; i++)
+					values[i] = a[offset + i];
+				break;
+			}
+			case FLOAT: {
+				final float[] a = (float[]) array;
+				for (int i = 0; i < length; i++)
+					values[i] = a[offset + i];
+				break;
+			}
+			default: {
+				System.arraycopy(array, offset, values, 0, length);
+			}
+		}
+	}
+
+	private static void write(final int kind, final double[] values,
+		final Object array, final int offset, final int length)
+	{
+		switch (kind) {
+			case UBYTE:
+			case BYTE: {
+				final byte[] a = (byte[]) array;
+				for (int i = 0; i < length; i++)
+					a[offset + i] = (byte) round(values[i]);
+				break;
+			}
+			case USHORT:
+			case SHORT: {
+				final short[] a = (short[]) array;
+				for (int i = 0; i < length; i++)
+					a[offset + i] = (short) round(values[i]);
+				break;
+			}
+			case UINT:
+			case INT: {
+				final int[] a = (int[]) array;
+				for (int i = 0; i < length; i++)
+					a[offset + i] = (int) round(values[i]);
+				break;
+			}
+			case LONG: {
+				final long[] a = (long[]) array;
+				for (int i = 0; i < length; i++)
+					a[offset + i] = round(values[i]);
+				break;
+			}
+			case FLOAT: {
+				final float[] a = (float[]) array;
+				for (int i = 0; i < length; i++)
+					a[offset + i] = (float) values[i];
+				break;
+			}
+			default: {
+				System.arraycopy(values, 0, array, offset, length);
+			}
+		}
+	}
+
+	/** Rounds half away from zero, as ImgLib's integer types do. */
+	private static long round(final double value) {
+		return (long) (value + 0.5d * Math.signum(value));
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Walks the starting positions of the rows of a copy, in source and
+	 * destination coordinates alike.
+	 */
+	private static class Rows {
+
+		private final long[] srcOrigin;
+		private final int[] srcAxes;
+		private final long[] dstOrigin;
+		private final int[] dstAxes;
+		private final long[] outerSpan;
+
+		public Rows(final long[] srcOrigin, final int[] srcAxes,
+			final long[] dstOrigin, final int[] dstAxes, final long[] outerSpan)
+		{
+			this.srcOrigin = srcOrigin.clone();
+			this.srcAxes = srcAxes;
+			this.dstOrigin = dstOrigin.clone();
+			this.dstAxes = dstAxes;
+			this.outerSpan = outerSpan;
+		}
+
+		/** Moves the positions to the start of the given row. */
+		public void seek(final long row, final long[] counter,
+			final long[] srcPos, final long[] dstPos)
+		{
+			long remainder = row;
+			for (int i = 0; i < outerSpan.length; i++) {
+				counter[i] = remainder % outerSpan[i];
+				remainder /= outerSpan[i];
+				srcPos[srcAxes[i]] = srcOrigin[srcAxes[i]] + counter[i];
+				dstPos[dstAxes[i]] = dstOrigin[dstAxes[i]] + counter[i];
+			}
+		}
+
+		/** Moves the positions to the start of the next row. */
+		public void next(final long[] counter, final long[] srcPos,
+			final long[] dstPos)
+		{
+			for (int i = 0; i < outerSpan.length; i++) {
+				if (++counter[i] < outerSpan[i]) {
+					srcPos[srcAxes[i]]++;
+					dstPos[dstAxes[i]]++;
+					return;
+				}
+				counter[i] = 0;
+				srcPos[srcAxes[i]] = srcOrigin[srcAxes[i]];
+				dstPos[dstAxes[i]] = dstOrigin[dstAxes[i]];
+			}
+		}
+	}
+
+	/**
+	 * Locates samples within the primitive arrays backing a planar or array
+	 * image.
+	 */
+	private static class Storage {
+
+		private final int kind;
+		private final long[] dims;
+		private final PlanarAccess<?> planarAccess;
+		private final Object array;
+
+		private Storage(final int kind, final long[] dims,
+			final PlanarAccess<?> planarAccess, final Object array)
+		{
+			this.kind = kind;
+			this.dims = dims;
+			this.planarAccess = planarAccess;
+			this.array = array;
+		}
+
+		/**
+		 * Gets the storage of the given image, or null if its samples are not kept
+		 * in primitive arrays of a supported type.
+		 */
+		public static Storage of(final Img<?> image) {
+			Img<?> img = image;
+			while (img instanceof ImgPlus) {
+				img = ((ImgPlus<?>) img).getImg();
+			}
+			final int kind = kind(img.firstElement());
+			if (kind < 0) return null;
+			final long[] dims = new long[img.numDimensions()];
+			img.dimensions(dims);
+			if (img instanceof PlanarAccess) {
+				final PlanarAccess<?> planarAccess = (PlanarAccess<?>) img;
+				final Object plane = planarAccess.getPlane(0);
+				if (!(plane instanceof ArrayDataAccess)) return null;
+				final Object data =
+					StorageUtils.getArrayForReading((ArrayDataAccess<?>) plane);
+				if (!isArrayOf(kind, data)) return null;
+				return new Storage(kind, dims, planarAccess, null);
+			}
+			if (img instanceof ArrayImg) {
+				final Object access = ((ArrayImg<?, ?>) img).update(null);
+				if (!(access instanceof ArrayDataAccess)) return null;
+				final Object data =
+					((ArrayDataAccess<?>) access).getCurrentStorageArray();
+				if (!isArrayOf(kind, data)) return null;
+				return new Storage(kind, dims, null, data);
+			}
+			return null;
+		}
+
+		/**
+		 * Gets the array holding the sample at the given position, for reading
+		 * only.
+		 */
+		public Object arrayForReading(final long[] pos) {
+			if (planarAccess == null) return array;
+			return StorageUtils.getArrayForReading(plane(pos));
+		}
+
+		/**
+		 * Gets the array holding the sample at the given position for writing,
+		 * until {@link #unpin} is called for the same position.
+		 */
+		public Object pin(final long[] pos) {
+			if (planarAccess == null) return array;
+			return StorageUtils.pin(plane(pos));
+		}
+
+		/** Releases the array obtained from {@link #pin}. */
+		public void unpin(final long[] pos) {
+			if (planarAccess != null) StorageUtils.unpin(plane(pos));
+		}
+
+		/** Gets the offset of the sample at the given position in its array. */
+		public int offset(final long[] pos) {
+			final int last =
+				planarAccess == null ? dims.length : Math.min(2, dims.length);
+			long offset = 0;
+			long stride = 1;
+			for (int d = 0; d < last; d++) {
+				offset += pos[d] * stride;
+				stride *= dims[d];
+			}
+			return (int) offset;
+		}
+
+		private ArrayDataAccess<?> plane(final long[] pos) {
+			long plane = 0;
+			long stride = 1;
+			for (int d = 2; d < dims.length; d++) {
+				plane += pos[d] * stride;
+				stride *= dims[d];
+			}
+			return (ArrayDataAccess<?>) planarAccess.getPlane((int) plane);
+		}
+
+		private static int kind(final Object type) {
+			final Class<?> c = type.getClass();
+			if (c == UnsignedByteType.class) return UBYTE;
+			if (c == ByteType.class) return BYTE;
+			if (c == UnsignedShortType.class) return USHORT;
+			if (c == ShortType.class) return SHORT;
+			if (c == UnsignedIntType.class) return UINT;
+			if (c == IntType.class) return INT;
+			if (c == LongType.class) return LONG;
+			if (c == FloatType.class) return FLOAT;
+			if (c == DoubleType.class) return DOUBLE;
+			return -1;
+		}
+
+		private static boolean isArrayOf(final int kind, final Object data) {
+			switch (kind) {
+				case UBYTE:
+				case BYTE:
+					return data instanceof byte[];
+				case USHORT:
+				case SHORT:
+					return data instanceof short[];
+				case UINT:
+				case INT:
+					return data instanceof int[];
+				case LONG:
+					return data instanceof long[];
+				case FLOAT:
+					return data instanceof float[];
+				default:
+					return data instanceof double[];
+			}
+		}
+	}
+
+}
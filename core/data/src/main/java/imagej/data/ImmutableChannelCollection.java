@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import imagej.util.ColorRGB;
+
+import java.util.List;
+
+/**
+ * A {@link ChannelCollection} whose values can not be changed after
+ * construction. Useful for values that are shared between several consumers,
+ * such as the current foreground and background values.
+ */
+public class ImmutableChannelCollection extends ChannelCollection {
+
+	// -- constructors --
+
+	/**
+	 * Constructs a new immutable channel collection from a list of Double values.
+	 */
+	public ImmutableChannelCollection(List<Double> values) {
+		super(values);
+	}
+
+	/**
+	 * Constructs a new immutable channel collection from an array of values. The
+	 * array is copied.
+	 */
+	public ImmutableChannelCollection(double[] values) {
+		super(values);
+	}
+
+	/**
+	 * Constructs a new immutable channel collection containing the same values
+	 * as another one.
+	 */
+	public ImmutableChannelCollection(ChannelCollection other) {
+		super(other);
+	}
+
+	/**
+	 * Constructs an immutable channel collection containing the three RGB values
+	 * of a given color.
+	 */
+	public ImmutableChannelCollection(ColorRGB color) {
+		super(color);
+	}
+
+	// -- ChannelCollection methods --
+
+	@Override
+	public void setChannelValue(long chan, double value) {
+		throw new UnsupportedOperationException(
+			"cannot change an immutable channel collection");
+	}
+
+	@Override
+	public void setChannelValues(double[] vals) {
+		throw new UnsupportedOperationException(
+			"cannot change an immutable channel collection");
+	}
+
+	@Override
+	public ImmutableChannelCollection immutable() {
+		return this;
+	}
+
+}
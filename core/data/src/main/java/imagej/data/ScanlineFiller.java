@@ -0,0 +1,1012 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import java.util.Arrays;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.PlanarAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * The scanline flood fill engine used by {@link FloodFiller}. It fills a stack
+ * of UV planes: a single plane for 2D fills or the planes along Z for volume
+ * fills. Pixels that have been filled are tracked in one bitset per plane so
+ * no pixel is filled twice and spans are never rescanned.
+ * <p>
+ * When the planes of a {@link Dataset} are primitive arrays the pixel tests
+ * and span fills run directly on the arrays (see {@link #forArrays}).
+ * Otherwise a {@link RandomAccess} is used (see {@link #forAccess}).
+ * </p>
+ */
+final class ScanlineFiller {
+
+	private final Voxels voxels;
+	private final int width;
+	private final int height;
+	private final int depth;
+	private final boolean diagonal;
+	private final long[][] visited;
+
+	/** Pending seeds as (plane, index) pairs. */
+	private int[] stack;
+	private int top;
+
+	private int minU, minV, minZ;
+	private int maxU, maxV, maxZ;
+
+	/**
+	 * Creates a filler for planes of the given size. Diagonal neighbors are
+	 * included (8 or 26 connectivity) if requested.
+	 */
+	private ScanlineFiller(final Voxels voxels, final long width,
+		final long height, final long depth, final boolean diagonal)
+	{
+		if (width * height > Integer.MAX_VALUE || depth > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("plane too large: " + width + " x " +
+				height);
+		}
+		this.voxels = voxels;
+		this.width = (int) width;
+		this.height = (int) height;
+		this.depth = (int) depth;
+		this.diagonal = diagonal;
+		visited = new long[this.depth][];
+		stack = new int[400];
+	}
+
+	// -- Factory methods --
+
+	/**
+	 * Creates a filler working directly on the plane arrays of a Dataset. The U
+	 * and V axes must be the first two axes of the Dataset. Returns null if the
+	 * Dataset is not backed by primitive arrays of a supported type, in which
+	 * case {@link #forAccess} should be used.
+	 * 
+	 * @param ds the Dataset to fill
+	 * @param position the position of the first plane; U, V and channel entries
+	 *          are ignored, and so is the Z entry when zAxis is not -1
+	 * @param zAxis the axis to fill across, or -1 to fill a single plane
+	 * @param channelAxis the channel axis of the Dataset or -1
+	 * @param fillValues the value to fill each channel with
+	 * @param diagonal whether diagonal neighbors are connected
+	 */
+	public static ScanlineFiller forArrays(final Dataset ds,
+		final long[] position, final int zAxis, final int channelAxis,
+		final double[] fillValues, final boolean diagonal)
+	{
+		final long[] dims = ds.getDims();
+		if (dims.length < 2 || zAxis == 0 || zAxis == 1 || channelAxis == 0 ||
+			channelAxis == 1)
+		{
+			return null;
+		}
+		final long depth = zAxis == -1 ? 1 : dims[zAxis];
+		final int numChannels = channelAxis == -1 ? 1 : (int) dims[channelAxis];
+		final int[][] planeNos = new int[(int) depth][numChannels];
+		final long[] pos = position.clone();
+		for (int z = 0; z < depth; z++) {
+			if (zAxis != -1) pos[zAxis] = z;
+			for (int c = 0; c < numChannels; c++) {
+				if (channelAxis != -1) pos[channelAxis] = c;
+				planeNos[z][c] = UpdateRegion.planeNumber(dims, pos);
+			}
+		}
+		final Object plane = ds.getPlaneForReading(planeNos[0][0], false);
+		final Class<?> c = ds.getType().getClass();
+		final double[] fill = normalize(ds, fillValues, numChannels);
+		final ArrayVoxels voxels;
+		if (plane instanceof byte[] &&
+			(c == UnsignedByteType.class || c == ByteType.class))
+		{
+			voxels = new ByteVoxels(ds, planeNos, fill);
+		}
+		else if (plane instanceof short[] &&
+			(c == UnsignedShortType.class || c == ShortType.class))
+		{
+			voxels = new ShortVoxels(ds, planeNos, fill);
+		}
+		else if (plane instanceof int[] &&
+			(c == UnsignedIntType.class || c == IntType.class))
+		{
+			voxels = new IntVoxels(ds, planeNos, fill);
+		}
+		else if (plane instanceof long[] && c == LongType.class) {
+			voxels = new LongVoxels(ds, planeNos, fill);
+		}
+		else if (plane instanceof float[] && c == FloatType.class) {
+			voxels = new FloatVoxels(ds, planeNos, fill);
+		}
+		else if (plane instanceof double[] && c == DoubleType.class) {
+			voxels = new DoubleVoxels(ds, planeNos, fill);
+		}
+		else return null;
+		return new ScanlineFiller(voxels, dims[0], dims[1], depth, diagonal);
+	}
+
+	/**
+	 * Creates a filler that reads and writes pixels of a Dataset through a
+	 * {@link RandomAccess}. Works for any image and any choice of axes.
+	 * 
+	 * @param ds the Dataset to fill
+	 * @param position the position of the first plane; U, V, Z and channel
+	 *          entries are ignored
+	 * @param uAxis the U axis of the planes
+	 * @param vAxis the V axis of the planes
+	 * @param zAxis the axis to fill across, or -1 to fill a single plane
+	 * @param channelAxis the channel axis of the Dataset or -1
+	 * @param fillValues the value to fill each channel with
+	 * @param diagonal whether diagonal neighbors are connected
+	 */
+	public static ScanlineFiller forAccess(final Dataset ds,
+		final long[] position, final int uAxis, final int vAxis, final int zAxis,
+		final int channelAxis, final double[] fillValues, final boolean diagonal)
+	{
+		final int numChannels =
+			channelAxis == -1 ? 1 : (int) ds.dimension(channelAxis);
+		final double[] fill = normalize(ds, fillValues, numChannels);
+		final RandomAccess<? extends RealType<?>> access =
+			ds.getImgPlus().randomAccess();
+		access.setPosition(position);
+		final long width = ds.dimension(uAxis);
+		final Voxels voxels =
+			new AccessVoxels(access, uAxis, vAxis, zAxis, channelAxis, (int) width,
+				fill);
+		final long depth = zAxis == -1 ? 1 : ds.dimension(zAxis);
+		return new ScanlineFiller(voxels, width, ds.dimension(vAxis), depth,
+			diagonal);
+	}
+
+	// -- ScanlineFiller methods --
+
+	/**
+	 * Fills the region connected to the given seed whose pixels have the same
+	 * values as the seed in every channel. Returns false, without changing
+	 * anything, if the seed already has the fill values.
+	 */
+	public boolean fill(final long u0, final long v0, final long z0) {
+		try {
+			return fill((int) z0, (int) v0 * width + (int) u0);
+		}
+		finally {
+			voxels.release();
+		}
+	}
+
+	/** Gets the smallest U coordinate filled by the last fill. */
+	public long getMinU() {
+		return minU;
+	}
+
+	/** Gets the largest U coordinate filled by the last fill. */
+	public long getMaxU() {
+		return maxU;
+	}
+
+	/** Gets the smallest V coordinate filled by the last fill. */
+	public long getMinV() {
+		return minV;
+	}
+
+	/** Gets the largest V coordinate filled by the last fill. */
+	public long getMaxV() {
+		return maxV;
+	}
+
+	/** Gets the smallest Z coordinate filled by the last fill. */
+	public long getMinZ() {
+		return minZ;
+	}
+
+	/** Gets the largest Z coordinate filled by the last fill. */
+	public long getMaxZ() {
+		return maxZ;
+	}
+
+	// -- Helper methods --
+
+	/** Fills from the given seed of the given plane. */
+	private boolean fill(final int z, final int seed) {
+		voxels.select(z);
+		if (!voxels.init(seed) || !voxels.matches(seed)) return false;
+		minU = minV = minZ = Integer.MAX_VALUE;
+		maxU = maxV = maxZ = -1;
+		top = 0;
+		push(z, seed);
+		while (top > 0) {
+			final int index = stack[--top];
+			final int plane = stack[--top];
+			final long[] bits = bits(plane);
+			// NB: a seed that is not filled yet still matches, since only the fill
+			// changes pixels
+			if (isSet(bits, index)) continue;
+			voxels.select(plane);
+			final int v = index / width;
+			final int row = v * width;
+			// find the ends of the span; filled pixels never match
+			final int u1 = voxels.runStart(index, row) - row;
+			final int u2 = voxels.runEnd(index, row + width - 1) - row;
+			setRange(bits, row + u1, row + u2);
+			voxels.fill(row + u1, row + u2);
+			grow(u1, u2, v, plane);
+			// seed the neighboring spans
+			final int lo = diagonal && u1 > 0 ? u1 - 1 : u1;
+			final int hi = diagonal && u2 < width - 1 ? u2 + 1 : u2;
+			if (v > 0) scan(plane, row - width, lo, hi);
+			if (v < height - 1) scan(plane, row + width, lo, hi);
+			for (int nz = plane - 1; nz <= plane + 1; nz += 2) {
+				if (nz < 0 || nz >= depth) continue;
+				if (!diagonal) scan(nz, row, u1, u2);
+				else {
+					final int v2 = Math.min(height - 1, v + 1);
+					for (int nv = Math.max(0, v - 1); nv <= v2; nv++) {
+						scan(nz, nv * width, lo, hi);
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Pushes a seed at the start of every run of matching pixels within
+	 * [row + lo, row + hi] of the given plane.
+	 */
+	private void scan(final int plane, final int row, final int lo,
+		final int hi)
+	{
+		voxels.select(plane);
+		final long[] bits = bits(plane);
+		final int end = row + hi;
+		int i = row + lo;
+		while (i <= end) {
+			if (bits[i >>> 6] == -1L) {
+				// skip a word of filled pixels without touching the image
+				i = (i | 63) + 1;
+				continue;
+			}
+			final int stop = Math.min(end, i | 63);
+			final int match = voxels.nextMatch(i, stop);
+			if (match > stop) {
+				i = stop + 1;
+				continue;
+			}
+			push(plane, match);
+			i = voxels.runEnd(match, end) + 1;
+		}
+	}
+
+	private void push(final int plane, final int index) {
+		if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+		stack[top++] = plane;
+		stack[top++] = index;
+	}
+
+	private void grow(final int u1, final int u2, final int v, final int z) {
+		if (u1 < minU) minU = u1;
+		if (u2 > maxU) maxU = u2;
+		if (v < minV) minV = v;
+		if (v > maxV) maxV = v;
+		if (z < minZ) minZ = z;
+		if (z > maxZ) maxZ = z;
+	}
+
+	/** Gets the visited bits of a plane, allocating them on first use. */
+	private long[] bits(final int plane) {
+		long[] bits = visited[plane];
+		if (bits == null) {
+			bits = new long[(int) (((long) width * height + 63) >>> 6)];
+			visited[plane] = bits;
+		}
+		return bits;
+	}
+
+	private static boolean isSet(final long[] bits, final int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/** Sets the bits from (inclusive) to (inclusive). */
+	private static void setRange(final long[] bits, final int from,
+		final int to)
+	{
+		final int first = from >>> 6;
+		final int last = to >>> 6;
+		final long firstMask = -1L << from;
+		final long lastMask = -1L >>> (63 - (to & 63));
+		if (first == last) {
+			bits[first] |= firstMask & lastMask;
+			return;
+		}
+		bits[first] |= firstMask;
+		for (int w = first + 1; w < last; w++) {
+			bits[w] = -1L;
+		}
+		bits[last] |= lastMask;
+	}
+
+	/**
+	 * Converts the fill values to what the Dataset's type can actually store, so
+	 * they compare correctly against the stored values.
+	 */
+	private static double[] normalize(final Dataset ds, final double[] values,
+		final int numChannels)
+	{
+		final RealType<?> var = ds.getType().createVariable();
+		final double[] fill = new double[numChannels];
+		for (int c = 0; c < numChannels; c++) {
+			var.setReal(c < values.length ? values[c] : 0);
+			fill[c] = var.getRealDouble();
+		}
+		return fill;
+	}
+
+	// -- Helper classes --
+
+	/** Tests and fills the pixels of a stack of planes, by index in a plane. */
+	private abstract static class Voxels {
+
+		/** Makes the given plane the current one. */
+		public abstract void select(int plane);
+
+		/** Lets go of the current plane, once done filling. */
+		public void release() {
+			// NB: No action needed.
+		}
+
+		/**
+		 * Records the values of the seed pixel in the current plane. Returns false
+		 * if they are the same as the fill values.
+		 */
+		public abstract boolean init(int index);
+
+		/** Returns true if a pixel of the current plane has the seed values. */
+		public abstract boolean matches(int index);
+
+		/**
+		 * Returns the first matching pixel from (inclusive) to (inclusive), or
+		 * to + 1 if there is none.
+		 */
+		public int nextMatch(int from, final int to) {
+			while (from <= to && !matches(from)) from++;
+			return from;
+		}
+
+		/**
+		 * Given a matching pixel returns the first pixel, not below min, of the
+		 * run of matching pixels containing it.
+		 */
+		public int runStart(int index, final int min) {
+			while (index > min && matches(index - 1)) index--;
+			return index;
+		}
+
+		/**
+		 * Given a matching pixel returns the last pixel, not above max, of the
+		 * run of matching pixels containing it.
+		 */
+		public int runEnd(int index, final int max) {
+			while (index < max && matches(index + 1)) index++;
+			return index;
+		}
+
+		/** Fills the pixels from (inclusive) to (inclusive) of the plane. */
+		public abstract void fill(int from, int to);
+
+	}
+
+	/** Accesses pixels through a RandomAccess. */
+	private static final class AccessVoxels extends Voxels {
+
+		private final RandomAccess<? extends RealType<?>> access;
+		private final int uAxis, vAxis, zAxis, channelAxis;
+		private final int width;
+		private final double[] fill;
+		private final double[] orig;
+
+		public AccessVoxels(final RandomAccess<? extends RealType<?>> access,
+			final int uAxis, final int vAxis, final int zAxis,
+			final int channelAxis, final int width, final double[] fill)
+		{
+			this.access = access;
+			this.uAxis = uAxis;
+			this.vAxis = vAxis;
+			this.zAxis = zAxis;
+			this.channelAxis = channelAxis;
+			this.width = width;
+			this.fill = fill;
+			orig = new double[fill.length];
+		}
+
+		@Override
+		public void select(final int plane) {
+			if (zAxis != -1) access.setPosition(plane, zAxis);
+		}
+
+		@Override
+		public boolean init(final int index) {
+			position(index);
+			boolean same = true;
+			for (int c = 0; c < orig.length; c++) {
+				if (c > 0) access.fwd(channelAxis);
+				orig[c] = access.get().getRealDouble();
+				same &= orig[c] == fill[c];
+			}
+			return !same;
+		}
+
+		@Override
+		public boolean matches(final int index) {
+			position(index);
+			for (int c = 0; c < orig.length; c++) {
+				if (c > 0) access.fwd(channelAxis);
+				if (access.get().getRealDouble() != orig[c]) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public void fill(final int from, final int to) {
+			for (int i = from; i <= to; i++) {
+				position(i);
+				for (int c = 0; c < fill.length; c++) {
+					if (c > 0) access.fwd(channelAxis);
+					access.get().setReal(fill[c]);
+				}
+			}
+		}
+
+		private void position(final int index) {
+			access.setPosition(index % width, uAxis);
+			access.setPosition(index / width, vAxis);
+			if (channelAxis != -1) access.setPosition(0, channelAxis);
+		}
+
+	}
+
+	/**
+	 * Accesses the primitive arrays of the planes directly. The arrays of a plane
+	 * are looked up each time the plane is selected, since a Dataset may swap
+	 * the storage of planes that are not in use, and pinned while selected, so
+	 * that a cache cannot release them mid-fill.
+	 */
+	private abstract static class ArrayVoxels extends Voxels {
+
+		private final PlanarAccess<?> planarAccess;
+		private final int[][] planeNos;
+		private final ArrayDataAccess<?>[] pinned;
+		private int current = -1;
+
+		public ArrayVoxels(final Dataset dataset, final int[][] planeNos) {
+			planarAccess = (PlanarAccess<?>) dataset.getImgPlus().getImg();
+			this.planeNos = planeNos;
+			pinned = new ArrayDataAccess<?>[planeNos[0].length];
+		}
+
+		@Override
+		public void select(final int plane) {
+			if (plane == current) return;
+			release();
+			final int[] nos = planeNos[plane];
+			for (int c = 0; c < nos.length; c++) {
+				final ArrayDataAccess<?> access =
+					(ArrayDataAccess<?>) planarAccess.getPlane(nos[c]);
+				final Object array = StorageUtils.pin(access);
+				pinned[c] = access;
+				if (array == null) {
+					throw new IllegalStateException("plane " + nos[c] +
+						" is not array backed");
+				}
+				load(c, array);
+			}
+			current = plane;
+		}
+
+		@Override
+		public void release() {
+			for (int c = 0; c < pinned.length; c++) {
+				if (pinned[c] != null) StorageUtils.unpin(pinned[c]);
+				pinned[c] = null;
+			}
+			current = -1;
+		}
+
+		/** Records the array of the given channel of the selected plane. */
+		protected abstract void load(int channel, Object array);
+
+	}
+
+	private static final class ByteVoxels extends ArrayVoxels {
+
+		private final byte[][] planes;
+		private final byte[] fill;
+		private final byte[] orig;
+
+		public ByteVoxels(final Dataset ds, final int[][] planeNos,
+			final double[] values)
+		{
+			super(ds, planeNos);
+			planes = new byte[values.length][];
+			fill = new byte[values.length];
+			orig = new byte[values.length];
+			for (int c = 0; c < values.length; c++) {
+				fill[c] = (byte) (long) values[c];
+			}
+		}
+
+		@Override
+		protected void load(final int channel, final Object array) {
+			planes[channel] = (byte[]) array;
+		}
+
+		@Override
+		public boolean init(final int index) {
+			for (int c = 0; c < planes.length; c++) {
+				orig[c] = planes[c][index];
+			}
+			return !Arrays.equals(orig, fill);
+		}
+
+		@Override
+		public boolean matches(final int index) {
+			for (int c = 0; c < planes.length; c++) {
+				if (planes[c][index] != orig[c]) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int nextMatch(int from, final int to) {
+			if (planes.length > 1) return super.nextMatch(from, to);
+			final byte[] p = planes[0];
+			final byte o = orig[0];
+			while (from <= to && p[from] != o) from++;
+			return from;
+		}
+
+		@Override
+		public int runStart(int index, final int min) {
+			if (planes.length > 1) return super.runStart(index, min);
+			final byte[] p = planes[0];
+			final byte o = orig[0];
+			while (index > min && p[index - 1] == o) index--;
+			return index;
+		}
+
+		@Override
+		public int runEnd(int index, final int max) {
+			if (planes.length > 1) return super.runEnd(index, max);
+			final byte[] p = planes[0];
+			final byte o = orig[0];
+			while (index < max && p[index + 1] == o) index++;
+			return index;
+		}
+
+		@Override
+		public void fill(final int from, final int to) {
+			for (int c = 0; c < planes.length; c++) {
+				Arrays.fill(planes[c], from, to + 1, fill[c]);
+			}
+		}
+
+	}
+
+	private static final class ShortVoxels extends ArrayVoxels {
+
+		private final short[][] planes;
+		private final short[] fill;
+		private final short[] orig;
+
+		public ShortVoxels(final Dataset ds, final int[][] planeNos,
+			final double[] values)
+		{
+			super(ds, planeNos);
+			planes = new short[values.length][];
+			fill = new short[values.length];
+			orig = new short[values.length];
+			for (int c = 0; c < values.length; c++) {
+				fill[c] = (short) (long) values[c];
+			}
+		}
+
+		@Override
+		protected void load(final int channel, final Object array) {
+			planes[channel] = (short[]) array;
+		}
+
+		@Override
+		public boolean init(final int index) {
+			for (int c = 0; c < planes.length; c++) {
+				orig[c] = planes[c][index];
+			}
+			return !Arrays.equals(orig, fill);
+		}
+
+		@Override
+		public boolean matches(final int index) {
+			for (int c = 0; c < planes.length; c++) {
+				if (planes[c][index] != orig[c]) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int nextMatch(int from, final int to) {
+			if (planes.length > 1) return super.nextMatch(from, to);
+			final short[] p = planes[0];
+			final short o = orig[0];
+			while (from <= to && p[from] != o) from++;
+			return from;
+		}
+
+		@Override
+		public int runStart(int index, final int min) {
+			if (planes.length > 1) return super.runStart(index, min);
+			final short[] p = planes[0];
+			final short o = orig[0];
+			while (index > min && p[index - 1] == o) index--;
+			return index;
+		}
+
+		@Override
+		public int runEnd(int index, final int max) {
+			if (planes.length > 1) return super.runEnd(index, max);
+			final short[] p = planes[0];
+			final short o = orig[0];
+			while (index < max && p[index + 1] == o) index++;
+			return index;
+		}
+
+		@Override
+		public void fill(final int from, final int to) {
+			for (int c = 0; c < planes.length; c++) {
+				Arrays.fill(planes[c], from, to + 1, fill[c]);
+			}
+		}
+
+	}
+
+	private static final class IntVoxels extends ArrayVoxels {
+
+		private final int[][] planes;
+		private final int[] fill;
+		private final int[] orig;
+
+		public IntVoxels(final Dataset ds, final int[][] planeNos,
+			final double[] values)
+		{
+			super(ds, planeNos);
+			planes = new int[values.length][];
+			fill = new int[values.length];
+			orig = new int[values.length];
+			for (int c = 0; c < values.length; c++) {
+				fill[c] = (int) (long) values[c];
+			}
+		}
+
+		@Override
+		protected void load(final int channel, final Object array) {
+			planes[channel] = (int[]) array;
+		}
+
+		@Override
+		public boolean init(final int index) {
+			for (int c = 0; c < planes.length; c++) {
+				orig[c] = planes[c][index];
+			}
+			return !Arrays.equals(orig, fill);
+		}
+
+		@Override
+		public boolean matches(final int index) {
+			for (int c = 0; c < planes.length; c++) {
+				if (planes[c][index] != orig[c]) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int nextMatch(int from, final int to) {
+			if (planes.length > 1) return super.nextMatch(from, to);
+			final int[] p = planes[0];
+			final int o = orig[0];
+			while (from <= to && p[from] != o) from++;
+			return from;
+		}
+
+		@Override
+		public int runStart(int index, final int min) {
+			if (planes.length > 1) return super.runStart(index, min);
+			final int[] p = planes[0];
+			final int o = orig[0];
+			while (index > min && p[index - 1] == o) index--;
+			return index;
+		}
+
+		@Override
+		public int runEnd(int index, final int max) {
+			if (planes.length > 1) return super.runEnd(index, max);
+			final int[] p = planes[0];
+			final int o = orig[0];
+			while (index < max && p[index + 1] == o) index++;
+			return index;
+		}
+
+		@Override
+		public void fill(final int from, final int to) {
+			for (int c = 0; c < planes.length; c++) {
+				Arrays.fill(planes[c], from, to + 1, fill[c]);
+			}
+		}
+
+	}
+
+	private static final class LongVoxels extends ArrayVoxels {
+
+		private final long[][] planes;
+		private final long[] fill;
+		private final long[] orig;
+
+		public LongVoxels(final Dataset ds, final int[][] planeNos,
+			final double[] values)
+		{
+			super(ds, planeNos);
+			planes = new long[values.length][];
+			fill = new long[values.length];
+			orig = new long[values.length];
+			for (int c = 0; c < values.length; c++) {
+				fill[c] = (long) values[c];
+			}
+		}
+
+		@Override
+		protected void load(final int channel, final Object array) {
+			planes[channel] = (long[]) array;
+		}
+
+		@Override
+		public boolean init(final int index) {
+			for (int c = 0; c < planes.length; c++) {
+				orig[c] = planes[c][index];
+			}
+			return !Arrays.equals(orig, fill);
+		}
+
+		@Override
+		public boolean matches(final int index) {
+			for (int c = 0; c < planes.length; c++) {
+				if (planes[c][index] != orig[c]) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int nextMatch(int from, final int to) {
+			if (planes.length > 1) return super.nextMatch(from, to);
+			final long[] p = planes[0];
+			final long o = orig[0];
+			while (from <= to && p[from] != o) from++;
+			return from;
+		}
+
+		@Override
+		public int runStart(int index, final int min) {
+			if (planes.length > 1) return super.runStart(index, min);
+			final long[] p = planes[0];
+			final long o = orig[0];
+			while (index > min && p[index - 1] == o) index--;
+			return index;
+		}
+
+		@Override
+		public int runEnd(int index, final int max) {
+			if (planes.length > 1) return super.runEnd(index, max);
+			final long[] p = planes[0];
+			final long o = orig[0];
+			while (index < max && p[index + 1] == o) index++;
+			return index;
+		}
+
+		@Override
+		public void fill(final int from, final int to) {
+			for (int c = 0; c < planes.length; c++) {
+				Arrays.fill(planes[c], from, to + 1, fill[c]);
+			}
+		}
+
+	}
+
+	private static final class FloatVoxels extends ArrayVoxels {
+
+		private final float[][] planes;
+		private final float[] fill;
+		private final float[] orig;
+
+		public FloatVoxels(final Dataset ds, final int[][] planeNos,
+			final double[] values)
+		{
+			super(ds, planeNos);
+			planes = new float[values.length][];
+			fill = new float[values.length];
+			orig = new float[values.length];
+			for (int c = 0; c < values.length; c++) {
+				fill[c] = (float) values[c];
+			}
+		}
+
+		@Override
+		protected void load(final int channel, final Object array) {
+			planes[channel] = (float[]) array;
+		}
+
+		@Override
+		public boolean init(final int index) {
+			boolean same = true;
+			for (int c = 0; c < planes.length; c++) {
+				orig[c] = planes[c][index];
+				same &= orig[c] == fill[c];
+			}
+			return !same;
+		}
+
+		@Override
+		public boolean matches(final int index) {
+			for (int c = 0; c < planes.length; c++) {
+				if (planes[c][index] != orig[c]) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int nextMatch(int from, final int to) {
+			if (planes.length > 1) return super.nextMatch(from, to);
+			final float[] p = planes[0];
+			final float o = orig[0];
+			while (from <= to && p[from] != o) from++;
+			return from;
+		}
+
+		@Override
+		public int runStart(int index, final int min) {
+			if (planes.length > 1) return super.runStart(index, min);
+			final float[] p = planes[0];
+			final float o = orig[0];
+			while (index > min && p[index - 1] == o) index--;
+			return index;
+		}
+
+		@Override
+		public int runEnd(int index, final int max) {
+			if (planes.length > 1) return super.runEnd(index, max);
+			final float[] p = planes[0];
+			final float o = orig[0];
+			while (index < max && p[index + 1] == o) index++;
+			return index;
+		}
+
+		@Override
+		public void fill(final int from, final int to) {
+			for (int c = 0; c < planes.length; c++) {
+				Arrays.fill(planes[c], from, to + 1, fill[c]);
+			}
+		}
+
+	}
+
+	private static final class DoubleVoxels extends ArrayVoxels {
+
+		private final double[][] planes;
+		private final double[] fill;
+		private final double[] orig;
+
+		public DoubleVoxels(final Dataset ds, final int[][] planeNos,
+			final double[] values)
+		{
+			super(ds, planeNos);
+			planes = new double[values.length][];
+			fill = values;
+			orig = new double[values.length];
+		}
+
+		@Override
+		protected void load(final int channel, final Object array) {
+			planes[channel] = (double[]) array;
+		}
+
+		@Override
+		public boolean init(final int index) {
+			boolean same = true;
+			for (int c = 0; c < planes.length; c++) {
+				orig[c] = planes[c][index];
+				same &= orig[c] == fill[c];
+			}
+			return !same;
+		}
+
+		@Override
+		public boolean matches(final int index) {
+			for (int c = 0; c < planes.length; c++) {
+				if (planes[c][index] != orig[c]) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int nextMatch(int from, final int to) {
+			if (planes.length > 1) return super.nextMatch(from, to);
+			final double[] p = planes[0];
+			final double o = orig[0];
+			while (from <= to && p[from] != o) from++;
+			return from;
+		}
+
+		@Override
+		public int runStart(int index, final int min) {
+			if (planes.length > 1) return super.runStart(index, min);
+			final double[] p = planes[0];
+			final double o = orig[0];
+			while (index > min && p[index - 1] == o) index--;
+			return index;
+		}
+
+		@Override
+		public int runEnd(int index, final int max) {
+			if (planes.length > 1) return super.runEnd(index, max);
+			final double[] p = planes[0];
+			final double o = orig[0];
+			while (index < max && p[index + 1] == o) index++;
+			return index;
+		}
+
+		@Override
+		public void fill(final int from, final int to) {
+			for (int c = 0; c < planes.length; c++) {
+				Arrays.fill(planes[c], from, to + 1, fill[c]);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,231 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Describes the part of a {@link Dataset} modified by an update: an N-D
+ * bounding box, plus the set of XY planes actually touched within it. Planes
+ * are numbered as by {@link Dataset#getPlane(int)}. Regions are immutable.
+ * 
+ * @see Dataset#update(UpdateRegion)
+ */
+public final class UpdateRegion {
+
+	private final long[] dims;
+	private final long[] min;
+	private final long[] max;
+	private final BitSet planes;
+
+	/**
+	 * Constructs the region covering the given box of a dataset with the given
+	 * dimensions, including every plane within it.
+	 * 
+	 * @param dims dimensions of the dataset
+	 * @param min lowest position of the box
+	 * @param max highest position of the box (inclusive)
+	 */
+	public UpdateRegion(final long[] dims, final long[] min, final long[] max) {
+		this(dims.clone(), clamp(dims, min), clamp(dims, max), null);
+	}
+
+	private UpdateRegion(final long[] dims, final long[] min, final long[] max,
+		final BitSet planes)
+	{
+		this.dims = dims;
+		this.min = min;
+		this.max = max;
+		this.planes = planes == null ? planesOf(dims, min, max) : planes;
+	}
+
+	// -- Static utility methods --
+
+	/** Creates the region covering one entire plane. */
+	public static UpdateRegion forPlane(final long[] dims,
+		final int planeNumber)
+	{
+		final long[] min = new long[dims.length];
+		final long[] max = new long[dims.length];
+		long rest = planeNumber;
+		for (int d = 0; d < dims.length; d++) {
+			if (d < 2) {
+				max[d] = dims[d] - 1;
+				continue;
+			}
+			min[d] = max[d] = rest % dims[d];
+			rest /= dims[d];
+		}
+		final BitSet planes = new BitSet();
+		planes.set(planeNumber);
+		return new UpdateRegion(dims.clone(), min, max, planes);
+	}
+
+	/**
+	 * Creates the region covering an XY rectangle (inclusive bounds) of one
+	 * plane.
+	 */
+	public static UpdateRegion forRectangle(final long[] dims,
+		final int planeNumber, final long minX, final long minY,
+		final long maxX, final long maxY)
+	{
+		final UpdateRegion plane = forPlane(dims, planeNumber);
+		final long[] min = plane.min.clone();
+		final long[] max = plane.max.clone();
+		min[0] = minX;
+		max[0] = maxX;
+		if (dims.length > 1) {
+			min[1] = minY;
+			max[1] = maxY;
+		}
+		return new UpdateRegion(plane.dims, clamp(dims, min), clamp(dims, max),
+			plane.planes);
+	}
+
+	/** Gets the number of the plane containing the given position. */
+	public static int planeNumber(final long[] dims, final long[] pos) {
+		long plane = 0;
+		long stride = 1;
+		for (int d = 2; d < dims.length; d++) {
+			plane += pos[d] * stride;
+			stride *= dims[d];
+		}
+		return (int) plane;
+	}
+
+	// -- UpdateRegion methods --
+
+	public int numDimensions() {
+		return dims.length;
+	}
+
+	/** Gets the lowest position of the bounding box along the given axis. */
+	public long min(final int d) {
+		return min[d];
+	}
+
+	/**
+	 * Gets the highest position (inclusive) of the bounding box along the given
+	 * axis.
+	 */
+	public long max(final int d) {
+		return max[d];
+	}
+
+	/** Gets whether the region covers part of the given plane. */
+	public boolean containsPlane(final int planeNumber) {
+		return planes.get(planeNumber);
+	}
+
+	/** Gets the number of planes covered by the region. */
+	public int getPlaneCount() {
+		return planes.cardinality();
+	}
+
+	/** Gets the numbers of the planes covered by the region, in order. */
+	public int[] getPlanes() {
+		final int[] result = new int[planes.cardinality()];
+		int i = 0;
+		for (int p = planes.nextSetBit(0); p >= 0; p = planes.nextSetBit(p + 1)) {
+			result[i++] = p;
+		}
+		return result;
+	}
+
+	/** Gets whether the region describes a dataset of the given dimensions. */
+	public boolean isCompatible(final long[] datasetDims) {
+		return Arrays.equals(dims, datasetDims);
+	}
+
+	/**
+	 * Creates the smallest region covering both this and the given region: the
+	 * union of their bounding boxes and plane sets. Returns null if the regions
+	 * describe datasets of different dimensions.
+	 */
+	public UpdateRegion union(final UpdateRegion other) {
+		if (!Arrays.equals(dims, other.dims)) return null;
+		final long[] newMin = new long[dims.length];
+		final long[] newMax = new long[dims.length];
+		for (int d = 0; d < dims.length; d++) {
+			newMin[d] = Math.min(min[d], other.min[d]);
+			newMax[d] = Math.max(max[d], other.max[d]);
+		}
+		final BitSet newPlanes = (BitSet) planes.clone();
+		newPlanes.or(other.planes);
+		return new UpdateRegion(dims, newMin, newMax, newPlanes);
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return "min=" + Arrays.toString(min) + ", max=" + Arrays.toString(max) +
+			", planes=" + planes;
+	}
+
+	// -- Helper methods --
+
+	/** Copies a position, clamped to the given dimensions. */
+	private static long[] clamp(final long[] dims, final long[] pos) {
+		if (pos.length != dims.length) {
+			throw new IllegalArgumentException("Dimensionality mismatch");
+		}
+		final long[] result = new long[pos.length];
+		for (int d = 0; d < pos.length; d++) {
+			result[d] = Math.max(0, Math.min(pos[d], dims[d] - 1));
+		}
+		return result;
+	}
+
+	/** Gets the planes within the given box. */
+	private static BitSet planesOf(final long[] dims, final long[] min,
+		final long[] max)
+	{
+		final BitSet planes = new BitSet();
+		final long[] pos = min.clone();
+		while (true) {
+			planes.set(planeNumber(dims, pos));
+			int d = 2;
+			while (d < dims.length && ++pos[d] > max[d]) {
+				pos[d] = min[d];
+				d++;
+			}
+			if (d >= dims.length) return planes;
+		}
+	}
+
+}
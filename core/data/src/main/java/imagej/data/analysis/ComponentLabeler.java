@@ -0,0 +1,507 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import imagej.thread.LoopBody;
+import imagej.thread.ThreadService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Labels the connected components of the foreground pixels of a plane, or of
+ * a stack of planes for volume connectivity, with a two-pass union-find
+ * algorithm.
+ * <p>
+ * The first pass runs in parallel over strips: bands of rows within a plane,
+ * or bands of planes for volumes. Each strip gives provisional labels to its
+ * pixels, joins the labels of connected pixels within the strip and
+ * accumulates the measurements of each label. The labels are then joined
+ * across the strip borders and the measurements merged per component. The
+ * second pass, again parallel, replaces the provisional labels by the final
+ * ones, numbered in the raster order of the components' first pixels.
+ * </p>
+ */
+final class ComponentLabeler {
+
+	/** Reads pixel values row by row. */
+	interface RowReader {
+
+		/** Reads the values of row y of plane z. */
+		void read(int y, int z, double[] row);
+
+	}
+
+	/** Makes a RowReader for each strip, since readers need not be shared. */
+	interface RowSource {
+
+		RowReader createReader();
+
+	}
+
+	private final int width;
+	private final int height;
+	private final int depth;
+	private final int planeSize;
+	private final boolean volume;
+	private final boolean diagonal;
+	private final double minThreshold;
+	private final double maxThreshold;
+	private final long minArea;
+	private final long maxArea;
+
+	private int[] labels;
+	private Strip[] strips;
+	private int[] offsets;
+	private int[] parent;
+
+	/**
+	 * Creates a labeler for planes of the given size. Depth is the number of
+	 * planes, which must be 1 unless the connectivity is a volume one.
+	 */
+	public ComponentLabeler(final ParticleSettings settings, final long width,
+		final long height, final long depth)
+	{
+		if (width * height * depth > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("image too large to label: " +
+				width + " x " + height + " x " + depth);
+		}
+		final Connectivity connectivity = settings.getConnectivity();
+		if (depth > 1 && !connectivity.isVolume()) {
+			throw new IllegalArgumentException(connectivity +
+				" connectivity labels a single plane");
+		}
+		this.width = (int) width;
+		this.height = (int) height;
+		this.depth = (int) depth;
+		planeSize = this.width * this.height;
+		volume = connectivity.isVolume();
+		diagonal = connectivity.isDiagonal();
+		minThreshold = settings.getMinThreshold();
+		maxThreshold = settings.getMaxThreshold();
+		minArea = settings.getMinArea();
+		maxArea = settings.getMaxArea();
+	}
+
+	// -- ComponentLabeler methods --
+
+	/**
+	 * Labels the pixels read from the given source.
+	 * 
+	 * @param source the pixel values
+	 * @param threadService the service running the strips in parallel, or null
+	 *          to run them one after another
+	 * @param stripCount the number of strips to split the image into
+	 */
+	public ParticleAnalysis label(final RowSource source,
+		final ThreadService threadService, final int stripCount)
+	{
+		labels = new int[planeSize * depth];
+		createStrips(stripCount);
+
+		// first pass: provisional labels and measurements per strip
+		run(threadService, new LoopBody() {
+
+			@Override
+			public void run(final long start, final long end) {
+				for (long s = start; s < end; s++) {
+					scan(strips[(int) s], source.createReader());
+				}
+			}
+		});
+
+		// join the labels of the strips
+		offsets = new int[strips.length];
+		int total = 0;
+		for (int s = 0; s < strips.length; s++) {
+			offsets[s] = total;
+			total += strips[s].count;
+		}
+		parent = new int[total + 1];
+		for (int s = 0; s < strips.length; s++) {
+			final Strip strip = strips[s];
+			for (int i = 1; i <= strip.count; i++) {
+				parent[offsets[s] + i] = offsets[s] + strip.find(i);
+			}
+		}
+		for (int s = 1; s < strips.length; s++) {
+			joinBorder(s);
+		}
+
+		// number the components which pass the size filter
+		final long[] rootArea = new long[total + 1];
+		for (int s = 0; s < strips.length; s++) {
+			final Strip strip = strips[s];
+			for (int i = 1; i <= strip.count; i++) {
+				rootArea[find(offsets[s] + i)] += strip.area[i];
+			}
+		}
+		final int[] finalLabels = new int[total + 1];
+		int count = 0;
+		for (int g = 1; g <= total; g++) {
+			final int root = find(g);
+			if (root != g) finalLabels[g] = finalLabels[root];
+			else if (rootArea[g] >= minArea && rootArea[g] <= maxArea) {
+				finalLabels[g] = ++count;
+			}
+		}
+
+		// merge the measurements per component
+		final Strip merged = new Strip(0, 0);
+		merged.ensureCapacity(count);
+		merged.count = count;
+		for (int f = 1; f <= count; f++) {
+			merged.reset(f);
+		}
+		for (int s = 0; s < strips.length; s++) {
+			final Strip strip = strips[s];
+			for (int i = 1; i <= strip.count; i++) {
+				final int f = finalLabels[offsets[s] + i];
+				if (f != 0) merged.merge(f, strip, i);
+			}
+		}
+
+		// second pass: final labels
+		run(threadService, new LoopBody() {
+
+			@Override
+			public void run(final long start, final long end) {
+				for (long s = start; s < end; s++) {
+					relabel((int) s, finalLabels);
+				}
+			}
+		});
+
+		final List<Particle> particles = new ArrayList<Particle>(count);
+		for (int f = 1; f <= count; f++) {
+			particles.add(merged.toParticle(f, volume));
+		}
+		final ParticleAnalysis result =
+			new ParticleAnalysis(particles, labels, width, height, depth);
+		labels = null;
+		strips = null;
+		parent = null;
+		return result;
+	}
+
+	// -- Helper methods --
+
+	private void createStrips(final int stripCount) {
+		final int units = volume ? depth : height;
+		final int n = Math.max(1, Math.min(units, stripCount));
+		strips = new Strip[n];
+		for (int s = 0; s < n; s++) {
+			strips[s] =
+				new Strip((int) ((long) units * s / n),
+					(int) ((long) units * (s + 1) / n));
+		}
+	}
+
+	private void run(final ThreadService threadService, final LoopBody body) {
+		if (threadService == null || strips.length == 1) body.run(0,
+			strips.length);
+		else threadService.parallelFor(0, strips.length, body);
+	}
+
+	/** Gives provisional labels to the pixels of a strip. */
+	private void scan(final Strip strip, final RowReader reader) {
+		final double[] row = new double[width];
+		final int z0 = volume ? strip.start : 0;
+		final int z1 = volume ? strip.end : 1;
+		final int y0 = volume ? 0 : strip.start;
+		final int y1 = volume ? height : strip.end;
+		for (int z = z0; z < z1; z++) {
+			final boolean below = z > z0;
+			for (int y = y0; y < y1; y++) {
+				reader.read(y, z, row);
+				final int base = z * planeSize + y * width;
+				final boolean up = y > y0;
+				// measurements of the current run of foreground pixels
+				int runStart = -1;
+				double sum = 0, sumSquared = 0, min = 0, max = 0;
+				for (int x = 0; x < width; x++) {
+					final double v = row[x];
+					final int p = base + x;
+					if (!(v >= minThreshold && v <= maxThreshold)) {
+						if (runStart >= 0) {
+							strip.addRun(labels[p - 1], runStart, x - 1, y, z, sum,
+								sumSquared, min, max);
+							runStart = -1;
+						}
+						continue;
+					}
+					if (runStart < 0) {
+						runStart = x;
+						sum = sumSquared = 0;
+						min = max = v;
+					}
+					sum += v;
+					sumSquared += v * v;
+					if (v < min) min = v;
+					if (v > max) max = v;
+					int l = x > runStart ? labels[p - 1] : 0;
+					if (up) {
+						final int q = p - width;
+						l = join(strip, l, labels[q]);
+						if (diagonal) {
+							if (x > 0) l = join(strip, l, labels[q - 1]);
+							if (x < width - 1) l = join(strip, l, labels[q + 1]);
+						}
+					}
+					if (below) {
+						final int q = p - planeSize;
+						if (!diagonal) l = join(strip, l, labels[q]);
+						else {
+							for (int dy = -1; dy <= 1; dy++) {
+								if (y + dy < 0 || y + dy >= height) continue;
+								for (int dx = -1; dx <= 1; dx++) {
+									if (x + dx < 0 || x + dx >= width) continue;
+									l = join(strip, l, labels[q + dy * width + dx]);
+								}
+							}
+						}
+					}
+					if (l == 0) l = strip.newLabel(x, y, z);
+					labels[p] = l;
+				}
+				if (runStart >= 0) {
+					strip.addRun(labels[base + width - 1], runStart, width - 1, y, z,
+						sum, sumSquared, min, max);
+				}
+			}
+		}
+	}
+
+	/** Joins a label with a neighbor's label, if any. */
+	private static int join(final Strip strip, final int label,
+		final int neighbor)
+	{
+		if (neighbor == 0) return label;
+		if (label == 0 || label == neighbor) return neighbor;
+		strip.union(label, neighbor);
+		return label;
+	}
+
+	/** Joins the first row or plane of a strip to the strip before it. */
+	private void joinBorder(final int s) {
+		final int offset = offsets[s];
+		final int prevOffset = offsets[s - 1];
+		final int start = strips[s].start;
+		final int rows = volume ? height : 1;
+		final int neighborStep = volume ? planeSize : width;
+		final int base = volume ? start * planeSize : start * width;
+		for (int y = 0; y < rows; y++) {
+			for (int x = 0; x < width; x++) {
+				final int p = base + y * width + x;
+				final int l = labels[p];
+				if (l == 0) continue;
+				final int q = p - neighborStep;
+				if (!diagonal) {
+					union(offset + l, prevOffset, labels[q]);
+					continue;
+				}
+				final int dy0 = volume && y > 0 ? -1 : 0;
+				final int dy1 = volume && y < height - 1 ? 1 : 0;
+				for (int dy = dy0; dy <= dy1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if (x + dx < 0 || x + dx >= width) continue;
+						union(offset + l, prevOffset, labels[q + dy * width + dx]);
+					}
+				}
+			}
+		}
+	}
+
+	/** Joins a global label with a neighbor's label of the previous strip. */
+	private void union(final int label, final int prevOffset,
+		final int neighbor)
+	{
+		if (neighbor == 0) return;
+		final int a = find(label);
+		final int b = find(prevOffset + neighbor);
+		// NB: the smaller label stays the root, so roots are first in raster order
+		if (a < b) parent[b] = a;
+		else if (b < a) parent[a] = b;
+	}
+
+	private int find(int label) {
+		while (parent[label] != label) {
+			parent[label] = parent[parent[label]];
+			label = parent[label];
+		}
+		return label;
+	}
+
+	private void relabel(final int s, final int[] finalLabels) {
+		final int unit = volume ? planeSize : width;
+		final int end = strips[s].end * unit;
+		final int offset = offsets[s];
+		for (int p = strips[s].start * unit; p < end; p++) {
+			final int l = labels[p];
+			if (l != 0) labels[p] = finalLabels[offset + l];
+		}
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * The provisional labels of a strip, with their union-find forest and their
+	 * measurements.
+	 */
+	private static final class Strip {
+
+		private static final int BOX = 6, ACC = 7;
+
+		public final int start;
+		public final int end;
+		public int count;
+		public int[] parent = new int[64];
+		public long[] area = new long[64];
+		/** minX, minY, minZ, maxX, maxY, maxZ per label */
+		public int[] box = new int[64 * BOX];
+		/** sumX, sumY, sumZ, sum, sum of squares, min, max per label */
+		public double[] acc = new double[64 * ACC];
+
+		public Strip(final int start, final int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		public int newLabel(final int x, final int y, final int z) {
+			final int l = ++count;
+			ensureCapacity(l);
+			parent[l] = l;
+			reset(l);
+			final int b = l * BOX;
+			box[b] = box[b + 3] = x;
+			box[b + 1] = box[b + 4] = y;
+			box[b + 2] = box[b + 5] = z;
+			return l;
+		}
+
+		public void reset(final int l) {
+			area[l] = 0;
+			final int b = l * BOX;
+			box[b] = box[b + 1] = box[b + 2] = Integer.MAX_VALUE;
+			box[b + 3] = box[b + 4] = box[b + 5] = Integer.MIN_VALUE;
+			final int a = l * ACC;
+			Arrays.fill(acc, a, a + 5, 0);
+			acc[a + 5] = Double.POSITIVE_INFINITY;
+			acc[a + 6] = Double.NEGATIVE_INFINITY;
+		}
+
+		public void ensureCapacity(final int l) {
+			if (l < parent.length) return;
+			final int size = Math.max(l + 1, parent.length * 2);
+			parent = Arrays.copyOf(parent, size);
+			area = Arrays.copyOf(area, size);
+			box = Arrays.copyOf(box, size * BOX);
+			acc = Arrays.copyOf(acc, size * ACC);
+		}
+
+		/** Adds the pixels x0 to x1 (inclusive) of a row to label l. */
+		public void addRun(final int l, final int x0, final int x1, final int y,
+			final int z, final double sum, final double sumSquared,
+			final double min, final double max)
+		{
+			final int n = x1 - x0 + 1;
+			area[l] += n;
+			final int b = l * BOX;
+			if (x0 < box[b]) box[b] = x0;
+			if (x1 > box[b + 3]) box[b + 3] = x1;
+			if (y < box[b + 1]) box[b + 1] = y;
+			if (y > box[b + 4]) box[b + 4] = y;
+			if (z > box[b + 5]) box[b + 5] = z;
+			final int a = l * ACC;
+			acc[a] += (x0 + x1) * (double) n / 2;
+			acc[a + 1] += (double) y * n;
+			acc[a + 2] += (double) z * n;
+			acc[a + 3] += sum;
+			acc[a + 4] += sumSquared;
+			if (min < acc[a + 5]) acc[a + 5] = min;
+			if (max > acc[a + 6]) acc[a + 6] = max;
+		}
+
+		/** Adds the measurements of a label of another strip to label l. */
+		public void merge(final int l, final Strip other, final int o) {
+			area[l] += other.area[o];
+			final int b = l * BOX, ob = o * BOX;
+			for (int i = 0; i < 3; i++) {
+				box[b + i] = Math.min(box[b + i], other.box[ob + i]);
+				box[b + 3 + i] = Math.max(box[b + 3 + i], other.box[ob + 3 + i]);
+			}
+			final int a = l * ACC, oa = o * ACC;
+			for (int i = 0; i < 5; i++) {
+				acc[a + i] += other.acc[oa + i];
+			}
+			acc[a + 5] = Math.min(acc[a + 5], other.acc[oa + 5]);
+			acc[a + 6] = Math.max(acc[a + 6], other.acc[oa + 6]);
+		}
+
+		public int find(int l) {
+			while (parent[l] != l) {
+				parent[l] = parent[parent[l]];
+				l = parent[l];
+			}
+			return l;
+		}
+
+		public void union(final int a, final int b) {
+			final int ra = find(a);
+			final int rb = find(b);
+			if (ra < rb) parent[rb] = ra;
+			else if (rb < ra) parent[ra] = rb;
+		}
+
+		public Particle toParticle(final int l, final boolean volume) {
+			final int n = volume ? 3 : 2;
+			final long[] min = new long[n];
+			final long[] max = new long[n];
+			final double[] centroid = new double[n];
+			for (int d = 0; d < n; d++) {
+				min[d] = box[l * BOX + d];
+				max[d] = box[l * BOX + 3 + d];
+				centroid[d] = acc[l * ACC + d] / area[l];
+			}
+			final int a = l * ACC;
+			return new Particle(l, area[l], min, max, centroid, acc[a + 5],
+				acc[a + 6], acc[a + 3], acc[a + 4]);
+		}
+
+	}
+
+}
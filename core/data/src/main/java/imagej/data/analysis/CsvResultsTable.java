@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import net.imglib2.meta.AxisType;
+
+/**
+ * A {@link ResultsTable} writing its rows as comma-separated values as soon as
+ * they are added. Plane positions are written 1-based, as ImageJ shows them.
+ */
+public class CsvResultsTable implements ResultsTable, Closeable {
+
+	private final Writer out;
+
+	public CsvResultsTable(final Writer out) {
+		this.out = out;
+	}
+
+	// -- ResultsTable methods --
+
+	@Override
+	public void begin(final AxisType[] planeAxes) throws IOException {
+		out.write("ROI,Name");
+		for (final AxisType axis : planeAxes) {
+			out.write(',');
+			out.write(quote(axis.getLabel()));
+		}
+		out.write(",Area,Mean,StdDev,Min,Max,IntDen,X,Y\n");
+	}
+
+	@Override
+	public void addRow(final Measurement m) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(m.getIndex());
+		sb.append(',');
+		final String name = m.getOverlay().getName();
+		if (name != null) sb.append(quote(name));
+		for (int d = 0; d < m.getPlaneDimensions(); d++) {
+			sb.append(',');
+			sb.append(m.getPlanePosition(d) + 1);
+		}
+		sb.append(',').append(m.getArea());
+		sb.append(',').append(m.getMean());
+		sb.append(',').append(m.getStdDev());
+		sb.append(',').append(m.getMinValue());
+		sb.append(',').append(m.getMaxValue());
+		sb.append(',').append(m.getIntegratedDensity());
+		sb.append(',').append(m.getCentroidX());
+		sb.append(',').append(m.getCentroidY());
+		sb.append('\n');
+		out.write(sb.toString());
+	}
+
+	// -- Closeable methods --
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	// -- Helper methods --
+
+	private static String quote(final String s) {
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+			return s;
+		}
+		return "\"" + s.replace("\"", "\"\"") + "\"";
+	}
+
+}
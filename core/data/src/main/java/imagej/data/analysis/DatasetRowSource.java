@@ -0,0 +1,222 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import imagej.data.Dataset;
+import imagej.data.UpdateRegion;
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Reads the rows of the XY planes of a {@link Dataset} for the
+ * {@link ComponentLabeler}. Rows are copied straight out of the plane arrays
+ * when the Dataset has them, and read through a {@link RandomAccess}
+ * otherwise.
+ */
+final class DatasetRowSource implements ComponentLabeler.RowSource {
+
+	private final Dataset dataset;
+	private final long[] position;
+	private final int zAxis;
+	private final int[] planeNos;
+	private final int arrayType;
+
+	private static final int NONE = 0;
+	private static final int BYTE = 1;
+	private static final int UBYTE = 2;
+	private static final int SHORT = 3;
+	private static final int USHORT = 4;
+	private static final int INT = 5;
+	private static final int UINT = 6;
+	private static final int LONG = 7;
+	private static final int FLOAT = 8;
+	private static final int DOUBLE = 9;
+
+	/**
+	 * Creates a source for the given Dataset.
+	 * 
+	 * @param dataset the Dataset to read; X and Y must be its first two axes
+	 * @param position the position of the first plane; X and Y entries are
+	 *          ignored, and so is the Z entry when zAxis is not -1
+	 * @param zAxis the axis whose planes are read, or -1 to read one plane
+	 */
+	public DatasetRowSource(final Dataset dataset, final long[] position,
+		final int zAxis)
+	{
+		this.dataset = dataset;
+		this.position = position.clone();
+		this.zAxis = zAxis;
+		final long[] dims = dataset.getDims();
+		final int depth = zAxis == -1 ? 1 : (int) dims[zAxis];
+		planeNos = new int[depth];
+		final long[] pos = position.clone();
+		for (int z = 0; z < depth; z++) {
+			if (zAxis != -1) pos[zAxis] = z;
+			planeNos[z] = UpdateRegion.planeNumber(dims, pos);
+		}
+		arrayType =
+			arrayType(dataset.getPlaneForReading(planeNos[0], false), dataset);
+	}
+
+	// -- RowSource methods --
+
+	@Override
+	public ComponentLabeler.RowReader createReader() {
+		if (arrayType == NONE) return new AccessReader();
+		return new ArrayReader();
+	}
+
+	// -- Helper methods --
+
+	private static int arrayType(final Object plane, final Dataset dataset) {
+		final Class<?> c = dataset.getType().getClass();
+		if (plane instanceof byte[]) {
+			if (c == UnsignedByteType.class) return UBYTE;
+			if (c == ByteType.class) return BYTE;
+		}
+		else if (plane instanceof short[]) {
+			if (c == UnsignedShortType.class) return USHORT;
+			if (c == ShortType.class) return SHORT;
+		}
+		else if (plane instanceof int[]) {
+			if (c == UnsignedIntType.class) return UINT;
+			if (c == IntType.class) return INT;
+		}
+		else if (plane instanceof long[] && c == LongType.class) return LONG;
+		else if (plane instanceof float[] && c == FloatType.class) return FLOAT;
+		else if (plane instanceof double[] && c == DoubleType.class) {
+			return DOUBLE;
+		}
+		return NONE;
+	}
+
+	// -- Helper classes --
+
+	/** Copies rows out of the plane arrays, keeping the last plane read. */
+	private class ArrayReader implements ComponentLabeler.RowReader {
+
+		private int z = -1;
+		private Object plane;
+
+		@Override
+		public void read(final int y, final int z, final double[] row) {
+			if (z != this.z) {
+				// NB: planes may be swapped out, so hold on to one plane at a time
+				plane = dataset.getPlaneForReading(planeNos[z], false);
+				this.z = z;
+			}
+			final int w = row.length;
+			final int off = y * w;
+			switch (arrayType) {
+				case BYTE: {
+					final byte[] a = (byte[]) plane;
+					for (int x = 0; x < w; x++) row[x] = a[off + x];
+					break;
+				}
+				case UBYTE: {
+					final byte[] a = (byte[]) plane;
+					for (int x = 0; x < w; x++) row[x] = a[off + x] & 0xff;
+					break;
+				}
+				case SHORT: {
+					final short[] a = (short[]) plane;
+					for (int x = 0; x < w; x++) row[x] = a[off + x];
+					break;
+				}
+				case USHORT: {
+					final short[] a = (short[]) plane;
+					for (int x = 0; x < w; x++) row[x] = a[off + x] & 0xffff;
+					break;
+				}
+				case INT: {
+					final int[] a = (int[]) plane;
+					for (int x = 0; x < w; x++) row[x] = a[off + x];
+					break;
+				}
+				case UINT: {
+					final int[] a = (int[]) plane;
+					for (int x = 0; x < w; x++) row[x] = a[off + x] & 0xffffffffL;
+					break;
+				}
+				case LONG: {
+					final long[] a = (long[]) plane;
+					for (int x = 0; x < w; x++) row[x] = a[off + x];
+					break;
+				}
+				case FLOAT: {
+					final float[] a = (float[]) plane;
+					for (int x = 0; x < w; x++) row[x] = a[off + x];
+					break;
+				}
+				default: {
+					System.arraycopy(plane, off, row, 0, w);
+				}
+			}
+		}
+
+	}
+
+	/** Reads rows through a RandomAccess of its own. */
+	private class AccessReader implements ComponentLabeler.RowReader {
+
+		private final RandomAccess<? extends RealType<?>> access =
+			dataset.getImgPlus().randomAccess();
+		private final long[] pos = position.clone();
+
+		@Override
+		public void read(final int y, final int z, final double[] row) {
+			pos[0] = 0;
+			pos[1] = y;
+			if (zAxis != -1) pos[zAxis] = z;
+			access.setPosition(pos);
+			for (int x = 0; x < row.length; x++) {
+				row[x] = access.get().getRealDouble();
+				access.fwd(0);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import imagej.data.overlay.Overlay;
+
+/**
+ * The measurements of one {@link Overlay} on one plane, as made by the
+ * {@link MeasurementService}. Coordinates are in pixels; the area is
+ * calibrated.
+ */
+public class Measurement {
+
+	private final int index;
+	private final Overlay overlay;
+	private final long[] planePosition;
+	private final long pixelCount;
+	private final double area;
+	private final double minValue;
+	private final double maxValue;
+	private final double sum;
+	private final double sumSquared;
+	private final double centroidX;
+	private final double centroidY;
+
+	public Measurement(final int index, final Overlay overlay,
+		final long[] planePosition, final long pixelCount, final double area,
+		final double minValue, final double maxValue, final double sum,
+		final double sumSquared, final double centroidX, final double centroidY)
+	{
+		this.index = index;
+		this.overlay = overlay;
+		this.planePosition = planePosition;
+		this.pixelCount = pixelCount;
+		this.area = area;
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		this.sum = sum;
+		this.sumSquared = sumSquared;
+		this.centroidX = centroidX;
+		this.centroidY = centroidY;
+	}
+
+	// -- Measurement methods --
+
+	/** Gets the 1-based index of the overlay among those measured. */
+	public int getIndex() {
+		return index;
+	}
+
+	public Overlay getOverlay() {
+		return overlay;
+	}
+
+	/** Gets the position of the plane along the axes beyond X and Y. */
+	public long getPlanePosition(final int d) {
+		return planePosition[d];
+	}
+
+	public int getPlaneDimensions() {
+		return planePosition.length;
+	}
+
+	/** Gets the number of pixels measured. */
+	public long getPixelCount() {
+		return pixelCount;
+	}
+
+	/** Gets the area in calibrated units. */
+	public double getArea() {
+		return area;
+	}
+
+	/** Gets the smallest pixel value, or NaN if no pixel was measured. */
+	public double getMinValue() {
+		return minValue;
+	}
+
+	/** Gets the largest pixel value, or NaN if no pixel was measured. */
+	public double getMaxValue() {
+		return maxValue;
+	}
+
+	/** Gets the mean pixel value, or NaN if no pixel was measured. */
+	public double getMean() {
+		return sum / pixelCount;
+	}
+
+	/** Gets the sample standard deviation, or 0 for fewer than 2 pixels. */
+	public double getStdDev() {
+		if (pixelCount < 2) return 0;
+		final double var =
+			(sumSquared - sum * sum / pixelCount) / (pixelCount - 1);
+		return var > 0 ? Math.sqrt(var) : 0;
+	}
+
+	/** Gets the integrated density: the area times the mean. */
+	public double getIntegratedDensity() {
+		return pixelCount == 0 ? 0 : area * getMean();
+	}
+
+	/** Gets the X coordinate of the centroid, or NaN if there are no pixels. */
+	public double getCentroidX() {
+		return centroidX;
+	}
+
+	/** Gets the Y coordinate of the centroid, or NaN if there are no pixels. */
+	public double getCentroidY() {
+		return centroidY;
+	}
+
+}
@@ -0,0 +1,306 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.overlay.Overlay;
+import imagej.data.overlay.OverlaySpans;
+import imagej.service.AbstractService;
+import imagej.service.Service;
+import imagej.thread.LoopBody;
+import imagej.thread.ThreadService;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.imglib2.meta.AxisType;
+
+/**
+ * Service for measuring a set of {@link Overlay}s on the planes of a
+ * {@link Dataset}: the area, mean, standard deviation, minimum, maximum,
+ * integrated density and centroid of the pixels of each overlay.
+ * <p>
+ * The overlays are rasterized into spans once; each plane is then read in a
+ * single pass over the rows the overlays cover, however many overlays there
+ * are. Planes are measured in parallel on the compute threads, and the rows
+ * are handed to a {@link ResultsTable} in plane order, then overlay order.
+ * </p>
+ */
+@Service
+public final class MeasurementService extends AbstractService {
+
+	/** Number of planes measured per compute thread before rows are written. */
+	private static final int PLANES_PER_THREAD = 4;
+
+	private final ThreadService threadService;
+
+	// -- Constructors --
+
+	public MeasurementService() {
+		// NB: Required by SezPoz.
+		super(null);
+		throw new UnsupportedOperationException();
+	}
+
+	public MeasurementService(final ImageJ context,
+		final ThreadService threadService)
+	{
+		super(context);
+		this.threadService = threadService;
+	}
+
+	// -- MeasurementService methods --
+
+	public ThreadService getThreadService() {
+		return threadService;
+	}
+
+	/** Measures the given overlays on every plane of the given dataset. */
+	public void measure(final Dataset dataset, final List<Overlay> overlays,
+		final ResultsTable table) throws IOException
+	{
+		final long[] dims = dataset.getDims();
+		long planeCount = 1;
+		for (int d = 2; d < dims.length; d++) {
+			planeCount *= dims[d];
+		}
+		measure(dataset, overlays, 0, planeCount, table);
+	}
+
+	/**
+	 * Measures the given overlays on one plane of the given dataset.
+	 * 
+	 * @param planePosition the position of the plane along the axes beyond X
+	 *          and Y
+	 */
+	public void measure(final Dataset dataset, final List<Overlay> overlays,
+		final long[] planePosition, final ResultsTable table) throws IOException
+	{
+		final long[] dims = dataset.getDims();
+		long plane = 0;
+		long stride = 1;
+		for (int d = 2; d < dims.length; d++) {
+			plane += planePosition[d - 2] * stride;
+			stride *= dims[d];
+		}
+		measure(dataset, overlays, plane, plane + 1, table);
+	}
+
+	// -- Helper methods --
+
+	private void measure(final Dataset dataset, final List<Overlay> overlays,
+		final long firstPlane, final long endPlane, final ResultsTable table)
+		throws IOException
+	{
+		final long[] dims = dataset.getDims();
+		final AxisType[] planeAxes = new AxisType[dims.length - 2];
+		for (int d = 0; d < planeAxes.length; d++) {
+			planeAxes[d] = dataset.axis(d + 2);
+		}
+		table.begin(planeAxes);
+
+		final PlaneMeasurer measurer = new PlaneMeasurer(dataset, overlays);
+		final int threads = threadService.getComputeThreads();
+		final int batchSize = threads > 1 ? threads * PLANES_PER_THREAD : 1;
+		for (long b = firstPlane; b < endPlane; b += batchSize) {
+			final long batchStart = b;
+			final int count = (int) Math.min(batchSize, endPlane - b);
+			final Measurement[][] rows = new Measurement[count][];
+			final LoopBody body = new LoopBody() {
+
+				@Override
+				public void run(final long start, final long end) {
+					for (long i = start; i < end; i++) {
+						rows[(int) i] = measurer.measure(batchStart + i);
+					}
+				}
+			};
+			if (count == 1) body.run(0, 1);
+			else threadService.parallelFor(0, count, body);
+			for (final Measurement[] planeRows : rows) {
+				for (final Measurement row : planeRows) {
+					table.addRow(row);
+				}
+			}
+		}
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Measures the overlays on one plane at a time; may be used by several
+	 * threads at once.
+	 */
+	private static class PlaneMeasurer {
+
+		private final Dataset dataset;
+		private final List<Overlay> overlays;
+		private final long[] dims;
+		private final int width;
+		private final double pixelArea;
+
+		/** Index of the first segment of each image row, and one past the end. */
+		private final int[] rowStarts;
+		/** Overlay index of each segment. */
+		private final int[] segmentRois;
+		/** First X of each segment. */
+		private final int[] segmentMinX;
+		/** Last X of each segment. */
+		private final int[] segmentMaxX;
+
+		public PlaneMeasurer(final Dataset dataset, final List<Overlay> overlays)
+		{
+			this.dataset = dataset;
+			this.overlays = overlays;
+			dims = dataset.getDims();
+			width = (int) dims[0];
+			final int height = (int) dims[1];
+			pixelArea = calibration(dataset, 0) * calibration(dataset, 1);
+
+			final OverlaySpans[] spans = new OverlaySpans[overlays.size()];
+			for (int r = 0; r < spans.length; r++) {
+				spans[r] = overlays.get(r).getSpans();
+			}
+
+			// count the segments of each row, clipped to the image
+			rowStarts = new int[height + 1];
+			for (int y = 0; y < height; y++) {
+				int count = 0;
+				for (final OverlaySpans s : spans) {
+					final int end = s.getRowEnd(y);
+					for (int i = s.getRowStart(y); i < end; i++) {
+						if (s.getSpanMaxX(i) >= 0 && s.getSpanMinX(i) < width) count++;
+					}
+				}
+				rowStarts[y + 1] = rowStarts[y] + count;
+			}
+
+			final int total = rowStarts[height];
+			segmentRois = new int[total];
+			segmentMinX = new int[total];
+			segmentMaxX = new int[total];
+			int seg = 0;
+			for (int y = 0; y < height; y++) {
+				for (int r = 0; r < spans.length; r++) {
+					final OverlaySpans s = spans[r];
+					final int end = s.getRowEnd(y);
+					for (int i = s.getRowStart(y); i < end; i++) {
+						final long minX = s.getSpanMinX(i);
+						final long maxX = s.getSpanMaxX(i);
+						if (maxX < 0 || minX >= width) continue;
+						segmentRois[seg] = r;
+						segmentMinX[seg] = (int) Math.max(minX, 0);
+						segmentMaxX[seg] = (int) Math.min(maxX, width - 1);
+						seg++;
+					}
+				}
+			}
+		}
+
+		/** Measures the overlays on the given plane, in UpdateRegion numbering. */
+		public Measurement[] measure(final long plane) {
+			final long[] position = new long[dims.length];
+			long rem = plane;
+			for (int d = 2; d < dims.length; d++) {
+				position[d] = rem % dims[d];
+				rem /= dims[d];
+			}
+			final ComponentLabeler.RowReader reader =
+				new DatasetRowSource(dataset, position, -1).createReader();
+
+			final int roiCount = overlays.size();
+			final long[] n = new long[roiCount];
+			final double[] sum = new double[roiCount];
+			final double[] sumSq = new double[roiCount];
+			final double[] min = new double[roiCount];
+			final double[] max = new double[roiCount];
+			final double[] sumX = new double[roiCount];
+			final double[] sumY = new double[roiCount];
+			for (int r = 0; r < roiCount; r++) {
+				min[r] = Double.POSITIVE_INFINITY;
+				max[r] = Double.NEGATIVE_INFINITY;
+			}
+
+			final double[] row = new double[width];
+			for (int y = 0; y < rowStarts.length - 1; y++) {
+				final int end = rowStarts[y + 1];
+				if (rowStarts[y] == end) continue;
+				reader.read(y, 0, row);
+				for (int seg = rowStarts[y]; seg < end; seg++) {
+					final int r = segmentRois[seg];
+					final int x0 = segmentMinX[seg];
+					final int x1 = segmentMaxX[seg];
+					double s = 0, ss = 0, lo = min[r], hi = max[r];
+					for (int x = x0; x <= x1; x++) {
+						final double v = row[x];
+						s += v;
+						ss += v * v;
+						if (v < lo) lo = v;
+						if (v > hi) hi = v;
+					}
+					final int len = x1 - x0 + 1;
+					n[r] += len;
+					sum[r] += s;
+					sumSq[r] += ss;
+					min[r] = lo;
+					max[r] = hi;
+					sumX[r] += (x0 + x1) * (double) len / 2;
+					sumY[r] += (double) y * len;
+				}
+			}
+
+			final long[] planePosition = new long[dims.length - 2];
+			System.arraycopy(position, 2, planePosition, 0, planePosition.length);
+			final Measurement[] rows = new Measurement[roiCount];
+			for (int r = 0; r < roiCount; r++) {
+				final boolean empty = n[r] == 0;
+				rows[r] =
+					new Measurement(r + 1, overlays.get(r), planePosition, n[r], n[r] *
+						pixelArea, empty ? Double.NaN : min[r], empty ? Double.NaN
+						: max[r], sum[r], sumSq[r], sumX[r] / n[r], sumY[r] / n[r]);
+			}
+			return rows;
+		}
+
+		private static double calibration(final Dataset dataset, final int d) {
+			final double cal = dataset.calibration(d);
+			return Double.isNaN(cal) || cal == 0 ? 1 : cal;
+		}
+
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Traces the outer boundary of a labeled particle along the pixel edges. The
+ * resulting polygon has its vertices on pixel corners, where the boundary
+ * changes direction.
+ */
+final class OutlineTracer {
+
+	// directions in image coordinates: right, down, left, up
+	private static final int[] DX = { 1, 0, -1, 0 };
+	private static final int[] DY = { 0, 1, 0, -1 };
+
+	private final int[] labels;
+	private final int width;
+	private final int height;
+
+	public OutlineTracer(final int[] labels, final int width, final int height)
+	{
+		this.labels = labels;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Traces the particle with the given label, starting from its first pixel in
+	 * raster order, and returns the vertices as x0, y0, x1, y1, ... The boundary
+	 * is walked clockwise (with Y down), keeping the particle on the right.
+	 * 
+	 * @param diagonal whether pixels touching at a corner are connected
+	 */
+	public int[] trace(final int label, final int x0, final int y0,
+		final boolean diagonal)
+	{
+		int[] vertices = new int[16];
+		int n = 0;
+		vertices[n++] = x0;
+		vertices[n++] = y0;
+		int x = x0, y = y0, d = 0;
+		do {
+			final boolean left, right;
+			switch (d) {
+				case 0:
+					left = inside(label, x, y - 1);
+					right = inside(label, x, y);
+					break;
+				case 1:
+					left = inside(label, x, y);
+					right = inside(label, x - 1, y);
+					break;
+				case 2:
+					left = inside(label, x - 1, y);
+					right = inside(label, x - 1, y - 1);
+					break;
+				default:
+					left = inside(label, x - 1, y - 1);
+					right = inside(label, x, y - 1);
+			}
+			final int turn;
+			if (diagonal) turn = left ? 3 : right ? 0 : 1;
+			else turn = !right ? 1 : left ? 3 : 0;
+			if (turn != 0) {
+				d = (d + turn) % 4;
+				if (n + 2 > vertices.length) {
+					vertices = Arrays.copyOf(vertices, vertices.length * 2);
+				}
+				vertices[n++] = x;
+				vertices[n++] = y;
+			}
+			x += DX[d];
+			y += DY[d];
+		}
+		while (x != x0 || y != y0);
+		return Arrays.copyOf(vertices, n);
+	}
+
+	private boolean inside(final int label, final int x, final int y) {
+		return x >= 0 && y >= 0 && x < width && y < height &&
+			labels[y * width + x] == label;
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import imagej.data.overlay.BinaryMaskOverlay;
+import imagej.data.overlay.PolygonOverlay;
+
+/**
+ * The measurements of one particle found by the
+ * {@link ParticleAnalysisService}. Coordinates are in pixels along X, Y and,
+ * for volumes, Z.
+ */
+public class Particle {
+
+	private final int label;
+	private final long area;
+	private final long[] min;
+	private final long[] max;
+	private final double[] centroid;
+	private final double minValue;
+	private final double maxValue;
+	private final double sum;
+	private final double sumSquared;
+	private BinaryMaskOverlay mask;
+	private PolygonOverlay outline;
+
+	public Particle(final int label, final long area, final long[] min,
+		final long[] max, final double[] centroid, final double minValue,
+		final double maxValue, final double sum, final double sumSquared)
+	{
+		this.label = label;
+		this.area = area;
+		this.min = min;
+		this.max = max;
+		this.centroid = centroid;
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		this.sum = sum;
+		this.sumSquared = sumSquared;
+	}
+
+	// -- Particle methods --
+
+	/** Gets the label of the particle's pixels in the label image. */
+	public int getLabel() {
+		return label;
+	}
+
+	/** Gets the number of pixels (or voxels) of the particle. */
+	public long getArea() {
+		return area;
+	}
+
+	public int numDimensions() {
+		return min.length;
+	}
+
+	/** Gets the lowest coordinate of the bounding box along a dimension. */
+	public long min(final int d) {
+		return min[d];
+	}
+
+	/** Gets the highest coordinate of the bounding box (inclusive). */
+	public long max(final int d) {
+		return max[d];
+	}
+
+	/** Gets the mean coordinate of the particle's pixels along a dimension. */
+	public double getCentroid(final int d) {
+		return centroid[d];
+	}
+
+	public double getMinValue() {
+		return minValue;
+	}
+
+	public double getMaxValue() {
+		return maxValue;
+	}
+
+	public double getMean() {
+		return sum / area;
+	}
+
+	/** Gets the sample standard deviation of the particle's values. */
+	public double getStdDev() {
+		if (area < 2) return 0;
+		final double variance = (sumSquared - sum * sum / area) / (area - 1);
+		return variance > 0 ? Math.sqrt(variance) : 0;
+	}
+
+	/** Gets the sum of the particle's values. */
+	public double getIntegratedDensity() {
+		return sum;
+	}
+
+	/** Gets the mask of the particle, if masks were requested. */
+	public BinaryMaskOverlay getMask() {
+		return mask;
+	}
+
+	public void setMask(final BinaryMaskOverlay mask) {
+		this.mask = mask;
+	}
+
+	/** Gets the outer boundary of the particle, if outlines were requested. */
+	public PolygonOverlay getOutline() {
+		return outline;
+	}
+
+	public void setOutline(final PolygonOverlay outline) {
+		this.outline = outline;
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a particle analysis: the particles found and the label image,
+ * in which the pixels of the n-th particle have label n and the other pixels
+ * 0.
+ */
+public class ParticleAnalysis {
+
+	private final List<Particle> particles;
+	private final int[] labels;
+	private final int width;
+	private final int height;
+	private final int depth;
+
+	public ParticleAnalysis(final List<Particle> particles, final int[] labels,
+		final int width, final int height, final int depth)
+	{
+		this.particles = Collections.unmodifiableList(particles);
+		this.labels = labels;
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+	}
+
+	// -- ParticleAnalysis methods --
+
+	/** Gets the particles, in the raster order of their first pixel. */
+	public List<Particle> getParticles() {
+		return particles;
+	}
+
+	public int getParticleCount() {
+		return particles.size();
+	}
+
+	/** Gets the particle with the given label (1 based). */
+	public Particle getParticle(final int label) {
+		return particles.get(label - 1);
+	}
+
+	/**
+	 * Gets the label image, indexed by x + width * (y + height * z). The array
+	 * is not copied.
+	 */
+	public int[] getLabels() {
+		return labels;
+	}
+
+	public int getLabel(final int x, final int y, final int z) {
+		return labels[x + width * (y + height * z)];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/** Gets the number of planes analyzed: 1 unless particles are volumes. */
+	public int getDepth() {
+		return depth;
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.overlay.BinaryMaskOverlay;
+import imagej.data.overlay.PolygonOverlay;
+import imagej.service.AbstractService;
+import imagej.service.Service;
+import imagej.thread.ThreadService;
+
+import java.util.List;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RealPoint;
+import net.imglib2.img.Img;
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.basictypeaccess.BitAccess;
+import net.imglib2.img.transform.ImgTranslationAdapter;
+import net.imglib2.meta.Axes;
+import net.imglib2.roi.BinaryMaskRegionOfInterest;
+import net.imglib2.type.logic.BitType;
+
+/**
+ * Service for finding the particles of a {@link Dataset}: the connected
+ * components of the pixels within a threshold range. A single pass labels the
+ * particles and measures their area, bounding box, centroid and intensity;
+ * binary masks and outlines are made on request (see {@link ParticleSettings}).
+ * <p>
+ * Particles are found in one XY plane, or across the planes along Z for the
+ * volume connectivities. Labeling runs in parallel on the compute threads.
+ * </p>
+ */
+@Service
+public final class ParticleAnalysisService extends AbstractService {
+
+	/** Number of strips labeled per compute thread, to even out the load. */
+	private static final int STRIPS_PER_THREAD = 4;
+
+	private final ThreadService threadService;
+
+	// -- Constructors --
+
+	public ParticleAnalysisService() {
+		// NB: Required by SezPoz.
+		super(null);
+		throw new UnsupportedOperationException();
+	}
+
+	public ParticleAnalysisService(final ImageJ context,
+		final ThreadService threadService)
+	{
+		super(context);
+		this.threadService = threadService;
+	}
+
+	// -- ParticleAnalysisService methods --
+
+	public ThreadService getThreadService() {
+		return threadService;
+	}
+
+	/**
+	 * Finds the 8-connected particles of the pixels in [min, max] on the first
+	 * plane of the given dataset.
+	 */
+	public ParticleAnalysis analyze(final Dataset dataset, final double min,
+		final double max)
+	{
+		final ParticleSettings settings = new ParticleSettings();
+		settings.setThreshold(min, max);
+		return analyze(dataset, settings);
+	}
+
+	/** Finds the particles of the given dataset. */
+	public ParticleAnalysis
+		analyze(final Dataset dataset, final ParticleSettings settings)
+	{
+		final long[] dims = dataset.getDims();
+		final long[] position =
+			settings.getPosition() == null ? new long[dims.length] : settings
+				.getPosition();
+		int zAxis = -1;
+		if (settings.getConnectivity().isVolume()) {
+			zAxis = dataset.getAxisIndex(Axes.Z);
+			if (zAxis < 2) zAxis = -1;
+		}
+		final long depth = zAxis == -1 ? 1 : dims[zAxis];
+
+		final ComponentLabeler labeler =
+			new ComponentLabeler(settings, dims[0], dims[1], depth);
+		final int threads = threadService.getComputeThreads();
+		final int stripCount = threads > 1 ? threads * STRIPS_PER_THREAD : 1;
+		final ParticleAnalysis analysis =
+			labeler.label(new DatasetRowSource(dataset, position, zAxis),
+				threadService, stripCount);
+
+		if (settings.isCreateMasks()) createMasks(dataset, zAxis, analysis);
+		if (settings.isCreateOutlines() && depth == 1) {
+			createOutlines(settings, analysis);
+		}
+		return analysis;
+	}
+
+	// -- Helper methods --
+
+	private void createMasks(final Dataset dataset, final int zAxis,
+		final ParticleAnalysis analysis)
+	{
+		final List<Particle> particles = analysis.getParticles();
+		if (particles.isEmpty()) return;
+		final int n = zAxis == -1 ? 2 : 3;
+		final int[] labels = analysis.getLabels();
+		final int[] first = new int[particles.size() + 1];
+		@SuppressWarnings("unchecked")
+		final RandomAccess<BitType>[] access = new RandomAccess[first.length];
+		for (final Particle particle : particles) {
+			final long[] min = new long[n];
+			final long[] size = new long[n];
+			for (int d = 0; d < n; d++) {
+				min[d] = particle.min(d);
+				size[d] = particle.max(d) - min[d] + 1;
+			}
+			final NativeImg<BitType, BitAccess> nativeMask =
+				new ArrayImgFactory<BitType>().createBitInstance(size, 1);
+			final BitType t = new BitType(nativeMask);
+			nativeMask.setLinkedType(t);
+			final Img<BitType> mask =
+				new ImgTranslationAdapter<BitType, NativeImg<BitType, BitAccess>>(
+					nativeMask, min);
+			access[particle.getLabel()] = mask.randomAccess();
+			final BinaryMaskOverlay overlay =
+				new BinaryMaskOverlay(getContext(),
+					new BinaryMaskRegionOfInterest<BitType, Img<BitType>>(mask));
+			overlay.setAxis(dataset.axis(0), 0);
+			overlay.setAxis(dataset.axis(1), 1);
+			if (zAxis != -1) overlay.setAxis(dataset.axis(zAxis), 2);
+			particle.setMask(overlay);
+		}
+		final int width = analysis.getWidth();
+		final int height = analysis.getHeight();
+		final long[] pos = new long[n];
+		int i = 0;
+		for (int z = 0; z < analysis.getDepth(); z++) {
+			if (n == 3) pos[2] = z;
+			for (int y = 0; y < height; y++) {
+				pos[1] = y;
+				for (int x = 0; x < width; x++, i++) {
+					final int label = labels[i];
+					if (label == 0) continue;
+					pos[0] = x;
+					access[label].setPosition(pos);
+					access[label].get().set(true);
+				}
+			}
+		}
+	}
+
+	private void createOutlines(final ParticleSettings settings,
+		final ParticleAnalysis analysis)
+	{
+		final boolean diagonal = settings.getConnectivity().isDiagonal();
+		final int[] labels = analysis.getLabels();
+		final int width = analysis.getWidth();
+		final OutlineTracer tracer =
+			new OutlineTracer(labels, width, analysis.getHeight());
+		for (final Particle particle : analysis.getParticles()) {
+			// the first pixel in raster order lies on the top row of the box
+			final int y0 = (int) particle.min(1);
+			int x0 = (int) particle.min(0);
+			while (labels[y0 * width + x0] != particle.getLabel()) x0++;
+			final int[] vertices =
+				tracer.trace(particle.getLabel(), x0, y0, diagonal);
+			final PolygonOverlay outline = new PolygonOverlay(getContext());
+			for (int v = 0; v < vertices.length / 2; v++) {
+				final double[] vertex = { vertices[2 * v], vertices[2 * v + 1] };
+				outline.getRegionOfInterest().addVertex(v, new RealPoint(vertex));
+			}
+			particle.setOutline(outline);
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+/**
+ * The settings of a particle analysis: which pixels are foreground, how they
+ * connect, which particles are kept and which overlays are made for them.
+ * 
+ * @see ParticleAnalysisService
+ */
+public class ParticleSettings {
+
+	// -- instance variables --
+
+	private double minThreshold = 1;
+	private double maxThreshold = Double.POSITIVE_INFINITY;
+	private Connectivity connectivity = Connectivity.EIGHT;
+	private long[] position;
+	private long minArea = 1;
+	private long maxArea = Long.MAX_VALUE;
+	private boolean createMasks;
+	private boolean createOutlines;
+
+	// -- accessors --
+
+	/** Gets the lowest value of a foreground pixel. Defaults to 1. */
+	public double getMinThreshold() {
+		return minThreshold;
+	}
+
+	public void setMinThreshold(final double min) {
+		minThreshold = min;
+	}
+
+	/** Gets the highest value of a foreground pixel. Defaults to infinity. */
+	public double getMaxThreshold() {
+		return maxThreshold;
+	}
+
+	public void setMaxThreshold(final double max) {
+		maxThreshold = max;
+	}
+
+	/** Sets the range of foreground values (inclusive). */
+	public void setThreshold(final double min, final double max) {
+		minThreshold = min;
+		maxThreshold = max;
+	}
+
+	public Connectivity getConnectivity() {
+		return connectivity;
+	}
+
+	public void setConnectivity(final Connectivity connectivity) {
+		this.connectivity = connectivity;
+	}
+
+	/**
+	 * Gets the position of the analyzed plane (or volume) along the axes other
+	 * than X and Y (and Z for volumes). Null means the first one.
+	 */
+	public long[] getPosition() {
+		return position;
+	}
+
+	public void setPosition(final long[] position) {
+		this.position = position;
+	}
+
+	/** Gets the smallest number of pixels of a reported particle. */
+	public long getMinArea() {
+		return minArea;
+	}
+
+	public void setMinArea(final long area) {
+		minArea = area;
+	}
+
+	/** Gets the largest number of pixels of a reported particle. */
+	public long getMaxArea() {
+		return maxArea;
+	}
+
+	public void setMaxArea(final long area) {
+		maxArea = area;
+	}
+
+	/** Gets whether a BinaryMaskOverlay is made for each particle. */
+	public boolean isCreateMasks() {
+		return createMasks;
+	}
+
+	public void setCreateMasks(final boolean createMasks) {
+		this.createMasks = createMasks;
+	}
+
+	/**
+	 * Gets whether a PolygonOverlay tracing the outer boundary is made for each
+	 * particle. Only done for particles within a plane.
+	 */
+	public boolean isCreateOutlines() {
+		return createOutlines;
+	}
+
+	public void setCreateOutlines(final boolean createOutlines) {
+		this.createOutlines = createOutlines;
+	}
+
+}
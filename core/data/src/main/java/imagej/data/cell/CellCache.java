@@ -0,0 +1,262 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.cell;
+
+import imagej.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded cache of the cells of disk-backed images, which spills the least
+ * recently used cells to a scratch file.
+ * <p>
+ * Cells are evicted as described by {@link PageCache}: modified ones are
+ * written to the scratch file before being released. Each cell keeps its slot
+ * of the scratch file for as long as it lives; the slots of cells which were
+ * garbage collected, along with their images, are reused by other cells.
+ * </p>
+ * <p>
+ * The scratch file is created on the first spill, in the configured
+ * directory, and deleted when the cache is disposed or the JVM exits.
+ * </p>
+ * 
+ * @see DiskCellImgFactory
+ */
+public class CellCache extends PageCache {
+
+	/** Default capacity: 256 MB. */
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	/** Slots of collected cells, to be returned to the free lists. */
+	private final ReferenceQueue<Slot> droppedSlots = new ReferenceQueue<Slot>();
+
+	/** References to the slots in use, which must outlive their slots. */
+	private final Set<SlotReference> slotReferences =
+		new HashSet<SlotReference>();
+
+	/** Offsets of the free slots, by slot size. */
+	private final Map<Integer, ArrayDeque<Long>> freeSlots =
+		new HashMap<Integer, ArrayDeque<Long>>();
+
+	private File directory;
+
+	private File scratchFile;
+	private RandomAccessFile scratch;
+	private FileChannel channel;
+	private long scratchLength;
+
+	private long spillCount;
+
+	public CellCache() {
+		this(DEFAULT_MAX_BYTES, null);
+	}
+
+	/**
+	 * Creates a cache.
+	 * 
+	 * @param maxBytes Capacity of the cache, in bytes.
+	 * @param directory Directory of the scratch file, or null for the system's
+	 *          temporary directory.
+	 */
+	public CellCache(final long maxBytes, final File directory) {
+		super(maxBytes, null);
+		setDirectory(directory);
+	}
+
+	// -- CellCache methods --
+
+	/** Gets the directory of the scratch file, or null for the default. */
+	public synchronized File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Sets the directory of the scratch file, or null for the system's temporary
+	 * directory. Has no effect once the scratch file exists.
+	 */
+	public synchronized void setDirectory(final File directory) {
+		this.directory = directory;
+	}
+
+	/** Gets the scratch file, or null if no cell has been spilled yet. */
+	public synchronized File getScratchFile() {
+		return scratchFile;
+	}
+
+	/** Gets the number of cells written to the scratch file so far. */
+	public synchronized long getSpillCount() {
+		return spillCount;
+	}
+
+	/** Closes and deletes the scratch file. Cells must not be used afterwards. */
+	public synchronized void dispose() {
+		clear();
+		slotReferences.clear();
+		freeSlots.clear();
+		scratchLength = 0;
+		if (scratch == null) return;
+		try {
+			scratch.close();
+		}
+		catch (final IOException e) {
+			Log.warn("Cannot close scratch file: " + scratchFile, e);
+		}
+		if (!scratchFile.delete()) scratchFile.deleteOnExit();
+		scratch = null;
+		channel = null;
+		scratchFile = null;
+	}
+
+	// -- PageCache methods --
+
+	@Override
+	protected Object save(final Object saved, final ByteBuffer buf) {
+		final Slot slot = saved == null ? allocate(buf.capacity()) : (Slot) saved;
+		try {
+			final FileChannel ch = getChannel();
+			long pos = slot.offset;
+			while (buf.hasRemaining()) {
+				pos += ch.write(buf, pos);
+			}
+		}
+		catch (final IOException e) {
+			throw new IllegalStateException("Cannot write scratch file", e);
+		}
+		synchronized (this) {
+			spillCount++;
+		}
+		return slot;
+	}
+
+	@Override
+	protected void restore(final Object saved, final ByteBuffer buf) {
+		try {
+			final FileChannel ch = getChannel();
+			long pos = ((Slot) saved).offset;
+			while (buf.hasRemaining()) {
+				final int n = ch.read(buf, pos);
+				if (n < 0) throw new IOException("Unexpected end of scratch file");
+				pos += n;
+			}
+		}
+		catch (final IOException e) {
+			throw new IllegalStateException("Cannot read scratch file", e);
+		}
+		buf.rewind();
+	}
+
+	// -- Helper methods --
+
+	/** Reserves a slot of the given size in the scratch file. */
+	private synchronized Slot allocate(final int bytes) {
+		reclaimSlots();
+		final ArrayDeque<Long> free = freeSlots.get(bytes);
+		final long offset;
+		if (free != null && !free.isEmpty()) offset = free.removeLast();
+		else {
+			offset = scratchLength;
+			scratchLength += bytes;
+		}
+		final Slot slot = new Slot(offset);
+		slotReferences.add(new SlotReference(slot, bytes, droppedSlots));
+		return slot;
+	}
+
+	/** Adds the slots of collected cells to the free lists. */
+	private void reclaimSlots() {
+		while (true) {
+			final SlotReference ref = (SlotReference) droppedSlots.poll();
+			if (ref == null) return;
+			if (!slotReferences.remove(ref)) continue;
+			ArrayDeque<Long> free = freeSlots.get(ref.bytes);
+			if (free == null) {
+				free = new ArrayDeque<Long>();
+				freeSlots.put(ref.bytes, free);
+			}
+			free.addLast(ref.offset);
+		}
+	}
+
+	private synchronized FileChannel getChannel() throws IOException {
+		if (channel == null) {
+			scratchFile = File.createTempFile("imagej-cells", ".scratch", directory);
+			scratchFile.deleteOnExit();
+			scratch = new RandomAccessFile(scratchFile, "rw");
+			channel = scratch.getChannel();
+			Log.debug("Created scratch file: {}", scratchFile);
+		}
+		return channel;
+	}
+
+	// -- Helper classes --
+
+	/** Slot of the scratch file, held by the cell whose data it stores. */
+	private static final class Slot {
+
+		private final long offset;
+
+		private Slot(final long offset) {
+			this.offset = offset;
+		}
+	}
+
+	/** Reference which frees its slot once the cell holding it is gone. */
+	private static final class SlotReference extends WeakReference<Slot> {
+
+		private final long offset;
+		private final int bytes;
+
+		private SlotReference(final Slot slot, final int bytes,
+			final ReferenceQueue<Slot> queue)
+		{
+			super(slot, queue);
+			this.offset = slot.offset;
+			this.bytes = bytes;
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.cell;
+
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.cell.DefaultCell;
+import net.imglib2.img.cell.ListImgCells;
+import net.imglib2.type.NativeType;
+
+/**
+ * Factory of {@link CellImg}s whose cells are held by a {@link CellCache},
+ * so that images larger than the Java heap can be processed through the usual
+ * ImgLib accessors.
+ * <p>
+ * Unless cell dimensions are given, cells span up to
+ * {@link #DEFAULT_CELL_SIZE} pixels along each of the first two (usually X and
+ * Y) dimensions and one pixel along every other dimension, so that reading an
+ * XY plane touches as few cells as possible.
+ * </p>
+ * <p>
+ * Images created by this factory report it as their factory, so copies made
+ * through {@link net.imglib2.img.Img#factory()} are disk-backed as well.
+ * </p>
+ * <p>
+ * Bit and char types are not paged, and fall back to in-memory cells.
+ * </p>
+ */
+public class DiskCellImgFactory<T extends NativeType<T>> extends
+	CellImgFactory<T>
+{
+
+	/** Default extent of cells along the first two dimensions. */
+	public static final int DEFAULT_CELL_SIZE = 256;
+
+	private final CellCache cache;
+	private final int[] cellDims;
+
+	public DiskCellImgFactory(final CellCache cache) {
+		this(cache, null);
+	}
+
+	/**
+	 * Creates a factory.
+	 * 
+	 * @param cache Cache of the cells of created images.
+	 * @param cellDims Cell extents; dimensions beyond the array's length span
+	 *          one pixel. Null for the default cell shape.
+	 */
+	public DiskCellImgFactory(final CellCache cache, final int[] cellDims) {
+		this.cache = cache;
+		this.cellDims = cellDims == null ? null : cellDims.clone();
+	}
+
+	// -- DiskCellImgFactory methods --
+
+	public CellCache getCache() {
+		return cache;
+	}
+
+	// -- CellImgFactory methods --
+
+	@Override
+	public CellImg<T, ByteArray, DefaultCell<ByteArray>> createByteInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CellImg<T, ByteArray, DefaultCell<ByteArray>>(this,
+			new ListImgCells<ByteArray>(new PagedByteArray(cache, 0),
+				entitiesPerPixel, dimensions, cellDimensions(dimensions)));
+	}
+
+	@Override
+	public CellImg<T, ShortArray, DefaultCell<ShortArray>> createShortInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CellImg<T, ShortArray, DefaultCell<ShortArray>>(this,
+			new ListImgCells<ShortArray>(new PagedShortArray(cache, 0),
+				entitiesPerPixel, dimensions, cellDimensions(dimensions)));
+	}
+
+	@Override
+	public CellImg<T, IntArray, DefaultCell<IntArray>> createIntInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CellImg<T, IntArray, DefaultCell<IntArray>>(this,
+			new ListImgCells<IntArray>(new PagedIntArray(cache, 0),
+				entitiesPerPixel, dimensions, cellDimensions(dimensions)));
+	}
+
+	@Override
+	public CellImg<T, LongArray, DefaultCell<LongArray>> createLongInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CellImg<T, LongArray, DefaultCell<LongArray>>(this,
+			new ListImgCells<LongArray>(new PagedLongArray(cache, 0),
+				entitiesPerPixel, dimensions, cellDimensions(dimensions)));
+	}
+
+	@Override
+	public CellImg<T, FloatArray, DefaultCell<FloatArray>> createFloatInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CellImg<T, FloatArray, DefaultCell<FloatArray>>(this,
+			new ListImgCells<FloatArray>(new PagedFloatArray(cache, 0),
+				entitiesPerPixel, dimensions, cellDimensions(dimensions)));
+	}
+
+	@Override
+	public CellImg<T, DoubleArray, DefaultCell<DoubleArray>> createDoubleInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CellImg<T, DoubleArray, DefaultCell<DoubleArray>>(this,
+			new ListImgCells<DoubleArray>(new PagedDoubleArray(cache, 0),
+				entitiesPerPixel, dimensions, cellDimensions(dimensions)));
+	}
+
+	// -- Helper methods --
+
+	private int[] cellDimensions(final long[] dimensions) {
+		final int[] dims = new int[dimensions.length];
+		for (int d = 0; d < dims.length; d++) {
+			final long size;
+			if (cellDims != null) size = d < cellDims.length ? cellDims[d] : 1;
+			else size = d < 2 ? DEFAULT_CELL_SIZE : 1;
+			dims[d] = (int) Math.max(1, Math.min(size, dimensions[d]));
+		}
+		return dims;
+	}
+
+}
@@ -0,0 +1,249 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.cell;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Data of a paged array, which a {@link PageCache} loads on first access, and
+ * saves and releases on eviction.
+ * <p>
+ * Reads need no lock: an array released in the meantime still holds the
+ * values it had. Writes must hold the page's lock (see {@link #write()}), which
+ * {@link #release()} takes to decide whether the data can go.
+ * </p>
+ */
+final class Page {
+
+	private final PageCache cache;
+	private final Class<?> type;
+	private final int size;
+
+	/** Data, or null while released. */
+	private volatile Object data;
+
+	/** Whether the data was modified since it was last saved. */
+	private volatile boolean dirty;
+
+	/** Whether the data was accessed since the last sweep of the cache. */
+	private volatile boolean referenced;
+
+	/** Number of callers which may write to the data without the lock. */
+	private volatile int pins;
+
+	/** What the cache needs to restore the data, or null if never saved. */
+	private Object saved;
+
+	/**
+	 * Creates a page.
+	 * 
+	 * @param type Primitive type of the elements, e.g. {@code short.class}.
+	 * @param size Number of elements.
+	 */
+	Page(final PageCache cache, final Class<?> type, final int size) {
+		this.cache = cache;
+		this.type = type;
+		this.size = size;
+	}
+
+	// -- Page methods --
+
+	PageCache getCache() {
+		return cache;
+	}
+
+	/** Gets the size of the data, in bytes. */
+	int getByteCount() {
+		if (type == byte.class) return size;
+		if (type == short.class) return 2 * size;
+		if (type == int.class || type == float.class) return 4 * size;
+		return 8 * size;
+	}
+
+	/** Gets the data for reading, loading it if needed. */
+	Object read() {
+		Object d = data;
+		if (d == null) d = load();
+		if (!referenced) referenced = true;
+		return d;
+	}
+
+	/**
+	 * Gets the data for writing, or null if it must be {@link #load}ed first.
+	 * The caller must hold the page's lock until done writing.
+	 */
+	Object write() {
+		final Object d = data;
+		if (d == null) return null;
+		if (!referenced) referenced = true;
+		if (!dirty) dirty = true;
+		return d;
+	}
+
+	/**
+	 * Gets the data for writing without the lock, keeping it in memory until
+	 * {@link #unpin()} is called.
+	 */
+	Object pin() {
+		while (true) {
+			synchronized (this) {
+				final Object d = write();
+				if (d != null) {
+					pins++;
+					return d;
+				}
+			}
+			load();
+		}
+	}
+
+	/** Lets the cache release the data again, once each pin is undone. */
+	synchronized void unpin() {
+		if (pins == 0) throw new IllegalStateException("Page is not pinned");
+		pins--;
+	}
+
+	boolean isResident() {
+		return data != null;
+	}
+
+	synchronized Object getSaved() {
+		return saved;
+	}
+
+	boolean isPinned() {
+		return pins > 0;
+	}
+
+	boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * Gets whether the page was accessed since the previous call, and clears
+	 * the flag.
+	 */
+	boolean clearReferenced() {
+		final boolean result = referenced;
+		if (result) referenced = false;
+		return result;
+	}
+
+	/** Makes the data resident, restoring it if it was saved. */
+	Object load() {
+		final long start = System.nanoTime();
+		final Object d;
+		synchronized (this) {
+			if (data != null) return data;
+			d = newArray();
+			if (saved != null) {
+				final ByteBuffer buf = ByteBuffer.allocate(getByteCount());
+				cache.restore(saved, buf);
+				decode(buf, d);
+			}
+			data = d;
+			referenced = true;
+		}
+		cache.loaded(this, System.nanoTime() - start);
+		return d;
+	}
+
+	/**
+	 * Saves the data if it was modified, then releases it, unless it was
+	 * accessed in the meantime or is pinned, in which case it is readmitted
+	 * into the cache. Must not be called while holding the page's lock.
+	 */
+	void release() {
+		final ByteBuffer buf;
+		final Object previous;
+		synchronized (this) {
+			if (data == null) return;
+			if (pins > 0) buf = null;
+			else if (!dirty) {
+				data = null;
+				return;
+			}
+			else {
+				buf = encode(data);
+				dirty = false;
+				referenced = false;
+			}
+			previous = saved;
+		}
+		boolean used = true;
+		if (buf != null) {
+			final Object result = cache.save(previous, buf);
+			synchronized (this) {
+				saved = result;
+				used = dirty || referenced || pins > 0;
+				if (!used) data = null;
+			}
+		}
+		if (used) cache.readmit(this);
+	}
+
+	// -- Helper methods --
+
+	private Object newArray() {
+		if (type == byte.class) return new byte[size];
+		if (type == short.class) return new short[size];
+		if (type == int.class) return new int[size];
+		if (type == long.class) return new long[size];
+		if (type == float.class) return new float[size];
+		return new double[size];
+	}
+
+	private ByteBuffer encode(final Object d) {
+		final ByteBuffer buf = ByteBuffer.allocate(getByteCount());
+		if (type == byte.class) buf.put((byte[]) d).rewind();
+		else if (type == short.class) buf.asShortBuffer().put((short[]) d);
+		else if (type == int.class) buf.asIntBuffer().put((int[]) d);
+		else if (type == long.class) buf.asLongBuffer().put((long[]) d);
+		else if (type == float.class) buf.asFloatBuffer().put((float[]) d);
+		else buf.asDoubleBuffer().put((double[]) d);
+		return buf;
+	}
+
+	private void decode(final ByteBuffer buf, final Object d) {
+		if (type == byte.class) buf.get((byte[]) d);
+		else if (type == short.class) buf.asShortBuffer().get((short[]) d);
+		else if (type == int.class) buf.asIntBuffer().get((int[]) d);
+		else if (type == long.class) buf.asLongBuffer().get((long[]) d);
+		else if (type == float.class) buf.asFloatBuffer().get((float[]) d);
+		else buf.asDoubleBuffer().get((double[]) d);
+	}
+
+}
@@ -0,0 +1,236 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.cell;
+
+import imagej.thread.ThreadService;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+
+/**
+ * Bounded cache of the data of paged arrays, which releases the least recently
+ * used pages once saved by the subclass (e.g., to a scratch file, or
+ * compressed in memory).
+ * <p>
+ * Pages are loaded when first accessed and counted against the cache's
+ * capacity. When the capacity is exceeded, pages are evicted in CLOCK order
+ * (an approximation of LRU which does not need to reorder anything on each
+ * pixel access): pages used since the last sweep get a second chance, and
+ * pinned pages are skipped. Others are saved, if modified, and released, in
+ * the background if the cache has a {@link ThreadService}.
+ * </p>
+ * <p>
+ * Writes to a page and its release are synchronized on the page, so no write
+ * is lost: a page modified while being saved stays in memory, and is saved
+ * again on a later eviction. Arrays handed out by
+ * {@code getCurrentStorageArray()} pin their page for good, since the caller
+ * may write to them at any time.
+ * </p>
+ */
+public abstract class PageCache {
+
+	private final ThreadService threadService;
+
+	private final ArrayDeque<Page> clock = new ArrayDeque<Page>();
+
+	private long maxBytes;
+	private long residentBytes;
+
+	private long loadCount, loadNanos;
+	private int pendingCount;
+
+	/**
+	 * Creates a cache.
+	 * 
+	 * @param maxBytes Capacity of the cache, in bytes.
+	 * @param threadService Service saving evicted pages in the background, or
+	 *          null to save them on the evicting thread.
+	 */
+	protected PageCache(final long maxBytes, final ThreadService threadService)
+	{
+		this.threadService = threadService;
+		setMaxBytes(maxBytes);
+	}
+
+	// -- PageCache methods --
+
+	/** Gets the capacity of the cache, in bytes. */
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/** Sets the capacity of the cache, in bytes, evicting pages as needed. */
+	public void setMaxBytes(final long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Invalid cache size: " + maxBytes);
+		}
+		synchronized (this) {
+			this.maxBytes = maxBytes;
+		}
+		evict(null);
+	}
+
+	/** Gets the number of bytes of pages currently held in memory. */
+	public synchronized long getResidentBytes() {
+		return residentBytes;
+	}
+
+	/** Gets the number of pages loaded (allocated or restored) so far. */
+	public synchronized long getLoadCount() {
+		return loadCount;
+	}
+
+	/**
+	 * Gets the average time taken to make a released page accessible again, in
+	 * nanoseconds: the latency of an access which misses the cache.
+	 */
+	public synchronized double getAverageLoadNanos() {
+		return loadCount == 0 ? 0 : (double) loadNanos / loadCount;
+	}
+
+	/** Waits until the pages being saved in the background are done. */
+	public synchronized void awaitSaves() throws InterruptedException {
+		while (pendingCount > 0) {
+			wait();
+		}
+	}
+
+	// -- Internal methods --
+
+	/**
+	 * Saves the data of an evicted page.
+	 * 
+	 * @param saved What the previous call returned for the page, or null if its
+	 *          data was never saved.
+	 * @param buf The page's data.
+	 * @return What {@link #restore} needs to get the data back.
+	 */
+	protected abstract Object save(Object saved, ByteBuffer buf);
+
+	/** Fills the given buffer with data saved by {@link #save}. */
+	protected abstract void restore(Object saved, ByteBuffer buf);
+
+	/**
+	 * Counts a freshly loaded page against the capacity, evicting other pages
+	 * if needed. Must not be called while holding the page's lock.
+	 */
+	void loaded(final Page page, final long nanos) {
+		synchronized (this) {
+			loadCount++;
+			loadNanos += nanos;
+			clock.addLast(page);
+			residentBytes += page.getByteCount();
+		}
+		evict(page);
+	}
+
+	/** Forgets all pages. */
+	synchronized void clear() {
+		clock.clear();
+		residentBytes = 0;
+	}
+
+	/** Counts a page which could not be released against the capacity again. */
+	synchronized void readmit(final Page page) {
+		clock.addLast(page);
+		residentBytes += page.getByteCount();
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Evicts pages until the resident ones fit into the capacity.
+	 * 
+	 * @param keep A page which must stay, as it is being accessed, or null.
+	 */
+	private void evict(final Page keep) {
+		// NB: Two sweeps without a victim mean every page is kept or pinned.
+		int passed = 0;
+		while (true) {
+			final Page victim;
+			synchronized (this) {
+				if (residentBytes <= maxBytes || passed >= 2 * clock.size()) return;
+				final Page page = clock.removeFirst();
+				if (page == keep || page.isPinned()) {
+					clock.addLast(page);
+					passed++;
+					continue;
+				}
+				if (page.clearReferenced()) {
+					// used since the last sweep; give it a second chance
+					clock.addLast(page);
+					passed++;
+					continue;
+				}
+				residentBytes -= page.getByteCount();
+				victim = page;
+			}
+			passed = 0;
+			release(victim);
+		}
+	}
+
+	/** Saves and releases an evicted page, in the background if possible. */
+	private void release(final Page page) {
+		if (threadService == null || !page.isDirty()) {
+			page.release();
+			return;
+		}
+		synchronized (this) {
+			pendingCount++;
+		}
+		threadService.run(new Callable<Object>() {
+
+			@Override
+			public Object call() {
+				try {
+					page.release();
+				}
+				finally {
+					releaseDone();
+				}
+				return null;
+			}
+		}, ThreadService.Pool.IO);
+	}
+
+	private synchronized void releaseDone() {
+		pendingCount--;
+		notifyAll();
+	}
+
+}
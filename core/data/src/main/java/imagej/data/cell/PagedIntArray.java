@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.cell;
+
+import net.imglib2.img.basictypeaccess.array.IntArray;
+
+/**
+ * {@link IntArray} whose data is held by a {@link PageCache}: allocated on
+ * first access, and released and restored by the cache.
+ */
+public final class PagedIntArray extends IntArray implements
+	PagedAccess
+{
+
+	private final Page page;
+
+	public PagedIntArray(final PageCache cache, final int numEntities) {
+		super((int[]) null);
+		page = new Page(cache, int.class, numEntities);
+	}
+
+	// -- IntArray methods --
+
+	@Override
+	public int getValue(final int index) {
+		return ((int[]) page.read())[index];
+	}
+
+	@Override
+	public void setValue(final int index, final int value) {
+		while (true) {
+			synchronized (page) {
+				final int[] d = (int[]) page.write();
+				if (d != null) {
+					d[index] = value;
+					return;
+				}
+			}
+			page.load();
+		}
+	}
+
+	@Override
+	public PagedIntArray createArray(final int numEntities) {
+		return new PagedIntArray(getCache(), numEntities);
+	}
+
+	@Override
+	public int[] getCurrentStorageArray() {
+		// NB: The caller may write directly into the array, at any time.
+		return (int[]) page.pin();
+	}
+
+	// -- ManagedAccess methods --
+
+	@Override
+	public int[] getArrayForReading() {
+		return (int[]) page.read();
+	}
+
+	@Override
+	public int[] pin() {
+		return (int[]) page.pin();
+	}
+
+	@Override
+	public void unpin() {
+		page.unpin();
+	}
+
+	// -- PagedAccess methods --
+
+	@Override
+	public PageCache getCache() {
+		return page.getCache();
+	}
+
+	@Override
+	public int getByteCount() {
+		return page.getByteCount();
+	}
+
+	@Override
+	public boolean isResident() {
+		return page.isResident();
+	}
+
+	@Override
+	public Object getSaved() {
+		return page.getSaved();
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.compressed;
+
+import imagej.data.StorageUtils;
+import imagej.data.cell.PagedAccess;
+
+import java.lang.reflect.Array;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.NativeType;
+
+/**
+ * {@link PlanarImg} whose planes are kept compressed in memory by a
+ * {@link PlaneCache}, and decompressed while in use.
+ * <p>
+ * Planes replaced through {@link #setPlane} are copied into the existing
+ * compressed storage rather than swapped in, so the image stays compressed.
+ * </p>
+ */
+public class CompressedPlanarImg<T extends NativeType<T>, A extends
+	ArrayDataAccess<A>> extends PlanarImg<T, A>
+{
+
+	private final PlaneCache cache;
+
+	CompressedPlanarImg(final PlaneCache cache, final A creator,
+		final long[] dims, final int entitiesPerPixel)
+	{
+		super(creator, dims, entitiesPerPixel);
+		this.cache = cache;
+	}
+
+	// -- CompressedPlanarImg methods --
+
+	public PlaneCache getCache() {
+		return cache;
+	}
+
+	/** Gets the number of bytes of the compressed planes. */
+	public long getCompressedBytes() {
+		long bytes = 0;
+		for (int p = 0; p < numSlices(); p++) {
+			final A plane = getPlane(p);
+			if (plane instanceof PagedAccess) {
+				final Object saved = ((PagedAccess) plane).getSaved();
+				if (saved != null) bytes += ((byte[]) saved).length;
+			}
+		}
+		return bytes;
+	}
+
+	/** Gets the number of bytes of the planes which are decompressed. */
+	public long getResidentBytes() {
+		long bytes = 0;
+		for (int p = 0; p < numSlices(); p++) {
+			final A plane = getPlane(p);
+			if (plane instanceof PagedAccess) {
+				final PagedAccess access = (PagedAccess) plane;
+				if (access.isResident()) bytes += access.getByteCount();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Gets the number of bytes the image's pixels occupy on the heap: compressed
+	 * planes plus decompressed ones.
+	 */
+	public long getBytesInMemory() {
+		return getCompressedBytes() + getResidentBytes();
+	}
+
+	// -- PlanarAccess methods --
+
+	@Override
+	public void setPlane(final int no, final A plane) {
+		final A current = getPlane(no);
+		if (plane instanceof PagedAccess || current == null) {
+			super.setPlane(no, plane);
+			return;
+		}
+		final Object src = StorageUtils.getArrayForReading(plane);
+		final Object dest = StorageUtils.pin(current);
+		try {
+			final int length = Array.getLength(src);
+			if (length != Array.getLength(dest)) {
+				throw new IllegalArgumentException("Plane size mismatch: " +
+					length + " != " + Array.getLength(dest));
+			}
+			System.arraycopy(src, 0, dest, 0, length);
+		}
+		finally {
+			StorageUtils.unpin(current);
+		}
+	}
+
+	// -- Img methods --
+
+	@Override
+	public CompressedPlanarImgFactory<T> factory() {
+		return new CompressedPlanarImgFactory<T>(cache);
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.compressed;
+
+import imagej.data.cell.PagedByteArray;
+import imagej.data.cell.PagedDoubleArray;
+import imagej.data.cell.PagedFloatArray;
+import imagej.data.cell.PagedIntArray;
+import imagej.data.cell.PagedLongArray;
+import imagej.data.cell.PagedShortArray;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.NativeType;
+
+/**
+ * Factory of {@link CompressedPlanarImg}s, whose planes are held compressed by
+ * a {@link PlaneCache}, so that large stacks of sparse data fit into memory.
+ * <p>
+ * Images created by this factory report it as their factory, so copies made
+ * through {@link net.imglib2.img.Img#factory()} are compressed as well.
+ * </p>
+ * <p>
+ * Bit and char types are not compressed, and fall back to plain planes.
+ * </p>
+ */
+public class CompressedPlanarImgFactory<T extends NativeType<T>> extends
+	PlanarImgFactory<T>
+{
+
+	private final PlaneCache cache;
+
+	public CompressedPlanarImgFactory(final PlaneCache cache) {
+		this.cache = cache;
+	}
+
+	// -- CompressedPlanarImgFactory methods --
+
+	public PlaneCache getCache() {
+		return cache;
+	}
+
+	// -- PlanarImgFactory methods --
+
+	@Override
+	public CompressedPlanarImg<T, ByteArray> createByteInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CompressedPlanarImg<T, ByteArray>(cache,
+			new PagedByteArray(cache, 0), dimensions, entitiesPerPixel);
+	}
+
+	@Override
+	public CompressedPlanarImg<T, ShortArray> createShortInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CompressedPlanarImg<T, ShortArray>(cache,
+			new PagedShortArray(cache, 0), dimensions, entitiesPerPixel);
+	}
+
+	@Override
+	public CompressedPlanarImg<T, IntArray> createIntInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CompressedPlanarImg<T, IntArray>(cache,
+			new PagedIntArray(cache, 0), dimensions, entitiesPerPixel);
+	}
+
+	@Override
+	public CompressedPlanarImg<T, LongArray> createLongInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CompressedPlanarImg<T, LongArray>(cache,
+			new PagedLongArray(cache, 0), dimensions, entitiesPerPixel);
+	}
+
+	@Override
+	public CompressedPlanarImg<T, FloatArray> createFloatInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CompressedPlanarImg<T, FloatArray>(cache,
+			new PagedFloatArray(cache, 0), dimensions, entitiesPerPixel);
+	}
+
+	@Override
+	public CompressedPlanarImg<T, DoubleArray> createDoubleInstance(
+		final long[] dimensions, final int entitiesPerPixel)
+	{
+		return new CompressedPlanarImg<T, DoubleArray>(cache,
+			new PagedDoubleArray(cache, 0), dimensions, entitiesPerPixel);
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.compressed;
+
+import imagej.data.cell.PageCache;
+import imagej.thread.ThreadService;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded cache of the decompressed planes of compressed images.
+ * <p>
+ * Planes are kept deflated in memory, at the fastest compression level, which
+ * still shrinks sparse data such as fluorescence stacks several times. They
+ * are inflated when accessed, and evicted as described by {@link PageCache}:
+ * modified planes are recompressed before being released, in the background if
+ * the cache has a {@link ThreadService}; their decompressed data stays
+ * available until then.
+ * </p>
+ * 
+ * @see CompressedPlanarImgFactory
+ */
+public class PlaneCache extends PageCache {
+
+	/** Default capacity: 256 MB. */
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	private long compressedBytes;
+
+	private long compressCount, compressNanos;
+
+	public PlaneCache() {
+		this(DEFAULT_MAX_BYTES, null);
+	}
+
+	/**
+	 * Creates a cache.
+	 * 
+	 * @param maxBytes Capacity of the cache, in bytes.
+	 * @param threadService Service running the recompression of evicted planes,
+	 *          or null to recompress them on the evicting thread.
+	 */
+	public PlaneCache(final long maxBytes, final ThreadService threadService) {
+		super(maxBytes, threadService);
+	}
+
+	// -- PlaneCache methods --
+
+	/** Gets the number of bytes of compressed planes, across all images. */
+	public synchronized long getCompressedBytes() {
+		return compressedBytes;
+	}
+
+	/** Gets the number of planes compressed so far. */
+	public synchronized long getCompressCount() {
+		return compressCount;
+	}
+
+	/** Gets the average time taken to compress a plane, in nanoseconds. */
+	public synchronized double getAverageCompressNanos() {
+		return compressCount == 0 ? 0 : (double) compressNanos / compressCount;
+	}
+
+	// -- PageCache methods --
+
+	/** Deflates the given data. */
+	@Override
+	protected Object save(final Object saved, final ByteBuffer buf) {
+		final long start = System.nanoTime();
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		final ByteArrayOutputStream out =
+			new ByteArrayOutputStream(buf.capacity() / 4 + 64);
+		try {
+			deflater.setInput(buf.array(), 0, buf.capacity());
+			deflater.finish();
+			final byte[] chunk = new byte[Math.min(buf.capacity() + 64, 65536)];
+			while (!deflater.finished()) {
+				final int n = deflater.deflate(chunk);
+				out.write(chunk, 0, n);
+			}
+		}
+		finally {
+			deflater.end();
+		}
+		final byte[] result = out.toByteArray();
+		final int previous = saved == null ? 0 : ((byte[]) saved).length;
+		synchronized (this) {
+			compressCount++;
+			compressNanos += System.nanoTime() - start;
+			compressedBytes += result.length - previous;
+		}
+		return result;
+	}
+
+	/** Inflates the given data into the given buffer, filling it. */
+	@Override
+	protected void restore(final Object saved, final ByteBuffer buf) {
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput((byte[]) saved);
+			final byte[] array = buf.array();
+			int offset = 0;
+			while (offset < buf.capacity()) {
+				final int n = inflater.inflate(array, offset, buf.capacity() - offset);
+				if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+					throw new DataFormatException("Truncated plane data");
+				}
+				offset += n;
+			}
+		}
+		catch (final DataFormatException e) {
+			throw new IllegalStateException("Corrupt compressed plane", e);
+		}
+		finally {
+			inflater.end();
+		}
+	}
+
+}
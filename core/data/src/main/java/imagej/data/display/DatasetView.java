@@ -55,8 +55,20 @@
  */
 public interface DatasetView extends DataView {
 
+	/**
+	 * Gets the image the view is rendered into. When zoomed out it is rendered
+	 * from a coarser pyramid level, and is smaller than the {@link Dataset}; see
+	 * {@link #getResolutionLevel()}.
+	 */
 	ARGBScreenImage getScreenImage();
 
+	/**
+	 * Gets the current plane(s) rendered at the full resolution of the
+	 * {@link Dataset}. This is the screen image at level 0; at coarser levels
+	 * the plane(s) are projected anew on each call.
+	 */
+	ARGBScreenImage getFullScreenImage();
+
 	int getCompositeDimIndex();
 
 	CompositeXYProjector<? extends RealType<?>> getProjector();
@@ -75,6 +87,20 @@ public interface DatasetView extends DataView {
 
 	void setColorMode(final ColorMode colorMode);
 
+	/**
+	 * Gets the level of the {@link Dataset}'s resolution pyramid that the screen
+	 * image is rendered from: the screen image is 2<sup>level</sup> times smaller
+	 * than the Dataset along X and Y. Level 0 is full resolution.
+	 */
+	int getResolutionLevel();
+
+	/**
+	 * Informs the view of the zoom factor it is displayed at. When zoomed out,
+	 * the view renders from the coarsest pyramid level which still satisfies the
+	 * zoom, rather than from the full resolution data.
+	 */
+	void setZoomFactor(final double zoomFactor);
+
 	@Override
 	Dataset getData();
 
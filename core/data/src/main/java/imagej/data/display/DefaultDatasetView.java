@@ -35,29 +35,41 @@
 
 package imagej.data.display;
 
+import imagej.ImageJ;
 import imagej.data.Dataset;
 import imagej.data.Position;
+import imagej.data.UpdateRegion;
+import imagej.data.pyramid.DatasetPyramid;
 import imagej.data.display.event.DataViewUpdatedEvent;
 import imagej.data.event.DatasetRGBChangedEvent;
 import imagej.data.event.DatasetTypeChangedEvent;
 import imagej.data.event.DatasetUpdatedEvent;
+import imagej.data.stats.Statistics;
 import imagej.event.EventHandler;
 import imagej.event.EventService;
 import imagej.event.EventSubscriber;
+import imagej.metrics.MetricsService;
+import imagej.metrics.Timer;
+import imagej.util.IntRect;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import net.imglib2.algorithm.stats.ComputeMinMax;
+import net.imglib2.RandomAccess;
+import net.imglib2.converter.Converter;
 import net.imglib2.display.ARGBScreenImage;
 import net.imglib2.display.ColorTable8;
 import net.imglib2.display.CompositeXYProjector;
 import net.imglib2.display.RealLUTConverter;
-import net.imglib2.img.ImgPlus;
+import net.imglib2.img.Img;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.planar.PlanarImg;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
 
 /**
  * A view into a {@link Dataset}, for use with a {@link ImageDisplay}.
@@ -69,6 +81,12 @@ public class DefaultDatasetView extends AbstractDataView implements
 	DatasetView
 {
 
+	/** Name of the timer of {@link #rebuild()} calls. */
+	public static final String REBUILD_TIMER = "view.rebuild";
+
+	/** Name of the timer of projections onto the screen image. */
+	public static final String MAP_TIMER = "view.map";
+
 	private final Dataset dataset;
 
 	/** The dimensional index representing channels, for compositing. */
@@ -82,6 +100,21 @@ public class DefaultDatasetView extends AbstractDataView implements
 
 	private ARGBScreenImage screenImage;
 
+	/** Zoom factor of the display, which determines the resolution level. */
+	private double zoomFactor = 1;
+
+	/** Pyramid level the screen image is rendered from. */
+	private int level;
+
+	/**
+	 * Planes of the current pyramid level, or null at full resolution. Only the
+	 * displayed planes are present.
+	 */
+	private PlanarImg<FloatType, FloatArray> levelImg;
+
+	/** Numbers of the planes present in {@link #levelImg}. */
+	private final List<Integer> levelPlanes = new ArrayList<Integer>();
+
 	private CompositeXYProjector<? extends RealType<?>> projector;
 
 	private final ArrayList<RealLUTConverter<? extends RealType<?>>> converters =
@@ -90,11 +123,25 @@ public class DefaultDatasetView extends AbstractDataView implements
 	@SuppressWarnings("unused")
 	private final List<EventSubscriber<?>> subscribers;
 
+	/** Timers of rebuilding and mapping, or null if metrics are unavailable. */
+	private final Timer rebuildTimer, mapTimer;
+
 	public DefaultDatasetView(final Dataset dataset) {
 		super(dataset);
 		this.dataset = dataset;
 		final EventService eventService = getEventService();
 		subscribers = eventService == null ? null : eventService.subscribe(this);
+
+		final ImageJ context = dataset.getContext();
+		final MetricsService metricsService =
+			context == null ? null : context.getService(MetricsService.class);
+		if (metricsService == null) {
+			rebuildTimer = mapTimer = null;
+		}
+		else {
+			rebuildTimer = metricsService.getTimer(REBUILD_TIMER);
+			mapTimer = metricsService.getTimer(MAP_TIMER);
+		}
 	}
 
 	// -- DatasetView methods --
@@ -104,6 +151,23 @@ public ARGBScreenImage getScreenImage() {
 		return screenImage;
 	}
 
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public ARGBScreenImage getFullScreenImage() {
+		if (levelImg == null) return screenImage;
+		final Img<? extends RealType<?>> img = dataset.getImgPlus();
+		final ARGBScreenImage fullImage =
+			new ARGBScreenImage((int) img.dimension(0), (int) img.dimension(1));
+		final CompositeXYProjector fullProjector =
+			new CompositeXYProjector(img, fullImage, converters, channelDimIndex);
+		fullProjector.setComposite(projector.isComposite());
+		for (int d = 2; d < projector.numDimensions(); d++) {
+			fullProjector.setPosition(projector.getLongPosition(d), d);
+		}
+		fullProjector.map();
+		return fullImage;
+	}
+
 	@Override
 	public int getCompositeDimIndex() {
 		return channelDimIndex;
@@ -178,7 +242,28 @@ public ColorMode getColorMode() {
 	public void setColorMode(final ColorMode colorMode) {
 		resetColorTables(colorMode == ColorMode.GRAYSCALE);
 		projector.setComposite(colorMode == ColorMode.COMPOSITE);
-		projector.map();
+		map();
+	}
+
+	@Override
+	public int getResolutionLevel() {
+		return level;
+	}
+
+	@Override
+	public void setZoomFactor(final double zoomFactor) {
+		this.zoomFactor = zoomFactor;
+		if (projector == null) return; // not yet built
+		final int newLevel = dataset.getPyramid().getLevel(zoomFactor);
+		if (newLevel == level) return;
+		level = newLevel;
+		final CompositeXYProjector<? extends RealType<?>> oldProjector = projector;
+		setupScreen(oldProjector.isComposite());
+		for (int d = 2; d < oldProjector.numDimensions(); d++) {
+			projector.setPosition(oldProjector.getLongPosition(d), d);
+		}
+		map();
+		publish(new DataViewUpdatedEvent(this));
 	}
 
 	// -- DataView methods --
@@ -190,19 +275,19 @@ public Dataset getData() {
 
 	@Override
 	public int getPreferredWidth() {
-		return getScreenImage().image().getWidth(null);
+		return (int) dataset.getImgPlus().dimension(0);
 	}
 
 	@Override
 	public int getPreferredHeight() {
-		return getScreenImage().image().getHeight(null);
+		return (int) dataset.getImgPlus().dimension(1);
 	}
 
 	@Override
 	public void rebuild() {
+		final long start = rebuildTimer == null ? 0 : rebuildTimer.start();
 		channelDimIndex = getChannelDimIndex();
-
-		final ImgPlus<? extends RealType<?>> img = dataset.getImgPlus();
+		level = dataset.getPyramid().getLevel(zoomFactor);
 
 		// Make sure any calls to updateLUTs are ignored. If they happen before
 		// the converters are correctly defined (in setupProjector) an exception
@@ -215,16 +300,13 @@ public void rebuild() {
 			resetColorTables(false);
 		}
 
-		final int width = (int) img.dimension(0);
-		final int height = (int) img.dimension(1);
-		screenImage = new ARGBScreenImage(width, height);
-
 		final boolean composite = isComposite();
 		setupProjector(composite);
 		// NB - it's imperative that instance variable "projector" is correctly
 		// setup before calling updateLUTs()
 		updateLUTs();
-		projector.map();
+		map();
+		if (rebuildTimer != null) rebuildTimer.stop(start);
 	}
 
 	// -- PositionableByAxis methods --
@@ -257,13 +339,77 @@ public void setPosition(final long position, final AxisType axis) {
 			updateLUTs();
 		}
 
-		projector.map();
+		map();
 
 		super.setPosition(position, axis);
 	}
 
 	// -- Helper methods --
 
+	/** Projects the current plane(s) onto the screen image. */
+	private void map() {
+		final long start = mapTimer == null ? 0 : mapTimer.start();
+		if (levelImg != null) updateLevelPlanes();
+		projector.map();
+		if (mapTimer != null) mapTimer.stop(start);
+	}
+
+	/**
+	 * Projects the given region of the current plane onto the screen image, with
+	 * the current channel's converter.
+	 * 
+	 * @return the area of the screen image which was updated
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private IntRect map(final UpdateRegion region) {
+		final long start = mapTimer == null ? 0 : mapTimer.start();
+		final RandomAccess<? extends RealType<?>> in =
+			dataset.getImgPlus().randomAccess();
+		for (int d = 2; d < in.numDimensions(); d++) {
+			in.setPosition(projector.getLongPosition(d), d);
+		}
+		final int c =
+			channelDimIndex < 0 ? 0 : (int) projector
+				.getLongPosition(channelDimIndex);
+		final Converter converter = converters.get(c);
+		final RandomAccess<ARGBType> out = screenImage.randomAccess();
+		final int minX = (int) region.min(0), maxX = (int) region.max(0);
+		final int minY = (int) region.min(1), maxY = (int) region.max(1);
+		for (int y = minY; y <= maxY; y++) {
+			in.setPosition(y, 1);
+			out.setPosition(y, 1);
+			for (int x = minX; x <= maxX; x++) {
+				in.setPosition(x, 0);
+				out.setPosition(x, 0);
+				converter.convert(in.get(), out.get());
+			}
+		}
+		if (mapTimer != null) mapTimer.stop(start);
+		return new IntRect(minX, minY, maxX - minX + 1, maxY - minY + 1);
+	}
+
+	/**
+	 * Gets whether the given region touches any of the planes currently shown:
+	 * the current plane, or all channels of it when compositing.
+	 */
+	private boolean isShown(final UpdateRegion region) {
+		final long[] dims = dataset.getDims();
+		final long[] pos = new long[dims.length];
+		for (int d = 2; d < dims.length; d++) {
+			pos[d] = projector.getLongPosition(d);
+		}
+		if (!projector.isComposite() || channelDimIndex < 0) {
+			return region.containsPlane(UpdateRegion.planeNumber(dims, pos));
+		}
+		for (long c = 0; c < dims[channelDimIndex]; c++) {
+			pos[channelDimIndex] = c;
+			if (region.containsPlane(UpdateRegion.planeNumber(dims, pos))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private boolean isComposite() {
 		return dataset.getCompositeChannelCount() > 1 || dataset.isRGBMerged();
 	}
@@ -283,13 +429,63 @@ private void setupProjector(final boolean composite)
 				.add(new RealLUTConverter(dataset.getImgPlus().getChannelMinimum(c),
 					dataset.getImgPlus().getChannelMaximum(c), null));
 		}
+		setupScreen(composite);
+	}
+
+	/**
+	 * Allocates the screen image for the current resolution level, and a
+	 * projector onto it.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void setupScreen(final boolean composite) {
+		final Img source;
+		levelPlanes.clear();
+		if (level == 0) {
+			levelImg = null;
+			source = dataset.getImgPlus();
+		}
+		else {
+			final DatasetPyramid pyramid = dataset.getPyramid();
+			final long[] levelDims = dataset.getDims();
+			levelDims[0] = pyramid.getWidth(level);
+			levelDims[1] = pyramid.getHeight(level);
+			levelImg = new PlanarImg<FloatType, FloatArray>(levelDims, 1);
+			levelImg.setLinkedType(new FloatType(levelImg));
+			source = levelImg;
+		}
+		screenImage =
+			new ARGBScreenImage((int) source.dimension(0), (int) source
+				.dimension(1));
 		projector =
-			new CompositeXYProjector(dataset.getImgPlus(), screenImage, converters,
+			new CompositeXYProjector(source, screenImage, converters,
 				channelDimIndex);
 		projector.setComposite(composite);
 	}
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
+	/**
+	 * Fills {@link #levelImg} with the pyramid planes at the current position,
+	 * for all channels, and drops the others.
+	 */
+	private void updateLevelPlanes() {
+		for (final int no : levelPlanes) {
+			levelImg.setPlane(no, null);
+		}
+		levelPlanes.clear();
+		final DatasetPyramid pyramid = dataset.getPyramid();
+		final long[] dims = dataset.getDims();
+		final long[] pos = new long[dims.length];
+		for (int d = 2; d < dims.length; d++) {
+			pos[d] = projector.getLongPosition(d);
+		}
+		final long channelCount = getChannelCount();
+		for (long c = 0; c < channelCount; c++) {
+			if (channelDimIndex >= 0) pos[channelDimIndex] = c;
+			final int no = UpdateRegion.planeNumber(dims, pos);
+			levelImg.setPlane(no, new FloatArray(pyramid.getPlane(level, no)));
+			levelPlanes.add(no);
+		}
+	}
+
 	public void autoscale(final int c) {
 		// CTR FIXME - Autoscaling needs to be reworked.
 
@@ -297,18 +493,16 @@ public void autoscale(final int c) {
 		double min = dataset.getImgPlus().getChannelMinimum(c);
 		double max = dataset.getImgPlus().getChannelMaximum(c);
 		if (Double.isNaN(max) || Double.isNaN(min)) {
-			// not provided in metadata, so calculate the min/max
-			// TODO: this currently applies the global min/max to all channels...
-			// need to change ComputeMinMax to find min/max per channel
-			final ComputeMinMax<? extends RealType<?>> cmm =
-				new ComputeMinMax(dataset.getImgPlus());
-			cmm.process();
-			min = cmm.getMin().getRealDouble();
-			max = cmm.getMax().getRealDouble();
+			// not provided in metadata, so use the (cached) channel statistics
+			final Statistics stats =
+				dataset.getStatistics().getChannelStatistics(c);
+			min = stats.getMin();
+			max = stats.getMax();
 			dataset.getImgPlus().setChannelMinimum(c, min);
 			dataset.getImgPlus().setChannelMaximum(c, max);
 		}
-		if (min == max) { // if all black or all white, use range for type
+		if (min == max || Double.isNaN(min) || Double.isNaN(max)) {
+			// if all black or all white (or no values), use range for type
 			final RealType<?> type = dataset.getType();
 			dataset.getImgPlus().setChannelMinimum(c, type.getMinValue());
 			dataset.getImgPlus().setChannelMaximum(c, type.getMaxValue());
@@ -369,9 +563,27 @@ protected void onEvent(final DatasetUpdatedEvent event) {
 		if (event instanceof DatasetRGBChangedEvent) {
 			return;
 		}
-		if (dataset == event.getObject()) {
-			projector.map();
+		if (dataset != event.getObject()) return;
+		final UpdateRegion region = event.getRegion();
+		if (region == null) {
+			map();
+			return;
+		}
+		// NB: The display leaves partial updates to us; see DefaultImageDisplay.
+		if (projector == null) return;
+		final boolean compatible = region.isCompatible(dataset.getDims());
+		if (compatible && !isShown(region)) return; // nothing visible changed
+		final IntRect rect;
+		if (!compatible || levelImg != null || projector.isComposite() ||
+			region.numDimensions() < 2)
+		{
+			map();
+			rect = null;
+		}
+		else {
+			rect = map(region);
 		}
+		publish(new DataViewUpdatedEvent(this, rect));
 	}
 
 	@Override
@@ -41,8 +41,10 @@
 import imagej.data.Dataset;
 import imagej.data.Extents;
 import imagej.data.display.event.AxisPositionEvent;
+import imagej.data.display.event.ZoomEvent;
 import imagej.data.event.DataRestructuredEvent;
 import imagej.data.event.DataUpdatedEvent;
+import imagej.data.event.DatasetUpdatedEvent;
 import imagej.data.overlay.Overlay;
 import imagej.event.EventHandler;
 import imagej.event.EventSubscriber;
@@ -80,6 +82,9 @@ public class DefaultImageDisplay extends AbstractDisplay<DataView>
 	private final CombinedInterval combinedInterval = new CombinedInterval();
 
 	private AxisType activeAxis = null;
+
+	/** Number of times views were added to or removed from the display. */
+	private long viewModificationCount;
 	
 	final private ImageCanvas canvas;
 
@@ -121,6 +126,12 @@ public void setContext(ImageJ context) {
 	}
 	// -- AbstractDisplay methods --
 
+	@Override
+	protected void announceStructureChange() {
+		super.announceStructureChange();
+		viewModificationCount++;
+	}
+
 	@Override
 	protected void rebuild() {
 		// combine constituent views into a single aggregate spatial interval
@@ -182,6 +193,11 @@ public boolean containsData(final Data data) {
 		return false;
 	}
 
+	@Override
+	public long getViewModificationCount() {
+		return viewModificationCount;
+	}
+
 	@Override
 	public boolean isVisible(final DataView view) {
 		for (int i = 0; i < numDimensions(); i++) {
@@ -559,6 +575,13 @@ protected void onEvent(final DataRestructuredEvent event) {
 
 	@EventHandler
 	protected void onEvent(final DataUpdatedEvent event) {
+		if (event instanceof DatasetUpdatedEvent &&
+			((DatasetUpdatedEvent) event).getRegion() != null)
+		{
+			// NB: The dataset views redraw partial updates themselves; updating the
+			// whole display would remap every view in its entirety.
+			return;
+		}
 		for (final DataView view : this) {
 			if (event.getObject() == view.getData()) {
 				view.update();
@@ -568,6 +591,18 @@ protected void onEvent(final DataUpdatedEvent event) {
 		}
 	}
 
+	/** Lets the dataset views render from a resolution fitting the zoom. */
+	@EventHandler
+	protected void onEvent(final ZoomEvent event) {
+		if (event.getCanvas() != canvas) return;
+		final double zoomFactor = canvas.getZoomFactor();
+		for (final DataView view : this) {
+			if (view instanceof DatasetView) {
+				((DatasetView) view).setZoomFactor(zoomFactor);
+			}
+		}
+	}
+
 	@EventHandler
 	protected void onEvent(final DisplayDeletedEvent event) {
 		if (event.getObject() != this) return;
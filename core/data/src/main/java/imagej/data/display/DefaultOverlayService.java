@@ -42,10 +42,17 @@
 import imagej.data.DrawingTool;
 import imagej.data.Extents;
 import imagej.data.Position;
+import imagej.data.event.OverlayDeletedEvent;
+import imagej.data.event.OverlayRestructuredEvent;
+import imagej.data.event.OverlayUpdatedEvent;
 import imagej.data.overlay.Overlay;
 import imagej.data.overlay.OverlaySettings;
+import imagej.data.overlay.OverlaySpans;
 import imagej.ext.display.Display;
+import imagej.event.EventHandler;
+import imagej.event.EventService;
 import imagej.ext.display.DisplayService;
+import imagej.ext.display.event.DisplayDeletedEvent;
 import imagej.object.ObjectService;
 import imagej.service.AbstractService;
 import imagej.service.Service;
@@ -53,6 +60,8 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import net.imglib2.RealRandomAccess;
 import net.imglib2.ops.PointSetIterator;
@@ -76,6 +85,10 @@ public final class DefaultOverlayService extends AbstractService implements
 
 	private OverlaySettings defaultSettings;
 
+	/** Spatial indices of the overlays of each display, built on demand. */
+	private final Map<ImageDisplay, OverlayIndex> indices =
+		new WeakHashMap<ImageDisplay, OverlayIndex>();
+
 	// -- Constructors --
 
 	public DefaultOverlayService() {
@@ -86,12 +99,15 @@ public DefaultOverlayService() {
 
 	public DefaultOverlayService(final ImageJ context,
 		final ObjectService objectService, final DisplayService displayService,
-		final ImageDisplayService imageDisplayService)
+		final ImageDisplayService imageDisplayService,
+		final EventService eventService)
 	{
 		super(context);
 		this.objectService = objectService;
 		this.displayService = displayService;
 		this.imageDisplayService = imageDisplayService;
+
+		subscribeToEvents(eventService);
 	}
 
 	// -- OverlayService methods --
@@ -127,6 +143,21 @@ public List<Overlay> getOverlays(final ImageDisplay display) {
 		return overlays;
 	}
 
+	@Override
+	public synchronized List<Overlay> getOverlays(final ImageDisplay display,
+		final RealRect window)
+	{
+		return getIndex(display).find(window.x, window.y,
+			window.x + window.width, window.y + window.height);
+	}
+
+	@Override
+	public synchronized List<Overlay> getOverlays(final ImageDisplay display,
+		final double x, final double y)
+	{
+		return getIndex(display).find(x, y, x, y);
+	}
+
 	/** Adds the list of {@link Overlay}s to the given {@link ImageDisplay}. */
 	@Override
 	public void addOverlays(final ImageDisplay display,
@@ -179,10 +210,7 @@ public void removeOverlay(final Overlay overlay) {
 	public RealRect getSelectionBounds(final ImageDisplay display) {
 		// get total XY extents of the display by checking all datasets
 		double width = 0, height = 0;
-		for (final DataView view : display) {
-			final Data data = view.getData();
-			if (!(data instanceof Dataset)) continue;
-			final Dataset dataset = (Dataset) data;
+		for (final Dataset dataset : getDatasets(display)) {
 			final Extents extents = dataset.getExtents();
 			final double w = extents.dimension(0);
 			final double h = extents.dimension(1);
@@ -199,13 +227,9 @@ public RealRect getSelectionBounds(final ImageDisplay display) {
 		double xMax = Double.NEGATIVE_INFINITY;
 		double yMin = Double.POSITIVE_INFINITY;
 		double yMax = Double.NEGATIVE_INFINITY;
-		for (final DataView view : display) {
-			if (!view.isSelected()) continue; // ignore non-selected objects
-			final Data data = view.getData();
-			if (!(data instanceof Overlay)) continue; // ignore non-overlays
-
-			final Overlay overlay = (Overlay) data;
-			final RegionOfInterest roi = overlay.getRegionOfInterest();
+		for (final OverlayView view : getSelectedViews(display)) {
+			final RegionOfInterest roi = view.getData().getRegionOfInterest();
+			if (roi == null) continue; // ignore overlays without a region
 			final double min0 = roi.realMin(0);
 			final double max0 = roi.realMax(0);
 			final double min1 = roi.realMin(1);
@@ -237,6 +261,17 @@ public RealRect getSelectionBounds(final ImageDisplay display) {
 		return new RealRect(xMin, yMin, xMax - xMin, yMax - yMin);
 	}
 
+	@Override
+	public OverlaySpans getSelectionSpans(final ImageDisplay display) {
+		final List<OverlayView> selected = getSelectedViews(display);
+		if (selected.isEmpty()) return null;
+		final List<OverlaySpans> spans = new ArrayList<OverlaySpans>();
+		for (final OverlayView view : selected) {
+			spans.add(view.getData().getSpans());
+		}
+		return spans.size() == 1 ? spans.get(0) : OverlaySpans.union(spans);
+	}
+
 	@Override
 	public OverlaySettings getDefaultSettings() {
 		if (defaultSettings == null) defaultSettings = new OverlaySettings();
@@ -266,7 +301,7 @@ public ImageDisplay getFirstDisplay(Overlay o) {
 		return null;
 	}
 	
-	// TODO - assumes first selected overlay view is the only one. bad?
+	// TODO - assumes earliest selected overlay view is the only one. bad?
 	@Override
 	public Overlay getActiveOverlay(ImageDisplay disp) {
 		for (DataView view : disp) {
@@ -276,8 +311,83 @@ public Overlay getActiveOverlay(ImageDisplay disp) {
 		return null;
 	}
 	
+	// -- Event handlers --
+
+	@EventHandler
+	protected synchronized void onEvent(final OverlayUpdatedEvent event) {
+		reindex(event.getObject());
+	}
+
+	@EventHandler
+	protected synchronized void onEvent(final OverlayRestructuredEvent event) {
+		reindex(event.getObject());
+	}
+
+	@EventHandler
+	protected synchronized void onEvent(final OverlayDeletedEvent event) {
+		for (final OverlayIndex index : indices.values()) {
+			index.remove(event.getObject());
+		}
+	}
+
+	@EventHandler
+	protected synchronized void onEvent(final DisplayDeletedEvent event) {
+		indices.remove(event.getObject());
+	}
+
 	// -- helpers --
 
+	/**
+	 * Gets the spatial index of the given display, rebuilding it if views were
+	 * added or removed since it was last used.
+	 */
+	private OverlayIndex getIndex(final ImageDisplay display) {
+		OverlayIndex index = indices.get(display);
+		if (index == null) {
+			index = new OverlayIndex();
+			indices.put(display, index);
+		}
+		final long modificationCount = display.getViewModificationCount();
+		if (index.getModificationCount() != modificationCount) {
+			index.clear();
+			for (final DataView view : display) {
+				if (view instanceof OverlayView) {
+					index.add(((OverlayView) view).getData());
+				}
+				else if (view.getData() instanceof Dataset) {
+					index.add((Dataset) view.getData());
+				}
+			}
+			index.setModificationCount(modificationCount);
+		}
+		return index;
+	}
+
+	private synchronized List<Dataset> getDatasets(final ImageDisplay display) {
+		return new ArrayList<Dataset>(getIndex(display).getDatasets());
+	}
+
+	/**
+	 * Gets the selected overlay views of the given display, in display order.
+	 * NB: The views are asked directly, since selection events are delivered
+	 * asynchronously.
+	 */
+	private List<OverlayView> getSelectedViews(final ImageDisplay display) {
+		final List<OverlayView> selected = new ArrayList<OverlayView>();
+		for (final DataView view : display) {
+			if (view.isSelected() && view instanceof OverlayView) {
+				selected.add((OverlayView) view);
+			}
+		}
+		return selected;
+	}
+
+	private void reindex(final Overlay overlay) {
+		for (final OverlayIndex index : indices.values()) {
+			if (index.contains(overlay)) index.add(overlay);
+		}
+	}
+
 	private enum DrawMode {OUTLINE, FILL}
 	
 
@@ -300,33 +410,26 @@ else if (mode == DrawMode.OUTLINE)
 			outlineOverlay(o, tool);
 		else
 			throw new IllegalArgumentException("unknown draw mode "+mode);
-		ds.update();
+		final RegionOfInterest roi = o.getRegionOfInterest();
+		if (roi == null) ds.update();
+		else {
+			// publish the bounding box of the overlay only
+			ds.update(tool.getUpdateRegion((long) Math.floor(roi.realMin(0)),
+				(long) Math.floor(roi.realMin(1)), (long) Math.ceil(roi.realMax(0)),
+				(long) Math.ceil(roi.realMax(1))));
+		}
 	}
 	
 	private void fillOverlay(Overlay o, DrawingTool tool) {
-		final RegionOfInterest reg = o.getRegionOfInterest();
-		final int numDims = reg.numDimensions();
-		final double[] minD = new double[numDims];
-		final double[] maxD = new double[numDims];
-		reg.realMin(minD);
-		reg.realMax(maxD);
-		final long[] minL = new long[numDims];
-		final long[] maxL = new long[numDims];
-		for (int i = 0; i < numDims; i++) {
-			minL[i] = (long) Math.floor(minD[i]);
-			maxL[i] = (long) Math.ceil(maxD[i]);
-		}
-		final HyperVolumePointSet pointSet = new HyperVolumePointSet(minL, maxL);
-		final RealRandomAccess<BitType> accessor = reg.realRandomAccess();
-		final PointSetIterator iter = pointSet.createIterator();
-		long[] pos;
-		while (iter.hasNext()) {
-			pos = iter.next();
-			accessor.setPosition(pos);
-			if (accessor.get().get())
-				tool.drawPixel(pos[0], pos[1]);
+		final OverlaySpans spans = o.getSpans();
+		for (long y = spans.getMinY(); y <= spans.getMaxY(); y++) {
+			final int end = spans.getRowEnd(y);
+			for (int s = spans.getRowStart(y); s < end; s++) {
+				final long maxX = spans.getSpanMaxX(s);
+				for (long x = spans.getSpanMinX(s); x <= maxX; x++)
+					tool.drawPixel(x, y);
+			}
 		}
-		
 	}
 
 	private void outlineOverlay(Overlay o, DrawingTool tool) {
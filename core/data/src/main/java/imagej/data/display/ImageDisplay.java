@@ -66,6 +66,12 @@ public interface ImageDisplay extends Display<DataView>, CalibratedInterval,
 	/** Tests whether this display contains the given data object (via a view). */
 	boolean containsData(Data data);
 
+	/**
+	 * Gets a count which changes whenever views are added to or removed from the
+	 * display, so that caches of its views can tell when they are outdated.
+	 */
+	long getViewModificationCount();
+
 	/**
 	 * Tests whether the given view should currently be visible in this display. A
 	 * view is visible when the current position falls within the bounds of the
@@ -0,0 +1,250 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import imagej.data.Dataset;
+import imagej.data.overlay.Overlay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.imglib2.roi.RegionOfInterest;
+
+/**
+ * A spatial index of the XY bounding boxes of {@link Overlay}s, used by
+ * {@link DefaultOverlayService} to answer window and point queries without
+ * visiting every overlay of a display.
+ * <p>
+ * The plane is divided into square cells; each overlay is listed in the cells
+ * its bounding box touches. Overlays too large for that to pay off are kept in
+ * a separate list which every query checks. Overlays without a region of
+ * interest have no bounds and are not indexed.
+ * </p>
+ * <p>
+ * The index also keeps the display's {@link Dataset}s, so that queries for the
+ * extents of the display need not visit every view either.
+ * </p>
+ */
+final class OverlayIndex {
+
+	/** Width and height of a cell, in pixels. */
+	private static final double CELL_SIZE = 64;
+
+	/** Overlays touching more cells than this are not put into cells. */
+	private static final long MAX_CELLS = 256;
+
+	private final Map<Long, List<Overlay>> cells =
+		new HashMap<Long, List<Overlay>>();
+	private final List<Overlay> large = new ArrayList<Overlay>();
+	private final Map<Overlay, double[]> bounds =
+		new IdentityHashMap<Overlay, double[]>();
+
+	private final List<Dataset> datasets = new ArrayList<Dataset>();
+
+	/**
+	 * View modification count of the display when the index was last
+	 * synchronized with it.
+	 */
+	private long modificationCount = -1;
+
+	// -- OverlayIndex methods --
+
+	/** Gets the number of indexed overlays. */
+	public int size() {
+		return bounds.size();
+	}
+
+	public boolean contains(final Overlay overlay) {
+		return bounds.containsKey(overlay);
+	}
+
+	public long getModificationCount() {
+		return modificationCount;
+	}
+
+	public void setModificationCount(final long modificationCount) {
+		this.modificationCount = modificationCount;
+	}
+
+	/** Removes all overlays and datasets. */
+	public void clear() {
+		cells.clear();
+		large.clear();
+		bounds.clear();
+		datasets.clear();
+	}
+
+	public void add(final Dataset dataset) {
+		datasets.add(dataset);
+	}
+
+	public List<Dataset> getDatasets() {
+		return Collections.unmodifiableList(datasets);
+	}
+
+	/** Adds the given overlay, or reindexes it if it was already added. */
+	public void add(final Overlay overlay) {
+		remove(overlay);
+		final RegionOfInterest roi = overlay.getRegionOfInterest();
+		if (roi == null) return;
+		final double[] box =
+			{ roi.realMin(0), roi.realMin(1), roi.realMax(0), roi.realMax(1) };
+		bounds.put(overlay, box);
+		if (isLarge(box[0], box[1], box[2], box[3])) {
+			large.add(overlay);
+			return;
+		}
+		final long x0 = cell(box[0]), y0 = cell(box[1]);
+		final long x1 = cell(box[2]), y1 = cell(box[3]);
+		for (long y = y0; y <= y1; y++) {
+			for (long x = x0; x <= x1; x++) {
+				final Long key = key(x, y);
+				List<Overlay> list = cells.get(key);
+				if (list == null) {
+					list = new ArrayList<Overlay>(4);
+					cells.put(key, list);
+				}
+				list.add(overlay);
+			}
+		}
+	}
+
+	/** Removes the given overlay, if it was added. */
+	public void remove(final Overlay overlay) {
+		final double[] box = bounds.remove(overlay);
+		if (box == null) return;
+		if (isLarge(box[0], box[1], box[2], box[3])) {
+			large.remove(overlay);
+			return;
+		}
+		final long x0 = cell(box[0]), y0 = cell(box[1]);
+		final long x1 = cell(box[2]), y1 = cell(box[3]);
+		for (long y = y0; y <= y1; y++) {
+			for (long x = x0; x <= x1; x++) {
+				final Long key = key(x, y);
+				final List<Overlay> list = cells.get(key);
+				if (list == null) continue;
+				list.remove(overlay);
+				if (list.isEmpty()) cells.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Gets the overlays whose bounding boxes intersect the given window, in no
+	 * particular order.
+	 */
+	public List<Overlay> find(final double minX, final double minY,
+		final double maxX, final double maxY)
+	{
+		final List<Overlay> result = new ArrayList<Overlay>();
+		for (final Overlay overlay : large) {
+			if (intersects(bounds.get(overlay), minX, minY, maxX, maxY)) {
+				result.add(overlay);
+			}
+		}
+		if (cellCount(minX, minY, maxX, maxY) > cells.size()) {
+			// NB: a window wider than the occupied cells is cheaper to scan
+			for (final Map.Entry<Overlay, double[]> entry : bounds.entrySet()) {
+				final double[] box = entry.getValue();
+				if (isLarge(box[0], box[1], box[2], box[3])) continue;
+				if (intersects(box, minX, minY, maxX, maxY)) {
+					result.add(entry.getKey());
+				}
+			}
+			return result;
+		}
+		final long qx0 = cell(minX), qy0 = cell(minY);
+		final long qx1 = cell(maxX), qy1 = cell(maxY);
+		for (long y = qy0; y <= qy1; y++) {
+			for (long x = qx0; x <= qx1; x++) {
+				final List<Overlay> list = cells.get(key(x, y));
+				if (list == null) continue;
+				for (final Overlay overlay : list) {
+					final double[] box = bounds.get(overlay);
+					// report each overlay from one cell only: the first one it
+					// shares with the window
+					if (x != Math.max(qx0, cell(box[0])) ||
+						y != Math.max(qy0, cell(box[1])))
+					{
+						continue;
+					}
+					if (intersects(box, minX, minY, maxX, maxY)) result.add(overlay);
+				}
+			}
+		}
+		return result;
+	}
+
+	// -- Helper methods --
+
+	private static long cell(final double c) {
+		return (long) Math.floor(c / CELL_SIZE);
+	}
+
+	private static double cellCount(final double minX, final double minY,
+		final double maxX, final double maxY)
+	{
+		final double w =
+			Math.floor(maxX / CELL_SIZE) - Math.floor(minX / CELL_SIZE);
+		final double h =
+			Math.floor(maxY / CELL_SIZE) - Math.floor(minY / CELL_SIZE);
+		return (w + 1) * (h + 1);
+	}
+
+	private static boolean isLarge(final double minX, final double minY,
+		final double maxX, final double maxY)
+	{
+		// NB: NaN bounds count as large, so they never reach the cells
+		return !(cellCount(minX, minY, maxX, maxY) <= MAX_CELLS);
+	}
+
+	private static Long key(final long x, final long y) {
+		return (y << 32) ^ (x & 0xffffffffL);
+	}
+
+	private static boolean intersects(final double[] box, final double minX,
+		final double minY, final double maxX, final double maxY)
+	{
+		return box[0] <= maxX && box[2] >= minX && box[1] <= maxY &&
+			box[3] >= minY;
+	}
+
+}
@@ -38,6 +38,7 @@
 import imagej.data.ChannelCollection;
 import imagej.data.overlay.Overlay;
 import imagej.data.overlay.OverlaySettings;
+import imagej.data.overlay.OverlaySpans;
 import imagej.object.ObjectService;
 import imagej.service.IService;
 import imagej.util.RealRect;
@@ -64,6 +65,21 @@ public interface OverlayService extends IService {
 	 */
 	List<Overlay> getOverlays(final ImageDisplay display);
 
+	/**
+	 * Gets the {@link Overlay}s linked to the given {@link ImageDisplay} whose XY
+	 * bounding boxes intersect the given window, in no particular order. The
+	 * overlays of each display are kept in a spatial index, so this does not
+	 * visit every overlay. Overlays without a region of interest are never
+	 * returned.
+	 */
+	List<Overlay> getOverlays(ImageDisplay display, RealRect window);
+
+	/**
+	 * Gets the {@link Overlay}s linked to the given {@link ImageDisplay} whose XY
+	 * bounding boxes contain the given point, in no particular order.
+	 */
+	List<Overlay> getOverlays(ImageDisplay display, double x, double y);
+
 	/** Adds the list of {@link Overlay}s to the given {@link ImageDisplay}. */
 	void addOverlays(final ImageDisplay display, final List<Overlay> overlays);
 
@@ -93,6 +109,15 @@ public interface OverlayService extends IService {
 	 */
 	RealRect getSelectionBounds(final ImageDisplay display);
 
+	/**
+	 * Gets the pixels of the selected overlays in the given
+	 * {@link ImageDisplay}: the spans of the selected overlay, or the union of
+	 * them when several are selected.
+	 * 
+	 * @return the pixels of the selection, or null if no overlay is selected
+	 */
+	OverlaySpans getSelectionSpans(ImageDisplay display);
+
 	OverlaySettings getDefaultSettings();
 
 	/**
@@ -58,6 +58,13 @@ public DataView getView() {
 		return view;
 	}
 
+	// -- ImageJEvent methods --
+
+	@Override
+	public Object getSource() {
+		return getView();
+	}
+
 	// -- Object methods --
 
 	@Override
@@ -36,6 +36,7 @@
 package imagej.data.display.event;
 
 import imagej.data.display.DataView;
+import imagej.util.IntRect;
 
 /**
  * This event signals that the data view's appearance has changed.
@@ -44,8 +45,26 @@
  */
 public class DataViewUpdatedEvent extends DataViewEvent {
 
+	/** The changed area of the view, or null if it may have changed entirely. */
+	private final IntRect region;
+
 	public DataViewUpdatedEvent(DataView view) {
+		this(view, null);
+	}
+
+	public DataViewUpdatedEvent(final DataView view, final IntRect region) {
 		super(view);
+		this.region = region;
+	}
+
+	// -- DataViewUpdatedEvent methods --
+
+	/**
+	 * Gets the area of the view which changed, in pixel coordinates, or null if
+	 * the view may have changed entirely.
+	 */
+	public IntRect getRegion() {
+		return region;
 	}
 
 }
@@ -273,7 +273,7 @@ protected void updateLabel() {
 	
 	//-- Event handlers --//
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final WinActivatedEvent event) {
 		if (event.getDisplay() != this.getDisplay()) return;
 		// final UserInterface ui = ImageJ.get(UIService.class).getUI();
@@ -283,7 +283,7 @@ protected void onEvent(final WinActivatedEvent event) {
 		getImageDisplay().getCanvas().setCursor(toolService.getActiveTool().getCursor());
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final ZoomEvent event) {
 		if (event.getCanvas() != getImageDisplay().getCanvas()) return;
 		updateLabel();
@@ -36,18 +36,31 @@
 package imagej.data.event;
 
 import imagej.data.Data;
+import imagej.event.CoalescableEvent;
 
 /**
  * An event indicating a {@link Data}'s data has been updated. This means that
  * sample values may have changed, but the dimensional structure is the same as
  * before.
+ * <p>
+ * Pending duplicate update events for the same object are coalesced.
+ * </p>
  * 
  * @author Curtis Rueden
  */
-public abstract class DataUpdatedEvent extends DataModifiedEvent {
+public abstract class DataUpdatedEvent extends DataModifiedEvent implements
+	CoalescableEvent
+{
 
 	public DataUpdatedEvent(final Data data) {
 		super(data);
 	}
 
+	// -- CoalescableEvent methods --
+
+	@Override
+	public boolean coalesce(final CoalescableEvent event) {
+		return true;
+	}
+
 }
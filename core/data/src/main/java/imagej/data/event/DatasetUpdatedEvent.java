@@ -36,11 +36,18 @@
 package imagej.data.event;
 
 import imagej.data.Dataset;
+import imagej.data.UpdateRegion;
+import imagej.event.CoalescableEvent;
 
 /**
  * An event indicating a {@link Dataset}'s data has been updated. This means
  * that sample values may have changed, but the dimensional structure is the
  * same as before.
+ * <p>
+ * The event may describe which part of the Dataset changed, as an
+ * {@link UpdateRegion}; when pending events are coalesced, their regions are
+ * merged.
+ * </p>
  * 
  * @author Curtis Rueden
  */
@@ -48,9 +55,28 @@ public class DatasetUpdatedEvent extends DataUpdatedEvent {
 
 	private final Dataset dataset;
 
+	/** The modified region, or null if the entire Dataset may have changed. */
+	private UpdateRegion region;
+
 	public DatasetUpdatedEvent(final Dataset dataset) {
+		this(dataset, null);
+	}
+
+	public DatasetUpdatedEvent(final Dataset dataset, final UpdateRegion region)
+	{
 		super(dataset);
 		this.dataset = dataset;
+		this.region = region;
+	}
+
+	// -- DatasetUpdatedEvent methods --
+
+	/**
+	 * Gets the modified part of the Dataset, or null if the entire Dataset may
+	 * have changed.
+	 */
+	public UpdateRegion getRegion() {
+		return region;
 	}
 
 	// -- ObjectEvent methods --
@@ -60,4 +86,17 @@ public Dataset getObject() {
 		return dataset;
 	}
 
+	// -- CoalescableEvent methods --
+
+	@Override
+	public boolean coalesce(final CoalescableEvent event) {
+		if (!(event instanceof DatasetUpdatedEvent)) return false;
+		final DatasetUpdatedEvent other = (DatasetUpdatedEvent) event;
+		if (other.dataset != dataset) return false;
+		if (region != null) {
+			region = other.region == null ? null : region.union(other.region);
+		}
+		return true;
+	}
+
 }
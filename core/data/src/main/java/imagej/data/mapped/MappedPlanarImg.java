@@ -0,0 +1,239 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * {@link PlanarImg} whose planes are regions of a memory-mapped raw file.
+ * <p>
+ * Opening maps each XY plane without reading anything; the operating system
+ * pages pixels in as they are accessed, and writes modified pages back to the
+ * file. {@link #flush()} forces them out, so saving to the mapped file is just
+ * a flush. Each plane's storage implements {@link BufferAccess}, exposing it
+ * as an NIO buffer without copying.
+ * </p>
+ * <p>
+ * The file holds planes one after the other, starting at a given offset, with
+ * pixels in row-major order and the given byte order. Supported types are the
+ * signed and unsigned 8, 16 and 32-bit integers, 64-bit integers, and 32 and
+ * 64-bit floats.
+ * </p>
+ */
+public class MappedPlanarImg<T extends NativeType<T>, A extends
+	ArrayDataAccess<A>> extends PlanarImg<T, A>
+{
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final boolean readOnly;
+	private final List<MappedByteBuffer> mappings;
+
+	private MappedPlanarImg(final long[] dims, final File file,
+		final RandomAccessFile raf, final boolean readOnly,
+		final List<MappedByteBuffer> mappings)
+	{
+		super(dims, 1);
+		this.file = file;
+		this.raf = raf;
+		this.readOnly = readOnly;
+		this.mappings = mappings;
+	}
+
+	// -- MappedPlanarImg methods --
+
+	/** Gets the mapped file. */
+	public File getFile() {
+		return file;
+	}
+
+	/** Gets whether the file is mapped read-only. */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/** Writes every modified page back to the file. */
+	public void flush() {
+		if (readOnly) return;
+		for (final MappedByteBuffer mapping : mappings) {
+			mapping.force();
+		}
+	}
+
+	/**
+	 * Flushes and closes the file. The mappings stay valid until the image is
+	 * garbage collected.
+	 */
+	public void close() throws IOException {
+		flush();
+		raf.close();
+	}
+
+	// -- Utility methods --
+
+	/**
+	 * Maps a raw file as a planar image.
+	 * 
+	 * @param file The raw file. If writable, it is extended as needed.
+	 * @param offset Offset of the first plane in the file, in bytes.
+	 * @param dims Dimensions of the image, starting with X and Y.
+	 * @param type Pixel type.
+	 * @param order Byte order of the pixels.
+	 * @param readOnly Whether to map the file read-only.
+	 * @throws IOException If the file cannot be opened, or is too short.
+	 * @throws IllegalArgumentException If the type is not supported, or a plane
+	 *           is larger than 2 GB.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static <T extends RealType<T> & NativeType<T>> MappedPlanarImg<T, ?>
+		open(final File file, final long offset, final long[] dims, final T type,
+			final ByteOrder order, final boolean readOnly) throws IOException
+	{
+		if (dims.length < 2) {
+			throw new IllegalArgumentException("Image must have X and Y");
+		}
+		final int bytesPerPixel = type.getBitsPerPixel() / 8;
+		final long planeBytes = dims[0] * dims[1] * bytesPerPixel;
+		if (planeBytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Plane too large: " + planeBytes +
+				" bytes");
+		}
+		long planeCount = 1;
+		for (int d = 2; d < dims.length; d++) {
+			planeCount *= dims[d];
+		}
+
+		final RandomAccessFile raf =
+			new RandomAccessFile(file, readOnly ? "r" : "rw");
+		final List<MappedByteBuffer> mappings = new ArrayList<MappedByteBuffer>();
+		final MappedPlanarImg img;
+		try {
+			final long length = offset + planeCount * planeBytes;
+			if (readOnly && raf.length() < length) {
+				throw new IOException("File too short: " + file + " has " +
+					raf.length() + " bytes; expected " + length);
+			}
+			final FileChannel channel = raf.getChannel();
+			final MapMode mode = readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE;
+			img = new MappedPlanarImg(dims, file, raf, readOnly, mappings);
+			for (int p = 0; p < planeCount; p++) {
+				final MappedByteBuffer mapping =
+					channel.map(mode, offset + p * planeBytes, planeBytes);
+				mappings.add(mapping);
+				mapping.order(order);
+				img.setPlane(p, createAccess(type, mapping));
+			}
+			img.setLinkedType(createLinkedType(type, img));
+		}
+		catch (final IOException e) {
+			raf.close();
+			throw e;
+		}
+		catch (final RuntimeException e) {
+			raf.close();
+			throw e;
+		}
+		return img;
+	}
+
+	// -- Helper methods --
+
+	private static ArrayDataAccess<?> createAccess(final RealType<?> type,
+		final ByteBuffer bytes)
+	{
+		if (type instanceof UnsignedByteType || type instanceof ByteType) {
+			return new MappedByteAccess(bytes);
+		}
+		if (type instanceof UnsignedShortType || type instanceof ShortType) {
+			return new MappedShortAccess(bytes.asShortBuffer());
+		}
+		if (type instanceof UnsignedIntType || type instanceof IntType) {
+			return new MappedIntAccess(bytes.asIntBuffer());
+		}
+		if (type instanceof LongType) {
+			return new MappedLongAccess(bytes.asLongBuffer());
+		}
+		if (type instanceof FloatType) {
+			return new MappedFloatAccess(bytes.asFloatBuffer());
+		}
+		if (type instanceof DoubleType) {
+			return new MappedDoubleAccess(bytes.asDoubleBuffer());
+		}
+		throw new IllegalArgumentException("Unsupported type: " +
+			type.getClass().getName());
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static NativeType<?> createLinkedType(final RealType<?> type,
+		final MappedPlanarImg img)
+	{
+		if (type instanceof UnsignedByteType) return new UnsignedByteType(img);
+		if (type instanceof ByteType) return new ByteType(img);
+		if (type instanceof UnsignedShortType) return new UnsignedShortType(img);
+		if (type instanceof ShortType) return new ShortType(img);
+		if (type instanceof UnsignedIntType) return new UnsignedIntType(img);
+		if (type instanceof IntType) return new IntType(img);
+		if (type instanceof LongType) return new LongType(img);
+		if (type instanceof FloatType) return new FloatType(img);
+		if (type instanceof DoubleType) return new DoubleType(img);
+		throw new IllegalArgumentException("Unsupported type: " +
+			type.getClass().getName());
+	}
+
+}
@@ -77,6 +77,8 @@ public class AbstractOverlay extends AbstractData implements Overlay {
 	private ArrowStyle startArrowStyle;
 	private ArrowStyle endArrowStyle;
 
+	private OverlaySpans spans;
+
 	public AbstractOverlay(final ImageJ context) {
 		super(context);
 		final OverlayService overlayService =
@@ -112,6 +114,14 @@ public RegionOfInterest getRegionOfInterest() {
 		return null;
 	}
 
+	@Override
+	public synchronized OverlaySpans getSpans() {
+		if (spans == null || !spans.isCurrent(this)) {
+			spans = OverlaySpans.rasterize(this);
+		}
+		return spans;
+	}
+
 	@Override
 	public int getAlpha() {
 		return alpha;
@@ -186,11 +196,13 @@ public void setLineEndArrowStyle(final ArrowStyle style) {
 
 	@Override
 	public void update() {
+		clearSpans();
 		publish(new OverlayUpdatedEvent(this));
 	}
 
 	@Override
 	public void rebuild() {
+		clearSpans();
 		publish(new OverlayRestructuredEvent(this));
 	}
 
@@ -355,6 +367,10 @@ public void readExternal(final ObjectInput in) throws IOException,
 
 	// -- Helper methods --
 
+	private synchronized void clearSpans() {
+		spans = null;
+	}
+
 	private void applySettings(final OverlaySettings settings) {
 		startArrowStyle = settings.getStartArrowStyle();
 		endArrowStyle = settings.getEndArrowStyle();
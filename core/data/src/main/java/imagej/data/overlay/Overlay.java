@@ -69,6 +69,13 @@ enum ArrowStyle {
 	 */
 	RegionOfInterest getRegionOfInterest();
 
+	/**
+	 * Gets the pixels of the overlay in the XY plane as runs along X. The region
+	 * of interest is rasterized on first use, and again after the overlay is
+	 * updated or moved.
+	 */
+	OverlaySpans getSpans();
+
 	/**
 	 * @return the opacity of the interior of the overlay, from 0-255
 	 */
@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.overlay;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.RealRandomAccess;
+import net.imglib2.roi.RegionOfInterest;
+import net.imglib2.type.logic.BitType;
+
+/**
+ * The pixels of an {@link Overlay} in the XY plane, as runs of consecutive
+ * pixels along X. A pixel belongs to the overlay when its integer position
+ * lies inside the overlay's {@link RegionOfInterest}, so the spans hold the
+ * same pixels as testing the region point by point; but the region is tested
+ * only once, rather than once per plane of every image it is applied to.
+ * <p>
+ * Spans are immutable. {@link Overlay#getSpans()} keeps them until the overlay
+ * is updated.
+ * </p>
+ */
+public final class OverlaySpans {
+
+	private final double[] bounds;
+	private final long minY;
+	private final int[] rowStarts;
+	private final long[] spans;
+	private final long pixelCount;
+
+	private OverlaySpans(final double[] bounds, final long minY,
+		final int[] rowStarts, final long[] spans)
+	{
+		this.bounds = bounds;
+		this.minY = minY;
+		this.rowStarts = rowStarts;
+		this.spans = spans;
+		long count = 0;
+		for (int i = 0; i < spans.length; i += 2) {
+			count += spans[i + 1] - spans[i] + 1;
+		}
+		pixelCount = count;
+	}
+
+	// -- Factory methods --
+
+	/** Rasterizes the region of interest of the given overlay. */
+	public static OverlaySpans rasterize(final Overlay overlay) {
+		final double[] bounds = bounds(overlay);
+		final RegionOfInterest roi = overlay.getRegionOfInterest();
+		if (roi == null) {
+			return new OverlaySpans(bounds, 0, new int[1], new long[0]);
+		}
+		final long minX = (long) Math.floor(bounds[0]);
+		final long minY = (long) Math.floor(bounds[1]);
+		final long maxX = (long) Math.ceil(bounds[2]);
+		final long maxY = (long) Math.ceil(bounds[3]);
+		final int rows = (int) (maxY - minY + 1);
+		final int[] rowStarts = new int[rows + 1];
+		long[] spans = new long[16];
+		int count = 0;
+		final RealRandomAccess<BitType> access = roi.realRandomAccess();
+		final double[] pos = new double[roi.numDimensions()];
+		for (int r = 0; r < rows; r++) {
+			rowStarts[r] = count / 2;
+			pos[1] = minY + r;
+			long start = -1;
+			boolean inside = false;
+			for (long x = minX; x <= maxX + 1; x++) {
+				boolean in = false;
+				if (x <= maxX) {
+					pos[0] = x;
+					access.setPosition(pos);
+					in = access.get().get();
+				}
+				if (in == inside) continue;
+				if (in) start = x;
+				else {
+					if (count + 2 > spans.length) {
+						spans = Arrays.copyOf(spans, spans.length * 2);
+					}
+					spans[count++] = start;
+					spans[count++] = x - 1;
+				}
+				inside = in;
+			}
+		}
+		rowStarts[rows] = count / 2;
+		return new OverlaySpans(bounds, minY, rowStarts, Arrays.copyOf(spans,
+			count));
+	}
+
+	/**
+	 * Combines the spans of several overlays into those of the pixels belonging
+	 * to any of them. The union matches the bounds of no single overlay, so it
+	 * is never {@link #isCurrent current}.
+	 */
+	public static OverlaySpans union(final List<OverlaySpans> parts) {
+		long minY = Long.MAX_VALUE, maxY = Long.MIN_VALUE;
+		for (final OverlaySpans part : parts) {
+			if (part.getPixelCount() == 0) continue;
+			minY = Math.min(minY, part.getMinY());
+			maxY = Math.max(maxY, part.getMaxY());
+		}
+		if (minY > maxY) return new OverlaySpans(null, 0, new int[1], new long[0]);
+		final int rows = (int) (maxY - minY + 1);
+		final int[] rowStarts = new int[rows + 1];
+		long[] spans = new long[16];
+		int count = 0;
+		long[] starts = new long[16];
+		long[] ends = new long[16];
+		for (int r = 0; r < rows; r++) {
+			rowStarts[r] = count / 2;
+			final long y = minY + r;
+			int n = 0;
+			for (final OverlaySpans part : parts) {
+				final int rowEnd = part.getRowEnd(y);
+				for (int s = part.getRowStart(y); s < rowEnd; s++) {
+					if (n == starts.length) {
+						starts = Arrays.copyOf(starts, 2 * n);
+						ends = Arrays.copyOf(ends, 2 * n);
+					}
+					starts[n] = part.getSpanMinX(s);
+					ends[n++] = part.getSpanMaxX(s) + 1;
+				}
+			}
+			// NB: sweep the sorted starts and (exclusive) ends; a span begins where
+			// the depth rises from 0, and ends where it falls back to 0. Starts go
+			// first on ties, so that abutting spans merge.
+			Arrays.sort(starts, 0, n);
+			Arrays.sort(ends, 0, n);
+			int depth = 0;
+			long start = 0;
+			for (int i = 0, j = 0; j < n;) {
+				if (i < n && starts[i] <= ends[j]) {
+					if (depth++ == 0) start = starts[i];
+					i++;
+				}
+				else {
+					if (--depth == 0) {
+						if (count + 2 > spans.length) {
+							spans = Arrays.copyOf(spans, spans.length * 2);
+						}
+						spans[count++] = start;
+						spans[count++] = ends[j] - 1;
+					}
+					j++;
+				}
+			}
+		}
+		rowStarts[rows] = count / 2;
+		return new OverlaySpans(null, minY, rowStarts, Arrays.copyOf(spans,
+			count));
+	}
+
+	// -- OverlaySpans methods --
+
+	/** Gets the number of pixels of the overlay. */
+	public long getPixelCount() {
+		return pixelCount;
+	}
+
+	/** Gets the first row which may have spans. */
+	public long getMinY() {
+		return minY;
+	}
+
+	/** Gets the last row which may have spans. */
+	public long getMaxY() {
+		return minY + rowStarts.length - 2;
+	}
+
+	/** Gets the index of the first span of the given row. */
+	public int getRowStart(final long y) {
+		if (y < minY) return 0;
+		if (y > getMaxY()) return rowStarts[rowStarts.length - 1];
+		return rowStarts[(int) (y - minY)];
+	}
+
+	/**
+	 * Gets the index after the last span of the given row. The spans of a row are
+	 * ordered by X.
+	 */
+	public int getRowEnd(final long y) {
+		if (y < minY) return 0;
+		if (y > getMaxY()) return rowStarts[rowStarts.length - 1];
+		return rowStarts[(int) (y - minY) + 1];
+	}
+
+	/** Gets the first X of the given span. */
+	public long getSpanMinX(final int span) {
+		return spans[2 * span];
+	}
+
+	/** Gets the last X of the given span. */
+	public long getSpanMaxX(final int span) {
+		return spans[2 * span + 1];
+	}
+
+	/** Gets whether the pixel at the given position belongs to the overlay. */
+	public boolean contains(final long x, final long y) {
+		int lo = getRowStart(y);
+		int hi = getRowEnd(y) - 1;
+		while (lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (x < spans[2 * mid]) hi = mid - 1;
+			else if (x > spans[2 * mid + 1]) lo = mid + 1;
+			else return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets whether the spans still match the XY bounds of the given overlay. This
+	 * catches overlays which were moved or resized without being updated.
+	 */
+	public boolean isCurrent(final Overlay overlay) {
+		return Arrays.equals(bounds, bounds(overlay));
+	}
+
+	// -- Helper methods --
+
+	private static double[] bounds(final Overlay overlay) {
+		final RegionOfInterest roi = overlay.getRegionOfInterest();
+		if (roi == null) return new double[4];
+		return new double[] { roi.realMin(0), roi.realMin(1), roi.realMax(0),
+			roi.realMax(1) };
+	}
+
+}
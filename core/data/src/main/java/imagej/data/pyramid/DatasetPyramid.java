@@ -0,0 +1,548 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.pyramid;
+
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.UpdateRegion;
+import imagej.thread.LoopBody;
+import imagej.thread.ThreadService;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * A multi-resolution pyramid of a {@link Dataset}, for rendering it cheaply
+ * when zoomed out.
+ * <p>
+ * Level <em>k</em> halves the XY resolution of the dataset <em>k</em> times;
+ * other dimensions are kept as they are. Each pixel is the average of the
+ * dataset pixels it covers (up to 2<sup>k</sup> &times; 2<sup>k</sup> of them),
+ * rather than a sample of one. Level 0 is the dataset itself.
+ * </p>
+ * <p>
+ * Planes of a level are computed in float precision when first requested, from
+ * the finest level of the same plane already cached, with rows computed in
+ * parallel. Updates mark only the modified XY box of the affected planes as
+ * outdated, and just that box is recomputed on the next request. Cached planes
+ * are kept up to a given total number of samples, dropping the least recently
+ * used first.
+ * </p>
+ * 
+ * @see Dataset#getPyramid()
+ */
+public class DatasetPyramid {
+
+	/** Default maximum number of samples cached, across levels and planes. */
+	public static final long DEFAULT_CAPACITY = 1L << 26;
+
+	private final Dataset dataset;
+
+	/** Cached planes by level and plane number, least recently used first. */
+	private final LinkedHashMap<Long, Level> cache =
+		new LinkedHashMap<Long, Level>(16, 0.75f, true);
+
+	private long capacity = DEFAULT_CAPACITY;
+	private long cachedSamples;
+
+	/** Dimensions of the dataset, or null if not yet read. */
+	private long[] dims;
+	private int levelCount;
+
+	/** Number of invalidations of each plane, to detect them during builds. */
+	private long[] modifications;
+
+	public DatasetPyramid(final Dataset dataset) {
+		this.dataset = dataset;
+	}
+
+	// -- DatasetPyramid methods --
+
+	public Dataset getDataset() {
+		return dataset;
+	}
+
+	/** Gets the maximum number of samples cached. */
+	public synchronized long getCapacity() {
+		return capacity;
+	}
+
+	/** Sets the maximum number of samples cached. */
+	public synchronized void setCapacity(final long capacity) {
+		this.capacity = capacity;
+		evict(-1);
+	}
+
+	/**
+	 * Gets the number of levels, including level 0; the last level is one pixel
+	 * in size. Datasets without Y axis have only level 0.
+	 */
+	public synchronized int getLevelCount() {
+		initialize();
+		return levelCount;
+	}
+
+	/**
+	 * Gets the coarsest level which still has at least the resolution of the
+	 * given zoom factor, i.e. whose scale 2<sup>-level</sup> is not below it.
+	 */
+	public int getLevel(final double zoomFactor) {
+		final int count = getLevelCount();
+		int level = 0;
+		while (level + 1 < count && zoomFactor <= 1.0 / (2L << level)) {
+			level++;
+		}
+		return level;
+	}
+
+	/** Gets the width of the given level. */
+	public synchronized long getWidth(final int level) {
+		initialize();
+		return size(dims[0], level);
+	}
+
+	/** Gets the height of the given level. */
+	public synchronized long getHeight(final int level) {
+		initialize();
+		return size(dims[1], level);
+	}
+
+	/**
+	 * Gets a plane of the given level, in row-major order. The array is shared
+	 * with the cache and must not be modified. It does not change once returned:
+	 * after an update of the plane, the next request computes a new array.
+	 * 
+	 * @param level Level, from 1 to {@link #getLevelCount()} - 1.
+	 * @param planeNumber Number of the plane, as by {@link Dataset#getPlane}.
+	 */
+	public float[] getPlane(final int level, final int planeNumber) {
+		final long key = key(level, planeNumber);
+		final long[] planeDims;
+		final Level cached;
+		final long[] box;
+		final long stamp;
+		int source = 0;
+		float[] sourceData = null;
+		synchronized (this) {
+			initialize();
+			if (level < 1 || level >= levelCount) {
+				throw new IllegalArgumentException("Invalid level: " + level);
+			}
+			if (planeNumber < 0 || planeNumber >= modifications.length) {
+				throw new IllegalArgumentException("Invalid plane: " + planeNumber);
+			}
+			cached = cache.get(key);
+			if (cached != null && cached.dirty == null) return cached.data;
+			planeDims = dims;
+			stamp = modifications[planeNumber];
+			if (cached != null) {
+				// claim the outdated box; updates from now on mark it anew
+				box = cached.dirty;
+				cached.dirty = null;
+			}
+			else {
+				box = null;
+				for (int j = level - 1; j > 0; j--) {
+					final Level finer = cache.get(key(j, planeNumber));
+					if (finer != null && finer.dirty == null) {
+						source = j;
+						sourceData = finer.data;
+						break;
+					}
+				}
+			}
+		}
+
+		final float[] data;
+		if (cached != null) {
+			// refresh a copy, as readers of the cached plane may still be using it
+			data = cached.data.clone();
+			compute(planeDims, planeNumber, 0, null, level, data, box);
+		}
+		else {
+			data =
+				new float[(int) (size(planeDims[0], level) *
+					size(planeDims[1], level))];
+			compute(planeDims, planeNumber, source, sourceData, level, data, null);
+		}
+		synchronized (this) {
+			if (dims != planeDims) return data; // structure changed meanwhile
+			final Level entry = new Level(data);
+			if (modifications[planeNumber] != stamp) {
+				// updated during the build: keep the box marked on the plane we
+				// refreshed, if it stayed cached; otherwise recompute everything
+				entry.dirty =
+					cached != null && cache.get(key) == cached &&
+						cached.dirty != null ? cached.dirty : new long[] { 0, 0,
+						planeDims[0] - 1, planeDims[1] - 1 };
+			}
+			final Level old = cache.put(key, entry);
+			if (old != null) cachedSamples -= old.data.length;
+			cachedSamples += data.length;
+			evict(key);
+		}
+		return data;
+	}
+
+	/**
+	 * Marks the given region of the cached planes as outdated, or all of them if
+	 * the region is null.
+	 */
+	public synchronized void invalidate(final UpdateRegion region) {
+		if (dims == null) return;
+		if (region == null || !region.isCompatible(dims) || dims.length < 2) {
+			invalidateAll();
+			return;
+		}
+		final int[] planes = region.getPlanes();
+		for (final int p : planes) {
+			modifications[p]++;
+		}
+		for (final Map.Entry<Long, Level> entry : cache.entrySet()) {
+			final int planeNumber = (int) (long) entry.getKey();
+			if (!region.containsPlane(planeNumber)) continue;
+			final Level level = entry.getValue();
+			if (level.dirty == null) {
+				level.dirty =
+					new long[] { region.min(0), region.min(1), region.max(0),
+						region.max(1) };
+			}
+			else {
+				level.dirty[0] = Math.min(level.dirty[0], region.min(0));
+				level.dirty[1] = Math.min(level.dirty[1], region.min(1));
+				level.dirty[2] = Math.max(level.dirty[2], region.max(0));
+				level.dirty[3] = Math.max(level.dirty[3], region.max(1));
+			}
+		}
+	}
+
+	/** Discards all cached planes. */
+	public synchronized void invalidateAll() {
+		cache.clear();
+		cachedSamples = 0;
+		if (modifications == null) return;
+		for (int p = 0; p < modifications.length; p++) {
+			modifications[p]++;
+		}
+	}
+
+	/**
+	 * Discards all cached planes, along with the dataset's cached structure.
+	 * Must be called when the dataset's dimensions or type change.
+	 */
+	public synchronized void reset() {
+		cache.clear();
+		cachedSamples = 0;
+		dims = null;
+		modifications = null;
+	}
+
+	// -- Helper methods --
+
+	/** Reads the structure of the dataset, if not yet done. */
+	private void initialize() {
+		if (dims != null) return;
+		final long[] newDims = dataset.getDims();
+		long planeCount = 1;
+		for (int d = 2; d < newDims.length; d++) {
+			planeCount *= newDims[d];
+		}
+		if (planeCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many planes: " + planeCount);
+		}
+		levelCount = 1;
+		if (newDims.length >= 2) {
+			final long max = Math.max(newDims[0], newDims[1]);
+			while (size(max, levelCount - 1) > 1) {
+				levelCount++;
+			}
+		}
+		modifications = new long[(int) planeCount];
+		dims = newDims;
+	}
+
+	/** Drops least recently used planes, except the given one, until in bounds. */
+	private void evict(final long keep) {
+		final Iterator<Map.Entry<Long, Level>> iter = cache.entrySet().iterator();
+		while (cachedSamples > capacity && iter.hasNext()) {
+			final Map.Entry<Long, Level> entry = iter.next();
+			if (entry.getKey() == keep) continue;
+			cachedSamples -= entry.getValue().data.length;
+			iter.remove();
+		}
+	}
+
+	/** Gets the size of an axis of the given length at the given level. */
+	private static long size(final long length, final int level) {
+		return (length + (1L << level) - 1) >> level;
+	}
+
+	private static long key(final int level, final int planeNumber) {
+		return ((long) level << 32) | planeNumber;
+	}
+
+	/**
+	 * Computes (part of) a level plane by averaging a finer one.
+	 * 
+	 * @param dims dimensions of the dataset
+	 * @param planeNumber plane to compute
+	 * @param source level to average; 0 reads the dataset itself
+	 * @param sourceData plane of the source level, unless it is 0
+	 * @param level level to compute
+	 * @param out plane of the level, to fill
+	 * @param box part to compute, as {minX, minY, maxX, maxY} in dataset
+	 *          coordinates, or null for the whole plane
+	 */
+	private void compute(final long[] dims, final int planeNumber,
+		final int source, final float[] sourceData, final int level,
+		final float[] out, final long[] box)
+	{
+		final int factor = 1 << (level - source);
+		final int sourceWidth = (int) size(dims[0], source);
+		final int sourceHeight = (int) size(dims[1], source);
+		final int outWidth = (int) size(dims[0], level);
+		final int outHeight = (int) size(dims[1], level);
+		final int minX = box == null ? 0 : (int) Math.max(0, box[0] >> level);
+		final int minY = box == null ? 0 : (int) Math.max(0, box[1] >> level);
+		final int maxX =
+			box == null ? outWidth - 1 : (int) Math.min(outWidth - 1,
+				box[2] >> level);
+		final int maxY =
+			box == null ? outHeight - 1 : (int) Math.min(outHeight - 1,
+				box[3] >> level);
+		if (minX > maxX || minY > maxY) return;
+		final int count = maxX - minX + 1;
+		final int sourceStart = minX * factor;
+		final int sourceCount =
+			Math.min(sourceWidth, (maxX + 1) * factor) - sourceStart;
+		final Object plane =
+			source == 0 ? dataset.getPlaneForReading(planeNumber, false)
+				: sourceData;
+		final Class<?> typeClass = dataset.getType().getClass();
+
+		final LoopBody body = new LoopBody() {
+
+			@Override
+			public void run(final long start, final long end) {
+				final double[] row = new double[sourceCount];
+				final double[] sums = new double[count];
+				final double[] weights = new double[count];
+				final RowReader reader =
+					new RowReader(dims, planeNumber, plane, source > 0, typeClass);
+				for (int y = (int) start; y < end; y++) {
+					Arrays.fill(sums, 0);
+					Arrays.fill(weights, 0);
+					final int yEnd = Math.min(sourceHeight, (y + 1) * factor);
+					for (int sy = y * factor; sy < yEnd; sy++) {
+						reader.read(sy, sourceStart, sourceCount, sourceWidth, row);
+						final long weightY = coverage(dims[1], source, sy);
+						for (int i = 0; i < sourceCount; i++) {
+							final double value = row[i];
+							if (Double.isNaN(value)) continue;
+							final int sx = sourceStart + i;
+							final double weight = weightY * coverage(dims[0], source, sx);
+							final int o = sx / factor - minX;
+							sums[o] += weight * value;
+							weights[o] += weight;
+						}
+					}
+					final int offset = y * outWidth + minX;
+					for (int o = 0; o < count; o++) {
+						out[offset + o] =
+							weights[o] == 0 ? Float.NaN : (float) (sums[o] / weights[o]);
+					}
+				}
+			}
+		};
+		final ThreadService threadService = getThreadService();
+		if (threadService == null || minY == maxY) body.run(minY, maxY + 1);
+		else threadService.parallelFor(minY, maxY + 1, body);
+	}
+
+	/**
+	 * Gets the number of dataset pixels covered along an axis of the given
+	 * length by a pixel of the given level.
+	 */
+	private static long coverage(final long length, final int level,
+		final long index)
+	{
+		return Math.min(1L << level, length - (index << level));
+	}
+
+	private ThreadService getThreadService() {
+		final ImageJ context = dataset.getContext();
+		if (context == null) return null;
+		return context.getService(ThreadService.class);
+	}
+
+	// -- Helper classes --
+
+	/** A cached plane of a level. */
+	private static class Level {
+
+		private final float[] data;
+
+		/** Outdated box {minX, minY, maxX, maxY} in dataset coordinates. */
+		private long[] dirty;
+
+		public Level(final float[] data) {
+			this.data = data;
+		}
+
+	}
+
+	/** Reads rows of a level plane, or of the dataset. */
+	private class RowReader {
+
+		private final Object plane;
+		private final boolean levelPlane;
+		private final Class<?> typeClass;
+		private final long[] pos;
+		private RandomAccess<? extends RealType<?>> access;
+
+		public RowReader(final long[] dims, final int planeNumber,
+			final Object plane, final boolean levelPlane, final Class<?> typeClass)
+		{
+			this.plane = plane;
+			this.levelPlane = levelPlane;
+			this.typeClass = typeClass;
+			pos = new long[dims.length];
+			long rest = planeNumber;
+			for (int d = 2; d < dims.length; d++) {
+				pos[d] = rest % dims[d];
+				rest /= dims[d];
+			}
+		}
+
+		public void read(final int y, final int x, final int count,
+			final int width, final double[] row)
+		{
+			if (plane != null && readArray(y * width + x, count, row)) return;
+			if (access == null) access = dataset.getImgPlus().randomAccess();
+			pos[0] = x;
+			pos[1] = y;
+			access.setPosition(pos);
+			for (int i = 0; i < count; i++) {
+				if (i > 0) access.fwd(0);
+				row[i] = access.get().getRealDouble();
+			}
+		}
+
+		/**
+		 * Reads samples of a level plane, or of a plane array of the dataset's
+		 * type. Returns false if the array is not of the type's storage class.
+		 */
+		private boolean readArray(final int offset, final int count,
+			final double[] row)
+		{
+			final Class<?> c = typeClass;
+			if (plane instanceof float[] && (levelPlane || c == FloatType.class)) {
+				final float[] a = (float[]) plane;
+				for (int i = 0; i < count; i++)
+					row[i] = a[offset + i];
+				return true;
+			}
+			if (plane instanceof byte[]) {
+				final byte[] a = (byte[]) plane;
+				if (c == UnsignedByteType.class) {
+					for (int i = 0; i < count; i++)
+						row[i] = a[offset + i] & 0xff;
+					return true;
+				}
+				if (c == ByteType.class) {
+					for (int i = 0; i < count; i++)
+						row[i] = a[offset + i];
+					return true;
+				}
+			}
+			else if (plane instanceof short[]) {
+				final short[] a = (short[]) plane;
+				if (c == UnsignedShortType.class) {
+					for (int i = 0; i < count; i++)
+						row[i] = a[offset + i] & 0xffff;
+					return true;
+				}
+				if (c == ShortType.class) {
+					for (int i = 0; i < count; i++)
+						row[i] = a[offset + i];
+					return true;
+				}
+			}
+			else if (plane instanceof int[]) {
+				final int[] a = (int[]) plane;
+				if (c == UnsignedIntType.class) {
+					for (int i = 0; i < count; i++)
+						row[i] = a[offset + i] & 0xffffffffL;
+					return true;
+				}
+				if (c == IntType.class) {
+					for (int i = 0; i < count; i++)
+						row[i] = a[offset + i];
+					return true;
+				}
+			}
+			else if (plane instanceof long[] && c == LongType.class) {
+				final long[] a = (long[]) plane;
+				for (int i = 0; i < count; i++)
+					row[i] = a[offset + i];
+				return true;
+			}
+			else if (plane instanceof double[] && c == DoubleType.class) {
+				final double[] a = (double[]) plane;
+				for (int i = 0; i < count; i++)
+					row[i] = a[offset + i];
+				return true;
+			}
+			return false;
+		}
+
+	}
+
+}
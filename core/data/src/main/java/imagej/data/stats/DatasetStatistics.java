@@ -0,0 +1,434 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.stats;
+
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.thread.LoopBody;
+import imagej.thread.ThreadService;
+
+import java.util.Arrays;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.meta.Axes;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Lazily computed and cached {@link Statistics} of a {@link Dataset}, per XY
+ * plane, per channel and overall. Statistics are computed one plane at a time,
+ * with outdated planes spread across the compute threads, and are kept until
+ * the plane is invalidated; channel and overall statistics are merged from the
+ * cached plane statistics. Histograms span the value range of the dataset's
+ * type, in {@link #BINS} bins.
+ * 
+ * @see Dataset#getStatistics()
+ */
+public class DatasetStatistics {
+
+	/** Number of histogram bins. */
+	public static final int BINS = 256;
+
+	private final Dataset dataset;
+
+	private long[] dims;
+	private int channelAxis;
+	private long channelStride;
+	private double histogramMin;
+	private double histogramMax;
+
+	/** Cached plane statistics; null entries are outdated. */
+	private Statistics[] planes;
+
+	/** Per plane counts of invalidations, to detect stale results. */
+	private long[] generations;
+
+	public DatasetStatistics(final Dataset dataset) {
+		this.dataset = dataset;
+	}
+
+	// -- DatasetStatistics methods --
+
+	public Dataset getDataset() {
+		return dataset;
+	}
+
+	/** Gets the number of XY planes of the dataset. */
+	public synchronized int getPlaneCount() {
+		initialize();
+		return planes.length;
+	}
+
+	/**
+	 * Gets the number of channels of the dataset; 1 if it has no channel axis.
+	 */
+	public synchronized long getChannelCount() {
+		initialize();
+		return channelAxis < 0 ? 1 : dims[channelAxis];
+	}
+
+	/** Gets the statistics of the given XY plane. */
+	public Statistics getPlaneStatistics(final int planeNumber) {
+		return collect(new int[] { planeNumber })[0];
+	}
+
+	/**
+	 * Gets the statistics of all planes at the given channel position. If the
+	 * dataset has no channel axis, channel 0 covers all planes.
+	 */
+	public Statistics getChannelStatistics(final long channel) {
+		final int[] channelPlanes;
+		synchronized (this) {
+			initialize();
+			int count = 0;
+			final int[] indices = new int[planes.length];
+			for (int p = 0; p < planes.length; p++) {
+				if (channelOf(p) == channel) indices[count++] = p;
+			}
+			channelPlanes = Arrays.copyOf(indices, count);
+		}
+		return merge(collect(channelPlanes));
+	}
+
+	/** Gets the statistics of the entire dataset. */
+	public Statistics getStatistics() {
+		final int[] allPlanes = new int[getPlaneCount()];
+		for (int p = 0; p < allPlanes.length; p++) {
+			allPlanes[p] = p;
+		}
+		return merge(collect(allPlanes));
+	}
+
+	/** Marks the statistics of the given plane as outdated. */
+	public synchronized void invalidate(final int planeNumber) {
+		if (planes == null) return;
+		planes[planeNumber] = null;
+		generations[planeNumber]++;
+	}
+
+	/** Marks the statistics of every plane as outdated. */
+	public synchronized void invalidateAll() {
+		if (planes == null) return;
+		Arrays.fill(planes, null);
+		for (int p = 0; p < generations.length; p++) {
+			generations[p]++;
+		}
+	}
+
+	/**
+	 * Discards all cached statistics, along with the dataset's cached structure.
+	 * Must be called when the dataset's dimensions, axes or type change.
+	 */
+	public synchronized void reset() {
+		planes = null;
+		generations = null;
+	}
+
+	// -- Helper methods --
+
+	/** Reads the structure of the dataset, if not yet done. */
+	private void initialize() {
+		if (planes != null) return;
+		dims = dataset.getDims();
+		long planeCount = 1;
+		for (int d = 2; d < dims.length; d++) {
+			planeCount *= dims[d];
+		}
+		if (planeCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many planes: " + planeCount);
+		}
+		channelAxis = dataset.getAxisIndex(Axes.CHANNEL);
+		if (channelAxis < 2) channelAxis = -1;
+		channelStride = 1;
+		for (int d = 2; d < channelAxis; d++) {
+			channelStride *= dims[d];
+		}
+		final RealType<?> type = dataset.getType();
+		histogramMin = type.getMinValue();
+		histogramMax = type.getMaxValue();
+		planes = new Statistics[(int) planeCount];
+		generations = new long[(int) planeCount];
+	}
+
+	private long channelOf(final int planeNumber) {
+		if (channelAxis < 0) return 0;
+		return planeNumber / channelStride % dims[channelAxis];
+	}
+
+	/**
+	 * Gets the statistics of the given planes, computing those which are
+	 * outdated and caching them unless invalidated in the meantime.
+	 */
+	private Statistics[] collect(final int[] planeNumbers) {
+		final Statistics[] result = new Statistics[planeNumbers.length];
+		final int[] outdated = new int[planeNumbers.length];
+		final long[] stamps = new long[planeNumbers.length];
+		final Statistics[] cache;
+		final long[] planeDims;
+		final double min;
+		final double max;
+		int outdatedCount = 0;
+		synchronized (this) {
+			initialize();
+			cache = planes;
+			planeDims = dims;
+			min = histogramMin;
+			max = histogramMax;
+			for (int i = 0; i < planeNumbers.length; i++) {
+				result[i] = planes[planeNumbers[i]];
+				if (result[i] == null) {
+					outdated[outdatedCount] = i;
+					stamps[outdatedCount] = generations[planeNumbers[i]];
+					outdatedCount++;
+				}
+			}
+		}
+		if (outdatedCount == 0) return result;
+
+		final int count = outdatedCount;
+		final LoopBody body = new LoopBody() {
+
+			@Override
+			public void run(final long start, final long end) {
+				for (long i = start; i < end; i++) {
+					final int index = outdated[(int) i];
+					result[index] =
+						computePlane(planeNumbers[index], planeDims, min, max);
+				}
+			}
+		};
+		final ThreadService threadService = getThreadService();
+		if (threadService == null || count == 1) body.run(0, count);
+		else threadService.parallelFor(0, count, body);
+
+		synchronized (this) {
+			if (planes == cache) {
+				for (int i = 0; i < count; i++) {
+					final int p = planeNumbers[outdated[i]];
+					if (generations[p] == stamps[i]) planes[p] = result[outdated[i]];
+				}
+			}
+		}
+		return result;
+	}
+
+	private Statistics merge(final Statistics[] stats) {
+		Statistics merged;
+		synchronized (this) {
+			merged = Statistics.empty(histogramMin, histogramMax, BINS);
+		}
+		for (final Statistics s : stats) {
+			merged = merged.merge(s);
+		}
+		return merged;
+	}
+
+	private ThreadService getThreadService() {
+		final ImageJ context = dataset.getContext();
+		if (context == null) return null;
+		return context.getService(ThreadService.class);
+	}
+
+	private Statistics computePlane(final int planeNumber, final long[] dims,
+		final double min, final double max)
+	{
+		final Accumulator acc = new Accumulator(min, max);
+		final Class<?> typeClass = dataset.getType().getClass();
+		if (dims.length >= 2 && isArrayType(typeClass)) {
+			final Object plane = dataset.getPlaneForReading(planeNumber, true);
+			if (plane != null && addArray(acc, typeClass, plane)) {
+				return acc.toStatistics();
+			}
+		}
+		addSamples(acc, planeNumber, dims);
+		return acc.toStatistics();
+	}
+
+	/** Adds the samples of a plane one at a time. */
+	private void addSamples(final Accumulator acc, final int planeNumber,
+		final long[] dims)
+	{
+		final long[] pos = new long[dims.length];
+		long rest = planeNumber;
+		for (int d = 2; d < dims.length; d++) {
+			pos[d] = rest % dims[d];
+			rest /= dims[d];
+		}
+		final long w = dims.length > 0 ? dims[0] : 1;
+		final long h = dims.length > 1 ? dims[1] : 1;
+		final RandomAccess<? extends RealType<?>> access =
+			dataset.getImgPlus().randomAccess();
+		for (long y = 0; y < h; y++) {
+			if (dims.length > 1) pos[1] = y;
+			access.setPosition(pos);
+			for (long x = 0; x < w; x++) {
+				if (x > 0) access.fwd(0);
+				acc.add(access.get().getRealDouble());
+			}
+		}
+	}
+
+	private static boolean isArrayType(final Class<?> c) {
+		return c == UnsignedByteType.class || c == ByteType.class ||
+			c == UnsignedShortType.class || c == ShortType.class ||
+			c == UnsignedIntType.class || c == IntType.class ||
+			c == LongType.class || c == FloatType.class || c == DoubleType.class;
+	}
+
+	/**
+	 * Adds the samples of a plane array of the given type. Returns false if the
+	 * array is not of the type's storage class.
+	 */
+	private static boolean addArray(final Accumulator acc, final Class<?> c,
+		final Object plane)
+	{
+		if (plane instanceof byte[]) {
+			final byte[] a = (byte[]) plane;
+			if (c == UnsignedByteType.class) {
+				for (int i = 0; i < a.length; i++)
+					acc.add(a[i] & 0xff);
+				return true;
+			}
+			if (c == ByteType.class) {
+				for (int i = 0; i < a.length; i++)
+					acc.add(a[i]);
+				return true;
+			}
+		}
+		else if (plane instanceof short[]) {
+			final short[] a = (short[]) plane;
+			if (c == UnsignedShortType.class) {
+				for (int i = 0; i < a.length; i++)
+					acc.add(a[i] & 0xffff);
+				return true;
+			}
+			if (c == ShortType.class) {
+				for (int i = 0; i < a.length; i++)
+					acc.add(a[i]);
+				return true;
+			}
+		}
+		else if (plane instanceof int[]) {
+			final int[] a = (int[]) plane;
+			if (c == UnsignedIntType.class) {
+				for (int i = 0; i < a.length; i++)
+					acc.add(a[i] & 0xffffffffL);
+				return true;
+			}
+			if (c == IntType.class) {
+				for (int i = 0; i < a.length; i++)
+					acc.add(a[i]);
+				return true;
+			}
+		}
+		else if (plane instanceof long[] && c == LongType.class) {
+			final long[] a = (long[]) plane;
+			for (int i = 0; i < a.length; i++)
+				acc.add(a[i]);
+			return true;
+		}
+		else if (plane instanceof float[] && c == FloatType.class) {
+			final float[] a = (float[]) plane;
+			for (int i = 0; i < a.length; i++)
+				acc.add(a[i]);
+			return true;
+		}
+		else if (plane instanceof double[] && c == DoubleType.class) {
+			final double[] a = (double[]) plane;
+			for (int i = 0; i < a.length; i++)
+				acc.add(a[i]);
+			return true;
+		}
+		return false;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Accumulates the statistics of a stream of samples. Sums are taken relative
+	 * to the first sample, which keeps the variance accurate for data far from
+	 * zero.
+	 */
+	private static class Accumulator {
+
+		private final double histogramMin;
+		private final double histogramMax;
+		private final long[] histogram = new long[BINS];
+		private long count;
+		private double shift;
+		private double sum;
+		private double sumSquared;
+		private double min = Double.POSITIVE_INFINITY;
+		private double max = Double.NEGATIVE_INFINITY;
+
+		public Accumulator(final double histogramMin, final double histogramMax) {
+			this.histogramMin = histogramMin;
+			this.histogramMax = histogramMax;
+		}
+
+		public void add(final double value) {
+			if (Double.isNaN(value)) return;
+			if (count == 0) shift = value;
+			final double d = value - shift;
+			sum += d;
+			sumSquared += d * d;
+			if (value < min) min = value;
+			if (value > max) max = value;
+			histogram[Statistics.binIndex(value, histogramMin, histogramMax,
+				BINS)]++;
+			count++;
+		}
+
+		public Statistics toStatistics() {
+			if (count == 0) {
+				return Statistics.empty(histogramMin, histogramMax, BINS);
+			}
+			final double mean = shift + sum / count;
+			final double sumOfSquares = Math.max(sumSquared - sum * sum / count, 0);
+			return new Statistics(count, min, max, mean, sumOfSquares,
+				histogramMin, histogramMax, histogram);
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.stats;
+
+/**
+ * Immutable summary statistics of a set of sample values: count, minimum,
+ * maximum, mean, standard deviation and a fixed-range histogram. NaN samples
+ * are not counted.
+ */
+public final class Statistics {
+
+	private final long count;
+	private final double min;
+	private final double max;
+	private final double mean;
+	private final double sumOfSquares;
+	private final double histogramMin;
+	private final double histogramMax;
+	private final long[] histogram;
+
+	/**
+	 * Constructs statistics from their parts.
+	 * 
+	 * @param count number of samples
+	 * @param min smallest sample, or NaN if there are none
+	 * @param max largest sample, or NaN if there are none
+	 * @param mean mean of the samples, or NaN if there are none
+	 * @param sumOfSquares sum of the squared deviations of the samples from the
+	 *          mean
+	 * @param histogramMin lower bound of the first histogram bin
+	 * @param histogramMax upper bound of the last histogram bin
+	 * @param histogram histogram counts, which are not copied
+	 */
+	public Statistics(final long count, final double min, final double max,
+		final double mean, final double sumOfSquares, final double histogramMin,
+		final double histogramMax, final long[] histogram)
+	{
+		this.count = count;
+		this.min = min;
+		this.max = max;
+		this.mean = mean;
+		this.sumOfSquares = sumOfSquares;
+		this.histogramMin = histogramMin;
+		this.histogramMax = histogramMax;
+		this.histogram = histogram;
+	}
+
+	// -- Statistics methods --
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	/** Gets the sample standard deviation, or 0 for fewer than 2 samples. */
+	public double getStdDev() {
+		if (count < 2) return 0;
+		return Math.sqrt(sumOfSquares / (count - 1));
+	}
+
+	/** Gets the sum of the squared deviations of the samples from the mean. */
+	public double getSumOfSquares() {
+		return sumOfSquares;
+	}
+
+	public double getHistogramMin() {
+		return histogramMin;
+	}
+
+	public double getHistogramMax() {
+		return histogramMax;
+	}
+
+	public int getBinCount() {
+		return histogram.length;
+	}
+
+	/** Gets the number of samples falling into the given histogram bin. */
+	public long getBin(final int bin) {
+		return histogram[bin];
+	}
+
+	/** Gets a copy of the histogram counts. */
+	public long[] getHistogram() {
+		return histogram.clone();
+	}
+
+	/**
+	 * Gets the histogram bin of the given value. Values beyond the histogram
+	 * range fall into the first or last bin.
+	 */
+	public int getBinIndex(final double value) {
+		return binIndex(value, histogramMin, histogramMax, histogram.length);
+	}
+
+	/**
+	 * Combines these statistics with those of another, disjoint set of samples.
+	 * Both must have the same histogram range and bin count.
+	 */
+	public Statistics merge(final Statistics other) {
+		if (other.count == 0) return this;
+		if (count == 0) return other;
+		if (other.histogram.length != histogram.length ||
+			other.histogramMin != histogramMin || other.histogramMax != histogramMax)
+		{
+			throw new IllegalArgumentException("Incompatible histograms");
+		}
+		final long n = count + other.count;
+		final double delta = other.mean - mean;
+		final double newMean = mean + delta * other.count / n;
+		final double newSumOfSquares =
+			sumOfSquares + other.sumOfSquares + delta * delta * count *
+				other.count / n;
+		final long[] newHistogram = new long[histogram.length];
+		for (int i = 0; i < newHistogram.length; i++) {
+			newHistogram[i] = histogram[i] + other.histogram[i];
+		}
+		return new Statistics(n, Math.min(min, other.min), Math.max(max,
+			other.max), newMean, newSumOfSquares, histogramMin, histogramMax,
+			newHistogram);
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return "count=" + count + ", min=" + min + ", max=" + max + ", mean=" +
+			mean + ", stdDev=" + getStdDev();
+	}
+
+	// -- Utility methods --
+
+	/** Creates statistics of no samples, with an empty histogram. */
+	public static Statistics empty(final double histogramMin,
+		final double histogramMax, final int binCount)
+	{
+		return new Statistics(0, Double.NaN, Double.NaN, Double.NaN, 0,
+			histogramMin, histogramMax, new long[binCount]);
+	}
+
+	/**
+	 * Gets the histogram bin of a value, for a histogram of the given range and
+	 * bin count. Values beyond the range fall into the first or last bin.
+	 */
+	public static int binIndex(final double value, final double histogramMin,
+		final double histogramMax, final int binCount)
+	{
+		double v = value;
+		if (v < histogramMin) v = histogramMin;
+		if (v > histogramMax) v = histogramMax;
+		return (int) ((binCount - 1) * (v - histogramMin) /
+			(histogramMax - histogramMin));
+	}
+
+}
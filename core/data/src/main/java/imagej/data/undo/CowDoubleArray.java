@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.undo;
+
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+
+/**
+ * {@link DoubleArray} which copies its data before the first write, while undo
+ * snapshots share it.
+ */
+final class CowDoubleArray extends DoubleArray implements CowAccess {
+
+	/** Whether the data belongs to a snapshot as well. */
+	private volatile boolean shared;
+
+	CowDoubleArray(final double[] data) {
+		super(data);
+	}
+
+	// -- DoubleArray methods --
+
+	@Override
+	public void setValue(final int index, final double value) {
+		if (shared) unshare();
+		data[index] = value;
+	}
+
+	@Override
+	public DoubleArray createArray(final int numEntities) {
+		return new DoubleArray(numEntities);
+	}
+
+	@Override
+	public double[] getCurrentStorageArray() {
+		// NB: The caller may write directly into the array.
+		if (shared) unshare();
+		return data;
+	}
+
+	// -- CowAccess methods --
+
+	@Override
+	public synchronized double[] share() {
+		shared = true;
+		return data;
+	}
+
+	@Override
+	public synchronized void restore(final Object array) {
+		data = (double[]) array;
+		shared = true;
+	}
+
+	// -- ManagedAccess methods --
+
+	@Override
+	public double[] getArrayForReading() {
+		return data;
+	}
+
+	@Override
+	public double[] pin() {
+		return getCurrentStorageArray();
+	}
+
+	@Override
+	public void unpin() {
+		// NB: No action needed.
+	}
+
+	// -- Helper methods --
+
+	private synchronized void unshare() {
+		if (!shared) return;
+		data = data.clone();
+		shared = false;
+	}
+
+}
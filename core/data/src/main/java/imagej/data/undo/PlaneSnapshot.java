@@ -0,0 +1,277 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.undo;
+
+import imagej.data.Dataset;
+
+import java.lang.reflect.Array;
+import java.util.Map;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.basictypeaccess.PlanarAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+
+/**
+ * The planes of a {@link Dataset} at one point in time.
+ * <p>
+ * Taking a snapshot copies nothing for planes held in primitive arrays: they
+ * are wrapped in copy-on-write accesses, whose arrays the snapshot shares until
+ * the dataset writes them. Other planes (e.g., memory-mapped or compressed
+ * ones) must be copied up front, onto the heap, so datasets with too many of
+ * them are not snapshotted at all.
+ * </p>
+ */
+final class PlaneSnapshot {
+
+	/** Image whose planes were captured. */
+	private final Img<?> img;
+
+	/** Captured plane arrays. */
+	private final Object[] planes;
+
+	/** Plane versions when captured. */
+	private final long[] versions;
+
+	/** Order of capture, across all datasets. */
+	private final long sequence;
+
+	private PlaneSnapshot(final Img<?> img, final Object[] planes,
+		final long[] versions, final long sequence)
+	{
+		this.img = img;
+		this.planes = planes;
+		this.versions = versions;
+		this.sequence = sequence;
+	}
+
+	// -- PlaneSnapshot methods --
+
+	/**
+	 * Captures the planes of the given dataset.
+	 * 
+	 * @param maxCopyBytes Number of bytes of planes which cannot be shared
+	 *          beyond which the dataset is not captured.
+	 * @return the snapshot, or null if the dataset is not planar, or its planes
+	 *         would take more than the given number of bytes to copy
+	 */
+	static PlaneSnapshot capture(final Dataset dataset, final long sequence,
+		final long maxCopyBytes)
+	{
+		final Img<?> img = dataset.getImgPlus().getImg();
+		if (!(img instanceof PlanarAccess)) return null;
+		final PlanarAccess<ArrayDataAccess<?>> planar = planarAccess(img);
+		final int count = planeCount(dataset);
+		if (count < 0) return null;
+		if (copyBytes(dataset, planar, count) > maxCopyBytes) return null;
+		final Object[] planes = new Object[count];
+		final long[] versions = new long[count];
+		for (int p = 0; p < count; p++) {
+			versions[p] = dataset.getPlaneVersion(p);
+			final ArrayDataAccess<?> plane = planar.getPlane(p);
+			if (plane instanceof CowAccess) {
+				planes[p] = ((CowAccess) plane).share();
+				continue;
+			}
+			final CowAccess cow = wrap(plane);
+			if (cow != null) {
+				planar.setPlane(p, (ArrayDataAccess<?>) cow);
+				planes[p] = cow.share();
+			}
+			else planes[p] = copyOf(dataset.getPlaneForReading(p, true));
+		}
+		return new PlaneSnapshot(img, planes, versions, sequence);
+	}
+
+	/** Gets whether the snapshot can be restored into the given dataset. */
+	boolean matches(final Dataset dataset) {
+		return dataset.getImgPlus().getImg() == img &&
+			planeCount(dataset) == planes.length;
+	}
+
+	/** Gets whether no plane of the dataset was modified since the capture. */
+	boolean isCurrent(final Dataset dataset) {
+		for (int p = 0; p < versions.length; p++) {
+			if (dataset.getPlaneVersion(p) != versions[p]) return false;
+		}
+		return true;
+	}
+
+	/** Copies the captured planes back into the given dataset. */
+	void restore(final Dataset dataset) {
+		final PlanarAccess<ArrayDataAccess<?>> planar = planarAccess(img);
+		for (int p = 0; p < planes.length; p++) {
+			final ArrayDataAccess<?> plane = planar.getPlane(p);
+			if (plane instanceof CowAccess) {
+				((CowAccess) plane).restore(planes[p]);
+			}
+			else {
+				// NB: Another snapshot may hold the same array.
+				dataset.setPlane(p, copyOf(planes[p]));
+			}
+		}
+		dataset.update();
+	}
+
+	long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Adds the arrays currently backing the given dataset's planes to the given
+	 * set, to exclude them from {@link #addBytes}.
+	 */
+	static void addLiveArrays(final Dataset dataset,
+		final Map<Object, Object> arrays)
+	{
+		final Img<?> img = dataset.getImgPlus().getImg();
+		if (!(img instanceof PlanarAccess)) return;
+		final PlanarAccess<ArrayDataAccess<?>> planar = planarAccess(img);
+		final int count = planeCount(dataset);
+		for (int p = 0; p < count; p++) {
+			final ArrayDataAccess<?> plane = planar.getPlane(p);
+			if (plane instanceof CowAccess) {
+				arrays.put(((CowAccess) plane).getArrayForReading(), Boolean.TRUE);
+			}
+		}
+	}
+
+	/**
+	 * Sums the sizes of the captured arrays not in the given set, then adds them
+	 * to it, so that arrays shared between snapshots are counted once.
+	 */
+	long addBytes(final Map<Object, Object> arrays) {
+		long bytes = 0;
+		for (final Object plane : planes) {
+			if (arrays.put(plane, Boolean.TRUE) != null) continue;
+			bytes += byteCount(plane);
+		}
+		return bytes;
+	}
+
+	// -- Helper methods --
+
+	@SuppressWarnings("unchecked")
+	private static PlanarAccess<ArrayDataAccess<?>> planarAccess(
+		final Img<?> img)
+	{
+		return (PlanarAccess<ArrayDataAccess<?>>) img;
+	}
+
+	/** Gets the number of planes of the dataset, or -1 if too many. */
+	private static int planeCount(final Dataset dataset) {
+		final long[] dims = dataset.getDims();
+		long count = 1;
+		for (int d = 2; d < dims.length; d++) {
+			count *= dims[d];
+		}
+		return count > Integer.MAX_VALUE ? -1 : (int) count;
+	}
+
+	/**
+	 * Gets the number of bytes it takes to copy the planes which cannot be
+	 * shared, without copying anything.
+	 */
+	private static long copyBytes(final Dataset dataset,
+		final PlanarAccess<ArrayDataAccess<?>> planar, final int count)
+	{
+		final long[] dims = dataset.getDims();
+		final long planeBytes =
+			(dims.length > 0 ? dims[0] : 1) * (dims.length > 1 ? dims[1] : 1) *
+				((dataset.getType().getBitsPerPixel() + 7) / 8);
+		long bytes = 0;
+		for (int p = 0; p < count; p++) {
+			if (!canShare(planar.getPlane(p))) bytes += planeBytes;
+		}
+		return bytes;
+	}
+
+	private static boolean canShare(final ArrayDataAccess<?> plane) {
+		if (plane instanceof CowAccess) return true;
+		final Class<?> c = plane.getClass();
+		return c == ByteArray.class || c == ShortArray.class ||
+			c == IntArray.class || c == LongArray.class || c == FloatArray.class ||
+			c == DoubleArray.class;
+	}
+
+	/** Wraps plain array planes into copy-on-write ones; null for others. */
+	private static CowAccess wrap(final ArrayDataAccess<?> plane) {
+		final Class<?> c = plane.getClass();
+		if (c == ByteArray.class) {
+			return new CowByteArray(((ByteArray) plane).getCurrentStorageArray());
+		}
+		if (c == ShortArray.class) {
+			return new CowShortArray(((ShortArray) plane).getCurrentStorageArray());
+		}
+		if (c == IntArray.class) {
+			return new CowIntArray(((IntArray) plane).getCurrentStorageArray());
+		}
+		if (c == LongArray.class) {
+			return new CowLongArray(((LongArray) plane).getCurrentStorageArray());
+		}
+		if (c == FloatArray.class) {
+			return new CowFloatArray(((FloatArray) plane).getCurrentStorageArray());
+		}
+		if (c == DoubleArray.class) {
+			return new CowDoubleArray(
+				((DoubleArray) plane).getCurrentStorageArray());
+		}
+		return null;
+	}
+
+	private static Object copyOf(final Object array) {
+		final int length = Array.getLength(array);
+		final Object copy =
+			Array.newInstance(array.getClass().getComponentType(), length);
+		System.arraycopy(array, 0, copy, 0, length);
+		return copy;
+	}
+
+	private static long byteCount(final Object array) {
+		final Class<?> c = array.getClass().getComponentType();
+		final long length = Array.getLength(array);
+		if (c == byte.class || c == boolean.class) return length;
+		if (c == short.class || c == char.class) return 2 * length;
+		if (c == int.class || c == float.class) return 4 * length;
+		return 8 * length;
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.undo;
+
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.display.DataView;
+import imagej.data.display.ImageDisplay;
+import imagej.ext.Priority;
+import imagej.ext.module.Module;
+import imagej.ext.module.ModuleItem;
+import imagej.ext.plugin.Plugin;
+import imagej.ext.plugin.process.PreprocessorPlugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Takes an undo snapshot of each {@link Dataset} a module is about to run on,
+ * whether given directly, or through an {@link ImageDisplay} or
+ * {@link DataView}.
+ * <p>
+ * This runs last, once the inputs are harvested, so that canceled modules
+ * leave no undo level behind.
+ * </p>
+ * 
+ * @see UndoPostprocessor
+ */
+@Plugin(type = PreprocessorPlugin.class, priority = Priority.LAST_PRIORITY)
+public class UndoPreprocessor implements PreprocessorPlugin {
+
+	// -- ModulePreprocessor methods --
+
+	@Override
+	public boolean canceled() {
+		return false;
+	}
+
+	@Override
+	public String getMessage() {
+		return null;
+	}
+
+	// -- ModuleProcessor methods --
+
+	@Override
+	public void process(final Module module) {
+		final UndoService undoService = ImageJ.get(UndoService.class);
+		if (undoService == null) return;
+		for (final Dataset dataset : getDatasets(module)) {
+			undoService.snapshot(dataset);
+		}
+	}
+
+	// -- Utility methods --
+
+	/**
+	 * Gets the datasets among the inputs of the given module, or none if the
+	 * module is itself an undo operation.
+	 */
+	static List<Dataset> getDatasets(final Module module) {
+		final List<Dataset> datasets = new ArrayList<Dataset>();
+		final Object plugin = module.getDelegateObject();
+		if (plugin instanceof Undo || plugin instanceof Redo) return datasets;
+		for (final ModuleItem<?> item : module.getInfo().inputs()) {
+			final Object value = item.getValue(module);
+			if (value instanceof Dataset) add(datasets, (Dataset) value);
+			else if (value instanceof DataView) add(datasets, (DataView) value);
+			else if (value instanceof ImageDisplay) {
+				for (final DataView view : (ImageDisplay) value) {
+					add(datasets, view);
+				}
+			}
+		}
+		return datasets;
+	}
+
+	// -- Helper methods --
+
+	private static void add(final List<Dataset> datasets, final DataView view) {
+		final Object data = view.getData();
+		if (data instanceof Dataset) add(datasets, (Dataset) data);
+	}
+
+	private static void add(final List<Dataset> datasets,
+		final Dataset dataset)
+	{
+		if (!datasets.contains(dataset)) datasets.add(dataset);
+	}
+
+}
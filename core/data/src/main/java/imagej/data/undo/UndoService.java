@@ -0,0 +1,332 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.undo;
+
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.event.DatasetDeletedEvent;
+import imagej.event.EventHandler;
+import imagej.event.EventService;
+import imagej.service.AbstractService;
+import imagej.service.Service;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Service for undoing and redoing changes to the pixels of {@link Dataset}s.
+ * <p>
+ * Each undo level is a {@link PlaneSnapshot}: taking one costs time
+ * proportional to the number of planes, and memory only for the planes which
+ * are written afterwards, as those are copied on write. Planes which cannot be
+ * shared (e.g., memory-mapped ones) are copied up front, unless they exceed
+ * the memory limit, in which case the dataset cannot be undone. Snapshots are taken
+ * before every module which takes a dataset (or a display of one) as input;
+ * levels which end up unchanged are dropped once the module finishes.
+ * </p>
+ * <p>
+ * The number of levels per dataset and the memory held across all datasets
+ * are bounded; the oldest levels are evicted first.
+ * </p>
+ */
+@Service
+public final class UndoService extends AbstractService {
+
+	/** Default memory limit: 256 MB. */
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	private final EventService eventService;
+
+	private final Map<Dataset, History> histories =
+		new WeakHashMap<Dataset, History>();
+
+	private int maxLevels = 1;
+	private long maxBytes = DEFAULT_MAX_BYTES;
+	private long sequence;
+
+	// -- Constructors --
+
+	public UndoService() {
+		// NB: Required by SezPoz.
+		super(null);
+		throw new UnsupportedOperationException();
+	}
+
+	public UndoService(final ImageJ context, final EventService eventService) {
+		super(context);
+		this.eventService = eventService;
+
+		subscribeToEvents(eventService);
+	}
+
+	// -- UndoService methods --
+
+	public EventService getEventService() {
+		return eventService;
+	}
+
+	/**
+	 * Records the current planes of the given dataset as a new undo level, to be
+	 * completed by {@link #commit} once the change is made.
+	 * 
+	 * @return false if the dataset is not planar, or too large to copy, so
+	 *         cannot be snapshotted
+	 */
+	public synchronized boolean snapshot(final Dataset dataset) {
+		final History history = getHistory(dataset);
+		final PlaneSnapshot snapshot =
+			PlaneSnapshot.capture(dataset, sequence++, maxBytes);
+		if (snapshot == null) {
+			// NB: Older levels would undo this change as well.
+			histories.remove(dataset);
+			return false;
+		}
+		history.undo.addLast(snapshot);
+		return true;
+	}
+
+	/**
+	 * Completes the change started by the latest {@link #snapshot}. If the
+	 * dataset was not modified since, the level is dropped; otherwise the redo
+	 * levels are discarded, and old levels evicted beyond the limits.
+	 */
+	public synchronized void commit(final Dataset dataset) {
+		final History history = histories.get(dataset);
+		if (history == null) return;
+		final PlaneSnapshot latest = history.undo.peekLast();
+		if (latest == null) return;
+		if (latest.isCurrent(dataset)) {
+			history.undo.removeLast();
+			return;
+		}
+		history.redo.clear();
+		trimLevels(history);
+		trimBytes();
+	}
+
+	/** Gets whether the given dataset has a change to undo. */
+	public synchronized boolean canUndo(final Dataset dataset) {
+		final History history = getHistory(dataset);
+		return !history.undo.isEmpty();
+	}
+
+	/** Gets whether the given dataset has an undone change to redo. */
+	public synchronized boolean canRedo(final Dataset dataset) {
+		final History history = getHistory(dataset);
+		return !history.redo.isEmpty();
+	}
+
+	/**
+	 * Restores the given dataset to its latest undo level.
+	 * 
+	 * @return false if there was nothing to undo
+	 */
+	public synchronized boolean undo(final Dataset dataset) {
+		final History history = getHistory(dataset);
+		return step(dataset, history.undo, history.redo);
+	}
+
+	/**
+	 * Reapplies the latest undone change to the given dataset.
+	 * 
+	 * @return false if there was nothing to redo
+	 */
+	public synchronized boolean redo(final Dataset dataset) {
+		final History history = getHistory(dataset);
+		return step(dataset, history.redo, history.undo);
+	}
+
+	/** Discards the undo and redo levels of the given dataset. */
+	public synchronized void clear(final Dataset dataset) {
+		histories.remove(dataset);
+	}
+
+	/** Gets the maximum number of undo levels kept per dataset. */
+	public synchronized int getMaxLevels() {
+		return maxLevels;
+	}
+
+	/** Sets the maximum number of undo levels kept per dataset. */
+	public synchronized void setMaxLevels(final int maxLevels) {
+		if (maxLevels < 1) {
+			throw new IllegalArgumentException("Invalid level count: " + maxLevels);
+		}
+		this.maxLevels = maxLevels;
+		for (final History history : histories.values()) {
+			trimLevels(history);
+		}
+	}
+
+	/** Gets the maximum memory held by undo levels, in bytes. */
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/** Sets the maximum memory held by undo levels, in bytes. */
+	public synchronized void setMaxBytes(final long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Invalid memory limit: " + maxBytes);
+		}
+		this.maxBytes = maxBytes;
+		trimBytes();
+	}
+
+	/**
+	 * Gets the memory held by undo and redo levels, in bytes: the size of the
+	 * plane copies which no dataset uses anymore.
+	 */
+	public synchronized long getBytes() {
+		long bytes = 0;
+		for (final Map.Entry<Dataset, History> entry : histories.entrySet()) {
+			bytes += entry.getValue().getBytes(entry.getKey());
+		}
+		return bytes;
+	}
+
+	// -- Event handlers --
+
+	@EventHandler
+	protected void onEvent(final DatasetDeletedEvent event) {
+		clear(event.getObject());
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Gets the history of the given dataset, discarding it if the dataset was
+	 * restructured since.
+	 */
+	private History getHistory(final Dataset dataset) {
+		History history = histories.get(dataset);
+		if (history != null && !history.matches(dataset)) history = null;
+		if (history == null) {
+			history = new History();
+			histories.put(dataset, history);
+		}
+		return history;
+	}
+
+	/** Moves the dataset one level from one stack to the other. */
+	private boolean step(final Dataset dataset,
+		final ArrayDeque<PlaneSnapshot> from, final ArrayDeque<PlaneSnapshot> to)
+	{
+		final PlaneSnapshot target = from.pollLast();
+		if (target == null) return false;
+		final PlaneSnapshot current =
+			PlaneSnapshot.capture(dataset, sequence++, maxBytes);
+		target.restore(dataset);
+		if (current == null) to.clear();
+		else to.addLast(current);
+		trimLevels(getHistory(dataset));
+		trimBytes();
+		return true;
+	}
+
+	/** Evicts the oldest levels of the given history beyond the level limit. */
+	private void trimLevels(final History history) {
+		while (history.undo.size() > maxLevels) {
+			history.undo.removeFirst();
+		}
+		while (history.redo.size() > maxLevels) {
+			history.redo.removeFirst();
+		}
+	}
+
+	/** Evicts the oldest levels, across datasets, beyond the memory limit. */
+	private void trimBytes() {
+		while (getBytes() > maxBytes) {
+			History oldest = null;
+			for (final History history : histories.values()) {
+				final PlaneSnapshot first = history.undo.peekFirst();
+				if (first == null) continue;
+				if (oldest == null ||
+					first.getSequence() < oldest.undo.peekFirst().getSequence())
+				{
+					oldest = history;
+				}
+			}
+			if (oldest != null) {
+				oldest.undo.removeFirst();
+				continue;
+			}
+			// only redo levels are left
+			for (final History history : histories.values()) {
+				history.redo.clear();
+			}
+			return;
+		}
+	}
+
+	// -- Helper classes --
+
+	/** The undo and redo levels of a dataset, oldest first. */
+	private static class History {
+
+		private final ArrayDeque<PlaneSnapshot> undo =
+			new ArrayDeque<PlaneSnapshot>();
+
+		private final ArrayDeque<PlaneSnapshot> redo =
+			new ArrayDeque<PlaneSnapshot>();
+
+		public boolean matches(final Dataset dataset) {
+			for (final PlaneSnapshot snapshot : undo) {
+				if (!snapshot.matches(dataset)) return false;
+			}
+			for (final PlaneSnapshot snapshot : redo) {
+				if (!snapshot.matches(dataset)) return false;
+			}
+			return true;
+		}
+
+		public long getBytes(final Dataset dataset) {
+			if (undo.isEmpty() && redo.isEmpty()) return 0;
+			final Map<Object, Object> arrays = new IdentityHashMap<Object, Object>();
+			PlaneSnapshot.addLiveArrays(dataset, arrays);
+			long bytes = 0;
+			for (final PlaneSnapshot snapshot : undo) {
+				bytes += snapshot.addBytes(arrays);
+			}
+			for (final PlaneSnapshot snapshot : redo) {
+				bytes += snapshot.addBytes(arrays);
+			}
+			return bytes;
+		}
+
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import imagej.util.Colors;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ChannelCollection} and {@link ImmutableChannelCollection}.
+ */
+public class ChannelCollectionTest {
+
+	@Test
+	public void testValues() {
+		final ChannelCollection empty =
+			new ChannelCollection(new ArrayList<Double>());
+		assertEquals(1, empty.getChannelCount());
+		assertEquals(0, empty.getChannelValue(5), 0);
+
+		final ChannelCollection rgb = new ChannelCollection(Colors.RED);
+		assertEquals(3, rgb.getChannelCount());
+		assertEquals(255, rgb.getChannelValue(0), 0);
+		assertEquals(0, rgb.getChannelValue(3), 0);
+		assertTrue(rgb.areInteger());
+
+		final double[] dest = new double[] { 9, 9, 9, 9 };
+		assertSame(dest, rgb.getChannelValues(dest));
+		assertArrayEquals(new double[] { 255, 0, 0, 0 }, dest, 0);
+	}
+
+	@Test
+	public void testMutable() {
+		final double[] values = { 1, 2 };
+		final ChannelCollection chans = new ChannelCollection(values);
+		values[0] = 7; // copied on construction
+		assertEquals(1, chans.getChannelValue(0), 0);
+		chans.setChannelValue(1, 2.5);
+		assertFalse(chans.areInteger());
+		chans.setChannelValues(new double[] { 3, 4, 5 });
+		assertEquals(3, chans.getChannelCount());
+		assertTrue(chans.areInteger());
+	}
+
+	@Test
+	public void testImmutable() {
+		final ChannelCollection chans = new ChannelCollection(Colors.BLUE);
+		final ImmutableChannelCollection frozen = chans.immutable();
+		assertSame(frozen, frozen.immutable());
+		chans.setChannelValue(2, 0);
+		assertEquals(255, frozen.getChannelValue(2), 0);
+		try {
+			frozen.setChannelValue(0, 1);
+			fail();
+		}
+		catch (final UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+}
@@ -36,13 +36,22 @@
 package imagej.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import imagej.ImageJ;
+import imagej.data.cell.PagedAccess;
+import imagej.data.compressed.CompressedPlanarImgFactory;
+import imagej.data.compressed.PlaneCache;
+
+import java.util.Arrays;
+
 import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.ImgPlus;
+import net.imglib2.img.basictypeaccess.PlanarAccess;
 import net.imglib2.img.cell.CellImgFactory;
 import net.imglib2.img.planar.PlanarImgFactory;
 import net.imglib2.type.numeric.RealType;
@@ -171,6 +180,27 @@ private void testNonplanarCase() {
 
 	// -- public tests --
 
+	@Test
+	public void testSetPlaneLeavesPagesUnpinned() {
+		// room for one plane of 16 ints
+		final PlaneCache cache = new PlaneCache(64, null);
+		final Dataset ds =
+			createDataset(new CompressedPlanarImgFactory<IntType>(cache));
+		final int planeCount = CPLANES * ZPLANES * TPLANES;
+		for (int no = 0; no < planeCount; no++) {
+			final int[] plane = new int[16];
+			Arrays.fill(plane, no + 1);
+			ds.setPlane(no, plane);
+		}
+		// earlier planes were compressed away to make room for later ones
+		assertTrue(cache.getResidentBytes() <= cache.getMaxBytes());
+		final PlanarAccess<?> planes = (PlanarAccess<?>) ds.getImgPlus().getImg();
+		assertFalse(((PagedAccess) planes.getPlane(0)).isResident());
+		for (int no = 0; no < planeCount; no++) {
+			assertEquals(no + 1, ((int[]) ds.getPlaneForReading(no, false))[5]);
+		}
+	}
+
 	@Test
 	public void testGetPlane() {
 		testPlanarCase();
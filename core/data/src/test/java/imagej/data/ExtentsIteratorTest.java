@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ExtentsIterator}.
+ */
+public class ExtentsIteratorTest {
+
+	private final Extents extents = new Extents(new long[] { 1, -2, 0 },
+		new long[] { 3, 1, 4 });
+
+	@Test
+	public void testMatchesPosition() {
+		final Position pos = extents.createPosition();
+		final ExtentsIterator iter = extents.createIterator();
+		final long[] expected = new long[3];
+		final long[] actual = new long[3];
+		long count = 0;
+		while (pos.hasNext()) {
+			assertTrue(iter.hasNext());
+			pos.fwd();
+			iter.fwd();
+			pos.localize(expected);
+			iter.localize(actual);
+			assertArrayEquals(expected, actual);
+			assertEquals(pos.getIndex(), iter.getIndex());
+			count++;
+		}
+		assertFalse(iter.hasNext());
+		assertEquals(extents.numElements(), count);
+	}
+
+	@Test
+	public void testIndexConversions() {
+		final ExtentsIterator iter = extents.createIterator();
+		final Position pos = extents.createPosition();
+		final long[] expected = new long[3];
+		final long[] actual = new long[3];
+		for (long index = 0; index < extents.numElements(); index++) {
+			pos.setIndex(index);
+			pos.localize(expected);
+			iter.positionOf(index, actual);
+			assertArrayEquals(expected, actual);
+			assertEquals(index, iter.indexOf(actual));
+		}
+		iter.setIndex(17);
+		pos.setIndex(17);
+		assertEquals(pos.getLongPosition(2), iter.getLongPosition(2));
+		iter.jumpFwd(5);
+		assertEquals(22, iter.getIndex());
+		assertEquals(12, iter.stride(2));
+	}
+
+	@Test
+	public void testRange() {
+		final ExtentsIterator iter = new ExtentsIterator(extents, 10, 13);
+		long index = 10;
+		while (iter.hasNext()) {
+			iter.fwd();
+			assertEquals(index++, iter.getIndex());
+		}
+		assertEquals(13, index);
+	}
+
+	@Test
+	public void testSplit() {
+		final ExtentsIterator first = extents.createIterator();
+		first.fwd();
+		final ExtentsIterator second = first.split();
+		assertEquals(0, first.getStart());
+		assertEquals(second.getStart(), first.getEnd());
+		assertEquals(extents.numElements(), second.getEnd());
+
+		// together, both halves visit every position once
+		final boolean[] visited = new boolean[(int) extents.numElements()];
+		visited[0] = true;
+		for (final ExtentsIterator iter : new ExtentsIterator[] { first, second }) {
+			while (iter.hasNext()) {
+				iter.fwd();
+				final int index = (int) iter.getIndex();
+				assertFalse(visited[index]);
+				visited[index] = true;
+			}
+		}
+		for (final boolean v : visited) {
+			assertTrue(v);
+		}
+
+		final ExtentsIterator last = new ExtentsIterator(extents, 5, 6);
+		assertNull(last.split());
+	}
+
+}
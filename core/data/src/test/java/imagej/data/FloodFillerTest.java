@@ -0,0 +1,215 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link FloodFiller}, on planar images (filled through the plane
+ * arrays) and on cell images (filled through a RandomAccess).
+ */
+public class FloodFillerTest {
+
+	private static final int WIDTH = 8, HEIGHT = 6, DEPTH = 3;
+
+	@Test
+	public void testFill4() {
+		testFill4(new PlanarImgFactory<UnsignedShortType>());
+		testFill4(new CellImgFactory<UnsignedShortType>());
+	}
+
+	@Test
+	public void testFill8() {
+		testFill8(new PlanarImgFactory<UnsignedShortType>());
+		testFill8(new CellImgFactory<UnsignedShortType>());
+	}
+
+	@Test
+	public void testFill6() {
+		testFill6(new PlanarImgFactory<UnsignedShortType>());
+		testFill6(new CellImgFactory<UnsignedShortType>());
+	}
+
+	@Test
+	public void testFill26() {
+		testFill26(new PlanarImgFactory<UnsignedShortType>());
+		testFill26(new CellImgFactory<UnsignedShortType>());
+	}
+
+	// -- Helper methods --
+
+	private void testFill4(final ImgFactory<UnsignedShortType> factory) {
+		final Dataset ds = createDataset(factory);
+		wall(ds, 4);
+		final FloodFiller filler = new FloodFiller(tool(ds, 7));
+		assertTrue(filler.fill4(1, 1, new long[3]));
+		assertEquals(4 * HEIGHT, count(ds, 7));
+		assertEquals(7, get(ds, 3, 5, 0));
+		assertEquals(0, get(ds, 5, 0, 0));
+		assertEquals(0, get(ds, 0, 0, 1));
+		final UpdateRegion region = filler.getUpdateRegion();
+		assertEquals(3, region.max(0));
+		assertEquals(1, region.getPlaneCount());
+		// filling with the current value changes nothing
+		assertFalse(filler.fill4(0, 0, new long[3]));
+	}
+
+	private void testFill8(final ImgFactory<UnsignedShortType> factory) {
+		// a diagonal wall only stops 4-connected fills
+		final Dataset ds4 = diagonalWall(factory);
+		assertTrue(new FloodFiller(tool(ds4, 7)).fill4(1, 0, new long[3]));
+		assertEquals(WIDTH * HEIGHT - HEIGHT - 15, count(ds4, 7));
+		assertEquals(0, get(ds4, 0, 1, 0));
+
+		final Dataset ds8 = diagonalWall(factory);
+		final FloodFiller filler = new FloodFiller(tool(ds8, 7));
+		assertTrue(filler.fill8(1, 0, new long[3]));
+		assertEquals(WIDTH * HEIGHT - HEIGHT, count(ds8, 7));
+		final UpdateRegion region = filler.getUpdateRegion();
+		assertEquals(WIDTH - 1, region.max(0));
+		assertEquals(1, region.getPlaneCount());
+	}
+
+	private void testFill6(final ImgFactory<UnsignedShortType> factory) {
+		final Dataset ds = createDataset(factory);
+		wall(ds, 4);
+		final long[] pos = { 0, 0, 1 };
+		final FloodFiller filler = new FloodFiller(tool(ds, 7));
+		assertTrue(filler.fill6(6, 2, pos));
+		assertEquals(3 * HEIGHT * DEPTH, count(ds, 7));
+		assertEquals(7, get(ds, 5, 0, 0));
+		assertEquals(7, get(ds, 7, 5, 2));
+		assertEquals(0, get(ds, 3, 0, 2));
+		assertEquals(DEPTH, filler.getUpdateRegion().getPlaneCount());
+	}
+
+	private void testFill26(final ImgFactory<UnsignedShortType> factory) {
+		// corners only touch in 26-connected fills
+		final Dataset ds6 = diagonalLine(factory);
+		assertTrue(new FloodFiller(tool(ds6, 7)).fill6(2, 2, new long[3]));
+		assertEquals(1, count(ds6, 7));
+
+		final Dataset ds26 = diagonalLine(factory);
+		assertTrue(new FloodFiller(tool(ds26, 7)).fill26(2, 2, new long[3]));
+		assertEquals(3, count(ds26, 7));
+		assertEquals(7, get(ds26, 4, 4, 2));
+	}
+
+	private Dataset createDataset(final ImgFactory<UnsignedShortType> factory) {
+		final ImageJ context = ImageJ.createContext(DatasetService.class);
+		return context.getService(DatasetService.class).create(factory,
+			new UnsignedShortType(), new long[] { WIDTH, HEIGHT, DEPTH }, "fill",
+			new AxisType[] { Axes.X, Axes.Y, Axes.Z });
+	}
+
+	private DrawingTool tool(final Dataset ds, final double value) {
+		final DrawingTool tool = new DrawingTool(ds);
+		tool.setUAxis(0);
+		tool.setVAxis(1);
+		tool.setChannels(new ChannelCollection(new double[] { value }));
+		return tool;
+	}
+
+	/** Creates a dataset with a diagonal line of 9s in the first plane. */
+	private Dataset diagonalWall(final ImgFactory<UnsignedShortType> factory) {
+		final Dataset ds = createDataset(factory);
+		for (int y = 0; y < HEIGHT; y++) {
+			set(ds, y, y, 0, 9);
+		}
+		return ds;
+	}
+
+	/** Creates a dataset with a line of 5s running diagonally across Z. */
+	private Dataset diagonalLine(final ImgFactory<UnsignedShortType> factory) {
+		final Dataset ds = createDataset(factory);
+		for (int z = 0; z < DEPTH; z++) {
+			set(ds, 2 + z, 2 + z, z, 5);
+		}
+		return ds;
+	}
+
+	/** Sets column x of every plane to 9. */
+	private void wall(final Dataset ds, final int x) {
+		for (int z = 0; z < DEPTH; z++) {
+			for (int y = 0; y < HEIGHT; y++) {
+				set(ds, x, y, z, 9);
+			}
+		}
+	}
+
+	private void set(final Dataset ds, final long x, final long y,
+		final long z, final double value)
+	{
+		final RandomAccess<? extends RealType<?>> access =
+			ds.getImgPlus().randomAccess();
+		access.setPosition(new long[] { x, y, z });
+		access.get().setReal(value);
+	}
+
+	private int get(final Dataset ds, final long x, final long y, final long z)
+	{
+		final RandomAccess<? extends RealType<?>> access =
+			ds.getImgPlus().randomAccess();
+		access.setPosition(new long[] { x, y, z });
+		return (int) access.get().getRealDouble();
+	}
+
+	private int count(final Dataset ds, final double value) {
+		int count = 0;
+		for (int z = 0; z < DEPTH; z++) {
+			for (int y = 0; y < HEIGHT; y++) {
+				for (int x = 0; x < WIDTH; x++) {
+					if (get(ds, x, y, z) == value) count++;
+				}
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertEquals;
+import imagej.ImageJ;
+import imagej.thread.ThreadService;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ImgCopier}.
+ */
+public class ImgCopierTest {
+
+	private static final long[] DIMS = { 13, 7, 5 };
+
+	@Test
+	public void testSameType() {
+		final Img<UnsignedShortType> src =
+			create(new PlanarImgFactory<UnsignedShortType>(),
+				new UnsignedShortType(), DIMS);
+		final Img<UnsignedShortType> dst = new ImgCopier().duplicate(src);
+		assertSameValues(src, dst);
+
+		final Img<UnsignedShortType> array =
+			create(new ArrayImgFactory<UnsignedShortType>(),
+				new UnsignedShortType(), DIMS);
+		new ImgCopier().copy(src, array);
+		assertSameValues(src, array);
+	}
+
+	@Test
+	public void testConversion() {
+		final Img<FloatType> src =
+			create(new PlanarImgFactory<FloatType>(), new FloatType(), DIMS);
+		final float[] specials = { -0.5f, 0.5f, 1.5f, 255.5f, 300.4f, -1000.7f };
+		final Cursor<FloatType> cursor = src.cursor();
+		for (int i = 0; i < specials.length; i++) {
+			cursor.next().set(specials[i]);
+		}
+		final Img<UnsignedByteType> dst =
+			create(new PlanarImgFactory<UnsignedByteType>(),
+				new UnsignedByteType(), DIMS);
+		new ImgCopier().copy(src, dst);
+
+		// values must convert exactly as setReal converts them
+		final UnsignedByteType expected = new UnsignedByteType();
+		final Cursor<FloatType> srcCursor = src.cursor();
+		final Cursor<UnsignedByteType> dstCursor = dst.cursor();
+		while (srcCursor.hasNext()) {
+			expected.setReal(srcCursor.next().getRealDouble());
+			assertEquals(expected.get(), dstCursor.next().get());
+		}
+	}
+
+	@Test
+	public void testRegion() {
+		final Img<UnsignedShortType> src =
+			create(new PlanarImgFactory<UnsignedShortType>(),
+				new UnsignedShortType(), DIMS);
+		final long[] srcOrigin = { 2, 1, 3 };
+		final long[] srcSpan = { 9, 5, 1 };
+		final long[] dstSpan = { 9, 5 };
+
+		// array backed, and through the generic path
+		final Img<FloatType> array =
+			create(new ArrayImgFactory<FloatType>(), new FloatType(), dstSpan);
+		new ImgCopier().copy(src, srcOrigin, srcSpan, array, new long[2], dstSpan);
+		assertRegion(src, srcOrigin, array);
+		final Img<FloatType> cells =
+			create(new CellImgFactory<FloatType>(4), new FloatType(), dstSpan);
+		new ImgCopier().copy(src, srcOrigin, srcSpan, cells, new long[2], dstSpan);
+		assertRegion(src, srcOrigin, cells);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIncompatibleSpans() {
+		final Img<FloatType> src =
+			create(new ArrayImgFactory<FloatType>(), new FloatType(), DIMS);
+		final Img<FloatType> dst =
+			create(new ArrayImgFactory<FloatType>(), new FloatType(), DIMS);
+		new ImgCopier().copy(src, new long[3], new long[] { 2, 3, 1 }, dst,
+			new long[3], new long[] { 3, 2, 1 });
+	}
+
+	@Test
+	public void testParallel() {
+		final ImageJ context = ImageJ.createContext(ThreadService.class);
+		final ImgCopier copier =
+			new ImgCopier(context.getService(ThreadService.class));
+		final long[] dims = { 512, 256, 3 };
+		final Img<UnsignedByteType> src =
+			create(new PlanarImgFactory<UnsignedByteType>(),
+				new UnsignedByteType(), dims);
+		final Img<UnsignedByteType> dst = copier.duplicate(src);
+		assertSameValues(src, dst);
+		final Img<FloatType> converted =
+			create(new CellImgFactory<FloatType>(64), new FloatType(), dims);
+		copier.copy(src, converted);
+		assertSameValues(src, converted);
+	}
+
+	// -- Helper methods --
+
+	private <T extends RealType<T>> Img<T> create(final ImgFactory<T> factory,
+		final T type, final long[] dims)
+	{
+		final Img<T> img = factory.create(dims, type);
+		final Cursor<T> cursor = img.cursor();
+		int i = 0;
+		while (cursor.hasNext()) {
+			cursor.next().setReal(i++ % 251);
+		}
+		return img;
+	}
+
+	private void assertSameValues(final Img<? extends RealType<?>> expected,
+		final Img<? extends RealType<?>> actual)
+	{
+		final long[] pos = new long[expected.numDimensions()];
+		final Cursor<? extends RealType<?>> cursor = expected.localizingCursor();
+		final RandomAccess<? extends RealType<?>> access = actual.randomAccess();
+		while (cursor.hasNext()) {
+			cursor.next();
+			cursor.localize(pos);
+			access.setPosition(pos);
+			assertEquals(cursor.get().getRealDouble(), access.get()
+				.getRealDouble(), 0);
+		}
+	}
+
+	private void assertRegion(final Img<? extends RealType<?>> src,
+		final long[] srcOrigin, final Img<? extends RealType<?>> region)
+	{
+		final long[] pos = new long[2];
+		final long[] srcPos = srcOrigin.clone();
+		final Cursor<? extends RealType<?>> cursor = region.localizingCursor();
+		final RandomAccess<? extends RealType<?>> access = src.randomAccess();
+		while (cursor.hasNext()) {
+			cursor.next();
+			cursor.localize(pos);
+			srcPos[0] = srcOrigin[0] + pos[0];
+			srcPos[1] = srcOrigin[1] + pos[1];
+			access.setPosition(srcPos);
+			assertEquals(access.get().getRealDouble(), cursor.get()
+				.getRealDouble(), 0);
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link UpdateRegion}.
+ */
+public class UpdateRegionTest {
+
+	private static final long[] DIMS = { 20, 10, 3, 4 };
+
+	@Test
+	public void testBox() {
+		final UpdateRegion region =
+			new UpdateRegion(DIMS, new long[] { 2, 3, 1, 2 }, new long[] { 5, 30,
+				2, 3 });
+		assertEquals(2, region.min(0));
+		assertEquals(9, region.max(1)); // clamped
+		assertArrayEquals(new int[] { 7, 8, 10, 11 }, region.getPlanes());
+		assertTrue(region.containsPlane(8));
+		assertFalse(region.containsPlane(9));
+	}
+
+	@Test
+	public void testPlane() {
+		final int no = UpdateRegion.planeNumber(DIMS, new long[] { 0, 0, 2, 1 });
+		assertEquals(5, no);
+		final UpdateRegion region = UpdateRegion.forPlane(DIMS, no);
+		assertEquals(1, region.getPlaneCount());
+		assertEquals(2, region.min(2));
+		assertEquals(1, region.max(3));
+		assertEquals(19, region.max(0));
+
+		final UpdateRegion rect =
+			UpdateRegion.forRectangle(DIMS, no, 4, 5, 6, 7);
+		assertArrayEquals(new int[] { no }, rect.getPlanes());
+		assertEquals(4, rect.min(0));
+		assertEquals(7, rect.max(1));
+	}
+
+	@Test
+	public void testUnion() {
+		final UpdateRegion a = UpdateRegion.forRectangle(DIMS, 0, 1, 1, 2, 2);
+		final UpdateRegion b = UpdateRegion.forRectangle(DIMS, 11, 5, 0, 8, 1);
+		final UpdateRegion union = a.union(b);
+		assertEquals(1, union.min(0));
+		assertEquals(8, union.max(0));
+		assertEquals(0, union.min(1));
+		assertEquals(2, union.max(1));
+		assertArrayEquals(new int[] { 0, 11 }, union.getPlanes());
+		assertTrue(union.isCompatible(DIMS));
+
+		assertNull(a.union(UpdateRegion.forPlane(new long[] { 20, 10 }, 0)));
+	}
+
+}
@@ -0,0 +1,241 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.overlay.Overlay;
+import imagej.data.overlay.OverlaySpans;
+import imagej.data.overlay.RectangleOverlay;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link MeasurementService}.
+ */
+public class MeasurementServiceTest {
+
+	private static final int WIDTH = 8;
+	private static final int HEIGHT = 5;
+	private static final int CHANNELS = 2;
+	private static final int DEPTH = 3;
+
+	private DatasetService datasetService;
+	private MeasurementService measurementService;
+
+	@Before
+	public void setUp() {
+		final ImageJ context =
+			ImageJ.createContext(DatasetService.class, MeasurementService.class);
+		datasetService = context.getService(DatasetService.class);
+		measurementService = context.getService(MeasurementService.class);
+	}
+
+	@Test
+	public void testAllPlanes() throws IOException {
+		final Dataset dataset = createDataset();
+		final List<Overlay> overlays =
+			Arrays.<Overlay> asList(rectangle(1, 1, 3, 2), rectangle(5, 0, 2, 4),
+				rectangle(6, 3, 10, 10));
+		final List<Measurement> rows = new ArrayList<Measurement>();
+		measurementService.measure(dataset, overlays, collect(rows));
+
+		assertEquals(CHANNELS * DEPTH * overlays.size(), rows.size());
+		int i = 0;
+		for (int z = 0; z < DEPTH; z++) {
+			for (int c = 0; c < CHANNELS; c++) {
+				for (int r = 0; r < overlays.size(); r++) {
+					final Measurement m = rows.get(i++);
+					assertEquals(r + 1, m.getIndex());
+					assertSame(overlays.get(r), m.getOverlay());
+					assertEquals(c, m.getPlanePosition(0));
+					assertEquals(z, m.getPlanePosition(1));
+					assertMeasurement(overlays.get(r), c, z, m);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testOnePlane() throws IOException {
+		final Dataset dataset = createDataset();
+		final List<Overlay> overlays =
+			Arrays.<Overlay> asList(rectangle(0, 0, 4, 4), rectangle(20, 20, 2, 2));
+		final List<Measurement> rows = new ArrayList<Measurement>();
+		measurementService.measure(dataset, overlays, new long[] { 1, 2 },
+			collect(rows));
+
+		assertEquals(2, rows.size());
+		assertMeasurement(overlays.get(0), 1, 2, rows.get(0));
+
+		// the second overlay lies outside the image
+		final Measurement outside = rows.get(1);
+		assertEquals(0, outside.getPixelCount());
+		assertEquals(0, outside.getArea(), 0);
+		assertTrue(Double.isNaN(outside.getMean()));
+		assertTrue(Double.isNaN(outside.getMinValue()));
+	}
+
+	@Test
+	public void testCsv() throws IOException {
+		final Dataset dataset = createDataset();
+		final RectangleOverlay overlay = rectangle(1, 1, 3, 2);
+		overlay.setName("a, \"b\"");
+		final StringWriter out = new StringWriter();
+		measurementService.measure(dataset, Arrays.<Overlay> asList(overlay),
+			new CsvResultsTable(out));
+
+		final String[] lines = out.toString().split("\n");
+		assertEquals(1 + CHANNELS * DEPTH, lines.length);
+		assertEquals("ROI,Name,Channel,Z,Area,Mean,StdDev,Min,Max,IntDen,X,Y",
+			lines[0]);
+		assertTrue(lines[1].startsWith("1,\"a, \"\"b\"\"\",1,1,"));
+		assertTrue(lines[6].startsWith("1,\"a, \"\"b\"\"\",2,3,"));
+	}
+
+	// -- Helper methods --
+
+	/** Checks a measurement against the pixels of the overlay's spans. */
+	private void assertMeasurement(final Overlay overlay, final int c,
+		final int z, final Measurement m)
+	{
+		final OverlaySpans spans = overlay.getSpans();
+		long n = 0;
+		double sum = 0, sumSq = 0, sumX = 0, sumY = 0;
+		double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				if (!spans.contains(x, y)) continue;
+				final double v = value(x, y, c, z);
+				n++;
+				sum += v;
+				sumSq += v * v;
+				sumX += x;
+				sumY += y;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+		}
+		assertTrue(n > 0);
+		assertEquals(n, m.getPixelCount());
+		assertEquals(n, m.getArea(), 0);
+		assertEquals(sum / n, m.getMean(), 1e-9);
+		assertEquals(Math.sqrt((sumSq - sum * sum / n) / (n - 1)),
+			m.getStdDev(), 1e-9);
+		assertEquals(min, m.getMinValue(), 0);
+		assertEquals(max, m.getMaxValue(), 0);
+		assertEquals(sum, m.getIntegratedDensity(), 1e-9);
+		assertEquals(sumX / n, m.getCentroidX(), 1e-9);
+		assertEquals(sumY / n, m.getCentroidY(), 1e-9);
+	}
+
+	private ResultsTable collect(final List<Measurement> rows) {
+		return new ResultsTable() {
+
+			@Override
+			public void begin(final AxisType[] planeAxes) {
+				assertEquals(2, planeAxes.length);
+				assertEquals(Axes.CHANNEL, planeAxes[0]);
+				assertEquals(Axes.Z, planeAxes[1]);
+			}
+
+			@Override
+			public void addRow(final Measurement measurement) {
+				rows.add(measurement);
+			}
+		};
+	}
+
+	private RectangleOverlay rectangle(final double x, final double y,
+		final double w, final double h)
+	{
+		final RectangleOverlay overlay = new RectangleOverlay(null);
+		overlay.getRegionOfInterest().setOrigin(new double[] { x, y });
+		overlay.getRegionOfInterest().setExtent(new double[] { w, h });
+		return overlay;
+	}
+
+	private static int value(final int x, final int y, final int c,
+		final int z)
+	{
+		return (x * 7 + y * 13 + c * 31 + z * 53) % 256;
+	}
+
+	/** Creates a dataset whose pixel values depend on every coordinate. */
+	private Dataset createDataset() {
+		final Dataset dataset =
+			datasetService.create(new PlanarImgFactory<UnsignedByteType>(),
+				new UnsignedByteType(), new long[] { WIDTH, HEIGHT, CHANNELS, DEPTH },
+				"measurements", new AxisType[] { Axes.X, Axes.Y, Axes.CHANNEL,
+					Axes.Z });
+		final RandomAccess<? extends RealType<?>> access =
+			dataset.getImgPlus().randomAccess();
+		for (int z = 0; z < DEPTH; z++) {
+			access.setPosition(z, 3);
+			for (int c = 0; c < CHANNELS; c++) {
+				access.setPosition(c, 2);
+				for (int y = 0; y < HEIGHT; y++) {
+					access.setPosition(y, 1);
+					for (int x = 0; x < WIDTH; x++) {
+						access.setPosition(x, 0);
+						access.get().setReal(value(x, y, c, z));
+					}
+				}
+			}
+		}
+		dataset.update();
+		return dataset;
+	}
+
+}
@@ -0,0 +1,206 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.overlay.BinaryMaskOverlay;
+import imagej.data.overlay.PolygonOverlay;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link ParticleAnalysisService}.
+ */
+public class ParticleAnalysisServiceTest {
+
+	private static final int[][] PLANE = {
+		{ 1, 1, 0, 0, 0, 0, 0, 0 },
+		{ 1, 1, 0, 0, 0, 0, 0, 0 },
+		{ 0, 0, 5, 0, 0, 0, 9, 9 },
+		{ 0, 0, 0, 0, 0, 0, 9, 9 },
+		{ 0, 0, 0, 0, 0, 0, 0, 0 } };
+
+	private DatasetService datasetService;
+	private ParticleAnalysisService particleService;
+
+	@Before
+	public void setUp() {
+		final ImageJ context =
+			ImageJ.createContext(DatasetService.class,
+				ParticleAnalysisService.class);
+		datasetService = context.getService(DatasetService.class);
+		particleService = context.getService(ParticleAnalysisService.class);
+	}
+
+	@Test
+	public void testConnectivity() {
+		final Dataset dataset = createDataset(1);
+		final ParticleSettings settings = new ParticleSettings();
+		settings.setConnectivity(Connectivity.FOUR);
+		assertEquals(3, particleService.analyze(dataset, settings)
+			.getParticleCount());
+		settings.setConnectivity(Connectivity.EIGHT);
+		final ParticleAnalysis analysis =
+			particleService.analyze(dataset, settings);
+		assertEquals(2, analysis.getParticleCount());
+		assertEquals(1, analysis.getLabel(2, 2, 0));
+		assertEquals(2, analysis.getLabel(7, 3, 0));
+		assertEquals(0, analysis.getLabel(3, 3, 0));
+	}
+
+	@Test
+	public void testMeasurements() {
+		final ParticleAnalysis analysis =
+			particleService.analyze(createDataset(1), 1, Double.POSITIVE_INFINITY);
+		final Particle p = analysis.getParticle(1);
+		assertEquals(5, p.getArea());
+		assertEquals(0, p.min(0));
+		assertEquals(2, p.max(0));
+		assertEquals(2, p.max(1));
+		assertEquals(0.8, p.getCentroid(0), 1e-9);
+		assertEquals(0.8, p.getCentroid(1), 1e-9);
+		assertEquals(1, p.getMinValue(), 0);
+		assertEquals(5, p.getMaxValue(), 0);
+		assertEquals(1.8, p.getMean(), 1e-9);
+		assertEquals(9, p.getIntegratedDensity(), 0);
+
+		final Particle q = analysis.getParticle(2);
+		assertEquals(4, q.getArea());
+		assertEquals(6.5, q.getCentroid(0), 1e-9);
+		assertEquals(0, q.getStdDev(), 0);
+
+		// the threshold range excludes the 2x2 block of ones
+		final ParticleAnalysis bright =
+			particleService.analyze(createDataset(1), 5, 9);
+		assertEquals(2, bright.getParticleCount());
+		assertEquals(1, bright.getParticle(1).getArea());
+	}
+
+	@Test
+	public void testSizeFilter() {
+		final ParticleSettings settings = new ParticleSettings();
+		settings.setMinArea(2);
+		settings.setMaxArea(4);
+		settings.setConnectivity(Connectivity.FOUR);
+		final ParticleAnalysis analysis =
+			particleService.analyze(createDataset(1), settings);
+		assertEquals(2, analysis.getParticleCount());
+		assertEquals(0, analysis.getLabel(2, 2, 0));
+		assertEquals(2, analysis.getLabel(6, 2, 0));
+	}
+
+	@Test
+	public void testVolume() {
+		final Dataset dataset = createDataset(3);
+		final ParticleSettings settings = new ParticleSettings();
+		settings.setConnectivity(Connectivity.SIX);
+		ParticleAnalysis analysis = particleService.analyze(dataset, settings);
+		assertEquals(3, analysis.getDepth());
+		assertEquals(3, analysis.getParticleCount());
+		assertEquals(12, analysis.getParticle(1).getArea());
+		assertEquals(1, analysis.getParticle(1).getCentroid(2), 1e-9);
+
+		settings.setConnectivity(Connectivity.TWENTY_SIX);
+		analysis = particleService.analyze(dataset, settings);
+		assertEquals(2, analysis.getParticleCount());
+		assertEquals(15, analysis.getParticle(1).getArea());
+	}
+
+	@Test
+	public void testMasksAndOutlines() {
+		final ParticleSettings settings = new ParticleSettings();
+		settings.setConnectivity(Connectivity.FOUR);
+		settings.setCreateMasks(true);
+		settings.setCreateOutlines(true);
+		final ParticleAnalysis analysis =
+			particleService.analyze(createDataset(1), settings);
+
+		final BinaryMaskOverlay mask = analysis.getParticle(3).getMask();
+		assertNotNull(mask);
+		assertTrue(mask.getRegionOfInterest().contains(new double[] { 6, 2 }));
+		assertTrue(mask.getRegionOfInterest().contains(new double[] { 7, 3 }));
+		assertFalse(mask.getRegionOfInterest().contains(new double[] { 2, 2 }));
+
+		final PolygonOverlay outline = analysis.getParticle(1).getOutline();
+		assertNotNull(outline);
+		final double[][] corners = { { 0, 0 }, { 2, 0 }, { 2, 2 }, { 0, 2 } };
+		assertEquals(4, outline.getRegionOfInterest().getVertexCount());
+		for (int v = 0; v < corners.length; v++) {
+			for (int d = 0; d < 2; d++) {
+				assertEquals(corners[v][d], outline.getRegionOfInterest()
+					.getVertex(v).getDoublePosition(d), 0);
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Creates a dataset with the test plane repeated along Z. */
+	private Dataset createDataset(final int depth) {
+		final Dataset dataset =
+			datasetService.create(new PlanarImgFactory<UnsignedByteType>(),
+				new UnsignedByteType(), new long[] { 8, 5, depth }, "particles",
+				new AxisType[] { Axes.X, Axes.Y, Axes.Z });
+		final RandomAccess<? extends RealType<?>> access =
+			dataset.getImgPlus().randomAccess();
+		for (int z = 0; z < depth; z++) {
+			access.setPosition(z, 2);
+			for (int y = 0; y < PLANE.length; y++) {
+				access.setPosition(y, 1);
+				for (int x = 0; x < PLANE[y].length; x++) {
+					access.setPosition(x, 0);
+					access.get().setReal(PLANE[y][x]);
+				}
+			}
+		}
+		dataset.update();
+		return dataset;
+	}
+
+}
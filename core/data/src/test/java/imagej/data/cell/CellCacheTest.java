@@ -0,0 +1,223 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link CellCache} and {@link DiskCellImgFactory}.
+ */
+public class CellCacheTest {
+
+	private CellCache cache;
+
+	@After
+	public void tearDown() {
+		if (cache != null) cache.dispose();
+	}
+
+	@Test
+	public void testSpillAndRestore() {
+		// room for two cells of 100 shorts
+		cache = new CellCache(400, null);
+		final PagedShortArray[] cells = new PagedShortArray[5];
+		for (int c = 0; c < cells.length; c++) {
+			cells[c] = new PagedShortArray(cache, 100);
+			for (int i = 0; i < 100; i++) {
+				cells[c].setValue(i, (short) (1000 * c + i));
+			}
+			assertTrue(cache.getResidentBytes() <= cache.getMaxBytes());
+		}
+		assertNotNull(cache.getScratchFile());
+		assertTrue(cache.getSpillCount() >= 3);
+
+		for (int c = 0; c < cells.length; c++) {
+			for (int i = 0; i < 100; i++) {
+				assertEquals(1000 * c + i, cells[c].getValue(i));
+			}
+		}
+	}
+
+	@Test
+	public void testUntouchedCellsAreNotWritten() {
+		cache = new CellCache(8, null);
+		for (int c = 0; c < 10; c++) {
+			final PagedDoubleArray cell = new PagedDoubleArray(cache, 1);
+			assertEquals(0, cell.getValue(0), 0);
+		}
+		assertEquals(0, cache.getSpillCount());
+		assertNull(cache.getScratchFile());
+	}
+
+	@Test
+	public void testShrink() {
+		cache = new CellCache(1000, null);
+		final PagedByteArray[] cells = new PagedByteArray[10];
+		for (int c = 0; c < cells.length; c++) {
+			cells[c] = new PagedByteArray(cache, 100);
+			cells[c].setValue(0, (byte) c);
+		}
+		assertEquals(1000, cache.getResidentBytes());
+		cache.setMaxBytes(300);
+		assertTrue(cache.getResidentBytes() <= 300);
+		for (int c = 0; c < cells.length; c++) {
+			assertEquals(c, cells[c].getValue(0));
+		}
+	}
+
+	@Test
+	public void testConcurrentWrites() throws Exception {
+		// room for two of eight cells, so that cells are spilled constantly
+		cache = new CellCache(4000, null);
+		final PagedShortArray[] cells = new PagedShortArray[8];
+		for (int c = 0; c < cells.length; c++) {
+			cells[c] = new PagedShortArray(cache, 1000);
+		}
+		final int threadCount = 4;
+		final Throwable[] failure = new Throwable[1];
+		final Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int offset = t;
+			threads[t] = new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						// each thread writes its own elements of every cell
+						for (int round = 1; round <= 50; round++) {
+							for (final PagedShortArray cell : cells) {
+								for (int i = offset; i < 1000; i += threadCount) {
+									cell.setValue(i, (short) (round * i));
+								}
+							}
+						}
+					}
+					catch (final Throwable e) {
+						synchronized (failure) {
+							failure[0] = e;
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		synchronized (failure) {
+			if (failure[0] != null) throw new AssertionError(failure[0]);
+		}
+		assertTrue(cache.getSpillCount() > 0);
+		for (final PagedShortArray cell : cells) {
+			for (int i = 0; i < 1000; i++) {
+				assertEquals((short) (50 * i), cell.getValue(i));
+			}
+		}
+	}
+
+	@Test
+	public void testPinnedCellsStay() {
+		cache = new CellCache(200, null);
+		final PagedByteArray pinned = new PagedByteArray(cache, 100);
+		final byte[] data = pinned.getCurrentStorageArray();
+		for (int c = 0; c < 5; c++) {
+			new PagedByteArray(cache, 100).setValue(0, (byte) 1);
+		}
+		data[0] = 42;
+		assertTrue(data == pinned.getCurrentStorageArray());
+		assertEquals(42, pinned.getValue(0));
+	}
+
+	@Test
+	public void testSlotsOfCollectedCellsAreReused() throws Exception {
+		cache = new CellCache(200, null);
+		fill(5);
+		final File scratchFile = cache.getScratchFile();
+		final long length = scratchFile.length();
+		assertTrue(length > 0);
+		// the spilled cells are unreachable, so their slots can be reclaimed
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		fill(3);
+		assertEquals(length, scratchFile.length());
+	}
+
+	@Test
+	public void testImg() {
+		// cells of 16x16 floats, with room for only four of them
+		cache = new CellCache(4 * 16 * 16 * 4, null);
+		final DiskCellImgFactory<FloatType> factory =
+			new DiskCellImgFactory<FloatType>(cache, new int[] { 16, 16 });
+		final Img<FloatType> img =
+			factory.create(new long[] { 100, 100, 3 }, new FloatType());
+
+		float value = 0;
+		for (final FloatType t : img) {
+			t.set(value++);
+		}
+		assertTrue(cache.getSpillCount() > 0);
+
+		value = 0;
+		final Cursor<FloatType> cursor = img.cursor();
+		while (cursor.hasNext()) {
+			assertEquals(value++, cursor.next().get(), 0);
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Writes the given number of cells of 100 bytes, then drops them. */
+	private void fill(final int count) {
+		for (int c = 0; c < count; c++) {
+			new PagedByteArray(cache, 100).setValue(0, (byte) c);
+		}
+	}
+
+}
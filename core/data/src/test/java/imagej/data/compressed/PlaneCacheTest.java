@@ -0,0 +1,168 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.compressed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import imagej.data.cell.PagedByteArray;
+import imagej.data.cell.PagedDoubleArray;
+import imagej.data.cell.PagedShortArray;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link PlaneCache} and {@link CompressedPlanarImgFactory}.
+ */
+public class PlaneCacheTest {
+
+	@Test
+	public void testCompressAndRestore() {
+		// room for two planes of 1000 sparse shorts
+		final PlaneCache cache = new PlaneCache(4000, null);
+		final PagedShortArray[] planes = new PagedShortArray[5];
+		for (int p = 0; p < planes.length; p++) {
+			planes[p] = new PagedShortArray(cache, 1000);
+			for (int i = 0; i < 1000; i += 10) {
+				planes[p].setValue(i, (short) (1000 * p + i));
+			}
+			assertTrue(cache.getResidentBytes() <= cache.getMaxBytes());
+		}
+		assertTrue(cache.getCompressCount() >= 3);
+		assertTrue(cache.getCompressedBytes() > 0);
+		assertTrue(cache.getCompressedBytes() < 3 * 2000);
+
+		for (int p = 0; p < planes.length; p++) {
+			for (int i = 0; i < 1000; i++) {
+				final int expected = i % 10 == 0 ? 1000 * p + i : 0;
+				assertEquals(expected, planes[p].getValue(i));
+			}
+		}
+	}
+
+	@Test
+	public void testUntouchedPlanesAreNotCompressed() {
+		final PlaneCache cache = new PlaneCache(8, null);
+		for (int p = 0; p < 10; p++) {
+			final PagedDoubleArray plane = new PagedDoubleArray(cache, 1);
+			assertEquals(0, plane.getValue(0), 0);
+		}
+		assertEquals(0, cache.getCompressCount());
+		assertEquals(0, cache.getCompressedBytes());
+	}
+
+	@Test
+	public void testShrink() {
+		final PlaneCache cache = new PlaneCache(1000, null);
+		final PagedByteArray[] planes = new PagedByteArray[10];
+		for (int p = 0; p < planes.length; p++) {
+			planes[p] = new PagedByteArray(cache, 100);
+			planes[p].setValue(0, (byte) p);
+		}
+		assertEquals(1000, cache.getResidentBytes());
+		cache.setMaxBytes(300);
+		assertTrue(cache.getResidentBytes() <= 300);
+		for (int p = 0; p < planes.length; p++) {
+			assertEquals(p, planes[p].getValue(0));
+		}
+	}
+
+	@Test
+	public void testPinnedPlanesKeepWrites() {
+		final PlaneCache cache = new PlaneCache(2000, null);
+		final PagedShortArray plane = new PagedShortArray(cache, 1000);
+		final short[] data = plane.pin();
+		for (int p = 0; p < 5; p++) {
+			new PagedShortArray(cache, 1000).setValue(0, (short) p);
+		}
+		assertTrue(plane.isResident());
+		data[0] = 42;
+		plane.unpin();
+
+		// once unpinned, the plane is recompressed with the write
+		for (int p = 0; p < 5; p++) {
+			new PagedShortArray(cache, 1000).setValue(0, (short) p);
+		}
+		assertTrue(plane.getSaved() != null);
+		assertEquals(42, plane.getValue(0));
+	}
+
+	@Test
+	public void testReadingDoesNotRecompress() {
+		final PlaneCache cache = new PlaneCache(2000, null);
+		final PagedShortArray plane = new PagedShortArray(cache, 1000);
+		plane.setValue(0, (short) 7);
+		new PagedShortArray(cache, 1000).setValue(0, (short) 1);
+		new PagedShortArray(cache, 1000).setValue(0, (short) 1);
+		final long count = cache.getCompressCount();
+		assertEquals(7, plane.getArrayForReading()[0]);
+		new PagedShortArray(cache, 1000).setValue(0, (short) 1);
+		new PagedShortArray(cache, 1000).setValue(0, (short) 1);
+		assertEquals(count + 2, cache.getCompressCount());
+	}
+
+	@Test
+	public void testImg() {
+		// room for only two planes of 64x64 shorts
+		final PlaneCache cache = new PlaneCache(2 * 64 * 64 * 2, null);
+		final CompressedPlanarImgFactory<UnsignedShortType> factory =
+			new CompressedPlanarImgFactory<UnsignedShortType>(cache);
+		final Img<UnsignedShortType> img =
+			factory.create(new long[] { 64, 64, 8 }, new UnsignedShortType());
+		assertTrue(img instanceof CompressedPlanarImg);
+
+		int index = 0;
+		for (final UnsignedShortType t : img) {
+			if (index++ % 64 == 0) t.set(index);
+		}
+		assertTrue(cache.getCompressCount() > 0);
+		final CompressedPlanarImg<?, ?> compressedImg =
+			(CompressedPlanarImg<?, ?>) img;
+		assertTrue(compressedImg.getBytesInMemory() < 64 * 64 * 8 * 2);
+
+		index = 0;
+		final Cursor<UnsignedShortType> cursor = img.cursor();
+		while (cursor.hasNext()) {
+			final int expected = index++ % 64 == 0 ? index : 0;
+			assertEquals(expected, cursor.next().get());
+		}
+	}
+
+}
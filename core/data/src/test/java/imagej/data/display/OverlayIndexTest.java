@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import imagej.data.overlay.Overlay;
+import imagej.data.overlay.RectangleOverlay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link OverlayIndex}.
+ */
+public class OverlayIndexTest {
+
+	@Test
+	public void testPointQuery() {
+		final OverlayIndex index = new OverlayIndex();
+		final Overlay a = rectangle(10, 10, 20, 20);
+		final Overlay b = rectangle(25, 25, 100, 5);
+		index.add(a);
+		index.add(b);
+		assertEquals(2, index.size());
+
+		List<Overlay> found = index.find(15, 15, 15, 15);
+		assertEquals(1, found.size());
+		assertTrue(found.contains(a));
+		found = index.find(27, 27, 27, 27);
+		assertEquals(2, found.size());
+		assertEquals(0, index.find(200, 200, 200, 200).size());
+	}
+
+	@Test
+	public void testUpdateAndRemove() {
+		final OverlayIndex index = new OverlayIndex();
+		final RectangleOverlay overlay = rectangle(0, 0, 10, 10);
+		index.add(overlay);
+		overlay.getRegionOfInterest().setOrigin(new double[] { 500, 500 });
+		index.add(overlay);
+		assertEquals(1, index.size());
+		assertEquals(0, index.find(5, 5, 5, 5).size());
+		assertEquals(1, index.find(505, 505, 505, 505).size());
+
+		index.remove(overlay);
+		assertFalse(index.contains(overlay));
+		assertEquals(0, index.find(0, 0, 1000, 1000).size());
+	}
+
+	@Test
+	public void testWindowQueries() {
+		final Random r = new Random(2012);
+		final OverlayIndex index = new OverlayIndex();
+		final List<RectangleOverlay> overlays = new ArrayList<RectangleOverlay>();
+		for (int i = 0; i < 2000; i++) {
+			// mostly small overlays, with a few spanning many cells
+			final double w = r.nextInt(20) == 0 ? 2000 : r.nextDouble() * 40;
+			final RectangleOverlay overlay =
+				rectangle(r.nextDouble() * 3000, r.nextDouble() * 3000, w, r
+					.nextDouble() * 40);
+			overlays.add(overlay);
+			index.add(overlay);
+		}
+		for (int q = 0; q < 200; q++) {
+			final double x = r.nextDouble() * 3000, y = r.nextDouble() * 3000;
+			final double w = r.nextDouble() * 300, h = r.nextDouble() * 300;
+			final List<Overlay> found = index.find(x, y, x + w, y + h);
+			int expected = 0;
+			for (final RectangleOverlay overlay : overlays) {
+				if (overlay.realMin(0) <= x + w && overlay.realMax(0) >= x &&
+					overlay.realMin(1) <= y + h && overlay.realMax(1) >= y)
+				{
+					expected++;
+					assertTrue(found.contains(overlay));
+				}
+			}
+			assertEquals(expected, found.size());
+		}
+	}
+
+	// -- Helper methods --
+
+	private RectangleOverlay rectangle(final double x, final double y,
+		final double w, final double h)
+	{
+		final RectangleOverlay overlay = new RectangleOverlay(null);
+		overlay.getRegionOfInterest().setOrigin(new double[] { x, y });
+		overlay.getRegionOfInterest().setExtent(new double[] { w, h });
+		return overlay;
+	}
+
+}
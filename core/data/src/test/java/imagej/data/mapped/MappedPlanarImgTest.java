@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.mapped;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link MappedPlanarImg}.
+ */
+public class MappedPlanarImgTest {
+
+	private static final long[] DIMS = { 8, 4, 3 };
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		// a 16-bit big-endian raw stack holding 0, 1, 2, ...
+		file = File.createTempFile("mapped", ".raw");
+		final DataOutputStream out =
+			new DataOutputStream(new FileOutputStream(file));
+		for (int i = 0; i < DIMS[0] * DIMS[1] * DIMS[2]; i++) {
+			out.writeShort(i);
+		}
+		out.close();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testRead() throws IOException {
+		final MappedPlanarImg<UnsignedShortType, ?> img = open(true);
+		final Cursor<UnsignedShortType> cursor = img.cursor();
+		int i = 0;
+		while (cursor.hasNext()) {
+			assertEquals(i++, cursor.next().get());
+		}
+		img.close();
+	}
+
+	@Test
+	public void testWriteAndFlush() throws IOException {
+		final MappedPlanarImg<UnsignedShortType, ?> img = open(false);
+		final RandomAccess<UnsignedShortType> access = img.randomAccess();
+		access.setPosition(new long[] { 1, 0, 2 });
+		access.get().set(60000);
+		img.close();
+
+		final DataInputStream in = new DataInputStream(new FileInputStream(file));
+		in.skipBytes(2 * (2 * 8 * 4 + 1));
+		assertEquals(60000, in.readUnsignedShort());
+		in.close();
+	}
+
+	@Test
+	public void testDatasetPlanes() throws IOException {
+		final MappedPlanarImg<UnsignedShortType, ?> img = open(false);
+		final ImageJ context = ImageJ.createContext(DatasetService.class);
+		final Dataset ds =
+			context.getService(DatasetService.class).create(
+				new ImgPlus<UnsignedShortType>(img, "mapped", new AxisType[] {
+					Axes.X, Axes.Y, Axes.Z }, null));
+
+		// the plane buffer is the mapping itself
+		final ShortBuffer buffer = (ShortBuffer) ds.getPlaneBuffer(1);
+		assertEquals(32, buffer.get(0));
+		buffer.put(0, (short) 7);
+		final RandomAccess<UnsignedShortType> access = img.randomAccess();
+		access.setPosition(new long[] { 0, 0, 1 });
+		assertEquals(7, access.get().get());
+
+		// planes cannot be referenced as arrays, only copied
+		assertNull(img.getPlane(1).getCurrentStorageArray());
+		assertNull(ds.getPlane(1, false));
+		final short[] plane = (short[]) ds.getPlane(1, true);
+		assertEquals(7, plane[0]);
+		assertEquals(33, plane[1]);
+
+		// setting a plane writes through to the mapping
+		plane[1] = 99;
+		ds.setPlane(1, plane);
+		assertEquals(99, ((ShortBuffer) ds.getPlaneBuffer(1)).get(1));
+		assertTrue(ds.getPlaneBuffer(0) instanceof ShortBuffer);
+		assertSame(img, ds.getImgPlus().getImg());
+		img.close();
+	}
+
+	// -- Helper methods --
+
+	private MappedPlanarImg<UnsignedShortType, ?> open(final boolean readOnly)
+		throws IOException
+	{
+		return MappedPlanarImg.open(file, 0, DIMS, new UnsignedShortType(),
+			ByteOrder.BIG_ENDIAN, readOnly);
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.overlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.RealPoint;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.roi.PolygonRegionOfInterest;
+import net.imglib2.roi.RegionOfInterest;
+import net.imglib2.type.logic.BitType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link OverlaySpans}.
+ */
+public class OverlaySpansTest {
+
+	@Test
+	public void testPolygon() {
+		final PolygonOverlay overlay = new PolygonOverlay(null);
+		final PolygonRegionOfInterest roi = overlay.getRegionOfInterest();
+		roi.addVertex(0, new RealPoint(new double[] { 1.5, 2 }));
+		roi.addVertex(1, new RealPoint(new double[] { 17, 4.25 }));
+		roi.addVertex(2, new RealPoint(new double[] { 9, 11 }));
+		roi.addVertex(3, new RealPoint(new double[] { 6, 5.5 }));
+		assertSameAsRegion(overlay);
+	}
+
+	@Test
+	public void testRectangle() {
+		final RectangleOverlay overlay = new RectangleOverlay(null);
+		overlay.getRegionOfInterest().setOrigin(new double[] { 2, 3 });
+		overlay.getRegionOfInterest().setExtent(new double[] { 4, 2 });
+		assertSameAsRegion(overlay);
+	}
+
+	@Test
+	public void testCaching() {
+		final RectangleOverlay overlay = new RectangleOverlay(null);
+		overlay.getRegionOfInterest().setOrigin(new double[] { 2, 3 });
+		overlay.getRegionOfInterest().setExtent(new double[] { 4, 2 });
+		final OverlaySpans spans = overlay.getSpans();
+		assertSame(spans, overlay.getSpans());
+
+		overlay.update();
+		final OverlaySpans updated = overlay.getSpans();
+		assertNotSame(spans, updated);
+
+		// moved without an update
+		overlay.getRegionOfInterest().setOrigin(new double[] { 5, 3 });
+		final OverlaySpans moved = overlay.getSpans();
+		assertNotSame(updated, moved);
+		assertSameAsRegion(overlay);
+	}
+
+	@Test
+	public void testUnion() {
+		final List<OverlaySpans> parts = new ArrayList<OverlaySpans>();
+		parts.add(rectangle(2, 3, 4, 2).getSpans());
+		parts.add(rectangle(4, 4, 5, 3).getSpans());
+		// continues the first rectangle along X
+		parts.add(rectangle(6, 3, 2, 2).getSpans());
+		final OverlaySpans union = OverlaySpans.union(parts);
+		long count = 0;
+		for (long y = -2; y < 20; y++) {
+			for (long x = -2; x < 20; x++) {
+				boolean inside = false;
+				for (final OverlaySpans part : parts) {
+					inside |= part.contains(x, y);
+				}
+				if (inside) count++;
+				assertEquals(inside, union.contains(x, y));
+			}
+		}
+		assertEquals(count, union.getPixelCount());
+		// touching runs are merged
+		assertEquals(1, union.getRowEnd(3) - union.getRowStart(3));
+	}
+
+	// -- Helper methods --
+
+	private RectangleOverlay rectangle(final double x, final double y,
+		final double w, final double h)
+	{
+		final RectangleOverlay overlay = new RectangleOverlay(null);
+		overlay.getRegionOfInterest().setOrigin(new double[] { x, y });
+		overlay.getRegionOfInterest().setExtent(new double[] { w, h });
+		return overlay;
+	}
+
+	/** Checks the spans against the region, pixel by pixel. */
+	private void assertSameAsRegion(final Overlay overlay) {
+		final OverlaySpans spans = overlay.getSpans();
+		final RegionOfInterest roi = overlay.getRegionOfInterest();
+		final RealRandomAccess<BitType> access = roi.realRandomAccess();
+		final double[] pos = new double[2];
+		long count = 0;
+		for (long y = -2; y < 20; y++) {
+			for (long x = -2; x < 20; x++) {
+				pos[0] = x;
+				pos[1] = y;
+				access.setPosition(pos);
+				final boolean inside = access.get().get();
+				if (inside) count++;
+				assertEquals(inside, spans.contains(x, y));
+			}
+		}
+		assertEquals(count, spans.getPixelCount());
+	}
+
+}
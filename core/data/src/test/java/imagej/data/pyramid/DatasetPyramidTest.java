@@ -0,0 +1,153 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.pyramid;
+
+import static org.junit.Assert.assertEquals;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.UpdateRegion;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link DatasetPyramid}.
+ */
+public class DatasetPyramidTest {
+
+	private static final int WIDTH = 13, HEIGHT = 7;
+
+	private Dataset dataset;
+
+	@Before
+	public void setUp() {
+		final ImageJ context = ImageJ.createContext(DatasetService.class);
+		dataset =
+			context.getService(DatasetService.class).create(
+				new PlanarImgFactory<UnsignedByteType>(), new UnsignedByteType(),
+				new long[] { WIDTH, HEIGHT, 2 }, "pyramid", new AxisType[] { Axes.X,
+					Axes.Y, Axes.Z });
+		for (int p = 0; p < 2; p++) {
+			final byte[] plane = (byte[]) dataset.getPlane(p);
+			for (int i = 0; i < plane.length; i++) {
+				plane[i] = (byte) ((37 * i + 11 * p) % 256);
+			}
+		}
+		dataset.update();
+	}
+
+	@Test
+	public void testLevels() {
+		final DatasetPyramid pyramid = dataset.getPyramid();
+		assertEquals(5, pyramid.getLevelCount());
+		assertEquals(7, pyramid.getWidth(1));
+		assertEquals(4, pyramid.getHeight(1));
+		assertEquals(1, pyramid.getWidth(4));
+		assertEquals(0, pyramid.getLevel(1));
+		assertEquals(0, pyramid.getLevel(0.75));
+		assertEquals(1, pyramid.getLevel(0.5));
+		assertEquals(1, pyramid.getLevel(0.3));
+		assertEquals(4, pyramid.getLevel(0.001));
+	}
+
+	@Test
+	public void testAveraging() {
+		final DatasetPyramid pyramid = dataset.getPyramid();
+		// build coarse levels from finer ones, and directly from the data
+		for (int level = 1; level < pyramid.getLevelCount(); level++) {
+			assertAverages(pyramid, level, 1);
+		}
+		pyramid.invalidateAll();
+		assertAverages(pyramid, 3, 1);
+	}
+
+	@Test
+	public void testRegionalUpdate() {
+		final DatasetPyramid pyramid = dataset.getPyramid();
+		assertAverages(pyramid, 1, 0);
+		assertAverages(pyramid, 2, 0);
+		final float[] before = pyramid.getPlane(1, 0);
+		final float[] copy = before.clone();
+		final byte[] plane = (byte[]) dataset.getPlane(0);
+		for (int y = 2; y <= 4; y++) {
+			for (int x = 3; x <= 9; x++) {
+				plane[y * WIDTH + x] = (byte) 200;
+			}
+		}
+		dataset.update(UpdateRegion.forRectangle(dataset.getDims(), 0, 3, 2, 9, 4));
+		assertAverages(pyramid, 1, 0);
+		assertAverages(pyramid, 2, 0);
+		// planes handed out before the update are left as they were
+		for (int i = 0; i < copy.length; i++) {
+			assertEquals(copy[i], before[i], 0);
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Checks the given level planes against averages of the data. */
+	private void assertAverages(final DatasetPyramid pyramid, final int level,
+		final int lastPlane)
+	{
+		final int factor = 1 << level;
+		final int width = (int) pyramid.getWidth(level);
+		for (int p = 0; p <= lastPlane; p++) {
+			final byte[] data = (byte[]) dataset.getPlane(p);
+			final float[] values = pyramid.getPlane(level, p);
+			for (int y = 0; y < pyramid.getHeight(level); y++) {
+				for (int x = 0; x < width; x++) {
+					double sum = 0;
+					int count = 0;
+					final int maxY = Math.min(HEIGHT, (y + 1) * factor);
+					final int maxX = Math.min(WIDTH, (x + 1) * factor);
+					for (int yy = y * factor; yy < maxY; yy++) {
+						for (int xx = x * factor; xx < maxX; xx++) {
+							sum += data[yy * WIDTH + xx] & 0xff;
+							count++;
+						}
+					}
+					assertEquals(sum / count, values[y * width + x], 1e-4);
+				}
+			}
+		}
+	}
+
+}
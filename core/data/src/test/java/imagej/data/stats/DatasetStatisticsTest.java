@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link DatasetStatistics}.
+ */
+public class DatasetStatisticsTest {
+
+	private static final int PLANE_SIZE = 4 * 3;
+
+	private Dataset dataset;
+
+	@Before
+	public void setUp() {
+		final ImageJ context = ImageJ.createContext(DatasetService.class);
+		dataset =
+			context.getService(DatasetService.class).create(
+				new PlanarImgFactory<UnsignedByteType>(), new UnsignedByteType(),
+				new long[] { 4, 3, 2, 3 }, "stats", new AxisType[] { Axes.X, Axes.Y,
+					Axes.CHANNEL, Axes.Z });
+		// plane p holds the values 10 * p + 0, ..., 10 * p + 11
+		for (int p = 0; p < 6; p++) {
+			final byte[] plane = (byte[]) dataset.getPlane(p);
+			for (int i = 0; i < PLANE_SIZE; i++) {
+				plane[i] = (byte) (10 * p + i);
+			}
+		}
+		dataset.update();
+	}
+
+	@Test
+	public void testPlaneStatistics() {
+		final Statistics stats = dataset.getStatistics().getPlaneStatistics(2);
+		assertEquals(PLANE_SIZE, stats.getCount());
+		assertEquals(20, stats.getMin(), 0);
+		assertEquals(31, stats.getMax(), 0);
+		assertEquals(25.5, stats.getMean(), 1e-12);
+		assertEquals(Math.sqrt(13), stats.getStdDev(), 1e-12);
+		assertEquals(1, stats.getBin(20));
+		assertEquals(0, stats.getBin(19));
+	}
+
+	@Test
+	public void testChannelStatistics() {
+		final DatasetStatistics stats = dataset.getStatistics();
+		assertEquals(6, stats.getPlaneCount());
+		assertEquals(2, stats.getChannelCount());
+
+		// channel 1 is made of planes 1, 3 and 5
+		final Statistics channel = stats.getChannelStatistics(1);
+		assertEquals(3 * PLANE_SIZE, channel.getCount());
+		assertEquals(10, channel.getMin(), 0);
+		assertEquals(61, channel.getMax(), 0);
+		assertEquals(35.5, channel.getMean(), 1e-12);
+
+		final Statistics all = stats.getStatistics();
+		assertEquals(6 * PLANE_SIZE, all.getCount());
+		assertEquals(0, all.getMin(), 0);
+		assertEquals(61, all.getMax(), 0);
+		assertEquals(all.getStdDev(), stats.getChannelStatistics(0).merge(
+			channel).getStdDev(), 1e-12);
+	}
+
+	@Test
+	public void testInvalidation() {
+		final DatasetStatistics stats = dataset.getStatistics();
+		final Statistics plane0 = stats.getPlaneStatistics(0);
+		final Statistics plane4 = stats.getPlaneStatistics(4);
+
+		// setting a plane recomputes that plane only
+		final byte[] values = new byte[PLANE_SIZE];
+		values[5] = (byte) 200;
+		dataset.setPlane(4, values);
+		assertSame(plane0, stats.getPlaneStatistics(0));
+		final Statistics newPlane4 = stats.getPlaneStatistics(4);
+		assertNotSame(plane4, newPlane4);
+		assertEquals(200, newPlane4.getMax(), 0);
+		assertEquals(200, stats.getChannelStatistics(0).getMax(), 0);
+
+		// a general update recomputes everything
+		dataset.update();
+		assertNotSame(plane0, stats.getPlaneStatistics(0));
+		assertEquals(plane0.getMean(), stats.getPlaneStatistics(0).getMean(), 0);
+	}
+
+}
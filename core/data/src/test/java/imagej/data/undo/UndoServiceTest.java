@@ -0,0 +1,182 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.undo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.compressed.CompressedPlanarImgFactory;
+import imagej.data.compressed.PlaneCache;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link UndoService}.
+ */
+public class UndoServiceTest {
+
+	private static final int WIDTH = 8, HEIGHT = 4, PLANE_SIZE = WIDTH * HEIGHT;
+
+	private DatasetService datasetService;
+	private UndoService undoService;
+	private Dataset dataset;
+
+	@Before
+	public void setUp() {
+		final ImageJ context =
+			ImageJ.createContext(DatasetService.class, UndoService.class);
+		datasetService = context.getService(DatasetService.class);
+		undoService = context.getService(UndoService.class);
+		dataset =
+			datasetService.create(
+				new PlanarImgFactory<UnsignedByteType>(), new UnsignedByteType(),
+				new long[] { WIDTH, HEIGHT, 3 }, "undo", new AxisType[] { Axes.X,
+					Axes.Y, Axes.Z });
+		for (int p = 0; p < 3; p++) {
+			fill(p, p);
+		}
+		dataset.update();
+	}
+
+	@Test
+	public void testUndoRedo() {
+		assertTrue(undoService.snapshot(dataset));
+		fill(1, 42);
+		undoService.commit(dataset);
+		assertTrue(undoService.canUndo(dataset));
+
+		assertTrue(undoService.undo(dataset));
+		assertPlane(0, 0);
+		assertPlane(1, 1);
+		assertPlane(2, 2);
+		assertFalse(undoService.canUndo(dataset));
+		assertTrue(undoService.canRedo(dataset));
+
+		assertTrue(undoService.redo(dataset));
+		assertPlane(1, 42);
+		assertFalse(undoService.canRedo(dataset));
+	}
+
+	@Test
+	public void testCopyOnWrite() {
+		undoService.snapshot(dataset);
+		assertEquals(0, undoService.getBytes());
+		fill(2, 7);
+		undoService.commit(dataset);
+		// only the written plane is held by the undo level
+		assertEquals(PLANE_SIZE, undoService.getBytes());
+	}
+
+	@Test
+	public void testReadingDoesNotCopy() {
+		undoService.snapshot(dataset);
+		assertEquals(1, ((byte[]) dataset.getPlaneForReading(1, false))[0]);
+		assertEquals(0, undoService.getBytes());
+	}
+
+	@Test
+	public void testUnsharedPlanesBeyondLimit() {
+		final Dataset compressed =
+			datasetService.create(new CompressedPlanarImgFactory<UnsignedByteType>(
+				new PlaneCache()), new UnsignedByteType(), new long[] { WIDTH,
+				HEIGHT, 3 }, "compressed", new AxisType[] { Axes.X, Axes.Y, Axes.Z });
+		undoService.setMaxBytes(3 * PLANE_SIZE);
+		assertTrue(undoService.snapshot(compressed));
+		undoService.setMaxBytes(PLANE_SIZE);
+		assertFalse(undoService.snapshot(compressed));
+		assertFalse(undoService.canUndo(compressed));
+	}
+
+	@Test
+	public void testUnchangedLevelIsDropped() {
+		undoService.snapshot(dataset);
+		undoService.commit(dataset);
+		assertFalse(undoService.canUndo(dataset));
+	}
+
+	@Test
+	public void testLimits() {
+		undoService.setMaxLevels(10);
+		undoService.setMaxBytes(PLANE_SIZE);
+		for (int value = 10; value < 13; value++) {
+			undoService.snapshot(dataset);
+			fill(0, value);
+			undoService.commit(dataset);
+		}
+		assertTrue(undoService.getBytes() <= PLANE_SIZE);
+		assertTrue(undoService.undo(dataset));
+		assertPlane(0, 11);
+		assertFalse(undoService.canUndo(dataset));
+
+		undoService.setMaxBytes(1 << 20);
+		undoService.setMaxLevels(2);
+		for (int value = 20; value < 23; value++) {
+			undoService.snapshot(dataset);
+			fill(0, value);
+			undoService.commit(dataset);
+		}
+		assertTrue(undoService.undo(dataset));
+		assertTrue(undoService.undo(dataset));
+		assertPlane(0, 20);
+		assertFalse(undoService.canUndo(dataset));
+	}
+
+	// -- Helper methods --
+
+	private void fill(final int planeNumber, final int value) {
+		final byte[] plane = (byte[]) dataset.getPlane(planeNumber);
+		for (int i = 0; i < plane.length; i++) {
+			plane[i] = (byte) value;
+		}
+		dataset.update();
+	}
+
+	private void assertPlane(final int planeNumber, final int value) {
+		final byte[] plane = (byte[]) dataset.getPlane(planeNumber);
+		for (int i = 0; i < plane.length; i++) {
+			assertEquals(value, plane[i]);
+		}
+	}
+
+}
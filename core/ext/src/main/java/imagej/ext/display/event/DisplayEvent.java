@@ -55,6 +55,13 @@ public Display<?> getDisplay() {
 		return display;
 	}
 
+	// -- ImageJEvent methods --
+
+	@Override
+	public Object getSource() {
+		return getDisplay();
+	}
+
 	// -- Object methods --
 
 	@Override
@@ -46,6 +46,7 @@
 import imagej.service.AbstractService;
 import imagej.service.Service;
 import imagej.thread.ThreadService;
+import imagej.thread.ThreadService.Pool;
 import imagej.util.ClassUtils;
 import imagej.util.Log;
 
@@ -185,11 +186,20 @@ public <M extends Module> Future<M> run(final M module,
 		final List<? extends ModulePreprocessor> pre,
 		final List<? extends ModulePostprocessor> post,
 		final Map<String, Object> inputMap)
+	{
+		return run(module, pre, post, inputMap, Pool.GENERAL);
+	}
+
+	@Override
+	public <M extends Module> Future<M> run(final M module,
+		final List<? extends ModulePreprocessor> pre,
+		final List<? extends ModulePostprocessor> post,
+		final Map<String, Object> inputMap, final Pool pool)
 	{
 		assignInputs(module, inputMap);
 		final ModuleRunner runner = new ModuleRunner(module, pre, post);
 		@SuppressWarnings("unchecked")
-		final Future<M> future = (Future<M>) threadService.run(runner);
+		final Future<M> future = (Future<M>) threadService.run(runner, pool);
 		return future;
 	}
 
@@ -47,6 +47,8 @@
 import imagej.ext.module.event.ModuleStartedEvent;
 import imagej.ext.module.process.ModulePostprocessor;
 import imagej.ext.module.process.ModulePreprocessor;
+import imagej.metrics.MetricsService;
+import imagej.metrics.Timer;
 import imagej.util.Log;
 
 import java.util.List;
@@ -65,6 +67,15 @@
  */
 public class ModuleRunner implements Callable<Module>, Runnable {
 
+	/** Name of the per-class timers of module execution. */
+	public static final String RUN_TIMER = "module.run";
+
+	/** Name of the per-class timers of module preprocessing steps. */
+	public static final String PREPROCESS_TIMER = "module.preprocess";
+
+	/** Name of the per-class timers of module postprocessing steps. */
+	public static final String POSTPROCESS_TIMER = "module.postprocess";
+
 	private final Module module;
 	private final List<? extends ModulePreprocessor> pre;
 	private final List<? extends ModulePostprocessor> post;
@@ -85,9 +96,13 @@ public boolean preProcess() {
 		if (pre == null) return true; // no preprocessors
 		final EventService eventService = ImageJ.get(EventService.class);
 		final StatusService statusService = ImageJ.get(StatusService.class);
+		final MetricsService metricsService = ImageJ.get(MetricsService.class);
 
 		for (final ModulePreprocessor p : pre) {
+			final Timer timer = getTimer(metricsService, PREPROCESS_TIMER, p);
+			final long start = timer == null ? 0 : timer.start();
 			p.process(module);
+			if (timer != null) timer.stop(start);
 			eventService.publish(new ModulePreprocessEvent(module, p));
 			if (p.canceled()) {
 				// notify interested parties of any warning messages
@@ -105,9 +120,13 @@ public boolean preProcess() {
 	public void postProcess() {
 		if (post == null) return; // no postprocessors
 		final EventService eventService = ImageJ.get(EventService.class);
+		final MetricsService metricsService = ImageJ.get(MetricsService.class);
 
 		for (final ModulePostprocessor p : post) {
+			final Timer timer = getTimer(metricsService, POSTPROCESS_TIMER, p);
+			final long start = timer == null ? 0 : timer.start();
 			p.process(module);
+			if (timer != null) timer.stop(start);
 			eventService.publish(new ModulePostprocessEvent(module, p));
 		}
 	}
@@ -147,10 +166,25 @@ public void run() {
 			return;
 		}
 		eventService.publish(new ModuleExecutingEvent(module));
+		final MetricsService metricsService = ImageJ.get(MetricsService.class);
+		final Timer timer =
+			getTimer(metricsService, RUN_TIMER, module.getDelegateObject());
+		final long start = timer == null ? 0 : timer.start();
 		module.run();
+		if (timer != null) timer.stop(start);
 		eventService.publish(new ModuleExecutedEvent(module));
 		postProcess();
 		eventService.publish(new ModuleFinishedEvent(module));
 	}
 
+	// -- Helper methods --
+
+	/** Gets the timer of the given object's class, or null if none. */
+	private Timer getTimer(final MetricsService metricsService,
+		final String name, final Object o)
+	{
+		if (metricsService == null || o == null) return null;
+		return metricsService.getTimer(name, o.getClass());
+	}
+
 }
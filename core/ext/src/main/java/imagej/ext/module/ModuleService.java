@@ -39,6 +39,7 @@
 import imagej.ext.module.process.ModulePostprocessor;
 import imagej.ext.module.process.ModulePreprocessor;
 import imagej.service.IService;
+import imagej.thread.ThreadService.Pool;
 
 import java.util.Collection;
 import java.util.List;
@@ -184,6 +185,27 @@ <M extends Module> Future<M> run(final M module,
 		final List<? extends ModulePostprocessor> post,
 		final Map<String, Object> inputMap);
 
+	/**
+	 * Executes the given module on the specified thread pool.
+	 * 
+	 * @param module The module to run.
+	 * @param pre List of preprocessing steps to perform.
+	 * @param post List of postprocessing steps to perform.
+	 * @param inputMap Table of input parameter values, with keys matching the
+	 *          module's {@link ModuleInfo}'s input parameter names. Passing a
+	 *          value of a type incompatible with the associated input parameter
+	 *          will issue an error and ignore that value.
+	 * @param pool The pool on which to run the module. Modules which may block
+	 *          waiting for user input should use {@link Pool#GENERAL}, which is
+	 *          the pool used by the other {@code run} methods.
+	 * @return {@link Future} of the module instance being executed. Calling
+	 *         {@link Future#get()} will block until execution is complete.
+	 */
+	<M extends Module> Future<M> run(final M module,
+		final List<? extends ModulePreprocessor> pre,
+		final List<? extends ModulePostprocessor> post,
+		final Map<String, Object> inputMap, final Pool pool);
+
 	/** Blocks until the given module is finished executing. */
 	<M extends Module> M waitFor(final Future<M> future);
 
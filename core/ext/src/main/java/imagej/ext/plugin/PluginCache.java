@@ -0,0 +1,563 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.ext.plugin;
+
+import imagej.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * On-disk cache of the {@link Plugin} annotations discovered by
+ * {@link PluginFinder}, which avoids reading the SezPoz index of every
+ * classpath element at startup.
+ * <p>
+ * The cache is keyed on the path, size and modification time of each element
+ * of the classpath (for directories, of the SezPoz index within them), so it is
+ * invalidated automatically whenever a JAR file changes.
+ * </p>
+ * <p>
+ * The cache is a UTF-8 text file of tab-separated key/value lines: a header,
+ * one <code>classpath</code> line per classpath element, then a
+ * <code>plugin</code> line per plugin class, followed by the annotation
+ * attributes which differ from their defaults. Nested annotations are written
+ * as an element count, followed by their attributes under dotted keys, e.g.
+ * <code>menu.0.label</code>.
+ * </p>
+ * <p>
+ * The cache is kept in <code>~/.imagej/cache</code>. Set the system property
+ * <code>ij.plugin.cache</code> to another directory to relocate it, or to
+ * <code>false</code> to disable it.
+ * </p>
+ */
+class PluginCache {
+
+	/** System property which relocates or disables the cache. */
+	static final String CACHE_PROPERTY = "ij.plugin.cache";
+
+	/** First line of a cache file. */
+	private static final String HEADER = "# ImageJ plugin cache";
+
+	/** Version of the cache file format. */
+	private static final int VERSION = 2;
+
+	/** Path to the SezPoz index of {@link Plugin} annotations. */
+	private static final String INDEX_PATH = "META-INF/annotations/" +
+		Plugin.class.getName();
+
+	/** Class loader with which to resolve cached classes. */
+	private final ClassLoader classLoader;
+
+	/** Signature of the classpath, or null if it cannot be cached. */
+	private final List<String> fingerprint;
+
+	/** File holding the cached annotations, or null if caching is disabled. */
+	private final File cacheFile;
+
+	public PluginCache(final ClassLoader classLoader) {
+		this(classLoader, getCacheDirectory());
+	}
+
+	/**
+	 * Creates a cache kept in the given directory, or a disabled cache if the
+	 * directory is null.
+	 */
+	PluginCache(final ClassLoader classLoader, final File cacheDir) {
+		if (classLoader != null) this.classLoader = classLoader;
+		else if (Thread.currentThread().getContextClassLoader() != null) {
+			this.classLoader = Thread.currentThread().getContextClassLoader();
+		}
+		else this.classLoader = PluginCache.class.getClassLoader();
+		final List<File> classpath =
+			cacheDir == null ? null : getClasspath(this.classLoader);
+		if (classpath == null) {
+			fingerprint = null;
+			cacheFile = null;
+		}
+		else {
+			fingerprint = computeFingerprint(classpath);
+			// NB: Use a separate cache for each installation.
+			final String hash = Integer.toHexString(classpath.hashCode());
+			cacheFile = new File(cacheDir, "plugins-" + hash + ".cache");
+		}
+	}
+
+	// -- PluginCache methods --
+
+	/** Gets the file holding the cache, or null if caching is disabled. */
+	public File getCacheFile() {
+		return cacheFile;
+	}
+
+	/**
+	 * Reads the cached plugin annotations.
+	 * 
+	 * @return the cached plugins, or null if the cache is disabled, missing, or
+	 *         out of date with respect to the current classpath
+	 */
+	public List<Entry> load() {
+		if (cacheFile == null) {
+			Log.debug("Plugin cache miss: caching is disabled for this classpath");
+			return null;
+		}
+		if (!cacheFile.exists()) {
+			Log.info("Plugin cache miss: no cache at " + cacheFile);
+			return null;
+		}
+		try {
+			final BufferedReader in =
+				new BufferedReader(new InputStreamReader(
+					new FileInputStream(cacheFile), "UTF-8"));
+			try {
+				if (!HEADER.equals(in.readLine()) ||
+					!("version\t" + VERSION).equals(in.readLine()))
+				{
+					Log.info("Plugin cache miss: obsolete cache format");
+					return null;
+				}
+				final List<String> paths = new ArrayList<String>();
+				final List<Entry> entries = new ArrayList<Entry>();
+				String className = null;
+				Map<String, String> values = null;
+				while (true) {
+					final String line = in.readLine();
+					final int tab = line == null ? -1 : line.indexOf('\t');
+					if (line != null && tab < 0) {
+						throw new IOException("Malformed line: " + line);
+					}
+					final String key = line == null ? null : line.substring(0, tab);
+					if ("classpath".equals(key)) {
+						paths.add(unescape(line.substring(tab + 1)));
+						continue;
+					}
+					if (className == null && !fingerprint.equals(paths)) {
+						Log.info("Plugin cache miss: classpath has changed");
+						return null;
+					}
+					if (line == null || key.equals("plugin")) {
+						if (className != null) {
+							entries.add(new Entry(className, createAnnotation(Plugin.class,
+								"", values)));
+						}
+						if (line == null) break;
+						className = unescape(line.substring(tab + 1));
+						values = new HashMap<String, String>();
+					}
+					else if (values == null) {
+						throw new IOException("Malformed line: " + line);
+					}
+					else values.put(key, unescape(line.substring(tab + 1)));
+				}
+				Log.info("Plugin cache hit: " + entries.size() + " plugins from " +
+					cacheFile);
+				return entries;
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (final IOException e) {
+			Log.warn("Plugin cache miss: cannot read " + cacheFile, e);
+		}
+		catch (final ClassNotFoundException e) {
+			Log.warn("Plugin cache miss: cannot read " + cacheFile, e);
+		}
+		catch (final IllegalArgumentException e) {
+			Log.warn("Plugin cache miss: cannot read " + cacheFile, e);
+		}
+		return null;
+	}
+
+	/** Writes the given plugin annotations to the cache. */
+	public void save(final List<Entry> entries) {
+		if (cacheFile == null) return;
+		final File dir = cacheFile.getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			Log.warn("Cannot create plugin cache directory: " + dir);
+			return;
+		}
+		// NB: Write to a temporary file first, so that concurrently starting
+		// instances never read a partially written cache.
+		final File tempFile = new File(dir, cacheFile.getName() + ".tmp");
+		try {
+			final Writer out =
+				new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+					tempFile), "UTF-8"));
+			try {
+				out.write(HEADER + "\n");
+				out.write("version\t" + VERSION + "\n");
+				for (final String path : fingerprint) {
+					writeLine(out, "classpath", path);
+				}
+				for (final Entry entry : entries) {
+					writeLine(out, "plugin", entry.getClassName());
+					writeValues(out, "", entry.getPlugin());
+				}
+			}
+			finally {
+				out.close();
+			}
+			cacheFile.delete();
+			if (!tempFile.renameTo(cacheFile)) {
+				throw new IOException("Cannot rename " + tempFile);
+			}
+			Log.debug("Wrote plugin cache: " + cacheFile);
+		}
+		catch (final IOException e) {
+			Log.warn("Cannot write plugin cache: " + cacheFile, e);
+			tempFile.delete();
+		}
+		catch (final IllegalStateException e) {
+			Log.warn("Cannot write plugin cache: " + cacheFile, e);
+			tempFile.delete();
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Gets the directory in which to keep the cache, or null if caching is
+	 * disabled.
+	 */
+	private static File getCacheDirectory() {
+		final String dir = System.getProperty(CACHE_PROPERTY);
+		if ("false".equals(dir)) return null;
+		if (dir != null && !dir.isEmpty()) return new File(dir);
+		return new File(new File(System.getProperty("user.home"), ".imagej"),
+			"cache");
+	}
+
+	/**
+	 * Gets the elements of the classpath visible to the given class loader, or
+	 * null if any of them is not a local file.
+	 */
+	private List<File> getClasspath(final ClassLoader loader) {
+		final Set<File> files = new LinkedHashSet<File>();
+		for (ClassLoader l = loader; l != null; l = l.getParent()) {
+			if (!(l instanceof URLClassLoader)) continue;
+			for (final URL url : ((URLClassLoader) l).getURLs()) {
+				if (!"file".equals(url.getProtocol())) return null;
+				try {
+					files.add(new File(url.toURI()));
+				}
+				catch (final URISyntaxException e) {
+					files.add(new File(url.getPath()));
+				}
+			}
+		}
+		final String classPath = System.getProperty("java.class.path");
+		if (classPath != null && !classPath.isEmpty()) {
+			for (final String path : classPath.split(Pattern
+				.quote(File.pathSeparator)))
+			{
+				files.add(new File(path));
+			}
+		}
+		return new ArrayList<File>(files);
+	}
+
+	/** Computes a signature which changes whenever a classpath element does. */
+	private List<String> computeFingerprint(final List<File> classpath) {
+		final ArrayList<String> result = new ArrayList<String>();
+		for (final File file : classpath) {
+			// NB: A directory's timestamp does not reflect changes to the files
+			// within it, so use the SezPoz index instead.
+			final File stamped =
+				file.isDirectory() ? new File(file, INDEX_PATH) : file;
+			final String stamp;
+			if (stamped.exists()) {
+				stamp = stamped.length() + ":" + stamped.lastModified();
+			}
+			else stamp = "none";
+			result.add(file.getAbsolutePath() + "=" + stamp);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the attributes of the given annotation which differ from their
+	 * defaults, with the given key prefix.
+	 */
+	private void writeValues(final Writer out, final String prefix,
+		final Annotation annotation) throws IOException
+	{
+		for (final Method method : annotation.annotationType()
+			.getDeclaredMethods())
+		{
+			final Object value;
+			try {
+				value = method.invoke(annotation);
+			}
+			catch (final IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+			catch (final InvocationTargetException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+			if (Arrays.deepEquals(new Object[] { value }, new Object[] { method
+				.getDefaultValue() }))
+			{
+				continue;
+			}
+			final String key = prefix + method.getName();
+			if (value instanceof Annotation[]) {
+				final Annotation[] array = (Annotation[]) value;
+				writeLine(out, key, Integer.toString(array.length));
+				for (int i = 0; i < array.length; i++) {
+					writeValues(out, key + "." + i + ".", array[i]);
+				}
+			}
+			else if (value instanceof Annotation) {
+				writeLine(out, key, "");
+				writeValues(out, key + ".", (Annotation) value);
+			}
+			else writeLine(out, key, toCacheValue(value));
+		}
+	}
+
+	/** Converts an annotation value into its textual form. */
+	private String toCacheValue(final Object value) {
+		if (value instanceof Class) return ((Class<?>) value).getName();
+		if (value instanceof Character) {
+			return Integer.toString(((Character) value).charValue());
+		}
+		if (value instanceof Enum) return ((Enum<?>) value).name();
+		if (value instanceof String || value instanceof Number ||
+			value instanceof Boolean)
+		{
+			return value.toString();
+		}
+		throw new IllegalStateException("Unsupported annotation value: " + value);
+	}
+
+	/** Converts a cached value into an annotation value of the given type. */
+	private Object fromCacheValue(final String value, final Class<?> type)
+		throws ClassNotFoundException
+	{
+		if (type == String.class) return value;
+		if (type == Class.class) return Class.forName(value, false, classLoader);
+		if (type == boolean.class) return Boolean.valueOf(value);
+		if (type == byte.class) return Byte.valueOf(value);
+		if (type == short.class) return Short.valueOf(value);
+		if (type == int.class) return Integer.valueOf(value);
+		if (type == long.class) return Long.valueOf(value);
+		if (type == float.class) return Float.valueOf(value);
+		if (type == double.class) return Double.valueOf(value);
+		if (type == char.class) return (char) Integer.parseInt(value);
+		if (type.isEnum()) return enumValue(type, value);
+		throw new IllegalArgumentException("Unsupported annotation value type: " +
+			type);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Object enumValue(final Class<?> type, final String name) {
+		return Enum.valueOf((Class) type, name);
+	}
+
+	/**
+	 * Creates an annotation instance with the cached attribute values under the
+	 * given key prefix.
+	 */
+	private <A extends Annotation> A createAnnotation(final Class<A> type,
+		final String prefix, final Map<String, String> cachedValues)
+		throws ClassNotFoundException
+	{
+		final Map<String, Object> values = new HashMap<String, Object>();
+		for (final Method method : type.getDeclaredMethods()) {
+			final String name = method.getName();
+			final String key = prefix + name;
+			final String value = cachedValues.get(key);
+			if (value == null) continue;
+			final Class<?> valueType = method.getReturnType();
+			final Class<?> componentType = valueType.getComponentType();
+			if (componentType != null && componentType.isAnnotation()) {
+				final int count = Integer.parseInt(value);
+				final Object array = Array.newInstance(componentType, count);
+				for (int i = 0; i < count; i++) {
+					Array.set(array, i, createAnnotation(componentType
+						.asSubclass(Annotation.class), key + "." + i + ".", cachedValues));
+				}
+				values.put(name, array);
+			}
+			else if (valueType.isAnnotation()) {
+				values.put(name, createAnnotation(valueType
+					.asSubclass(Annotation.class), key + ".", cachedValues));
+			}
+			else values.put(name, fromCacheValue(value, valueType));
+		}
+		final Object proxy =
+			Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				new AnnotationHandler(type, values));
+		return type.cast(proxy);
+	}
+
+	private static void writeLine(final Writer out, final String key,
+		final String value) throws IOException
+	{
+		out.write(key);
+		out.write('\t');
+		out.write(escape(value));
+		out.write('\n');
+	}
+
+	/** Escapes backslashes, tabs and line breaks. */
+	private static String escape(final String s) {
+		final StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			switch (c) {
+				case '\\':
+					sb.append("\\\\");
+					break;
+				case '\t':
+					sb.append("\\t");
+					break;
+				case '\n':
+					sb.append("\\n");
+					break;
+				case '\r':
+					sb.append("\\r");
+					break;
+				default:
+					sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String unescape(final String s) {
+		if (s.indexOf('\\') < 0) return s;
+		final StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			if (c != '\\' || i == s.length() - 1) {
+				sb.append(c);
+				continue;
+			}
+			final char e = s.charAt(++i);
+			switch (e) {
+				case 't':
+					sb.append('\t');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				default:
+					sb.append(e);
+			}
+		}
+		return sb.toString();
+	}
+
+	// -- Helper classes --
+
+	/** A plugin class name, together with its annotation. */
+	public static class Entry {
+
+		private final String className;
+		private final Plugin plugin;
+
+		public Entry(final String className, final Plugin plugin) {
+			this.className = className;
+			this.plugin = plugin;
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public Plugin getPlugin() {
+			return plugin;
+		}
+
+	}
+
+	/** Implements a cached annotation, in the manner of SezPoz. */
+	private static class AnnotationHandler implements InvocationHandler {
+
+		private final Class<? extends Annotation> type;
+		private final Map<String, Object> values;
+
+		public AnnotationHandler(final Class<? extends Annotation> type,
+			final Map<String, Object> values)
+		{
+			this.type = type;
+			this.values = values;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method,
+			final Object[] args)
+		{
+			final String name = method.getName();
+			if (name.equals("annotationType")) return type;
+			if (name.equals("equals")) return proxy == args[0];
+			if (name.equals("hashCode")) return values.hashCode();
+			if (name.equals("toString")) return "@" + type.getName() + values;
+			final Object value = values.get(name);
+			return value == null ? method.getDefaultValue() : value;
+		}
+
+	}
+
+}
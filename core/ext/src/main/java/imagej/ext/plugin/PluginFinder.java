@@ -39,6 +39,7 @@
 import imagej.ext.MenuPath;
 import imagej.util.Log;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import net.java.sezpoz.Index;
@@ -48,7 +49,8 @@
  * Discovers ImageJ plugins.
  * <p>
  * To accomplish this, SezPoz scans the classpath for {@link Plugin}
- * annotations.
+ * annotations. The annotations found are kept in an on-disk cache, which is
+ * used instead for as long as the classpath remains unchanged.
  * </p>
  * 
  * @author Curtis Rueden
@@ -71,17 +73,17 @@ public PluginFinder(final ClassLoader classLoader) {
 	// -- PluginFinder methods --
 
 	public void findPlugins(final List<PluginInfo<?>> plugins) {
-		final Index<Plugin, IPlugin> pluginIndex;
-		if (classLoader == null) {
-			pluginIndex = Index.load(Plugin.class, IPlugin.class);
-		}
-		else {
-			pluginIndex = Index.load(Plugin.class, IPlugin.class, classLoader);
+		final PluginCache cache = new PluginCache(classLoader);
+		List<PluginCache.Entry> entries = cache.load();
+		if (entries == null) {
+			entries = scanPlugins();
+			cache.save(entries);
 		}
 
 		final int oldSize = plugins.size();
-		for (final IndexItem<Plugin, IPlugin> item : pluginIndex) {
-			final PluginInfo<?> info = createInfo(item);
+		for (final PluginCache.Entry entry : entries) {
+			final PluginInfo<?> info =
+				createInfo(entry.getClassName(), entry.getPlugin());
 
 			// CTR TEMP - add "IJ2" suffix to all modern plugins, for debugging
 			final MenuPath menuPath = info.getMenuPath();
@@ -104,12 +106,26 @@ public void findPlugins(final List<PluginInfo<?>> plugins) {
 
 	// -- Helper methods --
 
+	/** Uses SezPoz to discover the available plugins. */
+	private List<PluginCache.Entry> scanPlugins() {
+		final Index<Plugin, IPlugin> pluginIndex;
+		if (classLoader == null) {
+			pluginIndex = Index.load(Plugin.class, IPlugin.class);
+		}
+		else {
+			pluginIndex = Index.load(Plugin.class, IPlugin.class, classLoader);
+		}
+
+		final List<PluginCache.Entry> entries = new ArrayList<PluginCache.Entry>();
+		for (final IndexItem<Plugin, IPlugin> item : pluginIndex) {
+			entries.add(new PluginCache.Entry(item.className(), item.annotation()));
+		}
+		return entries;
+	}
+
 	private <P extends IPlugin> PluginInfo<P> createInfo(
-		final IndexItem<Plugin, IPlugin> item)
+		final String className, final Plugin plugin)
 	{
-		final String className = item.className();
-		final Plugin plugin = item.annotation();
-
 		@SuppressWarnings("unchecked")
 		final Class<P> pluginType = (Class<P>) plugin.type();
 
@@ -0,0 +1,218 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.ext.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import imagej.ext.display.Display;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link PluginCache}.
+ */
+public class PluginCacheTest {
+
+	private File dir;
+	private File jar;
+	private ClassLoader classLoader;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("plugin-cache", "");
+		dir.delete();
+		dir.mkdir();
+		jar = new File(dir, "plugins.jar");
+		write(jar, 1);
+		classLoader =
+			new URLClassLoader(new URL[] { jar.toURI().toURL() }, getClass()
+				.getClassLoader());
+	}
+
+	@After
+	public void tearDown() {
+		for (final File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testHit() {
+		final PluginCache cache = new PluginCache(classLoader, dir);
+		cache.save(createEntries());
+		assertTrue(cache.getCacheFile().exists());
+
+		final List<PluginCache.Entry> entries =
+			new PluginCache(classLoader, dir).load();
+		assertNotNull(entries);
+		assertEquals(2, entries.size());
+
+		final PluginCache.Entry first = entries.get(0);
+		assertEquals("imagej.Open", first.getClassName());
+		final Plugin open = first.getPlugin();
+		assertEquals(ImageJPlugin.class, open.type());
+		assertEquals("Open\tFile...\n", open.label());
+		assertEquals(2.5, open.priority(), 0);
+		assertTrue(open.headless());
+		assertEquals(2, open.menu().length);
+		assertEquals("File", open.menu()[0].label());
+		assertEquals(0.5, open.menu()[0].weight(), 0);
+		assertEquals('f', open.menu()[0].mnemonic());
+		assertEquals("Open", open.menu()[1].label());
+		assertEquals("control O", open.menu()[1].accelerator());
+
+		// defaults are not cached, but still reported
+		final Plugin view = entries.get(1).getPlugin();
+		assertEquals(Display.class, view.type());
+		assertEquals("", view.label());
+		assertEquals(0, view.menu().length);
+		assertTrue(view.enabled());
+		assertEquals(Plugin.APPLICATION_MENU_ROOT, view.menuRoot());
+	}
+
+	@Test
+	public void testMiss() {
+		assertNull(new PluginCache(classLoader, dir).load());
+
+		// a cache from another installation is kept apart
+		new PluginCache(getClass().getClassLoader(), dir).save(createEntries());
+		assertNull(new PluginCache(classLoader, dir).load());
+	}
+
+	@Test
+	public void testInvalidated() throws IOException {
+		new PluginCache(classLoader, dir).save(createEntries());
+		assertNotNull(new PluginCache(classLoader, dir).load());
+
+		// the classpath element changes size
+		write(jar, 2);
+		assertNull(new PluginCache(classLoader, dir).load());
+	}
+
+	@Test
+	public void testDisabled() {
+		final PluginCache cache = new PluginCache(classLoader, null);
+		assertNull(cache.getCacheFile());
+		cache.save(createEntries());
+		assertNull(cache.load());
+		assertEquals(1, dir.listFiles().length);
+	}
+
+	// -- Helper methods --
+
+	private List<PluginCache.Entry> createEntries() {
+		final Map<String, Object> file = new HashMap<String, Object>();
+		file.put("label", "File");
+		file.put("weight", 0.5);
+		file.put("mnemonic", 'f');
+		final Map<String, Object> leaf = new HashMap<String, Object>();
+		leaf.put("label", "Open");
+		leaf.put("accelerator", "control O");
+
+		final Map<String, Object> open = new HashMap<String, Object>();
+		open.put("label", "Open\tFile...\n");
+		open.put("priority", 2.5);
+		open.put("headless", true);
+		open.put("menu", new Menu[] { annotation(Menu.class, file),
+			annotation(Menu.class, leaf) });
+		final Map<String, Object> view = new HashMap<String, Object>();
+		view.put("type", Display.class);
+
+		final List<PluginCache.Entry> entries =
+			new ArrayList<PluginCache.Entry>();
+		entries.add(new PluginCache.Entry("imagej.Open", annotation(Plugin.class,
+			open)));
+		entries.add(new PluginCache.Entry("imagej.View", annotation(Plugin.class,
+			view)));
+		return entries;
+	}
+
+	/**
+	 * Creates an annotation with the given values. {@link Plugin} annotations
+	 * are not retained at runtime, so they cannot be taken from a class.
+	 */
+	private <A extends Annotation> A annotation(final Class<A> type,
+		final Map<String, Object> values)
+	{
+		final InvocationHandler handler = new InvocationHandler() {
+
+			@Override
+			public Object invoke(final Object proxy, final Method method,
+				final Object[] args)
+			{
+				final String name = method.getName();
+				if (name.equals("annotationType")) return type;
+				if (name.equals("equals")) return proxy == args[0];
+				if (name.equals("hashCode")) return values.hashCode();
+				if (name.equals("toString")) return "@" + type.getName() + values;
+				final Object value = values.get(name);
+				return value == null ? method.getDefaultValue() : value;
+			}
+		};
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+			new Class<?>[] { type }, handler));
+	}
+
+	private void write(final File file, final int length) throws IOException {
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[length]);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+}
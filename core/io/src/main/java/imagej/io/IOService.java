@@ -38,16 +38,28 @@
 import imagej.ImageJ;
 import imagej.data.Dataset;
 import imagej.data.DatasetService;
+import imagej.data.cell.DiskCellImgFactory;
+import imagej.data.compressed.CompressedPlanarImgFactory;
+import imagej.data.mapped.MappedPlanarImg;
 import imagej.event.EventService;
 import imagej.event.StatusService;
 import imagej.ext.module.ModuleService;
 import imagej.io.event.FileOpenedEvent;
+import imagej.metrics.MetricsService;
+import imagej.metrics.Timer;
 import imagej.service.AbstractService;
 import imagej.service.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
 import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
 import net.imglib2.img.ImgPlus;
 import net.imglib2.io.ImgIOException;
 import net.imglib2.io.ImgOpener;
+import net.imglib2.meta.AxisType;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
 
@@ -60,6 +72,9 @@
 public final class IOService<T extends RealType<T> & NativeType<T>>
 	extends AbstractService
 {
+
+	/** Name of the timer of {@link #loadDataset(String)} calls. */
+	public static final String LOAD_TIMER = "io.loadDataset";
 	
 	// TODO: eliminate bogus T parameter above. Rather, find a different way of
 	// handling ImgOpener's need to pass forward a T parameter.
@@ -68,6 +83,7 @@
 	private StatusService statusService;
 	private ModuleService moduleService;
 	private DatasetService datasetService;
+	private MetricsService metricsService;
 
 	public IOService() {
 		// NB: Required by SezPoz.
@@ -77,13 +93,14 @@ public IOService() {
 
 	public IOService(final ImageJ context, final EventService eventService,
 		final StatusService statusService, final ModuleService moduleService,
-		final DatasetService datasetService)
+		final DatasetService datasetService, final MetricsService metricsService)
 	{
 		super(context);
 		this.eventService = eventService;
 		this.statusService = statusService;
 		this.moduleService = moduleService;
 		this.datasetService = datasetService;
+		this.metricsService = metricsService;
 	}
 
 	// -- IOService methods --
@@ -104,14 +121,57 @@ public DatasetService getDatasetService() {
 		return datasetService;
 	}
 
+	public MetricsService getMetricsService() {
+		return metricsService;
+	}
+
 	/** Loads a dataset from a source (such as a file on disk). */
 	public Dataset loadDataset(final String source) throws ImgIOException,
 		IncompatibleTypeException
 	{
 		if (source == null) return null;
+		final Timer timer = metricsService.getTimer(LOAD_TIMER);
+		final long start = timer.start();
 		final ImgOpener imageOpener = new ImgOpener();
 		imageOpener.addStatusListener(new StatusDispatcher(statusService));
-		final ImgPlus<T> imgPlus = imageOpener.openImg(source);
+		final ImgPlus<T> imgPlus;
+		if (exceeds(datasetService.getDiskBackedThreshold(), source)) {
+			final ImgFactory<T> factory =
+				new DiskCellImgFactory<T>(datasetService.getCellCache());
+			imgPlus = imageOpener.openImg(source, factory);
+		}
+		else if (exceeds(datasetService.getCompressedThreshold(), source)) {
+			final ImgFactory<T> factory =
+				new CompressedPlanarImgFactory<T>(datasetService.getPlaneCache());
+			imgPlus = imageOpener.openImg(source, factory);
+		}
+		else imgPlus = imageOpener.openImg(source);
+		final Dataset dataset = datasetService.create(imgPlus);
+		timer.stop(start);
+		eventService.publish(new FileOpenedEvent(source));
+		return dataset;
+	}
+
+	/**
+	 * Opens a raw file as a memory-mapped dataset. Nothing is read up front:
+	 * pixels are paged in by the operating system as they are accessed, so even
+	 * very large stacks open instantly. Unless the dataset is read-only, changes
+	 * go straight to the file; saving the dataset back to the same file only
+	 * flushes them. The file is closed when the dataset is deleted.
+	 * 
+	 * @see MappedPlanarImg
+	 * @see imagej.io.plugins.OpenMappedImage
+	 */
+	public <P extends RealType<P> & NativeType<P>> Dataset loadMappedDataset(
+		final String source, final long offset, final long[] dims,
+		final AxisType[] axes, final P type, final ByteOrder order,
+		final boolean readOnly) throws IOException
+	{
+		final File file = new File(source);
+		final MappedPlanarImg<P, ?> img =
+			MappedPlanarImg.open(file, offset, dims, type, order, readOnly);
+		final ImgPlus<P> imgPlus = new ImgPlus<P>(img, file.getName(), axes, null);
+		imgPlus.setSource(file.getAbsolutePath());
 		final Dataset dataset = datasetService.create(imgPlus);
 		eventService.publish(new FileOpenedEvent(source));
 		return dataset;
@@ -129,4 +189,17 @@ public void revertDataset(final Dataset dataset) throws ImgIOException,
 
 	// TODO: Add a saveDataset method, and use it in SaveAsImage plugin.
 
+	// -- Helper methods --
+
+	/**
+	 * Gets whether the given source is larger than the given threshold of the
+	 * {@link DatasetService}, e.g. for loading into disk-backed cells. The size
+	 * of the source file stands in for the size of the pixels, which is unknown
+	 * before opening it.
+	 */
+	private boolean exceeds(final long threshold, final String source) {
+		if (threshold <= 0) return false;
+		return new File(source).length() > threshold;
+	}
+
 }
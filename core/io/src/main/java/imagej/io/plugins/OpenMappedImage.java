@@ -0,0 +1,181 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.io.plugins;
+
+import imagej.data.Dataset;
+import imagej.ext.menu.MenuConstants;
+import imagej.ext.module.ItemIO;
+import imagej.ext.plugin.ImageJPlugin;
+import imagej.ext.plugin.Menu;
+import imagej.ext.plugin.Parameter;
+import imagej.ext.plugin.Plugin;
+import imagej.io.IOService;
+import imagej.ui.DialogPrompt;
+import imagej.ui.UIService;
+import imagej.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Opens a raw file as a memory-mapped {@link Dataset}, through
+ * {@link IOService#loadMappedDataset}. Pixels are paged in as they are
+ * accessed rather than read up front.
+ */
+@Plugin(menu = {
+	@Menu(label = MenuConstants.FILE_LABEL, weight = MenuConstants.FILE_WEIGHT,
+		mnemonic = MenuConstants.FILE_MNEMONIC),
+	@Menu(label = "Import", mnemonic = 'i'),
+	@Menu(label = "Raw (Memory-Mapped)...", weight = 1) })
+public class OpenMappedImage implements ImageJPlugin {
+
+	public static final String UINT8 = "8-bit unsigned";
+	public static final String INT8 = "8-bit signed";
+	public static final String UINT16 = "16-bit unsigned";
+	public static final String INT16 = "16-bit signed";
+	public static final String UINT32 = "32-bit unsigned";
+	public static final String INT32 = "32-bit signed";
+	public static final String INT64 = "64-bit signed";
+	public static final String FLOAT32 = "32-bit float";
+	public static final String FLOAT64 = "64-bit float";
+
+	@Parameter(persist = false)
+	private IOService ioService;
+
+	@Parameter(persist = false)
+	private UIService uiService;
+
+	@Parameter(label = "File to open")
+	private File inputFile;
+
+	@Parameter(label = "Pixel Type", choices = { UINT8, INT8, UINT16, INT16,
+		UINT32, INT32, INT64, FLOAT32, FLOAT64 })
+	private String pixelType = UINT8;
+
+	@Parameter(min = "1")
+	private long width = 512;
+
+	@Parameter(min = "1")
+	private long height = 512;
+
+	@Parameter(label = "Number of Images", min = "1")
+	private long planeCount = 1;
+
+	@Parameter(label = "Offset to First Image (bytes)", min = "0")
+	private long offset = 0;
+
+	@Parameter(label = "Little-Endian Byte Order")
+	private boolean littleEndian = false;
+
+	@Parameter(label = "Read Only")
+	private boolean readOnly = true;
+
+	@Parameter(type = ItemIO.OUTPUT)
+	private Dataset dataset;
+
+	@Override
+	public void run() {
+		try {
+			if (pixelType.equals(INT8)) dataset = open(new ByteType());
+			else if (pixelType.equals(UINT16)) {
+				dataset = open(new UnsignedShortType());
+			}
+			else if (pixelType.equals(INT16)) dataset = open(new ShortType());
+			else if (pixelType.equals(UINT32)) {
+				dataset = open(new UnsignedIntType());
+			}
+			else if (pixelType.equals(INT32)) dataset = open(new IntType());
+			else if (pixelType.equals(INT64)) dataset = open(new LongType());
+			else if (pixelType.equals(FLOAT32)) dataset = open(new FloatType());
+			else if (pixelType.equals(FLOAT64)) dataset = open(new DoubleType());
+			else dataset = open(new UnsignedByteType());
+		}
+		catch (final IOException e) {
+			Log.error(e);
+			uiService.showDialog(e.getMessage(), "ImageJ",
+				DialogPrompt.MessageType.ERROR_MESSAGE);
+		}
+	}
+
+	public File getInputFile() {
+		return inputFile;
+	}
+
+	public void setInputFile(final File inputFile) {
+		this.inputFile = inputFile;
+	}
+
+	public Dataset getDataset() {
+		return dataset;
+	}
+
+	// -- Helper methods --
+
+	private <P extends RealType<P> & NativeType<P>> Dataset open(final P type)
+		throws IOException
+	{
+		final long[] dims;
+		final AxisType[] axes;
+		if (planeCount > 1) {
+			dims = new long[] { width, height, planeCount };
+			axes = new AxisType[] { Axes.X, Axes.Y, Axes.Z };
+		}
+		else {
+			dims = new long[] { width, height };
+			axes = new AxisType[] { Axes.X, Axes.Y };
+		}
+		final ByteOrder order =
+			littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		return ioService.loadMappedDataset(inputFile.getAbsolutePath(), offset,
+			dims, axes, type, order, readOnly);
+	}
+
+}
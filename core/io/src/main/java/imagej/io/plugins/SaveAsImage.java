@@ -36,6 +36,7 @@
 package imagej.io.plugins;
 
 import imagej.data.Dataset;
+import imagej.data.mapped.MappedPlanarImg;
 import imagej.event.EventService;
 import imagej.event.StatusService;
 import imagej.ext.display.Display;
@@ -97,6 +98,7 @@ public void initOutputFile() {
 	public void run() {
 		@SuppressWarnings("rawtypes")
 		final ImgPlus img = dataset.getImgPlus();
+		if (saveMapped(img)) return;
 		boolean overwrite = true;
 		Result result = null;
 
@@ -156,4 +158,26 @@ public void run() {
 		}
 	}
 
+	// -- Helper methods --
+
+	/**
+	 * Saves a memory-mapped image back to its own file by flushing it. Returns
+	 * false if the image is not mapped to the output file.
+	 */
+	private boolean saveMapped(final ImgPlus<?> img) {
+		if (!(img.getImg() instanceof MappedPlanarImg)) return false;
+		final MappedPlanarImg<?, ?> mappedImg =
+			(MappedPlanarImg<?, ?>) img.getImg();
+		if (mappedImg.isReadOnly()) return false;
+		if (!mappedImg.getFile().getAbsoluteFile().equals(
+			outputFile.getAbsoluteFile()))
+		{
+			return false;
+		}
+		mappedImg.flush();
+		eventService.publish(new FileSavedEvent(img.getSource()));
+		dataset.setDirty(false);
+		return true;
+	}
+
 }
@@ -221,7 +221,7 @@ private void removeMapping(final ImageDisplay display, final ImagePlus imp) {
 	Removing this code to fix bug #835. Rely on LegacyPlugin to create
 	ImagePluses as they are needed.
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final DisplayCreatedEvent event) {
 		if (event.getObject() instanceof ImageDisplay) {
 			registerDisplay((ImageDisplay) event.getObject());
@@ -229,7 +229,7 @@ protected void onEvent(final DisplayCreatedEvent event) {
 	}
 	*/
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final DisplayDeletedEvent event) {
 
 		// Need to make sure:
@@ -81,7 +81,7 @@
  * 
  * @author Curtis Rueden
  */
-@Service
+@Service(lazy = false)
 public final class LegacyService extends AbstractService {
 
 	static {
@@ -223,14 +223,14 @@ public void updateIJ2Settings() {
 	 * Keeps the active legacy {@link ImagePlus} in sync with the active modern
 	 * {@link ImageDisplay}.
 	 */
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(
 		@SuppressWarnings("unused") final DisplayActivatedEvent event)
 	{
 		syncActiveImage();
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final OptionsEvent event)
 	{
 		if (event.getOptions().getClass() == OptionsMisc.class) {
@@ -241,7 +241,7 @@ protected void onEvent(final OptionsEvent event)
 		updateIJ1Settings();
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final KyPressedEvent event) {
 		final KeyCode code = event.getCode();
 		if (code == KeyCode.SPACE) IJ.setKeyDown(KeyCode.SPACE.getCode());
@@ -253,7 +253,7 @@ protected void onEvent(final KyPressedEvent event) {
 		}
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final KyReleasedEvent event) {
 		final KeyCode code = event.getCode();
 		if (code == KeyCode.SPACE) IJ.setKeyUp(KeyCode.SPACE.getCode());
@@ -39,6 +39,12 @@
 import ij.ImageStack;
 import ij.process.ImageProcessor;
 import imagej.data.Dataset;
+import imagej.data.UpdateRegion;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 import net.imglib2.RandomAccess;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
@@ -56,6 +62,10 @@
  */
 public class GrayPixelHarmonizer implements DataHarmonizer {
 
+	/** Dataset plane versions last copied into each {@link ImagePlus}. */
+	private final Map<ImagePlus, SyncState> syncStates =
+		new WeakHashMap<ImagePlus, SyncState>();
+
 	/**
 	 * Assigns the data values of a {@link Dataset} from a paired
 	 * {@link ImagePlus}. Assumes the Dataset and ImagePlus have compatible
@@ -118,6 +128,10 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 	 * channels in the ImagePlus. Sets values via {@link ImageProcessor}::setf().
 	 * Some special case code is in place to assure that BitType images go to IJ1
 	 * as 0/255 value images. Does not change the ImagePlus' metadata.
+	 * <p>
+	 * Planes whose {@link Dataset#getPlaneVersion(int) version} has not changed
+	 * since they were last copied into the same ImagePlus stack are skipped.
+	 * </p>
 	 */
 	@Override
 	public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
@@ -138,6 +152,11 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 		final int tSize = imp.getNFrames();
 		final int cSize = imp.getNChannels();
 		final ImageStack stack = imp.getStack();
+		final long[] versions =
+			xIndex == 0 && yIndex == 1 ? getPlaneVersions(ds) : null;
+		final SyncState last = syncStates.get(imp);
+		final boolean incremental =
+			versions != null && last != null && last.matches(ds, stack, dims);
 		int planeNum = 1;
 		final long[] pos = new long[dims.length];
 		for (int t = 0; t < tSize; t++) {
@@ -146,7 +165,12 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 				if (zIndex >= 0) pos[zIndex] = z;
 				for (int c = 0; c < cSize; c++) {
 					LegacyUtils.fillChannelIndices(dims, axes, c, pos);
-					final ImageProcessor proc = stack.getProcessor(planeNum++);
+					final int stackIndex = planeNum++;
+					if (incremental) {
+						final int no = UpdateRegion.planeNumber(dims, pos);
+						if (last.versions[no] == versions[no]) continue; // unchanged
+					}
+					final ImageProcessor proc = stack.getProcessor(stackIndex);
 					for (int x = 0; x < xSize; x++) {
 						if (xIndex >= 0) pos[xIndex] = x;
 						for (int y = 0; y < ySize; y++) {
@@ -161,6 +185,51 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 				}
 			}
 		}
+		if (versions == null) syncStates.remove(imp);
+		else syncStates.put(imp, new SyncState(ds, stack, dims, versions));
+	}
+
+	// -- Helper methods --
+
+	/** Gets the current version of every plane of the given {@link Dataset}. */
+	private long[] getPlaneVersions(final Dataset ds) {
+		final long[] dims = ds.getDims();
+		int planeCount = 1;
+		for (int d = 2; d < dims.length; d++) {
+			planeCount *= dims[d];
+		}
+		final long[] versions = new long[planeCount];
+		for (int p = 0; p < planeCount; p++) {
+			versions[p] = ds.getPlaneVersion(p);
+		}
+		return versions;
+	}
+
+	// -- Helper classes --
+
+	/** The state of a {@link Dataset} as last copied into an ImagePlus. */
+	private static class SyncState {
+
+		private final Dataset dataset;
+		private final ImageStack stack;
+		private final long[] dims;
+		private final long[] versions;
+
+		public SyncState(final Dataset dataset, final ImageStack stack,
+			final long[] dims, final long[] versions)
+		{
+			this.dataset = dataset;
+			this.stack = stack;
+			this.dims = dims;
+			this.versions = versions;
+		}
+
+		public boolean matches(final Dataset ds, final ImageStack impStack,
+			final long[] dsDims)
+		{
+			return dataset == ds && stack == impStack && Arrays.equals(dims, dsDims);
+		}
+
 	}
 
 }
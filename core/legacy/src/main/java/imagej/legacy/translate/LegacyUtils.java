@@ -389,15 +389,15 @@ private static boolean ij1TypeCompatible(final Dataset ds) {
 
 		Object plane;
 		if ((bitsPerPix == 8) && !signed && integer) {
-			plane = ds.getPlane(0, false);
+			plane = ds.getPlaneForReading(0, false);
 			if (plane != null && plane instanceof byte[]) return true;
 		}
 		else if ((bitsPerPix == 16) && !signed && integer) {
-			plane = ds.getPlane(0, false);
+			plane = ds.getPlaneForReading(0, false);
 			if (plane != null && plane instanceof short[]) return true;
 		}
 		else if ((bitsPerPix == 32) && signed && !integer) {
-			plane = ds.getPlane(0, false);
+			plane = ds.getPlaneForReading(0, false);
 			if (plane != null && plane instanceof float[]) return true;
 		}
 		return false;
@@ -39,7 +39,7 @@
 import ij.ImageStack;
 import imagej.data.Dataset;
 import imagej.data.Extents;
-import imagej.data.Position;
+import imagej.data.ExtentsIterator;
 import imagej.util.Log;
 import net.imglib2.meta.Axes;
 
@@ -71,7 +71,10 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 		final long[] planeDims = new long[fullDims.length - 2];
 		for (int i = 0; i < planeDims.length; i++)
 			planeDims[i] = fullDims[i + 2];
-		final Position planePos = new Extents(planeDims).createPosition();
+		final ExtentsIterator planes = new Extents(planeDims).createIterator();
+		final long cStride = cIndex >= 0 ? planes.stride(cIndex - 2) : 0;
+		final long zStride = zIndex >= 0 ? planes.stride(zIndex - 2) : 0;
+		final long tStride = tIndex >= 0 ? planes.stride(tIndex - 2) : 0;
 
 		// copy planes by reference
 
@@ -81,17 +84,15 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 		else {
 			int stackPosition = 1;
 			for (int ti = 0; ti < t; ti++) {
-				if (tIndex >= 0) planePos.setPosition(ti, tIndex - 2);
 				for (int zi = 0; zi < z; zi++) {
-					if (zIndex >= 0) planePos.setPosition(zi, zIndex - 2);
 					for (int ci = 0; ci < c; ci++) {
-						if (cIndex >= 0) planePos.setPosition(ci, cIndex - 2);
 						final Object plane = imp.getStack().getPixels(stackPosition++);
 						if (plane == null) {
 							Log.error("Could not extract plane from ImageStack: " +
 								(stackPosition - 1));
 						}
-						final int planeNum = (int) planePos.getIndex();
+						final int planeNum =
+							(int) (ti * tStride + zi * zStride + ci * cStride);
 						ds.setPlane(planeNum, plane);
 					}
 				}
@@ -127,8 +128,10 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 		final long[] planeDims = new long[fullDims.length - 2];
 		for (int i = 0; i < planeDims.length; i++)
 			planeDims[i] = fullDims[i + 2];
-		final Extents extents = new Extents(planeDims);
-		final Position planePos = extents.createPosition();
+		final ExtentsIterator planes = new Extents(planeDims).createIterator();
+		final long cStride = cIndex >= 0 ? planes.stride(cIndex - 2) : 0;
+		final long zStride = zIndex >= 0 ? planes.stride(zIndex - 2) : 0;
+		final long tStride = tIndex >= 0 ? planes.stride(tIndex - 2) : 0;
 
 		// copy planes by reference
 
@@ -136,12 +139,10 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 		else {
 			int stackPosition = 1;
 			for (int t = 0; t < tCount; t++) {
-				if (tIndex >= 0) planePos.setPosition(t, tIndex - 2);
 				for (int z = 0; z < zCount; z++) {
-					if (zIndex >= 0) planePos.setPosition(z, zIndex - 2);
 					for (int c = 0; c < cCount; c++) {
-						if (cIndex >= 0) planePos.setPosition(c, cIndex - 2);
-						final int planeNum = (int) planePos.getIndex();
+						final int planeNum =
+							(int) (t * tStride + z * zStride + c * cStride);
 						final Object plane = ds.getPlane(planeNum, false);
 						if (plane == null) {
 							Log.error(message("Can't extract plane from Dataset ", c, z, t));
@@ -36,6 +36,10 @@
 package imagej.options;
 
 import imagej.ImageJ;
+import imagej.data.DatasetService;
+import imagej.data.cell.CellCache;
+import imagej.data.undo.UndoService;
+import imagej.event.EventHandler;
 import imagej.event.EventService;
 import imagej.ext.InstantiableException;
 import imagej.ext.module.Module;
@@ -44,11 +48,15 @@
 import imagej.ext.plugin.PluginInfo;
 import imagej.ext.plugin.PluginModuleInfo;
 import imagej.ext.plugin.PluginService;
+import imagej.options.event.OptionsEvent;
+import imagej.options.plugins.OptionsMemoryAndThreads;
 import imagej.service.AbstractService;
 import imagej.service.Service;
+import imagej.thread.ThreadService;
 import imagej.util.ClassUtils;
 import imagej.util.Log;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 
@@ -64,6 +72,9 @@ public class OptionsService extends AbstractService {
 
 	private final EventService eventService;
 	private final PluginService pluginService;
+	private final ThreadService threadService;
+	private final DatasetService datasetService;
+	private final UndoService undoService;
 
 	// -- Constructors --
 
@@ -74,11 +85,22 @@ public OptionsService() {
 	}
 
 	public OptionsService(final ImageJ context, final EventService eventService,
-		final PluginService pluginService)
+		final PluginService pluginService, final ThreadService threadService,
+		final DatasetService datasetService, final UndoService undoService)
 	{
 		super(context);
 		this.eventService = eventService;
 		this.pluginService = pluginService;
+		this.threadService = threadService;
+		this.datasetService = datasetService;
+		this.undoService = undoService;
+
+		final OptionsMemoryAndThreads memoryOptions =
+			getOptions(OptionsMemoryAndThreads.class);
+		updateComputeThreads(memoryOptions);
+		updateCellStorage(memoryOptions);
+		updateUndo(memoryOptions);
+		subscribeToEvents(eventService);
 	}
 
 	// -- OptionsService methods --
@@ -179,8 +201,55 @@ public <O extends OptionsPlugin> void setOption(
 		module.run();
 	}
 
+	// -- Event handlers --
+
+	@EventHandler
+	protected void onEvent(final OptionsEvent event) {
+		final OptionsPlugin options = event.getOptions();
+		if (options instanceof OptionsMemoryAndThreads) {
+			updateComputeThreads((OptionsMemoryAndThreads) options);
+			updateCellStorage((OptionsMemoryAndThreads) options);
+			updateUndo((OptionsMemoryAndThreads) options);
+		}
+	}
+
 	// -- Helper methods --
 
+	/** Sizes the compute thread pool according to the given options. */
+	private void updateComputeThreads(final OptionsMemoryAndThreads options) {
+		if (options == null) return;
+		threadService.setComputeThreads(options.getStackThreads());
+	}
+
+	/**
+	 * Configures disk-backed and compressed datasets according to the given
+	 * options.
+	 */
+	private void updateCellStorage(final OptionsMemoryAndThreads options) {
+		if (options == null) return;
+		final long mb = 1024 * 1024;
+		datasetService.setDiskBackedThreshold(options.getDiskBackedThreshold() *
+			mb);
+		final CellCache cache = datasetService.getCellCache();
+		cache.setMaxBytes(Math.max(1, options.getCellCacheSize()) * mb);
+		final String dir = options.getScratchDirectory();
+		final boolean defaultDir = dir == null || dir.trim().isEmpty();
+		cache.setDirectory(defaultDir ? null : new File(dir.trim()));
+		datasetService.setCompressedThreshold(options.getCompressedThreshold() *
+			mb);
+		datasetService.getPlaneCache().setMaxBytes(
+			Math.max(1, options.getPlaneCacheSize()) * mb);
+	}
+
+	/** Limits the undo levels according to the given options. */
+	private void updateUndo(final OptionsMemoryAndThreads options) {
+		if (options == null) return;
+		undoService.setMaxLevels(options.isMultipleBuffers() ? Integer.MAX_VALUE
+			: 1);
+		undoService.setMaxBytes(Math.max(1, options.getUndoMemory()) * 1024L *
+			1024);
+	}
+
 	private <P extends IPlugin> P createInstance(final PluginInfo<P> info) {
 		if (info == null) return null;
 		try {
@@ -36,6 +36,7 @@
 package imagej.options.plugins;
 
 import imagej.data.ChannelCollection;
+import imagej.data.ImmutableChannelCollection;
 import imagej.event.EventService;
 import imagej.ext.menu.MenuConstants;
 import imagej.ext.module.ItemVisibility;
@@ -47,9 +48,6 @@
 import imagej.util.ColorRGB;
 import imagej.util.Colors;
 
-import java.util.LinkedList;
-import java.util.List;
-
 /**
  * Runs the Edit::Options::Channels dialog.
  * 
@@ -125,12 +123,12 @@ public ChannelCollection getBgValues() {
 	}
 
 	public void setFgValues(final ChannelCollection vals) {
-		fgValues = vals;
+		fgValues = vals.immutable();
 		fgValuesString = encode(fgValues);
 	}
 
 	public void setBgValues(final ChannelCollection vals) {
-		bgValues = vals;
+		bgValues = vals.immutable();
 		bgValuesString = encode(bgValues);
 	}
 
@@ -163,19 +161,19 @@ public void setLastBgColor(final ColorRGB c) {
 	// -- private helpers --
 
 	private ChannelCollection decode(final String channelString) {
-		final List<Double> collection = new LinkedList<Double>();
 		final String[] values = channelString.split(",");
-		for (final String value : values) {
+		final double[] collection = new double[values.length];
+		for (int i = 0; i < values.length; i++) {
 			double val;
 			try {
-				val = Double.parseDouble(value);
+				val = Double.parseDouble(values[i]);
 			}
 			catch (final NumberFormatException e) {
 				val = 0;
 			}
-			collection.add(val);
+			collection[i] = val;
 		}
-		return new ChannelCollection(collection);
+		return new ImmutableChannelCollection(collection);
 	}
 
 	private String encode(final ChannelCollection chans) {
@@ -59,15 +59,33 @@ public class OptionsMemoryAndThreads extends OptionsPlugin {
 	@Parameter(label = "Maximum memory (MB)", persist = false)
 	private int maxMemory = 0;
 
-	@Parameter(label = "Parallel threads for stacks")
-	private int stackThreads = 2;
+	@Parameter(label = "Parallel threads for stacks", min = "1")
+	private int stackThreads = Runtime.getRuntime().availableProcessors();
 
 	@Parameter(label = "Keep multiple undo buffers")
 	private boolean multipleBuffers = false;
 
+	@Parameter(label = "Undo memory (MB)", min = "1")
+	private int undoMemory = 256;
+
 	@Parameter(label = "Run garbage collector on status bar click")
 	private boolean runGcOnClick = true;
 
+	@Parameter(label = "Disk-backed images above (MB, 0 = never)", min = "0")
+	private int diskBackedThreshold = 0;
+
+	@Parameter(label = "Disk cell cache (MB)", min = "1")
+	private int cellCacheSize = 256;
+
+	@Parameter(label = "Scratch directory (blank = temporary)")
+	private String scratchDirectory = "";
+
+	@Parameter(label = "Compressed images above (MB, 0 = never)", min = "0")
+	private int compressedThreshold = 0;
+
+	@Parameter(label = "Decompressed plane cache (MB)", min = "1")
+	private int planeCacheSize = 256;
+
 	// -- private instance variables --
 
 	private final ConfigFileParameters params = new ConfigFileParameters();
@@ -113,6 +131,11 @@ public boolean isMultipleBuffers() {
 		return multipleBuffers;
 	}
 
+	/** Returns the number of megabytes of memory undo buffers may hold. */
+	public int getUndoMemory() {
+		return undoMemory;
+	}
+
 	/**
 	 * Returns true if ImageJ will run the garbage collector when user clicks on
 	 * the status area.
@@ -121,6 +144,46 @@ public boolean isRunGcOnClick() {
 		return runGcOnClick;
 	}
 
+	/**
+	 * Returns the number of megabytes above which new images are held in
+	 * disk-backed cells rather than in memory, or 0 if never.
+	 */
+	public int getDiskBackedThreshold() {
+		return diskBackedThreshold;
+	}
+
+	/**
+	 * Returns the number of megabytes of memory used to cache the cells of
+	 * disk-backed images.
+	 */
+	public int getCellCacheSize() {
+		return cellCacheSize;
+	}
+
+	/**
+	 * Returns the directory of the scratch file of disk-backed images, or an
+	 * empty string for the system's temporary directory.
+	 */
+	public String getScratchDirectory() {
+		return scratchDirectory;
+	}
+
+	/**
+	 * Returns the number of megabytes above which new images are kept
+	 * compressed in memory, or 0 if never.
+	 */
+	public int getCompressedThreshold() {
+		return compressedThreshold;
+	}
+
+	/**
+	 * Returns the number of megabytes of memory used to cache the decompressed
+	 * planes of compressed images.
+	 */
+	public int getPlaneCacheSize() {
+		return planeCacheSize;
+	}
+
 	/**
 	 * Sets the number of megabytes of memory that should be allocated for use by
 	 * ImageJ.
@@ -143,6 +206,11 @@ public void setMultipleBuffers(final boolean multipleBuffers) {
 		this.multipleBuffers = multipleBuffers;
 	}
 
+	/** Sets the number of megabytes of memory undo buffers may hold. */
+	public void setUndoMemory(final int undoMemory) {
+		this.undoMemory = undoMemory;
+	}
+
 	/**
 	 * Sets whether ImageJ will run the garbage collector when user clicks on the
 	 * status area.
@@ -151,6 +219,46 @@ public void setRunGcOnClick(final boolean runGcOnClick) {
 		this.runGcOnClick = runGcOnClick;
 	}
 
+	/**
+	 * Sets the number of megabytes above which new images are held in
+	 * disk-backed cells rather than in memory; 0 for never.
+	 */
+	public void setDiskBackedThreshold(final int diskBackedThreshold) {
+		this.diskBackedThreshold = diskBackedThreshold;
+	}
+
+	/**
+	 * Sets the number of megabytes of memory used to cache the cells of
+	 * disk-backed images.
+	 */
+	public void setCellCacheSize(final int cellCacheSize) {
+		this.cellCacheSize = cellCacheSize;
+	}
+
+	/**
+	 * Sets the directory of the scratch file of disk-backed images; an empty
+	 * string for the system's temporary directory.
+	 */
+	public void setScratchDirectory(final String scratchDirectory) {
+		this.scratchDirectory = scratchDirectory;
+	}
+
+	/**
+	 * Sets the number of megabytes above which new images are kept compressed
+	 * in memory; 0 for never.
+	 */
+	public void setCompressedThreshold(final int compressedThreshold) {
+		this.compressedThreshold = compressedThreshold;
+	}
+
+	/**
+	 * Sets the number of megabytes of memory used to cache the decompressed
+	 * planes of compressed images.
+	 */
+	public void setPlaneCacheSize(final int planeCacheSize) {
+		this.planeCacheSize = planeCacheSize;
+	}
+
 	// -- private helpers --
 
 	/** Loads the maxMemory instance variable from persistent storage. */
@@ -55,7 +55,7 @@
  * 
  * @author Curtis Rueden
  */
-@Service
+@Service(lazy = false)
 public final class DefaultPlatformService extends AbstractService implements
 	PlatformService
 {
@@ -97,7 +97,7 @@ private ARGB_Plane getARGBPixels() {
 		final long[] dims = imageDisplay.getDims();
 		final int imageWidth = (int) dims[0];
 		final int imageHeight = (int) dims[1];
-		final int[] argbPixels = view.getScreenImage().getData();
+		final int[] argbPixels = view.getFullScreenImage().getData();
 		final int x, y, w, h;
 		if (overlay == null) { // no active overlay
 			x = 0;
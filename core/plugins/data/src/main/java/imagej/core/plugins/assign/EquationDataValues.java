@@ -54,7 +54,6 @@
 import net.imglib2.ops.Function;
 import net.imglib2.ops.InputIteratorFactory;
 import net.imglib2.ops.Tuple2;
-import net.imglib2.ops.condition.UVInsideRoiCondition;
 import net.imglib2.ops.image.ImageAssignment;
 import net.imglib2.ops.input.PointInputIteratorFactory;
 import net.imglib2.ops.parse.RealEquationFunctionParser;
@@ -113,7 +112,7 @@
 	private Dataset dataset;
 	private long[] origin;
 	private long[] span;
-	private UVInsideRoiCondition condition;
+	private InsideSpansCondition condition;
 
 	// -- public interface --
 
@@ -217,6 +216,6 @@ else if (allPlanes) {
 		
 		condition = null;
 		if (overlay != null)
-			condition = new UVInsideRoiCondition(overlay.getRegionOfInterest());
+			condition = new InsideSpansCondition(overlay.getSpans());
 	}
 }
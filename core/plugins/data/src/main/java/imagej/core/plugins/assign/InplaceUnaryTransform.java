@@ -43,7 +43,6 @@
 import net.imglib2.meta.Axes;
 import net.imglib2.ops.Condition;
 import net.imglib2.ops.InputIteratorFactory;
-import net.imglib2.ops.condition.UVInsideRoiCondition;
 import net.imglib2.ops.function.complex.ComplexImageFunction;
 import net.imglib2.ops.function.general.GeneralUnaryFunction;
 import net.imglib2.ops.image.ImageAssignment;
@@ -191,7 +190,7 @@ else if (i == yIndex) {
 		
 		condition = null;
 		if (overlay != null)
-			condition = new UVInsideRoiCondition(overlay.getRegionOfInterest());
+			condition = new InsideSpansCondition(overlay.getSpans());
 	}
 
 	/** Single plane version */
@@ -227,7 +226,7 @@ else if (i == yIndex) {
 		
 		condition = null;
 		if (overlay != null)
-			condition = new UVInsideRoiCondition(overlay.getRegionOfInterest());
+			condition = new InsideSpansCondition(overlay.getSpans());
 	}
 
 	private LongRect findXYRegion(Dataset ds, Overlay overlay, int xIndex, int yIndex) {
@@ -44,6 +44,7 @@
 import imagej.ext.plugin.Menu;
 import imagej.ext.plugin.Parameter;
 import imagej.ext.plugin.Plugin;
+import imagej.thread.ThreadService;
 import imagej.ui.UIService;
 
 import java.util.HashMap;
@@ -96,6 +97,9 @@
 	@Parameter(persist = false)
 	private UIService uiService;
 
+	@Parameter(persist = false)
+	private ThreadService threadService;
+
 	@Parameter(persist = false)
 	private Dataset input1;
 
@@ -275,7 +279,7 @@ private void copyDataIntoInput1(final long[] span) {
 		final ImgPlus<? extends RealType<?>> srcImgPlus = output.getImgPlus();
 		final ImgPlus<? extends RealType<?>> dstImgPlus = input1.getImgPlus();
 		RestructureUtils.copyHyperVolume(srcImgPlus, new long[span.length], span,
-			dstImgPlus, new long[span.length], span);
+			dstImgPlus, new long[span.length], span, threadService);
 		input1.update();
 	}
 
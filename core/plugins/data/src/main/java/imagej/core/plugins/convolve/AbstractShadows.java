@@ -39,6 +39,7 @@
 import imagej.data.display.ImageDisplay;
 import imagej.data.display.ImageDisplayService;
 import imagej.data.display.OverlayService;
+import imagej.data.overlay.OverlaySpans;
 import imagej.ext.plugin.ImageJPlugin;
 import imagej.ext.plugin.Parameter;
 import imagej.util.RealRect;
@@ -69,8 +70,9 @@ public abstract class AbstractShadows implements ImageJPlugin {
 	public void run() {
 		final Dataset input = imageDisplayService.getActiveDataset(display);
 		final RealRect selection = overlayService.getSelectionBounds(display);
+		final OverlaySpans spans = overlayService.getSelectionSpans(display);
 		final Convolve3x3Operation operation =
-			new Convolve3x3Operation(input, selection, kernel);
+			new Convolve3x3Operation(input, selection, spans, kernel);
 		operation.run();
 	}
 
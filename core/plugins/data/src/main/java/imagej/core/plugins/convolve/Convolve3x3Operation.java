@@ -38,6 +38,7 @@
 import imagej.core.plugins.neigh.Neighborhood3x3Operation;
 import imagej.core.plugins.neigh.Neighborhood3x3Watcher;
 import imagej.data.Dataset;
+import imagej.data.overlay.OverlaySpans;
 import imagej.util.RealRect;
 
 /**
@@ -64,7 +65,7 @@ public class Convolve3x3Operation {
 	 */
 	private final Neighborhood3x3Operation neighOperation;
 
-	// -- constructor --
+	// -- constructors --
 
 	/**
 	 * Constructor. takes an input Dataset and a kernel that will be used to
@@ -72,10 +73,20 @@ public class Convolve3x3Operation {
 	 */
 	public Convolve3x3Operation(final Dataset input, final RealRect selection,
 		final double[] kernel)
+	{
+		this(input, selection, null, kernel);
+	}
+
+	/**
+	 * Constructor convolving only the pixels of the given spans within the
+	 * selection. Null spans select every pixel of the selection.
+	 */
+	public Convolve3x3Operation(final Dataset input, final RealRect selection,
+		final OverlaySpans spans, final double[] kernel)
 	{
 		this.kernel = kernel;
 		this.neighOperation =
-			new Neighborhood3x3Operation(input, selection,
+			new Neighborhood3x3Operation(input, selection, spans,
 				new ConvolveWatcher(input));
 
 		if (kernel.length != 9) throw new IllegalArgumentException(
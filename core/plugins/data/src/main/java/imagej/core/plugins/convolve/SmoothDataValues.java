@@ -39,6 +39,7 @@
 import imagej.data.display.ImageDisplay;
 import imagej.data.display.ImageDisplayService;
 import imagej.data.display.OverlayService;
+import imagej.data.overlay.OverlaySpans;
 import imagej.ext.menu.MenuConstants;
 import imagej.ext.plugin.ImageJPlugin;
 import imagej.ext.plugin.Menu;
@@ -76,9 +77,10 @@ public class SmoothDataValues implements ImageJPlugin {
 	public void run() {
 		final Dataset input = imageDisplayService.getActiveDataset(display);
 		final RealRect selection = overlayService.getSelectionBounds(display);
+		final OverlaySpans spans = overlayService.getSelectionSpans(display);
 		final double[] kernel = { 1, 1, 1, 1, 1, 1, 1, 1, 1 };
 		final Convolve3x3Operation operation =
-			new Convolve3x3Operation(input, selection, kernel);
+			new Convolve3x3Operation(input, selection, spans, kernel);
 		operation.run();
 	}
 }
@@ -36,6 +36,7 @@
 package imagej.core.plugins.imglib;
 
 import imagej.data.Dataset;
+import imagej.data.ImgCopier;
 import imagej.data.display.ImageDisplay;
 import imagej.data.display.ImageDisplayService;
 import imagej.data.display.OverlayService;
@@ -46,9 +47,8 @@
 import imagej.ext.plugin.Menu;
 import imagej.ext.plugin.Parameter;
 import imagej.ext.plugin.Plugin;
+import imagej.thread.ThreadService;
 import imagej.util.RealRect;
-import net.imglib2.Cursor;
-import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgPlus;
 import net.imglib2.meta.Axes;
@@ -80,6 +80,9 @@ public class CropImage implements ImageJPlugin {
 	@Parameter
 	private OverlayService overlayService;
 
+	@Parameter
+	private ThreadService threadService;
+
 	@Parameter(type = ItemIO.BOTH)
 	private ImageDisplay display;
 
@@ -177,28 +180,13 @@ private void setup(final Dataset dataset, final RealRect bounds) {
 	 * Fills cropped image data container from the input Dataset.
 	 */
 	private void copyPixels() {
-		final RandomAccess<? extends RealType<?>> inputAccessor =
-			inputImage.randomAccess();
-
-		final Cursor<? extends RealType<?>> outputCursor =
-			outputImage.localizingCursor();
-
-		final long[] tmpPosition = new long[outputImage.numDimensions()];
-
-		while (outputCursor.hasNext()) {
-			outputCursor.next();
-
-			outputCursor.localize(tmpPosition);
-
-			tmpPosition[xIndex] += minX;
-			tmpPosition[yIndex] += minY;
-
-			inputAccessor.setPosition(tmpPosition);
-
-			final double value = inputAccessor.get().getRealDouble();
-
-			outputCursor.get().setReal(value);
-		}
+		final long[] srcOrigin = new long[inputImage.numDimensions()];
+		srcOrigin[xIndex] = minX;
+		srcOrigin[yIndex] = minY;
+		final long[] span = new long[outputImage.numDimensions()];
+		outputImage.dimensions(span);
+		new ImgCopier(threadService).copy(inputImage, srcOrigin, span,
+			outputImage, new long[span.length], span);
 	}
 
 }
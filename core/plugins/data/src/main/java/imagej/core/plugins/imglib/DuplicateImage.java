@@ -51,6 +51,7 @@
 import imagej.ext.plugin.Menu;
 import imagej.ext.plugin.Parameter;
 import imagej.ext.plugin.Plugin;
+import imagej.thread.ThreadService;
 import imagej.util.RealRect;
 
 /**
@@ -72,6 +73,9 @@ public class DuplicateImage implements ImageJPlugin {
 	
 	@Parameter
 	private OverlayService overlayService;
+
+	@Parameter
+	private ThreadService threadService;
 	
 	@Parameter
 	private ImageDisplay display;
@@ -113,7 +117,7 @@ public void run() {
 				RestructureUtils.createNewImgPlus(input, dstSpan, axes);
 		RestructureUtils.copyHyperVolume(
 				input.getImgPlus(), srcOrigin, srcSpan,
-				dstImgPlus, dstOrigin, dstSpan);
+				dstImgPlus, dstOrigin, dstSpan, threadService);
 		output = new DefaultDataset(context, dstImgPlus);
 		// TODO - problems
 		// in IJ1 the ROI is also created in the new image. i.e. an ellipse
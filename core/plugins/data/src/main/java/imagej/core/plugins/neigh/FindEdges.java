@@ -39,6 +39,7 @@
 import imagej.data.display.ImageDisplay;
 import imagej.data.display.ImageDisplayService;
 import imagej.data.display.OverlayService;
+import imagej.data.overlay.OverlaySpans;
 import imagej.ext.menu.MenuConstants;
 import imagej.ext.plugin.ImageJPlugin;
 import imagej.ext.plugin.Menu;
@@ -78,8 +79,9 @@ public class FindEdges implements ImageJPlugin {
 	public void run() {
 		final Dataset input = imageDisplayService.getActiveDataset(display);
 		final RealRect selection = overlayService.getSelectionBounds(display);
+		final OverlaySpans spans = overlayService.getSelectionSpans(display);
 		final Neighborhood3x3Operation operation =
-			new Neighborhood3x3Operation(input, selection,
+			new Neighborhood3x3Operation(input, selection, spans,
 				new FindEdgesWatcher(input));
 		operation.run();
 	}
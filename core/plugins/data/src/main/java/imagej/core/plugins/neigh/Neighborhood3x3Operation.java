@@ -35,11 +35,14 @@
 
 package imagej.core.plugins.neigh;
 
+import imagej.ImageJ;
 import imagej.data.Dataset;
 import imagej.data.Extents;
-import imagej.data.Position;
+import imagej.data.ExtentsIterator;
+import imagej.data.ImgCopier;
+import imagej.data.overlay.OverlaySpans;
+import imagej.thread.ThreadService;
 import imagej.util.RealRect;
-import net.imglib2.Cursor;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.img.Img;
@@ -61,16 +64,30 @@ public class Neighborhood3x3Operation {
 	private Img<? extends RealType<?>> inputImage;
 	private Img<? extends RealType<?>> inputImageCopy;
 	private final RealRect selection;
+	private final OverlaySpans spans;
 	private final Neighborhood3x3Watcher watcher;
 
-	// -- constructor --
+	// -- constructors --
 
 	public Neighborhood3x3Operation(final Dataset input,
 		final RealRect selection, final Neighborhood3x3Watcher watcher)
+	{
+		this(input, selection, null, watcher);
+	}
+
+	/**
+	 * Constructor restricting the operation to the given spans within the
+	 * selection, such as those of a non-rectangular overlay. Null spans select
+	 * every pixel of the selection.
+	 */
+	public Neighborhood3x3Operation(final Dataset input,
+		final RealRect selection, final OverlaySpans spans,
+		final Neighborhood3x3Watcher watcher)
 	{
 		this.input = input;
 		this.watcher = watcher;
 		this.selection = selection;
+		this.spans = spans;
 
 		if (watcher == null) throw new IllegalArgumentException(
 			"neighborhood watcher cannot be null!");
@@ -111,7 +128,7 @@ private void runAssignment() {
 		for (int i = 0; i < planeDims.length; i++)
 			planeDims[i] = inputImage.dimension(i + 2);
 		final Extents extents = new Extents(planeDims);
-		final Position planePos = extents.createPosition();
+		final ExtentsIterator planePos = extents.createIterator();
 		if (planeDims.length == 0) { // dataset is 2d only
 			applyOperationToPlane(planePos);
 		}
@@ -124,7 +141,7 @@ private void runAssignment() {
 		input.update();
 	}
 
-	private void applyOperationToPlane(final Position planePos) {
+	private void applyOperationToPlane(final ExtentsIterator planePos) {
 
 		final long[] imageDims = new long[inputImage.numDimensions()];
 		inputImage.dimensions(imageDims);
@@ -161,23 +178,42 @@ private void applyOperationToPlane(final Position planePos) {
 		final long height = (long) selection.height;
 		for (long y = minY; y < minY + height; y++) {
 			inputPosition[1] = y;
-			for (long x = minX; x < minX + width; x++) {
-				inputPosition[0] = x;
-				watcher.initializeNeighborhood(inputPosition);
-
-				for (int dy = -1; dy <= 1; dy++) {
-					localInputPosition[1] = inputPosition[1] + dy;
-					for (int dx = -1; dx <= 1; dx++) {
-						localInputPosition[0] = inputPosition[0] + dx;
-						extendedInput.setPosition(localInputPosition);
-						final double localValue = extendedInput.get().getRealDouble();
-						watcher.visitLocation(dx, dy, localValue);
-					}
+			if (spans == null) {
+				applyOperationToRun(minX, minX + width - 1, inputPosition,
+					localInputPosition, extendedInput, outputAccessor);
+				continue;
+			}
+			final int end = spans.getRowEnd(y);
+			for (int s = spans.getRowStart(y); s < end; s++) {
+				final long x0 = Math.max(minX, spans.getSpanMinX(s));
+				final long x1 = Math.min(minX + width - 1, spans.getSpanMaxX(s));
+				applyOperationToRun(x0, x1, inputPosition, localInputPosition,
+					extendedInput, outputAccessor);
+			}
+		}
+	}
+
+	private void applyOperationToRun(final long x0, final long x1,
+		final long[] inputPosition, final long[] localInputPosition,
+		final RandomAccess<? extends RealType<?>> extendedInput,
+		final RandomAccess<? extends RealType<?>> outputAccessor)
+	{
+		for (long x = x0; x <= x1; x++) {
+			inputPosition[0] = x;
+			watcher.initializeNeighborhood(inputPosition);
+
+			for (int dy = -1; dy <= 1; dy++) {
+				localInputPosition[1] = inputPosition[1] + dy;
+				for (int dx = -1; dx <= 1; dx++) {
+					localInputPosition[0] = inputPosition[0] + dx;
+					extendedInput.setPosition(localInputPosition);
+					final double localValue = extendedInput.get().getRealDouble();
+					watcher.visitLocation(dx, dy, localValue);
 				}
-				// assign output
-				outputAccessor.setPosition(inputPosition);
-				outputAccessor.get().setReal(watcher.calcOutputValue());
 			}
+			// assign output
+			outputAccessor.setPosition(inputPosition);
+			outputAccessor.get().setReal(watcher.calcOutputValue());
 		}
 	}
 
@@ -186,29 +222,9 @@ private void applyOperationToPlane(final Position planePos) {
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private Img<? extends RealType<?>> cloneImage(final Img image) {
 		// TODO - used to be able to call Image::clone()
-		// For now copy data by hand
-
-		final long[] dimensions = new long[image.numDimensions()];
-		image.dimensions(dimensions);
-
-		final Img<? extends RealType<?>> copyOfImg =
-			image.factory().create(dimensions, image.firstElement());
-
-		final long[] position = new long[dimensions.length];
-
-		final Cursor<? extends RealType<?>> cursor = image.localizingCursor();
-
-		final RandomAccess<? extends RealType<?>> access =
-			copyOfImg.randomAccess();
-
-		while (cursor.hasNext()) {
-			cursor.next();
-			final double currValue = cursor.get().getRealDouble();
-			cursor.localize(position);
-			access.setPosition(position);
-			access.get().setReal(currValue);
-		}
-
-		return copyOfImg;
+		final ImageJ context = input.getContext();
+		final ThreadService threadService =
+			context == null ? null : context.getService(ThreadService.class);
+		return new ImgCopier(threadService).duplicate(image);
 	}
 }
@@ -42,6 +42,7 @@
 import imagej.ext.plugin.Menu;
 import imagej.ext.plugin.Parameter;
 import imagej.ext.plugin.Plugin;
+import imagej.thread.ThreadService;
 import imagej.ui.UIService;
 
 import java.util.ArrayList;
@@ -73,6 +74,9 @@ public class AddAxis extends DynamicPlugin {
 	@Parameter(persist = false)
 	private UIService uiService;
 
+	@Parameter(persist = false)
+	private ThreadService threadService;
+
 	@Parameter(persist = false)
 	private Dataset dataset;
 
@@ -208,7 +212,7 @@ private void fillNewImgPlus(final ImgPlus<? extends RealType<?>> srcImgPlus,
 		dstSpan[dstSpan.length - 1] = 1;
 
 		RestructureUtils.copyHyperVolume(srcImgPlus, srcOrigin, srcSpan,
-			dstImgPlus, dstOrigin, dstSpan);
+			dstImgPlus, dstOrigin, dstSpan, threadService);
 	}
 
 	private class RemapAlgorithm implements ColorTableRemapper.RemapAlgorithm {
@@ -42,6 +42,7 @@
 import imagej.ext.plugin.Menu;
 import imagej.ext.plugin.Parameter;
 import imagej.ext.plugin.Plugin;
+import imagej.thread.ThreadService;
 import imagej.ui.UIService;
 
 import java.util.ArrayList;
@@ -74,6 +75,9 @@ public class AddData extends DynamicPlugin {
 	@Parameter(persist = false)
 	private UIService uiService;
 
+	@Parameter(persist = false)
+	private ThreadService threadService;
+
 	@Parameter(persist = false)
 	private Dataset dataset;
 
@@ -218,9 +222,10 @@ private boolean inputBad(final AxisType axis) {
 		final long numAfterInsertion = axisSize - numBeforeInsert;
 
 		RestructureUtils.copyData(srcImgPlus, dstImgPlus, modifiedAxis, 0, 0,
-			numBeforeInsert);
+			numBeforeInsert, threadService);
 		RestructureUtils.copyData(srcImgPlus, dstImgPlus, modifiedAxis,
-			numBeforeInsert, numBeforeInsert + numInInsertion, numAfterInsertion);
+			numBeforeInsert, numBeforeInsert + numInInsertion, numAfterInsertion,
+			threadService);
 	}
 
 	private int compositeStatus(final Dataset origData,
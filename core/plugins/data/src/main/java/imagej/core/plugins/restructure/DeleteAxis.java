@@ -43,6 +43,7 @@
 import imagej.ext.plugin.Menu;
 import imagej.ext.plugin.Parameter;
 import imagej.ext.plugin.Plugin;
+import imagej.thread.ThreadService;
 import imagej.ui.UIService;
 
 import java.util.ArrayList;
@@ -74,6 +75,9 @@ public class DeleteAxis extends DynamicPlugin {
 	@Parameter(persist = false)
 	private UIService uiService;
 
+	@Parameter(persist = false)
+	private ThreadService threadService;
+
 	@Parameter(persist = false)
 	private ImageDisplay display;
 
@@ -258,7 +262,7 @@ private void fillNewImgPlus(final ImgPlus<? extends RealType<?>> srcImgPlus,
 		srcSpan[axisIndex] = 1;
 
 		RestructureUtils.copyHyperVolume(srcImgPlus, srcOrigin, srcSpan,
-			dstImgPlus, dstOrigin, dstSpan);
+			dstImgPlus, dstOrigin, dstSpan, threadService);
 	}
 
 	private int
@@ -42,6 +42,7 @@
 import imagej.ext.plugin.Menu;
 import imagej.ext.plugin.Parameter;
 import imagej.ext.plugin.Plugin;
+import imagej.thread.ThreadService;
 import imagej.ui.UIService;
 
 import java.util.ArrayList;
@@ -75,6 +76,9 @@ public class DeleteData extends DynamicPlugin {
 	@Parameter(persist = false)
 	private UIService uiService;
 
+	@Parameter(persist = false)
+	private ThreadService threadService;
+
 	@Parameter(persist = false)
 	private Dataset dataset;
 
@@ -221,9 +225,9 @@ private boolean inputBad(final AxisType axis) {
 		final long numAfterCut = axisSize - (numBeforeCut + numInCut);
 
 		RestructureUtils.copyData(srcImgPlus, dstImgPlus, modifiedAxis, 0, 0,
-			numBeforeCut);
+			numBeforeCut, threadService);
 		RestructureUtils.copyData(srcImgPlus, dstImgPlus, modifiedAxis,
-			numBeforeCut + numInCut, numBeforeCut, numAfterCut);
+			numBeforeCut + numInCut, numBeforeCut, numAfterCut, threadService);
 	}
 
 	private int compositeStatus(final int compositeCount,
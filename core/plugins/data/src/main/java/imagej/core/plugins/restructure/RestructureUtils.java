@@ -37,15 +37,14 @@
 
 import imagej.data.Dataset;
 import imagej.data.Extents;
-import net.imglib2.RandomAccess;
+import imagej.data.ImgCopier;
+import imagej.thread.ThreadService;
 import net.imglib2.display.ColorTable16;
 import net.imglib2.display.ColorTable8;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.ImgPlus;
 import net.imglib2.meta.AxisType;
-import net.imglib2.ops.PointSetIterator;
-import net.imglib2.ops.pointset.HyperVolumePointSet;
 import net.imglib2.type.numeric.RealType;
 
 /**
@@ -101,6 +100,21 @@ public static ImgPlus<? extends RealType<?>> createNewImgPlus(
 	public static void copyData(final ImgPlus<? extends RealType<?>> srcImgPlus,
 		final ImgPlus<? extends RealType<?>> dstImgPlus, final AxisType axis,
 		final long srcStartPos, final long dstStartPos, final long numHyperplanes)
+	{
+		copyData(srcImgPlus, dstImgPlus, axis, srcStartPos, dstStartPos,
+			numHyperplanes, null);
+	}
+
+	/**
+	 * Copies a region of data from a srcImgPlus to a dstImgPlus. region is
+	 * defined by a number of planes along an axis that is present in both input
+	 * ImgPluses. Large copies are spread across the compute threads of the given
+	 * {@link ThreadService} (which may be null).
+	 */
+	public static void copyData(final ImgPlus<? extends RealType<?>> srcImgPlus,
+		final ImgPlus<? extends RealType<?>> dstImgPlus, final AxisType axis,
+		final long srcStartPos, final long dstStartPos, final long numHyperplanes,
+		final ThreadService threadService)
 	{
 		if (numHyperplanes == 0) return;
 		final long[] srcOrigin = calcOrigin(srcImgPlus, axis, srcStartPos);
@@ -110,7 +124,7 @@ public static void copyData(final ImgPlus<? extends RealType<?>> srcImgPlus,
 		final long[] dstSpan = calcSpan(dstImgPlus, axis, numHyperplanes);
 
 		copyHyperVolume(srcImgPlus, srcOrigin, srcSpan, dstImgPlus, dstOrigin,
-			dstSpan);
+			dstSpan, threadService);
 	}
 
 	/**
@@ -122,34 +136,27 @@ public static void copyHyperVolume(
 		final ImgPlus<? extends RealType<?>> srcImgPlus, final long[] srcOrigin,
 		final long[] srcSpan, final ImgPlus<? extends RealType<?>> dstImgPlus,
 		final long[] dstOrigin, final long[] dstSpan)
+	{
+		copyHyperVolume(srcImgPlus, srcOrigin, srcSpan, dstImgPlus, dstOrigin,
+			dstSpan, null);
+	}
+
+	/**
+	 * Copies a hypervolume from a source {@link ImgPlus} to a destination
+	 * {@link ImgPlus}. Spans may have different number of dimensions but must be
+	 * shape compatible with axes in same relative order. Large copies are spread
+	 * across the compute threads of the given {@link ThreadService} (which may
+	 * be null).
+	 */
+	public static void copyHyperVolume(
+		final ImgPlus<? extends RealType<?>> srcImgPlus, final long[] srcOrigin,
+		final long[] srcSpan, final ImgPlus<? extends RealType<?>> dstImgPlus,
+		final long[] dstOrigin, final long[] dstSpan,
+		final ThreadService threadService)
 	{
 		checkSpanShapes(srcSpan, dstSpan);
-		final RandomAccess<? extends RealType<?>> srcAccessor =
-			srcImgPlus.randomAccess();
-		final RandomAccess<? extends RealType<?>> dstAccessor =
-			dstImgPlus.randomAccess();
-		final long[] srcOffsets = new long[srcOrigin.length];
-		for (int i = 0; i < srcOffsets.length; i++)
-			srcOffsets[i] = srcSpan[i] - 1;
-		final long[] dstOffsets = new long[dstOrigin.length];
-		for (int i = 0; i < dstOffsets.length; i++)
-			dstOffsets[i] = dstSpan[i] - 1;
-		final HyperVolumePointSet srcPointSet =
-				new HyperVolumePointSet(srcOrigin, new long[srcOrigin.length], srcOffsets);
-		final HyperVolumePointSet dstPointSet =
-				new HyperVolumePointSet(dstOrigin, new long[dstOrigin.length], dstOffsets);
-		final PointSetIterator iterS = srcPointSet.createIterator();
-		final PointSetIterator iterD = dstPointSet.createIterator();
-		long[] srcPos = null;
-		long[] dstPos = null;
-		while (iterS.hasNext() && iterD.hasNext()) {
-			srcPos = iterS.next();
-			dstPos = iterD.next();
-			srcAccessor.setPosition(srcPos);
-			dstAccessor.setPosition(dstPos);
-			final double value = srcAccessor.get().getRealDouble();
-			dstAccessor.get().setReal(value);
-		}
+		new ImgCopier(threadService).copy(srcImgPlus, srcOrigin, srcSpan,
+			dstImgPlus, dstOrigin, dstSpan);
 	}
 
 	/**
@@ -38,7 +38,7 @@
 import imagej.core.plugins.imglib.OutputAlgorithm;
 import imagej.data.Dataset;
 import imagej.data.Extents;
-import imagej.data.Position;
+import imagej.data.ExtentsIterator;
 import imagej.util.RealRect;
 import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
@@ -176,7 +176,7 @@ public boolean process() {
 		for (int i = 0; i < planeDims.length; i++)
 			planeDims[i] = inputDimensions[i + 2];
 		final Extents extents = new Extents(planeDims);
-		final Position planePos = extents.createPosition();
+		final ExtentsIterator planePos = extents.createIterator();
 		if (planeDims.length == 0) { // 2d Dataset
 			processPlane(planePos, rx, ry, rw, rh);
 		}
@@ -197,7 +197,7 @@ public Img<? extends RealType<?>> getResult() {
 		return outputImage;
 	}
 
-	private void processPlane(final Position planePos, final long rx,
+	private void processPlane(final ExtentsIterator planePos, final long rx,
 		final long ry, final long rw, final long rh)
 	{
 
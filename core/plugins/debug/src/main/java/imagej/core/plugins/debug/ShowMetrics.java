@@ -0,0 +1,82 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.plugins.debug;
+
+import imagej.ext.module.ItemIO;
+import imagej.ext.plugin.ImageJPlugin;
+import imagej.ext.plugin.Parameter;
+import imagej.ext.plugin.Plugin;
+import imagej.metrics.Metric;
+import imagej.metrics.MetricsService;
+
+/**
+ * Dumps the performance metrics gathered so far: counters, and timings of
+ * modules, event dispatch, rendering and I/O.
+ */
+@Plugin(menuPath = "Plugins>Debug>Metrics", headless = true)
+public class ShowMetrics implements ImageJPlugin {
+
+	// -- Parameters --
+
+	@Parameter(persist = false)
+	private MetricsService metricsService;
+
+	@Parameter(label = "Reset after listing")
+	private boolean reset = false;
+
+	@Parameter(label = "Metrics", type = ItemIO.OUTPUT)
+	private String metrics;
+
+	// -- Runnable methods --
+
+	@Override
+	public void run() {
+		final StringBuilder sb = new StringBuilder();
+		final String nl = System.getProperty("line.separator");
+		for (final Metric metric : metricsService.getMetrics()) {
+			sb.append(metric + nl);
+		}
+		metrics = sb.toString();
+		if (reset) metricsService.reset();
+	}
+
+	// -- ShowMetrics methods --
+
+	public String getMetrics() {
+		return metrics;
+	}
+
+}
@@ -37,6 +37,7 @@
 
 import imagej.data.Dataset;
 import imagej.data.display.DatasetView;
+import imagej.data.stats.DatasetStatistics;
 import imagej.ext.menu.MenuConstants;
 import imagej.ext.plugin.ImageJPlugin;
 import imagej.ext.plugin.Menu;
@@ -45,7 +46,6 @@
 
 import java.util.List;
 
-import net.imglib2.Cursor;
 import net.imglib2.display.RealLUTConverter;
 import net.imglib2.meta.AxisType;
 import net.imglib2.type.numeric.RealType;
@@ -74,7 +74,7 @@
 		weight = 0) }, headless = true)
 public class AutoContrast implements ImageJPlugin {
 
-	private static final int BINS = 256;
+	private static final int BINS = DatasetStatistics.BINS;
 	private static final int AUTO_THRESHOLD = 5000;
 	private static int autoThreshold;
 
@@ -85,16 +85,16 @@ public class AutoContrast implements ImageJPlugin {
 	public void run() {
 		final Dataset dataset = view.getData();
 
-		final int[] histogram = computeHistogram(dataset);
-		final int pixelCount = countPixels(histogram);
+		final long[] histogram = computeHistogram(dataset);
+		final long pixelCount = countPixels(histogram);
 
 		if (autoThreshold < 10) autoThreshold = AUTO_THRESHOLD;
 		else autoThreshold /= 2;
-		final int threshold = pixelCount / autoThreshold;
-		final int limit = pixelCount / 10;
+		final long threshold = pixelCount / autoThreshold;
+		final long limit = pixelCount / 10;
 		int i = -1;
 		boolean found = false;
-		int count;
+		long count;
 		do {
 			i++;
 			count = histogram[i];
@@ -150,40 +150,19 @@ public void run() {
 
 	// -- Helper methods --
 
-	private int[] computeHistogram(final Dataset dataset) {
+	private long[] computeHistogram(final Dataset dataset) {
 		//
 		// afraser TODO: Not sure how to handle RGB images here
 		//
 		// CTR FIXME - Autoscaling needs to be reworked.
 		//
-		final double histMin = dataset.getType().getMinValue();
-		final double histMax = dataset.getType().getMaxValue();
-		System.out.println(histMin + " -- " + histMax);
-//		final double[] range = computeMinMax(dataset);
-
-		final Cursor<? extends RealType<?>> c = dataset.getImgPlus().cursor();
-		final int[] histogram = new int[BINS];
-		while (c.hasNext()) {
-			final double value = c.next().getRealDouble();
-			final int bin = computeBin(value, histMin, histMax);
-			histogram[bin]++;
-		}
-		return histogram;
-	}
-
-	private int computeBin(final double value, final double histMin,
-		final double histMax)
-	{
-		double v = value;
-		if (v < histMin) v = histMin;
-		if (v > histMax) v = histMax;
-		final int bin = (int) ((BINS - 1) * (v - histMin) / (histMax - histMin));
-		return bin;
+		// NB - the cached histogram spans the range of the type, in BINS bins
+		return dataset.getStatistics().getStatistics().getHistogram();
 	}
 
-	private int countPixels(final int[] histogram) {
-		int sum = 0;
-		for (final int v : histogram) {
+	private long countPixels(final long[] histogram) {
+		long sum = 0;
+		for (final long v : histogram) {
 			sum += v;
 		}
 		return sum;
@@ -37,6 +37,7 @@
 
 import imagej.data.Dataset;
 import imagej.data.display.DatasetView;
+import imagej.data.stats.Statistics;
 import imagej.ext.menu.MenuConstants;
 import imagej.ext.module.ui.WidgetStyle;
 import imagej.ext.plugin.ImageJPlugin;
@@ -48,9 +49,7 @@
 
 import java.util.List;
 
-import net.imglib2.algorithm.stats.ComputeMinMax;
 import net.imglib2.display.RealLUTConverter;
-import net.imglib2.img.Img;
 import net.imglib2.type.numeric.RealType;
 
 /**
@@ -170,11 +169,9 @@ public void setContrast(final int contrast) {
 
 	// -- Initializers --
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	protected void initValues() {
 		final Dataset dataset = view.getData();
-		final Img img = dataset.getImgPlus();
-		computeDataMinMax(img);
+		computeDataMinMax(dataset);
 		computeInitialMinMax();
 		if (min != min) min = initialMin;
 		if (max != max) max = initialMax;
@@ -195,11 +192,10 @@ protected void brightnessContrastChanged() {
 
 	// -- Helper methods --
 
-	private <T extends RealType<T>> void computeDataMinMax(final Img<T> img) {
-		final ComputeMinMax<T> computeMinMax = new ComputeMinMax<T>(img);
-		computeMinMax.process();
-		dataMin = computeMinMax.getMin().getRealDouble();
-		dataMax = computeMinMax.getMax().getRealDouble();
+	private void computeDataMinMax(final Dataset dataset) {
+		final Statistics stats = dataset.getStatistics().getStatistics();
+		dataMin = stats.getMin();
+		dataMax = stats.getMax();
 		Log.debug("computeDataMinMax: dataMin=" + dataMin + ", dataMax=" + dataMax);
 	}
 
@@ -39,6 +39,7 @@
 import imagej.data.ChannelCollection;
 import imagej.data.Dataset;
 import imagej.data.DrawingTool;
+import imagej.data.UpdateRegion;
 import imagej.data.display.ImageCanvas;
 import imagej.data.display.ImageDisplay;
 import imagej.data.display.ImageDisplayService;
@@ -65,6 +66,7 @@ public abstract class AbstractLineTool extends AbstractTool {
 	// -- instance variables --
 
 	private DrawingTool drawingTool;
+	private long lastX, lastY;
 	private long lineWidth = 1;
 	private boolean altKeyDown = false;
 
@@ -96,6 +98,8 @@ public void onMouseDown(final MsPressedEvent evt) {
 			long modelX = realCoords.getLongX();
 			long modelY = realCoords.getLongY();
 			drawingTool.moveTo(modelX, modelY);
+			lastX = modelX;
+			lastY = modelY;
 		}
 		evt.consume();
 	}
@@ -120,7 +124,17 @@ public void onMouseDrag(final MsDraggedEvent evt) {
 		long modelX = realCoords.getLongX();
 		long modelY = realCoords.getLongY();
 		drawingTool.lineTo(modelX, modelY);
-		evt.getDisplay().update();
+		// publish the bounding box of the stroke, widened by the pen
+		final long w = getLineWidth();
+		final long minX = Math.min(lastX, modelX) - w;
+		final long minY = Math.min(lastY, modelY) - w;
+		final long maxX = Math.max(lastX, modelX) + w;
+		final long maxY = Math.max(lastY, modelY) + w;
+		final UpdateRegion region =
+			drawingTool.getUpdateRegion(minX, minY, maxX, maxY);
+		drawingTool.getDataset().update(region);
+		lastX = modelX;
+		lastY = modelY;
 		evt.consume();
 	}
 
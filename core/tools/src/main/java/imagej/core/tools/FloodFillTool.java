@@ -66,7 +66,7 @@ public class FloodFillTool extends AbstractTool {
 	public static final int PRIORITY = -304;
 
 	enum Connectivity {
-		EIGHT, FOUR
+		EIGHT, FOUR, SIX, TWENTY_SIX
 	}
 
 	private Connectivity connectivity = Connectivity.EIGHT;
@@ -75,12 +75,15 @@ enum Connectivity {
 
 	// -- public interface --
 
-	/** Specify whether this flood fill operation should be 4 or 8 connected. */
+	/**
+	 * Specify whether this flood fill operation should be 4 or 8 connected, or
+	 * 6 or 26 connected to fill a volume across Z.
+	 */
 	public void setConnectivity(final Connectivity c) {
 		connectivity = c;
 	}
 
-	/** Gets this flood fill's current connectivity (4 or 8 connected). */
+	/** Gets this flood fill's current connectivity (4, 8, 6 or 26 connected). */
 	public Connectivity getConnectivity() {
 		return connectivity;
 	}
@@ -103,8 +106,8 @@ public void onMouseClick(final MsClickedEvent evt) {
 				if (recorder.record(evt)) {
 					final DrawingTool drawingTool = initDrawingTool(recorder.getDataset());
 					final long[] currPos = getCurrPosition(imageDisplay);
+					// NB: floodFill publishes the region it changed
 					floodFill(recorder.getCX(), recorder.getCY(), currPos, connectivity, drawingTool);
-					evt.getDisplay().update();
 				}
 			}
 			evt.consume();
@@ -168,8 +171,14 @@ private void floodFill(final long u, final long v, final long[] position,
 	{
 		dTool.setPosition(position);
 		final FloodFiller filler = new FloodFiller(dTool);
-		if (c == Connectivity.FOUR) filler.fill4(u, v, position);
-		else filler.fill8(u, v, position);
+		final boolean changed;
+		if (c == Connectivity.FOUR) changed = filler.fill4(u, v, position);
+		else if (c == Connectivity.SIX) changed = filler.fill6(u, v, position);
+		else if (c == Connectivity.TWENTY_SIX) {
+			changed = filler.fill26(u, v, position);
+		}
+		else changed = filler.fill8(u, v, position);
+		if (changed) dTool.getDataset().update(filler.getUpdateRegion());
 	}
 
 }
@@ -51,6 +51,8 @@ public class FloodFillToolConfigPlugin implements ImageJPlugin {
 
 	private static final String FOUR = "4-connected";
 	private static final String EIGHT = "8-connected";
+	private static final String SIX = "6-connected (3D)";
+	private static final String TWENTY_SIX = "26-connected (3D)";
 
 	// -- Parameters --
 
@@ -62,7 +64,7 @@ public class FloodFillToolConfigPlugin implements ImageJPlugin {
 	// does not equal the tool's initial value which is confusing. Tools need to
 	// be able to persist some values to get around this.
 
-	@Parameter(label = "Flood Type:", choices = { EIGHT, FOUR },
+	@Parameter(label = "Flood Type:", choices = { EIGHT, FOUR, SIX, TWENTY_SIX },
 		initializer = "init", persist = false)
 	private String connectivity;
 
@@ -73,6 +75,10 @@ public class FloodFillToolConfigPlugin implements ImageJPlugin {
 	public void run() {
 		if (connectivity.equals(FOUR)) tool
 			.setConnectivity(FloodFillTool.Connectivity.FOUR);
+		else if (connectivity.equals(SIX)) tool
+			.setConnectivity(FloodFillTool.Connectivity.SIX);
+		else if (connectivity.equals(TWENTY_SIX)) tool
+			.setConnectivity(FloodFillTool.Connectivity.TWENTY_SIX);
 		else tool.setConnectivity(FloodFillTool.Connectivity.EIGHT);
 	}
 
@@ -81,6 +87,12 @@ public void run() {
 	protected void init() {
 		final FloodFillTool.Connectivity neighCount = tool.getConnectivity();
 		if (neighCount.equals(FloodFillTool.Connectivity.FOUR)) connectivity = FOUR;
+		else if (neighCount.equals(FloodFillTool.Connectivity.SIX)) {
+			connectivity = SIX;
+		}
+		else if (neighCount.equals(FloodFillTool.Connectivity.TWENTY_SIX)) {
+			connectivity = TWENTY_SIX;
+		}
 		else connectivity = EIGHT;
 	}
 
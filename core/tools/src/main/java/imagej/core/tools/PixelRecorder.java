@@ -35,9 +35,6 @@
 
 package imagej.core.tools;
 
-import java.util.LinkedList;
-import java.util.List;
-
 import imagej.ImageJ;
 import imagej.data.ChannelCollection;
 import imagej.data.Dataset;
@@ -148,8 +145,8 @@ public boolean record(final MsEvent evt) {
 		if (recordColor) {
 			final DatasetView view =
 					imageDisplayService.getActiveDatasetView(imageDisplay);
-			ARGBScreenImage screenImage = view.getScreenImage();
-			int[] argbPixels = view.getScreenImage().getData();
+			ARGBScreenImage screenImage = view.getFullScreenImage();
+			int[] argbPixels = screenImage.getData();
 			int pixelIndex = (int) (cy*screenImage.dimension(0) + cx);
 			int argb = argbPixels[pixelIndex];
 			int r = (argb >> 16) & 0xff;
@@ -164,11 +161,11 @@ public boolean record(final MsEvent evt) {
 			numChannels = 1;
 		else
 			numChannels = dataset.dimension(chanAxis); 
-		List<Double> values = new LinkedList<Double>();
-		for (long chan = 0; chan < numChannels; chan++) {
+		double[] values = new double[(int) numChannels];
+		for (int chan = 0; chan < numChannels; chan++) {
 			setPosition(randomAccess, cx, cy, chan, otherPositions, xAxis, yAxis, chanAxis);
 			double value = randomAccess.get().getRealDouble();
-			values.add(value);
+			values[chan] = value;
 		}
 		
 		channels = new ChannelCollection(values);
@@ -139,7 +139,7 @@ protected void restoreLocation() {
 
 	// TODO - migrate event handling logic to UIService
 
-	@EventHandler
+	@EventHandler(edt = true)
 	public void onEvent(@SuppressWarnings("unused") final AppQuitEvent event) {
 		saveLocation();
 	}
@@ -62,7 +62,7 @@
  * 
  * @author Curtis Rueden
  */
-@Service
+@Service(lazy = false)
 public final class UIService extends AbstractService {
 
 	private final EventService eventService;
@@ -247,7 +247,7 @@ public void showContextMenu(final String menuRoot, final Display<?> display,
 
 	// -- Event handlers --
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(@SuppressWarnings("unused")
 	final MenuEvent event)
 	{
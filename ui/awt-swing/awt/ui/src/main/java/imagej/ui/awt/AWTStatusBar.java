@@ -95,7 +95,7 @@ public void setProgress(final int val, final int max) {
 
 	// -- Event handlers --
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final StatusEvent event) {
 		final String message = event.getStatusMessage();
 		final int val = event.getProgressValue();
@@ -77,7 +77,7 @@ public void keyTyped(final KeyEvent e) {
 		final InputModifiers modifiers = createModifiers(e.getModifiersEx());
 		final KyTypedEvent evt =
 			new KyTypedEvent(display, modifiers, e.getKeyChar(), keyCode);
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -87,7 +87,7 @@ public void keyPressed(final KeyEvent e) {
 		final InputModifiers modifiers = createModifiers(e.getModifiersEx());
 		final KyPressedEvent evt =
 			new KyPressedEvent(display, modifiers, e.getKeyChar(), keyCode);
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -97,7 +97,7 @@ public void keyReleased(final KeyEvent e) {
 		final InputModifiers modifiers = createModifiers(e.getModifiersEx());
 		final KyReleasedEvent evt =
 			new KyReleasedEvent(display, modifiers, e.getKeyChar(), keyCode);
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -117,7 +117,7 @@ public void mouseClicked(final MouseEvent e) {
 		final MsClickedEvent evt =
 			new MsClickedEvent(displayViewer.getDisplay(), modifiers, getX(e),
 				getY(e), mouseButton(e), e.getClickCount(), e.isPopupTrigger());
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -127,7 +127,7 @@ public void mousePressed(final MouseEvent e) {
 		final MsPressedEvent evt =
 			new MsPressedEvent(displayViewer.getDisplay(), modifiers, getX(e),
 				getY(e), mouseButton(e), e.getClickCount(), e.isPopupTrigger());
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -137,7 +137,7 @@ public void mouseReleased(final MouseEvent e) {
 		final MsReleasedEvent evt =
 			new MsReleasedEvent(displayViewer.getDisplay(), modifiers, getX(e),
 				getY(e), mouseButton(e), e.getClickCount(), e.isPopupTrigger());
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -149,7 +149,7 @@ public void mouseEntered(final MouseEvent e) {
 		final MsEnteredEvent evt =
 			new MsEnteredEvent(displayViewer.getDisplay(), modifiers, getX(e),
 				getY(e));
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -158,7 +158,7 @@ public void mouseExited(final MouseEvent e) {
 		final InputModifiers modifiers = createModifiers(e.getModifiersEx());
 		final MsExitedEvent evt =
 			new MsExitedEvent(displayViewer.getDisplay(), modifiers, getX(e), getY(e));
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -168,7 +168,7 @@ public void mouseDragged(final MouseEvent e) {
 		final MsDraggedEvent evt =
 			new MsDraggedEvent(displayViewer.getDisplay(), modifiers, getX(e),
 				getY(e), mouseButton(e), e.getClickCount(), e.isPopupTrigger());
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -177,7 +177,7 @@ public void mouseMoved(final MouseEvent e) {
 		final InputModifiers modifiers = createModifiers(e.getModifiersEx());
 		final MsMovedEvent evt =
 			new MsMovedEvent(displayViewer.getDisplay(), modifiers, getX(e), getY(e));
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -189,7 +189,7 @@ public void mouseWheelMoved(final MouseWheelEvent e) {
 		final MsWheelEvent evt =
 			new MsWheelEvent(displayViewer.getDisplay(), modifiers, getX(e), getY(e),
 				e.getWheelRotation());
-		eventService.publish(evt);
+		eventService.publishNow(evt);
 		if (evt.isConsumed()) e.consume();
 	}
 
@@ -167,7 +167,7 @@ public void clear() {
 		textArea.setText("");
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final ImageJEvent evt) {
 //		if (evt instanceof ImageJEvent) {
 //			emitMessage("Event: " + evt.getClass());
@@ -108,7 +108,7 @@ public void run() {
 
 	// -- Event handlers --
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(@SuppressWarnings("unused")
 	final ObjectsListEvent event)
 	{
@@ -120,7 +120,7 @@ protected void onEvent(@SuppressWarnings("unused")
 //		showDisplays();
 //	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	public void onEvent(@SuppressWarnings("unused")
 	final DisplayActivatedEvent event)
 	{
@@ -88,14 +88,14 @@ public void run() {
 		subscribers = eventService.subscribe(this);
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(@SuppressWarnings("unused")
 	final ObjectsListEvent event)
 	{
 		updateOverlaysShown();
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(@SuppressWarnings("unused")
 	final DisplayActivatedEvent event)
 	{
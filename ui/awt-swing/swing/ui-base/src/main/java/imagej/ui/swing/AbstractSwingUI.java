@@ -265,12 +265,12 @@ protected synchronized void onDisplayActivated(final DisplayActivatedEvent e)
 	 * 
 	 * @param e
 	 */
-	@EventHandler
+	@EventHandler(edt = true)
 	protected synchronized void onEvent(final DisplayCreatedEvent e) {
 		onDisplayCreated(e);
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected synchronized void onEvent(final DisplayDeletedEvent e) {
 		final DisplayViewer<?> displayViewer = getDisplayViewer(e.getObject());
 		if (displayViewer != null) {
@@ -280,7 +280,7 @@ protected synchronized void onEvent(final DisplayDeletedEvent e) {
 		}
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected synchronized void onEvent(final DisplayUpdatedEvent e) {
 		final DisplayViewer<?> displayViewer = getDisplayViewer(e.getDisplay());
 		if (displayViewer != null) {
@@ -288,7 +288,7 @@ protected synchronized void onEvent(final DisplayUpdatedEvent e) {
 		}
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected synchronized void onEvent(final DisplayActivatedEvent e) {
 		if (activationInvocationPending) return;
 		activationInvocationPending = true;
@@ -39,13 +39,15 @@
 import imagej.core.plugins.overlay.SelectedManagerOverlayProperties;
 import imagej.data.ChannelCollection;
 import imagej.data.Dataset;
+import imagej.data.Position;
+import imagej.data.analysis.CsvResultsTable;
+import imagej.data.analysis.MeasurementService;
 import imagej.data.DatasetService;
 import imagej.data.display.DataView;
 import imagej.data.display.DatasetView;
 import imagej.data.display.ImageDisplay;
 import imagej.data.display.ImageDisplayService;
 import imagej.data.display.OverlayService;
-import imagej.data.display.OverlayView;
 import imagej.data.display.event.DataViewSelectionEvent;
 import imagej.data.event.OverlayCreatedEvent;
 import imagej.data.event.OverlayDeletedEvent;
@@ -55,6 +57,7 @@
 import imagej.event.EventHandler;
 import imagej.event.EventService;
 import imagej.event.EventSubscriber;
+import imagej.event.StatusService;
 import imagej.ext.display.DisplayService;
 import imagej.ext.plugin.PluginService;
 import imagej.options.OptionsService;
@@ -79,22 +82,30 @@
 import java.awt.event.MouseListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
 
 import javax.swing.AbstractListModel;
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JList;
 import javax.swing.JMenuItem;
@@ -337,10 +348,10 @@ public String toString() {
 	}
 
 	private class OverlayInfoList {
-		private final LinkedList<OverlayInfo> list;
+		private final ArrayList<OverlayInfo> list;
 		
 		public OverlayInfoList() {
-			list = new LinkedList<OverlayInfo>();
+			list = new ArrayList<OverlayInfo>();
 		}
 
 		public int getOverlayInfoCount() {
@@ -493,17 +504,14 @@ public int getSize() {
 	private void populateOverlayList() {
 		// Populate the list with all overlays
 		final OverlayService ovrSrv = context.getService(OverlayService.class);
+		final Set<Overlay> listed =
+			Collections.newSetFromMap(new IdentityHashMap<Overlay, Boolean>());
+		int totOverlays = infoList.getOverlayInfoCount();
+		for (int i = 0; i < totOverlays; i++) {
+			listed.add(infoList.getOverlayInfo(i).overlay);
+		}
 		for (final Overlay overlay : ovrSrv.getOverlays()) {
-			boolean found = false;
-			int totOverlays = infoList.getOverlayInfoCount();
-			for (int i = 0; i < totOverlays; i++) {
-				OverlayInfo info = infoList.getOverlayInfo(i);
-				if (overlay == info.overlay) {
-					found = true;
-					break;
-				}
-			}
-			if (!found) {
+			if (listed.add(overlay)) {
 				OverlayInfo info = new OverlayInfo();
 				info.overlay = overlay;
 				infoList.addOverlayInfo(info);
@@ -549,14 +557,14 @@ public Component getListCellRendererComponent(final JList list,
 
 	// -- event handlers --
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final OverlayCreatedEvent event) {
 		//System.out.println("\tCREATED: " + event.toString());
 		infoList.addOverlay(event.getObject());
 		jlist.updateUI();
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final OverlayDeletedEvent event) {
 		//System.out.println("\tDELETED: " + event.toString());
 		Overlay overlay = event.getObject();
@@ -568,7 +576,7 @@ protected void onEvent(final OverlayDeletedEvent event) {
 	
 	/*
 	// Update when a display is activated.
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(
 		@SuppressWarnings("unused") final DisplayActivatedEvent event)
 	{
@@ -576,7 +584,7 @@ protected void onEvent(
 	}
 	*/
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final DataViewSelectionEvent event) {
 		if (selecting) return;
 		selecting = true;
@@ -612,7 +620,7 @@ protected void onEvent(final DataViewSelectionEvent event) {
 	// TODO - this may not be best way to do this
 	//   Its here to allow acceleration without ALT/OPTION key
 	//   Maybe make buttons listen for actions
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onKeyPressedEvent(KyPressedEvent ev) {
 		System.out.println("key press registered to display "+ev.getDisplay());
 		altDown = ev.getModifiers().isAltDown() || ev.getModifiers().isAltGrDown();
@@ -624,12 +632,12 @@ protected void onKeyPressedEvent(KyPressedEvent ev) {
 	}
 	*/
 	
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(OverlayRestructuredEvent event) {
 		jlist.updateUI();
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(OverlayUpdatedEvent event) {
 		jlist.updateUI();
 	}
@@ -743,7 +751,7 @@ private void flatten() {
 		final ImageDisplay imageDisplay = ids.getActiveImageDisplay();
 		if (imageDisplay == null) return;
 		final DatasetView view = ids.getActiveDatasetView(imageDisplay);
-		ARGBScreenImage screenImage = view.getScreenImage();
+		ARGBScreenImage screenImage = view.getFullScreenImage();
 		long[] dims = new long[3];
 		screenImage.dimensions(dims);  // fill X & Y
 		dims[2] = 3;  // fill Z
@@ -751,7 +759,7 @@ private void flatten() {
 			throw new IllegalArgumentException("image is too big to fit into memory");
 		int xSize = (int) dims[0];
 		int ySize = (int) dims[1];
-		int[] argbPixels = view.getScreenImage().getData();
+		int[] argbPixels = screenImage.getData();
 		DatasetService dss = context.getService(DatasetService.class);
 		String newName = "Flattened - "+imageDisplay.getName();
 		Dataset dataset = dss.create(new UnsignedByteType(), dims, newName, new Axes[]{Axes.X, Axes.Y, Axes.CHANNEL});
@@ -789,12 +797,83 @@ private void help() {
 		}
 	}
 	
+	/**
+	 * Measures the selected overlays, or all overlays of the active display, on
+	 * its current plane and shows the results as text.
+	 */
 	private void measure() {
-		JOptionPane.showMessageDialog(this, "unimplemented");
+		final ImageDisplayService ids =
+			context.getService(ImageDisplayService.class);
+		final ImageDisplay display = ids.getActiveImageDisplay();
+		if (display == null) return;
+		final Dataset dataset = ids.getActiveDataset(display);
+		if (dataset == null) return;
+		final List<Overlay> overlays = overlaysToMeasure(display);
+		if (overlays.isEmpty()) return;
+		final Position planePos =
+			ids.getActiveDatasetView(display).getPlanePosition();
+		final long[] position = new long[planePos.numDimensions()];
+		planePos.localize(position);
+		final MeasurementService ms =
+			context.getService(MeasurementService.class);
+		final StringWriter out = new StringWriter();
+		try {
+			ms.measure(dataset, overlays, position, new CsvResultsTable(out));
+		}
+		catch (final IOException e) {
+			// NB: StringWriter does not throw
+			Log.error(e);
+			return;
+		}
+		final DisplayService ds = context.getService(DisplayService.class);
+		ds.createDisplay("Results", out.toString());
 	}
 	
+	/**
+	 * Measures the selected overlays, or all overlays of the active display, on
+	 * every plane, streaming the results to a CSV file as they are made.
+	 */
 	private void multiMeasure() {
-		JOptionPane.showMessageDialog(this, "unimplemented");
+		final ImageDisplayService ids =
+			context.getService(ImageDisplayService.class);
+		final ImageDisplay display = ids.getActiveImageDisplay();
+		if (display == null) return;
+		final Dataset dataset = ids.getActiveDataset(display);
+		if (dataset == null) return;
+		final List<Overlay> overlays = overlaysToMeasure(display);
+		if (overlays.isEmpty()) return;
+		final JFileChooser chooser = new JFileChooser();
+		chooser.setDialogTitle("Save Measurements ...");
+		chooser.setSelectedFile(new File("Results.csv"));
+		if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+		final File file = chooser.getSelectedFile();
+		final MeasurementService ms =
+			context.getService(MeasurementService.class);
+		final StatusService status =
+			context.getService(UIService.class).getStatusService();
+		ms.getThreadService().run(new Callable<Object>() {
+
+			@Override
+			public Object call() {
+				status.showStatus("Measuring " + dataset.getName() + "...");
+				try {
+					final CsvResultsTable table =
+						new CsvResultsTable(new BufferedWriter(new FileWriter(file)));
+					try {
+						ms.measure(dataset, overlays, table);
+					}
+					finally {
+						table.close();
+					}
+					status.showStatus("Measurements saved to " + file.getName());
+				}
+				catch (final IOException e) {
+					Log.error("Cannot write " + file, e);
+					status.showStatus("Cannot write " + file.getName());
+				}
+				return null;
+			}
+		});
 	}
 	
 	private void multiPlot() {
@@ -946,6 +1025,17 @@ private void xor() {
 	
 	// -- private helpers for hotkey handling --
 
+	/**
+	 * Gets the selected overlays, or all overlays of the given display when none
+	 * are selected.
+	 */
+	private List<Overlay> overlaysToMeasure(final ImageDisplay display) {
+		final List<Overlay> selected = infoList.selectedOverlays();
+		if (!selected.isEmpty()) return selected;
+		final OverlayService os = context.getService(OverlayService.class);
+		return os.getOverlays(display);
+	}
+	
 	private void setupKeyListener() {
 		//KeyListener listener = new AWTKeyEventDispatcher(fakeDisplay, eventService);
 		final KeyListener listener = new KeyListener() {
@@ -1039,20 +1129,16 @@ public void valueChanged(final ListSelectionEvent listSelectionEvent) {
 					final JList list = (JList) listSelectionEvent.getSource();
 					final Object[] selectionValues = list.getSelectedValues();
 					infoList.deselectAll();
+					final Set<Object> selectedOverlays =
+						Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
 					for (final Object overlayInfoObj : selectionValues) {
 						final OverlayInfo overlayInfo = (OverlayInfo) overlayInfoObj;
 						overlayInfo.selected = true;
+						selectedOverlays.add(overlayInfo.overlay);
 					}
 					for (final DataView overlayView : display) {
-						overlayView.setSelected(false);
-						for (final Object overlayInfoObj : selectionValues) {
-							final OverlayInfo overlayInfo = (OverlayInfo) overlayInfoObj;
-							if (overlayInfo.overlay == overlayView.getData()) {
-								overlayInfo.selected = true;
-								overlayView.setSelected(true);
-								break;
-							}
-						}
+						overlayView.setSelected(selectedOverlays.contains(overlayView
+							.getData()));
 					}
 					selecting = false;
 				}
@@ -1316,17 +1402,12 @@ public void itemStateChanged(ItemEvent evt) {
 
 	// -- private helpers for TODO XXXX --
 	
-	// TODO - assumes first selected overlay view is the only one. bad?
 	private Overlay getActiveOverlay() {
 		final ImageDisplayService ids = context.getService(ImageDisplayService.class);
 		final ImageDisplay activeDisplay = ids.getActiveImageDisplay();
 		if (activeDisplay == null) return null;
-		final List<DataView> views = activeDisplay;
-		for (DataView view : views) {
-			if (view.isSelected() && (view instanceof OverlayView))
-				return ((OverlayView) view).getData();
-		}
-		return null;
+		final OverlayService os = context.getService(OverlayService.class);
+		return os.getActiveOverlay(activeDisplay);
 	}
 	
 	private void runPropertiesPlugin() {
@@ -141,7 +141,7 @@ public void mouseReleased(final MouseEvent e) {
 
 	// -- Event handlers --
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final StatusEvent event) {
 		final String message = event.getStatusMessage();
 		final int val = event.getProgressValue();
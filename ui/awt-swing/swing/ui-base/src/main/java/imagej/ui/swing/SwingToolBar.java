@@ -190,7 +190,7 @@ public void stateChanged(final ChangeEvent e) {
 
 	// -- Event handlers --
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final ToolActivatedEvent event) {
 		final PluginInfo<Tool> info = event.getTool().getInfo();
 		if (info == null) return; // no info, no button
@@ -203,7 +203,7 @@ protected void onEvent(final ToolActivatedEvent event) {
 		Log.debug("Selected " + name + " button.");
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final ToolDeactivatedEvent event) {
 		final PluginInfo<Tool> info = event.getTool().getInfo();
 		if (info == null) return; // no info, no button
@@ -100,7 +100,7 @@ protected ZoomScaleOption getZoomScaleOption() {
 
 	// -- Event handlers --
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(@SuppressWarnings("unused")
 	final OptionsEvent e)
 	{
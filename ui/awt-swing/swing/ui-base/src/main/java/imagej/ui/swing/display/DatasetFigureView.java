@@ -43,6 +43,7 @@
 import imagej.event.EventHandler;
 import imagej.event.EventService;
 import imagej.event.EventSubscriber;
+import imagej.util.IntRect;
 import imagej.util.Log;
 import imagej.util.awt.AWTImageTools;
 
@@ -65,9 +66,13 @@
 public class DatasetFigureView implements FigureView {
 
 	private final DatasetView datasetView;
-	private final ImageFigure figure;
+	private final DatasetFigure figure;
 	private final AbstractSwingImageDisplayViewer displayViewer;
 	private boolean needsUpdate;
+
+	/** Area awaiting redraw, or null if the whole image must be refreshed. */
+	private IntRect dirtyRegion;
+	private boolean fullUpdate;
 	private boolean disposeScheduled;
 	private final List<EventSubscriber<?>> subscribers;
 
@@ -79,7 +84,7 @@ public DatasetFigureView(final AbstractSwingImageDisplayViewer displayViewer,
 		needsUpdate = false;
 		final JHotDrawImageCanvas canvas = displayViewer.getCanvas();
 		final Drawing drawing = canvas.getDrawing();
-		figure = new ImageFigure();
+		figure = new DatasetFigure();
 		figure.setSelectable(false);
 		figure.setTransformable(false);
 		final Dataset dataset = datasetView.getData();
@@ -95,14 +100,28 @@ public DatasetFigureView(final AbstractSwingImageDisplayViewer displayViewer,
 		subscribers = eventService.subscribe(this);
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onDataViewUpdatedEvent(final DataViewUpdatedEvent event) {
-		if (event.getView() == datasetView) update();
+		if (event.getView() == datasetView) update(event.getRegion());
 	}
 
 	@Override
-	@SuppressWarnings("synthetic-access")
 	public synchronized void update() {
+		update(null);
+	}
+
+	/**
+	 * Schedules a redraw of the given area of the image, or of the whole image
+	 * if null. Pending areas are merged until the redraw happens.
+	 */
+	@SuppressWarnings("synthetic-access")
+	private synchronized void update(final IntRect region) {
+		if (region == null) fullUpdate = true;
+		else if (dirtyRegion == null) {
+			dirtyRegion =
+				new IntRect(region.x, region.y, region.width, region.height);
+		}
+		else union(dirtyRegion, region);
 		if ((!needsUpdate) && (!disposeScheduled)) {
 			needsUpdate = true;
 			EventQueue.invokeLater(new Runnable() {
@@ -117,15 +136,26 @@ public void run() {
 
 	private synchronized void doUpdate() {
 		try {
-			Log.debug("Updating image figure: " + this);
+			Log.debug("Updating image figure: {}", this);
 			final Image image = datasetView.getScreenImage().image();
 			final BufferedImage bufImage = AWTImageTools.makeBuffered(image);
-			figure.setBounds(new Rectangle2D.Double(0, 0, bufImage.getWidth(),
-				bufImage.getHeight()));
+			if (!fullUpdate && dirtyRegion != null &&
+				figure.getBufferedImage() == bufImage)
+			{
+				// the figure already shows the screen image; repaint what changed
+				figure.invalidateArea(dirtyRegion);
+				return;
+			}
+			// NB: the screen image may be a reduced resolution level; the figure
+			// keeps the size of the data, and scales the image to it
+			figure.setBounds(new Rectangle2D.Double(0, 0, datasetView
+				.getPreferredWidth(), datasetView.getPreferredHeight()));
 			figure.setBufferedImage(bufImage);
 		}
 		finally {
 			needsUpdate = false;
+			fullUpdate = false;
+			dirtyRegion = null;
 		}
 	}
 
@@ -158,4 +188,34 @@ public void run() {
 	public DataView getDataView() {
 		return datasetView;
 	}
+
+	// -- Helper methods --
+
+	/** Grows the given rectangle to also contain another. */
+	private static void union(final IntRect rect, final IntRect other) {
+		final int x2 = Math.max(rect.x + rect.width, other.x + other.width);
+		final int y2 = Math.max(rect.y + rect.height, other.y + other.height);
+		rect.x = Math.min(rect.x, other.x);
+		rect.y = Math.min(rect.y, other.y);
+		rect.width = x2 - rect.x;
+		rect.height = y2 - rect.y;
+	}
+
+	// -- Helper classes --
+
+	/** An image figure which can repaint part of its image. */
+	private static class DatasetFigure extends ImageFigure {
+
+		/** Signals that the given area of the image has changed. */
+		public void invalidateArea(final IntRect rect) {
+			final Rectangle2D.Double bounds = getBounds();
+			final BufferedImage image = getBufferedImage();
+			final double sx = bounds.width / image.getWidth();
+			final double sy = bounds.height / image.getHeight();
+			fireAreaInvalidated(new Rectangle2D.Double(bounds.x + rect.x * sx,
+				bounds.y + rect.y * sy, rect.width * sx, rect.height * sy));
+		}
+
+	}
+
 }
@@ -77,7 +77,10 @@
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.swing.JPanel;
@@ -87,12 +90,12 @@
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
 
-import org.jhotdraw.draw.DefaultDrawing;
 import org.jhotdraw.draw.DefaultDrawingEditor;
 import org.jhotdraw.draw.DefaultDrawingView;
 import org.jhotdraw.draw.Drawing;
 import org.jhotdraw.draw.DrawingEditor;
 import org.jhotdraw.draw.Figure;
+import org.jhotdraw.draw.QuadTreeDrawing;
 import org.jhotdraw.draw.event.FigureSelectionEvent;
 import org.jhotdraw.draw.event.FigureSelectionListener;
 
@@ -120,13 +123,23 @@ public class JHotDrawImageCanvas extends JPanel implements AdjustmentListener {
 
 	private final List<FigureView> figureViews = new ArrayList<FigureView>();
 
+	/** The figure view of each data view, for lookups by data view. */
+	private final Map<DataView, FigureView> figureViewMap =
+		new IdentityHashMap<DataView, FigureView>();
+
+	/** The figure view of each figure, for lookups by selected figure. */
+	private final Map<Figure, FigureView> figureMap =
+		new IdentityHashMap<Figure, FigureView>();
+
 	private final List<EventSubscriber<?>> subscribers;
 
 	public JHotDrawImageCanvas(final AbstractSwingImageDisplayViewer displayViewer)
 	{
 		this.displayViewer = displayViewer;
 
-		drawing = new DefaultDrawing(); // or QuadTreeDrawing?
+		// NB: a quad tree keeps hit tests and area selections fast with many
+		// overlays
+		drawing = new QuadTreeDrawing();
 
 		drawingView = new DefaultDrawingView();
 		drawingView.setDrawing(drawing);
@@ -168,10 +181,7 @@ public void componentResized(final ComponentEvent e) {
 	}
 
 	protected FigureView getFigureView(final DataView dataView) {
-		for (final FigureView figureView : figureViews) {
-			if (figureView.getDataView() == dataView) return figureView;
-		}
-		return null;
+		return figureViewMap.get(dataView);
 	}
 
 	/**
@@ -183,23 +193,21 @@ protected FigureView getFigureView(final DataView dataView) {
 	protected void onFigureSelectionChanged(final FigureSelectionEvent event) {
 		final Set<Figure> newSelection = event.getNewSelection();
 		final Set<Figure> oldSelection = event.getOldSelection();
-		for (final DataView view : displayViewer.getDisplay()) {
-			final FigureView figureView = getFigureView(view);
-			if (figureView != null) {
-				final Figure figure = figureView.getFigure();
-				if (newSelection.contains(figure)) {
-					// BDZ removed next line 10-12-11
-					// Fixes drawing of multiple overlays (#817). Lee had this code
-					// here in anticipation of avoiding infinite event loops.
-					// Inspection seems to bear out that this possibility doesn't
-					// happen.
-					// if (!oldSelection.contains(figure))
-					view.setSelected(true);
-				}
-				else if (oldSelection.contains(figure)) {
-					view.setSelected(false);
-				}
-			}
+		// NB: visit the changed figures only, not every view of the display
+		for (final Figure figure : newSelection) {
+			final FigureView figureView = figureMap.get(figure);
+			// BDZ removed next line 10-12-11
+			// Fixes drawing of multiple overlays (#817). Lee had this code
+			// here in anticipation of avoiding infinite event loops.
+			// Inspection seems to bear out that this possibility doesn't
+			// happen.
+			// if (!oldSelection.contains(figure))
+			if (figureView != null) figureView.getDataView().setSelected(true);
+		}
+		for (final Figure figure : oldSelection) {
+			if (newSelection.contains(figure)) continue;
+			final FigureView figureView = figureMap.get(figure);
+			if (figureView != null) figureView.getDataView().setSelected(false);
 		}
 	}
 
@@ -214,7 +222,7 @@ protected void onSizeChanged(final ComponentEvent e) {
 		canvas.setViewportSize(viewRect.width, viewRect.height);
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onViewSelected(final DataViewSelectedEvent event) {
 		final DataView view = event.getView();
 		final FigureView figureView = getFigureView(view);
@@ -226,7 +234,7 @@ protected void onViewSelected(final DataViewSelectedEvent event) {
 		}
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onViewDeselected(final DataViewDeselectedEvent event) {
 		final DataView view = event.getView();
 		final FigureView figureView = getFigureView(view);
@@ -238,13 +246,13 @@ protected void onViewDeselected(final DataViewDeselectedEvent event) {
 		}
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onToolActivatedEvent(final ToolActivatedEvent event) {
 		final Tool iTool = event.getTool();
 		activateTool(iTool);
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final DisplayDeletedEvent event) {
 		if (event.getObject() == getDisplay()) {
 			final EventService eventService =
@@ -253,13 +261,13 @@ protected void onEvent(final DisplayDeletedEvent event) {
 		}
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final ZoomEvent event) {
 		if (event.getCanvas() != getDisplay().getCanvas()) return;
 		syncPanAndZoom();
 	}
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final MouseCursorEvent event) {
 		drawingView.setCursor(AWTCursors.getCursor(getDisplay().getCanvas()
 			.getCursor()));
@@ -282,20 +290,25 @@ else if (dataView instanceof OverlayView) {
 						dataView.getClass().getName());
 					continue;
 				}
-				figureViews.add(figureView);
+				addFigureView(figureView);
 			}
 		}
-		int idx = 0;
-		while (idx < figureViews.size()) {
-			final FigureView figureView = figureViews.get(idx);
-			if (!getDisplay().contains(figureView.getDataView())) {
-				figureViews.remove(idx);
-				figureView.dispose();
+		final Set<DataView> dataViews =
+			Collections.newSetFromMap(new IdentityHashMap<DataView, Boolean>());
+		dataViews.addAll(getDisplay());
+		final List<FigureView> kept = new ArrayList<FigureView>();
+		for (final FigureView figureView : figureViews) {
+			if (dataViews.contains(figureView.getDataView())) {
+				kept.add(figureView);
 			}
 			else {
-				idx++;
+				figureViewMap.remove(figureView.getDataView());
+				figureMap.remove(figureView.getFigure());
+				figureView.dispose();
 			}
 		}
+		figureViews.clear();
+		figureViews.addAll(kept);
 	}
 
 	void update() {
@@ -329,7 +342,7 @@ public void overlayCreated(final FigureCreatedEvent e) {
 					}
 					final OverlayFigureView figureView =
 						new OverlayFigureView(displayViewer, overlay, e.getFigure());
-					figureViews.add(figureView);
+					addFigureView(figureView);
 					display.add(overlay);
 					display.update();
 				}
@@ -425,6 +438,12 @@ public Dimension getPreferredSize() {
 
 	// -- Helper methods --
 
+	private void addFigureView(final FigureView figureView) {
+		figureViews.add(figureView);
+		figureViewMap.put(figureView.getDataView(), figureView);
+		figureMap.put(figureView.getFigure(), figureView);
+	}
+
 	private ImageDisplay getDisplay() {
 		return displayViewer.getImageDisplay();
 	}
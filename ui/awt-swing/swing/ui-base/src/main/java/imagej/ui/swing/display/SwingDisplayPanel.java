@@ -216,7 +216,7 @@ public void run() {
 
 	// -- Event handlers --
 
-	@EventHandler
+	@EventHandler(edt = true)
 	protected void onEvent(final AxisPositionEvent event) {
 		if (event.getDisplay() != getDisplay()) return;
 		final AxisType axis = event.getAxis();